@@ -0,0 +1,89 @@
+package com.faforever.client.rating;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the exhaustive {@link TeamBalancer}, sequential and in parallel, with the previous heuristic of scoring
+ * 30 random shuffles. Run with {@code ./gradlew jmh}; the host is locked to the first team as in
+ * {@link JSkillsRatingService#getBalancedTeams}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TeamBalancerBenchmark {
+
+  @Param({"4", "6", "8", "10", "12", "14", "16"})
+  public int players;
+
+  @Param({"2", "4"})
+  public int teams;
+
+  private double[] means;
+  private double[] deviations;
+  private int[] lockedTeams;
+  private TeamBalancer sequentialBalancer;
+  private TeamBalancer parallelBalancer;
+  private List<Integer> shuffledPlayers;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    means = random.doubles(players, 800, 2200).toArray();
+    deviations = random.doubles(players, 50, 300).toArray();
+    lockedTeams = IntStream.range(0, players).map(player -> player == 0 ? 0 : TeamBalancer.UNLOCKED).toArray();
+    sequentialBalancer = new TeamBalancer(teams, Integer.MAX_VALUE, ForkJoinPool.commonPool());
+    parallelBalancer = new TeamBalancer(teams);
+    shuffledPlayers = new ArrayList<>(IntStream.range(1, players).boxed().toList());
+  }
+
+  @Benchmark
+  public TeamBalancer.Assignment exhaustiveSequential() {
+    return sequentialBalancer.balance(means, deviations, lockedTeams, 1).get(0);
+  }
+
+  @Benchmark
+  public TeamBalancer.Assignment exhaustiveParallel() {
+    return parallelBalancer.balance(means, deviations, lockedTeams, 1).get(0);
+  }
+
+  @Benchmark
+  public double randomShuffles() {
+    double bestScore = Double.POSITIVE_INFINITY;
+    for (int search = 0; search < 30; search++) {
+      Collections.shuffle(shuffledPlayers);
+      List<Integer> positions = new ArrayList<>(List.of(0));
+      positions.addAll(shuffledPlayers);
+
+      double[] teamMeans = new double[teams];
+      double[] teamVariances = new double[teams];
+      for (int position = 0; position < positions.size(); position++) {
+        int player = positions.get(position);
+        teamMeans[position % teams] += means[player];
+        teamVariances[position % teams] += deviations[player] * deviations[player];
+      }
+      bestScore = Math.min(bestScore, TeamBalancer.score(teamMeans, teamVariances, teams));
+    }
+    return bestScore;
+  }
+}
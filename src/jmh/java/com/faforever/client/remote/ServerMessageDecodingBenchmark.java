@@ -0,0 +1,81 @@
+package com.faforever.client.remote;
+
+import com.faforever.client.remote.domain.ServerMessage;
+import com.faforever.client.remote.gson.ServerMessageDecoder;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a corpus of lobby server messages (one JSON message per line) with the tree-based
+ * {@code gson.fromJson(json, ServerMessage.class)} against {@link ServerMessageDecoder}. Run with
+ * {@code ./gradlew jmh}; allocation rates are reported by the GC profiler configured in {@code build.gradle}.
+ * <p>
+ * The bundled corpus is a synthetic sample shaped like lobby start-up traffic. To use a captured session instead, set
+ * the {@code corpus} parameter to a file with one message per line, e.g. {@code -PjmhCorpus=/path/to/capture.jsonl}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServerMessageDecodingBenchmark {
+
+  private static final String BUNDLED_CORPUS = "lobby-traffic.jsonl";
+
+  @Param("")
+  public String corpus;
+
+  private Gson gson;
+  private ServerMessageDecoder decoder;
+  private List<String> messages;
+
+  @Setup
+  public void setUp() throws IOException {
+    gson = FafServerAccessorImpl.createGson();
+    decoder = new ServerMessageDecoder(gson);
+    if (corpus.isEmpty()) {
+      try (InputStream inputStream = getClass().getResourceAsStream(BUNDLED_CORPUS);
+           BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+        messages = reader.lines().filter(line -> !line.isBlank()).toList();
+      }
+    } else {
+      messages = Files.readAllLines(Path.of(corpus)).stream().filter(line -> !line.isBlank()).toList();
+    }
+  }
+
+  @Benchmark
+  public void treeDeserialization(Blackhole blackhole) {
+    for (String message : messages) {
+      blackhole.consume(gson.fromJson(message, ServerMessage.class));
+    }
+  }
+
+  @Benchmark
+  public void streamingDecoder(Blackhole blackhole) {
+    for (String message : messages) {
+      blackhole.consume(decoder.decode(message));
+    }
+  }
+}
@@ -0,0 +1,534 @@
+package com.faforever.client.api;
+
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.preferences.PreferencesService;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Disk-backed cache for the API's {@code GET} responses, installed as an interceptor of the API's rest template.
+ * <p>
+ * Responses are stored in the cache directory together with their {@code ETag} and {@code Last-Modified} headers. A
+ * cached response is served as long as it's fresh according to its {@code Cache-Control: max-age}; after that, it's
+ * revalidated with a conditional request and served again if the API answers {@code 304 Not Modified}. For the
+ * read-only endpoints configured in {@link ClientProperties.Api#getStaleWhileRevalidatePaths()}, a stale response is
+ * served right away while it's revalidated in the background. The cache is limited in size, evicting the least
+ * recently used responses first.
+ * <p>
+ * Responses are cached per player, since some of them depend on who asks. A successful request with any other method
+ * than {@code GET} evicts the cached responses of its path and of the collection containing it, e.g. {@code PATCH
+ * /data/mod/1} evicts {@code /data/mod/1} as well as all listings of {@code /data/mod}.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ApiResponseCache implements ClientHttpRequestInterceptor {
+
+  private static final String CACHE_DIRECTORY_NAME = "api-responses";
+  private static final String ENTRY_SUFFIX = ".response";
+  private static final Pattern MAX_AGE_PATTERN = Pattern.compile("max-age=(\\d+)");
+
+  private final ClientProperties clientProperties;
+  private final PreferencesService preferencesService;
+  private final ExecutorService executorService;
+  private final ClientHttpRequestFactory revalidationRequestFactory = new HttpComponentsClientHttpRequestFactory();
+  private final Gson gson = new Gson();
+  private final Set<String> revalidatingKeys = ConcurrentHashMap.newKeySet();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong staleHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong revalidations = new AtomicLong();
+  private final AtomicLong notModified = new AtomicLong();
+
+  /** The player whose responses are cached, {@code null} if nobody is logged in. */
+  private volatile Integer playerId;
+
+  /** Sizes of the cached entries by key, least recently used first. Loaded on first use. */
+  private LinkedHashMap<String, Long> entrySizes;
+  private long totalSize;
+
+  @Override
+  public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+    if (request.getMethod() != HttpMethod.GET) {
+      ClientHttpResponse response = execution.execute(request, body);
+      if (HttpStatus.Series.resolve(response.getRawStatusCode()) == HttpStatus.Series.SUCCESSFUL) {
+        evictPathAndCollection(request.getURI().getPath());
+      }
+      return response;
+    }
+    if (!isCacheable(request.getURI())) {
+      return execution.execute(request, body);
+    }
+
+    String key = key(request.getURI());
+    Entry cached = read(key);
+    if (cached == null) {
+      misses.incrementAndGet();
+      return store(key, request.getURI(), execution.execute(request, body));
+    }
+
+    long now = System.currentTimeMillis();
+    if (cached.isFresh(now)) {
+      hits.incrementAndGet();
+      return cached.toResponse();
+    }
+    if (isStaleWhileRevalidate(request.getURI())
+        && now - cached.storedAt < clientProperties.getApi().getResponseCacheMaxStale().toMillis()) {
+      staleHits.incrementAndGet();
+      revalidateInBackground(key, request, cached);
+      return cached.toResponse();
+    }
+
+    revalidations.incrementAndGet();
+    addConditionalHeaders(request.getHeaders(), cached);
+    return handleRevalidation(key, request.getURI(), cached, execution.execute(request, body));
+  }
+
+  /**
+   * Sets the player whose responses are cached from now on. Responses cached for another player are not served to
+   * them, but are kept until they are evicted, so that they can be used again when that player logs in again.
+   */
+  public void setPlayerId(@Nullable Integer playerId) {
+    this.playerId = playerId;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Returns how many stale responses have been served while they were revalidated in the background.
+   */
+  public long getStaleHits() {
+    return staleHits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getRevalidations() {
+    return revalidations.get();
+  }
+
+  /**
+   * Returns how many revalidations, including background ones, found the cached response to be up to date.
+   */
+  public long getNotModified() {
+    return notModified.get();
+  }
+
+  private boolean isCacheable(URI uri) {
+    return matchesAny(uri, clientProperties.getApi().getCacheablePaths());
+  }
+
+  private boolean isStaleWhileRevalidate(URI uri) {
+    return matchesAny(uri, clientProperties.getApi().getStaleWhileRevalidatePaths());
+  }
+
+  private static boolean matchesAny(URI uri, List<String> paths) {
+    String path = uri.getPath();
+    return path != null && paths.stream().anyMatch(prefix -> path.equals(prefix) || path.startsWith(prefix.endsWith("/") ? prefix : prefix + "/"));
+  }
+
+  /**
+   * Returns the key of a response, which starts with the key of its path so that all responses of a path can be
+   * found, see {@link #evictPathAndCollection(String)}.
+   */
+  private String key(URI uri) {
+    return pathKey(uri.getPath())
+        + Hashing.sha256().hashString(playerId + " " + uri, StandardCharsets.UTF_8).toString();
+  }
+
+  private static String pathKey(String path) {
+    return Hashing.sha256().hashString(String.valueOf(path), StandardCharsets.UTF_8).toString().substring(0, 16) + "-";
+  }
+
+  private void evictPathAndCollection(String path) {
+    if (path == null) {
+      return;
+    }
+    String trimmedPath = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    evictPath(trimmedPath);
+    int lastSlash = trimmedPath.lastIndexOf('/');
+    if (lastSlash > 0) {
+      evictPath(trimmedPath.substring(0, lastSlash));
+    }
+  }
+
+  private synchronized void evictPath(String path) {
+    String prefix = pathKey(path);
+    List<String> keys = getEntrySizes().keySet().stream()
+        .filter(key -> key.startsWith(prefix))
+        .toList();
+    if (!keys.isEmpty()) {
+      log.debug("Evicting {} cached responses of '{}'", keys.size(), path);
+    }
+    keys.forEach(this::remove);
+  }
+
+  private static void addConditionalHeaders(HttpHeaders headers, Entry cached) {
+    if (cached.etag != null) {
+      headers.setIfNoneMatch(cached.etag);
+    }
+    if (cached.lastModified != null) {
+      headers.set(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified);
+    }
+  }
+
+  private void revalidateInBackground(String key, HttpRequest request, Entry cached) {
+    if (!revalidatingKeys.add(key)) {
+      return;
+    }
+    HttpHeaders headers = new HttpHeaders();
+    headers.putAll(request.getHeaders());
+    URI uri = request.getURI();
+    executorService.execute(() -> {
+      try {
+        ClientHttpRequest revalidationRequest = revalidationRequestFactory.createRequest(uri, HttpMethod.GET);
+        revalidationRequest.getHeaders().putAll(headers);
+        addConditionalHeaders(revalidationRequest.getHeaders(), cached);
+        handleRevalidation(key, uri, cached, revalidationRequest.execute()).close();
+      } catch (IOException | RuntimeException e) {
+        log.debug("Could not revalidate cached response of '{}'", uri, e);
+      } finally {
+        revalidatingKeys.remove(key);
+      }
+    });
+  }
+
+  private ClientHttpResponse handleRevalidation(String key, URI uri, Entry cached, ClientHttpResponse response) throws IOException {
+    if (response.getRawStatusCode() != HttpStatus.NOT_MODIFIED.value()) {
+      return store(key, uri, response);
+    }
+    notModified.incrementAndGet();
+    Entry updated = cached.revalidated(response.getHeaders(), System.currentTimeMillis());
+    response.close();
+    write(key, updated);
+    return updated.toResponse();
+  }
+
+  /**
+   * Stores a successful response and returns a replacement for it, since its body can only be read once. Responses
+   * that could neither be revalidated nor served stale are not stored.
+   */
+  private ClientHttpResponse store(String key, URI uri, ClientHttpResponse response) throws IOException {
+    HttpHeaders headers = response.getHeaders();
+    String cacheControl = headers.getCacheControl();
+    if (response.getRawStatusCode() != HttpStatus.OK.value() || (cacheControl != null && cacheControl.contains("no-store"))) {
+      return response;
+    }
+    if (headers.getETag() == null && headers.getFirst(HttpHeaders.LAST_MODIFIED) == null
+        && maxAgeMillis(headers) == 0 && !isStaleWhileRevalidate(uri)) {
+      return response;
+    }
+
+    byte[] body;
+    try (response; InputStream inputStream = response.getBody()) {
+      body = inputStream.readAllBytes();
+    }
+    Entry entry = new Entry(response.getRawStatusCode(), response.getStatusText(), headers, body, System.currentTimeMillis());
+    write(key, entry);
+    return entry.toResponse();
+  }
+
+  private Path getCacheDirectory() {
+    return preferencesService.getCacheDirectory().resolve(CACHE_DIRECTORY_NAME);
+  }
+
+  private Path getEntryFile(String key) {
+    return getCacheDirectory().resolve(key + ENTRY_SUFFIX);
+  }
+
+  @Nullable
+  private Entry read(String key) {
+    synchronized (this) {
+      if (!getEntrySizes().containsKey(key)) {
+        return null;
+      }
+      // Mark as recently used
+      getEntrySizes().put(key, getEntrySizes().remove(key));
+    }
+
+    Path entryFile = getEntryFile(key);
+    try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(entryFile))) {
+      ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+      int b;
+      while ((b = inputStream.read()) != '\n') {
+        if (b == -1) {
+          throw new IOException("Missing separator between metadata and body");
+        }
+        metadata.write(b);
+      }
+      Entry entry = gson.fromJson(metadata.toString(StandardCharsets.UTF_8), Entry.class);
+      if (entry == null) {
+        throw new IOException("Missing metadata");
+      }
+      entry.body = inputStream.readAllBytes();
+      Files.setLastModifiedTime(entryFile, FileTime.fromMillis(System.currentTimeMillis()));
+      return entry;
+    } catch (IOException | JsonParseException e) {
+      log.debug("Could not read cached response '{}', discarding it", entryFile, e);
+      remove(key);
+      return null;
+    }
+  }
+
+  private void write(String key, Entry entry) {
+    Path entryFile = getEntryFile(key);
+    try {
+      Files.createDirectories(entryFile.getParent());
+      Path tempFile = Files.createTempFile(entryFile.getParent(), key, ".tmp");
+      try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+        outputStream.write(gson.toJson(entry).getBytes(StandardCharsets.UTF_8));
+        outputStream.write('\n');
+        outputStream.write(entry.body);
+      }
+      Files.move(tempFile, entryFile, REPLACE_EXISTING, ATOMIC_MOVE);
+
+      synchronized (this) {
+        Long previousSize = getEntrySizes().remove(key);
+        if (previousSize != null) {
+          totalSize -= previousSize;
+        }
+        long size = Files.size(entryFile);
+        getEntrySizes().put(key, size);
+        totalSize += size;
+        evict();
+      }
+    } catch (IOException e) {
+      log.warn("Could not write cached response '{}'", entryFile, e);
+    }
+  }
+
+  private synchronized void remove(String key) {
+    Long size = getEntrySizes().remove(key);
+    if (size != null) {
+      totalSize -= size;
+    }
+    try {
+      Files.deleteIfExists(getEntryFile(key));
+    } catch (IOException e) {
+      log.debug("Could not delete cached response '{}'", key, e);
+    }
+  }
+
+  /**
+   * Evicts the least recently used entries until the cache fits into its maximum size.
+   */
+  private synchronized void evict() {
+    long maxSize = clientProperties.getApi().getResponseCacheMaxSize();
+    Iterator<Map.Entry<String, Long>> iterator = getEntrySizes().entrySet().iterator();
+    while (totalSize > maxSize && iterator.hasNext()) {
+      Map.Entry<String, Long> eldest = iterator.next();
+      iterator.remove();
+      totalSize -= eldest.getValue();
+      try {
+        Files.deleteIfExists(getEntryFile(eldest.getKey()));
+      } catch (IOException e) {
+        log.debug("Could not delete cached response '{}'", eldest.getKey(), e);
+      }
+    }
+  }
+
+  /**
+   * Returns the entry sizes, scanning the cache directory on first use. The files' modification times, which are
+   * updated on each use, restore the LRU order.
+   */
+  private synchronized LinkedHashMap<String, Long> getEntrySizes() {
+    if (entrySizes != null) {
+      return entrySizes;
+    }
+    entrySizes = new LinkedHashMap<>();
+    totalSize = 0;
+    Path cacheDirectory = getCacheDirectory();
+    if (Files.notExists(cacheDirectory)) {
+      return entrySizes;
+    }
+
+    List<Path> entryFiles = new ArrayList<>();
+    Map<Path, Long> lastModified = new HashMap<>();
+    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(cacheDirectory, "*" + ENTRY_SUFFIX)) {
+      for (Path entryFile : directoryStream) {
+        entryFiles.add(entryFile);
+        lastModified.put(entryFile, Files.getLastModifiedTime(entryFile).toMillis());
+      }
+    } catch (IOException e) {
+      log.warn("Could not read API response cache '{}'", cacheDirectory, e);
+    }
+    entryFiles.sort(Comparator.comparing(lastModified::get));
+    for (Path entryFile : entryFiles) {
+      String fileName = entryFile.getFileName().toString();
+      try {
+        long size = Files.size(entryFile);
+        entrySizes.put(fileName.substring(0, fileName.length() - ENTRY_SUFFIX.length()), size);
+        totalSize += size;
+      } catch (IOException e) {
+        log.debug("Could not read size of cached response '{}'", entryFile, e);
+      }
+    }
+    log.debug("Loaded {} cached API responses ({} bytes)", entrySizes.size(), totalSize);
+    return entrySizes;
+  }
+
+  private static long maxAgeMillis(HttpHeaders headers) {
+    String cacheControl = headers.getCacheControl();
+    if (cacheControl == null || cacheControl.contains("no-cache")) {
+      return 0;
+    }
+    Matcher matcher = MAX_AGE_PATTERN.matcher(cacheControl);
+    return matcher.find() ? Duration.ofSeconds(Long.parseLong(matcher.group(1))).toMillis() : 0;
+  }
+
+  /**
+   * A cached response. Serialized as a line of JSON followed by the response body.
+   */
+  private static class Entry {
+    private int status;
+    private String statusText;
+    private String contentType;
+    private String etag;
+    private String lastModified;
+    private long storedAt;
+    private long maxAge;
+    private transient byte[] body;
+
+    private Entry(int status, String statusText, HttpHeaders headers, byte[] body, long storedAt) {
+      this.status = status;
+      this.statusText = statusText;
+      this.contentType = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+      this.etag = headers.getETag();
+      this.lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+      this.maxAge = maxAgeMillis(headers);
+      this.body = body;
+      this.storedAt = storedAt;
+    }
+
+    private boolean isFresh(long now) {
+      return now - storedAt < maxAge;
+    }
+
+    /**
+     * Returns a copy of this entry that has been confirmed to be up to date by a {@code 304} response.
+     */
+    private Entry revalidated(HttpHeaders notModifiedHeaders, long now) {
+      HttpHeaders headers = new HttpHeaders();
+      if (contentType != null) {
+        headers.set(HttpHeaders.CONTENT_TYPE, contentType);
+      }
+      String notModifiedEtag = notModifiedHeaders.getETag();
+      if (notModifiedEtag != null || etag != null) {
+        headers.setETag(notModifiedEtag != null ? notModifiedEtag : etag);
+      }
+      String notModifiedLastModified = notModifiedHeaders.getFirst(HttpHeaders.LAST_MODIFIED);
+      if (notModifiedLastModified != null || lastModified != null) {
+        headers.set(HttpHeaders.LAST_MODIFIED, notModifiedLastModified != null ? notModifiedLastModified : lastModified);
+      }
+      if (notModifiedHeaders.getCacheControl() != null) {
+        headers.setCacheControl(notModifiedHeaders.getCacheControl());
+      }
+      return new Entry(status, statusText, headers, body, now);
+    }
+
+    private ClientHttpResponse toResponse() {
+      HttpHeaders headers = new HttpHeaders();
+      if (contentType != null) {
+        headers.set(HttpHeaders.CONTENT_TYPE, contentType);
+      }
+      if (etag != null) {
+        headers.setETag(etag);
+      }
+      headers.setContentLength(body.length);
+      return new CachedResponse(status, statusText, headers, body);
+    }
+  }
+
+  private static class CachedResponse implements ClientHttpResponse {
+    private final int status;
+    private final String statusText;
+    private final HttpHeaders headers;
+    private final byte[] body;
+
+    private CachedResponse(int status, String statusText, HttpHeaders headers, byte[] body) {
+      this.status = status;
+      this.statusText = statusText;
+      this.headers = headers;
+      this.body = body;
+    }
+
+    @Override
+    public HttpStatus getStatusCode() {
+      return HttpStatus.valueOf(status);
+    }
+
+    @Override
+    public int getRawStatusCode() {
+      return status;
+    }
+
+    @Override
+    public String getStatusText() {
+      return statusText;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public InputStream getBody() {
+      return new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+  }
+}
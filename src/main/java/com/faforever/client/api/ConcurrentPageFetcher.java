@@ -0,0 +1,192 @@
+package com.faforever.client.api;
+
+import com.github.jasminb.jsonapi.JSONAPIDocument;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Fetches the pages of a JSON:API collection. The first page is requested with {@code page[totals]}, so the number of
+ * pages is known after the first round trip and the remaining pages can be requested concurrently, with at most a
+ * configured number of requests in flight. Pages are handed to a consumer in order as soon as they and all pages
+ * before them have arrived, so callers can use the first page before the last one is loaded.
+ * <p>
+ * If a page can't be loaded, the outstanding requests are cancelled and the fetch fails. {@link #cancelAll()} cancels
+ * all running fetches, e.g. on logout.
+ */
+@Slf4j
+class ConcurrentPageFetcher {
+
+  interface PageLoader<T> {
+    List<T> load(int page) throws Exception;
+  }
+
+  private final ExecutorService executorService;
+  private final IntSupplier maxConcurrentRequests;
+  private final Set<Fetch<?>> runningFetches = ConcurrentHashMap.newKeySet();
+
+  ConcurrentPageFetcher(ExecutorService executorService, IntSupplier maxConcurrentRequests) {
+    this.executorService = executorService;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+  }
+
+  /**
+   * Fetches up to {@code count} elements in pages of {@code pageSize}.
+   *
+   * @param firstPageLoader loads the first page including its {@code page} meta data
+   * @param pageLoader loads any other page
+   * @param pageConsumer receives each page in order; called on the thread that completed the page
+   */
+  <T> List<T> fetch(int count, int pageSize, Callable<JSONAPIDocument<List<T>>> firstPageLoader, PageLoader<T> pageLoader,
+                    Consumer<List<T>> pageConsumer) throws Exception {
+    JSONAPIDocument<List<T>> firstPage = firstPageLoader.call();
+    List<T> firstPageElements = firstPage.get() != null ? firstPage.get() : Collections.emptyList();
+    List<T> result = new ArrayList<>(limit(firstPageElements, count));
+    pageConsumer.accept(limit(firstPageElements, count));
+
+    int wantedPages = (int) Math.min(Integer.MAX_VALUE, ((long) count + pageSize - 1) / pageSize);
+    Integer totalPages = getTotalPages(firstPage.getMeta());
+    if (totalPages == null) {
+      log.debug("Response of first page contains no page totals, fetching remaining pages sequentially");
+      return fetchSequentially(count, pageSize, firstPageElements, pageLoader, pageConsumer, result);
+    }
+
+    int lastPage = Math.min(totalPages, wantedPages);
+    if (lastPage <= 1 || firstPageElements.size() < pageSize) {
+      return result;
+    }
+
+    Fetch<T> fetch = new Fetch<>(count - result.size(), lastPage, pageLoader, pageConsumer);
+    runningFetches.add(fetch);
+    try {
+      fetch.start(Math.max(1, Math.min(maxConcurrentRequests.getAsInt(), lastPage - 1)));
+      fetch.done.get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception cause ? cause : e;
+    } finally {
+      runningFetches.remove(fetch);
+      fetch.cancelWorkers();
+    }
+
+    fetch.pages.forEach(result::addAll);
+    return result;
+  }
+
+  /**
+   * Cancels all running fetches, which then fail with a {@link CancellationException}.
+   */
+  void cancelAll() {
+    runningFetches.forEach(fetch -> fetch.fail(new CancellationException("Fetch has been cancelled")));
+  }
+
+  private <T> List<T> fetchSequentially(int count, int pageSize, List<T> firstPage, PageLoader<T> pageLoader,
+                                        Consumer<List<T>> pageConsumer, List<T> result) throws Exception {
+    List<T> current = firstPage;
+    int page = 2;
+    while (current.size() >= pageSize && result.size() < count) {
+      current = pageLoader.load(page++);
+      List<T> limited = limit(current, count - result.size());
+      result.addAll(limited);
+      pageConsumer.accept(limited);
+    }
+    return result;
+  }
+
+  private static <T> List<T> limit(List<T> list, int count) {
+    return list.size() > count ? list.subList(0, count) : list;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Integer getTotalPages(Map<String, ?> meta) {
+    if (meta == null || !(meta.get("page") instanceof Map)) {
+      return null;
+    }
+    Object totalPages = ((Map<String, ?>) meta.get("page")).get("totalPages");
+    return totalPages instanceof Number number ? number.intValue() : null;
+  }
+
+  /**
+   * Loads pages 2 to {@code lastPage} with a fixed number of workers, each taking the next page that hasn't been
+   * requested yet.
+   */
+  private class Fetch<T> {
+    /** How many elements are still wanted after the first page. */
+    private final int count;
+    private final int lastPage;
+    private final PageLoader<T> pageLoader;
+    private final Consumer<List<T>> pageConsumer;
+    private final AtomicInteger nextPage = new AtomicInteger(2);
+    private final List<List<T>> pages;
+    private final List<Future<?>> workers = new ArrayList<>();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    /** The next page to hand to the consumer. */
+    private int nextPageToConsume = 2;
+    private int consumedCount;
+
+    private Fetch(int count, int lastPage, PageLoader<T> pageLoader, Consumer<List<T>> pageConsumer) {
+      this.count = count;
+      this.lastPage = lastPage;
+      this.pageLoader = pageLoader;
+      this.pageConsumer = pageConsumer;
+      pages = new ArrayList<>(Collections.nCopies(lastPage - 1, null));
+    }
+
+    private synchronized void start(int workerCount) {
+      for (int i = 0; i < workerCount && !done.isDone(); i++) {
+        workers.add(executorService.submit(this::work));
+      }
+    }
+
+    private void work() {
+      int page;
+      while (!done.isDone() && (page = nextPage.getAndIncrement()) <= lastPage) {
+        try {
+          onPageLoaded(page, pageLoader.load(page));
+        } catch (Exception e) {
+          fail(e);
+        }
+      }
+    }
+
+    private synchronized void onPageLoaded(int page, List<T> elements) {
+      if (done.isDone()) {
+        return;
+      }
+      pages.set(page - 2, elements != null ? elements : Collections.emptyList());
+      while (nextPageToConsume <= lastPage && pages.get(nextPageToConsume - 2) != null) {
+        List<T> consumed = limit(pages.get(nextPageToConsume - 2), count - consumedCount);
+        pages.set(nextPageToConsume - 2, consumed);
+        consumedCount += consumed.size();
+        pageConsumer.accept(consumed);
+        nextPageToConsume++;
+      }
+      if (nextPageToConsume > lastPage) {
+        done.complete(null);
+      }
+    }
+
+    private void fail(Exception e) {
+      if (done.completeExceptionally(e)) {
+        cancelWorkers();
+      }
+    }
+
+    private synchronized void cancelWorkers() {
+      workers.forEach(worker -> worker.cancel(true));
+    }
+  }
+}
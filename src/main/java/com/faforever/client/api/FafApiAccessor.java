@@ -37,6 +37,7 @@ import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Provides access to the FAF REST API. Services should not access this class directly, but use {@link
@@ -60,7 +61,10 @@ public interface FafApiAccessor {
 
   List<Leaderboard> getLeaderboards();
 
-  List<LeaderboardEntry> getAllLeaderboardEntries(String leaderboardTechnicalName);
+  /**
+   * @param pageConsumer receives the pages as they arrive, before entries that weren't updated recently are left out
+   */
+  List<LeaderboardEntry> getAllLeaderboardEntries(String leaderboardTechnicalName, Consumer<List<LeaderboardEntry>> pageConsumer);
 
   Tuple<List<LeaderboardEntry>, java.util.Map<String, ?>> getLeaderboardEntriesWithMeta(String leaderboardTechnicalName, int count, int page);
 
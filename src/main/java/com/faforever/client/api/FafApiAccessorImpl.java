@@ -77,11 +77,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static java.lang.String.format;
@@ -132,11 +133,14 @@ public class FafApiAccessorImpl implements FafApiAccessor, InitializingBean {
   private final ClientProperties clientProperties;
   private final JsonApiMessageConverter jsonApiMessageConverter;
   private final JsonApiErrorHandler jsonApiErrorHandler;
+  private final ExecutorService executorService;
+  private final ApiResponseCache apiResponseCache;
   private final HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
 
   private RestTemplateBuilder templateBuilder;
   private CountDownLatch authorizedLatch = new CountDownLatch(1);
   private RestOperations restOperations;
+  private ConcurrentPageFetcher pageFetcher;
 
   private static String rsql(Condition<?> eq) {
     return eq.query(new RSQLVisitor());
@@ -152,13 +156,17 @@ public class FafApiAccessorImpl implements FafApiAccessor, InitializingBean {
     templateBuilder = unconfiguredTemplateBuilder
         .requestFactory(() -> requestFactory)
         .additionalMessageConverters(jsonApiMessageConverter)
+        .additionalInterceptors(apiResponseCache)
         .errorHandler(jsonApiErrorHandler);
+    pageFetcher = new ConcurrentPageFetcher(executorService, () -> clientProperties.getApi().getMaxConcurrentPageRequests());
   }
 
   @Subscribe
   public void onLoggedOutEvent(LoggedOutEvent event) {
     authorizedLatch = new CountDownLatch(1);
     restOperations = null;
+    apiResponseCache.setPlayerId(null);
+    pageFetcher.cancelAll();
   }
 
   @Subscribe
@@ -225,12 +233,12 @@ public class FafApiAccessorImpl implements FafApiAccessor, InitializingBean {
   }
 
   @Override
-  @Cacheable(value = CacheNames.LEADERBOARD, sync = true)
-  public List<LeaderboardEntry> getAllLeaderboardEntries(String leaderboardTechnicalName) {
-    List<LeaderboardEntry> allResults = getAll(LEADERBOARD_ENTRY_ENDPOINT, java.util.Map.of(
+  public List<LeaderboardEntry> getAllLeaderboardEntries(String leaderboardTechnicalName, Consumer<List<LeaderboardEntry>> pageConsumer) {
+    // Not cached here since every call has its own page consumer; the leaderboard service caches the snapshots
+    List<LeaderboardEntry> allResults = getMany(LEADERBOARD_ENTRY_ENDPOINT, Integer.MAX_VALUE, java.util.Map.of(
         FILTER, rsql(qBuilder().string("leaderboard.technicalName").eq(leaderboardTechnicalName)),
         INCLUDE, LEADERBOARD_ENTRY_INCLUDES,
-        SORT, "-rating"));
+        SORT, "-rating"), pageConsumer);
 
     OffsetDateTime tCutOff = OffsetDateTime.now(ZoneOffset.UTC).minusMonths(1);
     List<LeaderboardEntry> recentResults = allResults.stream()
@@ -705,6 +713,7 @@ public class FafApiAccessorImpl implements FafApiAccessor, InitializingBean {
         // Base URL can be changed in login window
         .rootUri(apiProperties.getBaseUrl())
         .configure(new OAuth2RestTemplate(details));
+    apiResponseCache.setPlayerId(playerId);
 
     authorizedLatch.countDown();
   }
@@ -769,20 +778,37 @@ public class FafApiAccessorImpl implements FafApiAccessor, InitializingBean {
   }
 
   private <T> List<T> getAll(String endpointPath, java.util.Map<String, Serializable> params) {
-    return getMany(endpointPath, clientProperties.getApi().getMaxPageSize(), params);
+    return getMany(endpointPath, Integer.MAX_VALUE, params);
   }
 
-  @SneakyThrows
   private <T> List<T> getMany(String endpointPath, int count, java.util.Map<String, Serializable> params) {
-    List<T> result = new LinkedList<>();
-    List<T> current = null;
-    int page = 1;
-    int maxPageSize = clientProperties.getApi().getMaxPageSize();
-    while ((current == null || current.size() >= maxPageSize) && result.size() < count) {
-      current = getPage(endpointPath, count, page++, params);
-      result.addAll(current);
+    return getMany(endpointPath, count, params, page -> {
+    });
+  }
+
+  /**
+   * Fetches up to {@code count} elements. If they don't fit into a single page, the first page is requested with page
+   * totals and the remaining pages are requested concurrently, see {@link ConcurrentPageFetcher}.
+   *
+   * @param pageConsumer receives the pages in order as they arrive, on the thread that completed them
+   */
+  @SneakyThrows
+  private <T> List<T> getMany(String endpointPath, int count, java.util.Map<String, Serializable> params, Consumer<List<T>> pageConsumer) {
+    int pageSize = Math.min(count, clientProperties.getApi().getMaxPageSize());
+    if (pageSize == count) {
+      List<T> page = getPage(endpointPath, pageSize, 1, params);
+      pageConsumer.accept(page);
+      return page;
     }
-    return result;
+
+    java.util.Map<String, List<String>> multiValues = params.entrySet().stream()
+        .collect(Collectors.toMap(Entry::getKey, entry -> Collections.singletonList(String.valueOf(entry.getValue()))));
+    MultiValueMap<String, String> queryParams = CollectionUtils.toMultiValueMap(multiValues);
+
+    return pageFetcher.fetch(count, pageSize,
+        () -> getPageWithMeta(endpointPath, pageSize, 1, queryParams),
+        page -> getPage(endpointPath, pageSize, page, queryParams),
+        pageConsumer);
   }
 
   private <T> List<T> getPage(String endpointPath, int pageSize, int page, java.util.Map<String, Serializable> params) {
@@ -46,6 +46,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Lazy
 @Component
@@ -105,7 +106,7 @@ public class MockFafApiAccessor implements FafApiAccessor {
   }
 
   @Override
-  public List<LeaderboardEntry> getAllLeaderboardEntries(String leaderboardTechnicalName) {
+  public List<LeaderboardEntry> getAllLeaderboardEntries(String leaderboardTechnicalName, Consumer<List<LeaderboardEntry>> pageConsumer) {
     return Collections.emptyList();
   }
 
@@ -24,6 +24,11 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.eventbus.EventBus;
 import com.google.common.io.CharStreams;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import javafx.beans.InvalidationListener;
+import javafx.beans.WeakInvalidationListener;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.value.ChangeListener;
@@ -71,7 +76,6 @@ import static com.faforever.client.theme.UiService.CHAT_SECTION_COMPACT;
 import static com.faforever.client.theme.UiService.CHAT_SECTION_EXTENDED;
 import static com.faforever.client.theme.UiService.CHAT_TEXT_COMPACT;
 import static com.faforever.client.theme.UiService.CHAT_TEXT_EXTENDED;
-import static com.github.nocatch.NoCatch.noCatch;
 import static com.google.common.html.HtmlEscapers.htmlEscaper;
 import static java.time.temporal.ChronoUnit.MINUTES;
 import static java.util.regex.Pattern.CASE_INSENSITIVE;
@@ -129,7 +133,8 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
   private final CountryFlagService countryFlagService;
 
   /**
-   * Messages that arrived before the web view was ready. Those are appended as soon as it is ready.
+   * Messages that have not been rendered yet, either because the web view isn't ready or because they arrived after the
+   * last render pulse. All messages waiting at the next pulse are rendered and inserted together.
    */
   private final List<ChatMessage> waitingMessages;
   private final IntegerProperty unreadMessagesCount;
@@ -137,11 +142,28 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
   private final ChangeListener<Number> unreadMessagesCountListener;
 
   private final ChangeListener<Number> zoomChangeListener;
+  private final InvalidationListener chatAppearanceListener;
   private final ChangeListener<Boolean> tabPaneFocusedListener;
   private final ChangeListener<Boolean> stageFocusedListener;
   private MapChangeListener<String, ChatChannelUser> usersChangeListener;
   private int lastEntryId;
   private boolean isChatReady;
+  private boolean renderScheduled;
+  /**
+   * HTML snippets rendered in the current pulse, inserted into the web view by a single script call in
+   * {@link #flushPendingInsertions()}. Only accessed on the application thread.
+   */
+  private JsonArray pendingInsertions;
+  /**
+   * The messages currently displayed, used to trim the web view and to render them again when the theme or chat
+   * format changes.
+   */
+  private ChatHistory chatHistory;
+  /**
+   * The range of section IDs displayed by the web view as of the last {@link #flushPendingInsertions()}.
+   */
+  private int displayedFirstSectionId;
+  private int displayedLastSectionId;
   /**
    * Either a channel like "#coreprime" or a user like "Visionik".
    */
@@ -176,12 +198,17 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
     this.chatUserService = chatUserService;
 
     waitingMessages = new ArrayList<>();
+    pendingInsertions = new JsonArray();
+    displayedFirstSectionId = 1;
+    displayedLastSectionId = 0;
+    // Runs later, so the theme's templates have been evicted from the cache before they are rendered again
+    chatAppearanceListener = observable -> JavaFxUtil.runLater(this::renderHistoryAgain);
     unreadMessagesCount = new SimpleIntegerProperty();
     resetUnreadMessagesListener = (observable, oldValue, newValue) -> setUnread(false);
     unreadMessagesCountListener = (observable, oldValue, newValue) -> {
       if (lastEntryId > 0 && oldValue.intValue()==0 && newValue.intValue()>0) {
         removeMessageId(LAST_READ_DELIMITER_ID);
-        insertIntoContainer(String.format("<hr id='%s'>", LAST_READ_DELIMITER_ID), "chat-section-" + lastEntryId);
+        insertIntoContainer(String.format("<hr id='%s'>", LAST_READ_DELIMITER_ID), lastEntryId, "chat-section-" + lastEntryId, false);
       }
       chatService.incrementUnreadMessagesCount(newValue.intValue() - oldValue.intValue());
     };
@@ -328,6 +355,9 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
 
   public void initialize() {
     mentionPattern = Pattern.compile("\\b(" + Pattern.quote(userService.getUsername()) + ")\\b", CASE_INSENSITIVE);
+    chatHistory = new ChatHistory(preferencesService.getPreferences().getChat().getMaxMessages());
+    JavaFxUtil.addListener(preferencesService.getPreferences().getChat().chatFormatProperty(), new WeakInvalidationListener(chatAppearanceListener));
+    JavaFxUtil.addListener(uiService.currentThemeProperty(), new WeakInvalidationListener(chatAppearanceListener));
 
     initChatView();
 
@@ -444,9 +474,8 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
         return;
       }
       synchronized (waitingMessages) {
-        waitingMessages.forEach(AbstractChatTabController.this::addMessage);
-        waitingMessages.clear();
         isChatReady = true;
+        renderWaitingMessages();
         onWebViewLoaded();
       }
     });
@@ -527,32 +556,88 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
 
   protected void onChatMessage(ChatMessage chatMessage) {
     synchronized (waitingMessages) {
-      if (!isChatReady) {
-        waitingMessages.add(chatMessage);
-      } else {
-        JavaFxUtil.runLater(() -> {
-          addMessage(chatMessage);
-          removeTopmostMessages();
-          scrollToBottomIfDesired();
-        });
+      waitingMessages.add(chatMessage);
+      if (isChatReady && !renderScheduled) {
+        renderScheduled = true;
+        JavaFxUtil.runLater(this::renderWaitingMessages);
       }
     }
   }
 
-  private void scrollToBottomIfDesired() {
+  /**
+   * Renders all messages that arrived since the last pulse and inserts them into the web view at once.
+   */
+  private void renderWaitingMessages() {
     JavaFxUtil.assertApplicationThread();
-    engine.executeScript("scrollToBottomIfDesired()");
+    List<ChatMessage> messages;
+    synchronized (waitingMessages) {
+      messages = new ArrayList<>(waitingMessages);
+      waitingMessages.clear();
+      renderScheduled = false;
+    }
+    chatHistory.setMaxSections(preferencesService.getPreferences().getChat().getMaxMessages());
+    for (ChatMessage message : messages) {
+      try {
+        addMessage(message);
+      } catch (RuntimeException e) {
+        logger.warn("Could not render chat message: {}", message, e);
+      }
+    }
+    flushPendingInsertions();
   }
 
-  private void removeTopmostMessages() {
+  /**
+   * Renders all sections of the chat history again, e.g. after the theme or chat format changed, and replaces the
+   * displayed ones with them.
+   */
+  private void renderHistoryAgain() {
     JavaFxUtil.assertApplicationThread();
-    int maxMessageItems = preferencesService.getPreferences().getChat().getMaxMessages();
+    if (!isChatReady || chatHistory.size() == 0) {
+      return;
+    }
+    for (ChatHistory.Section section : chatHistory.getSections()) {
+      List<ChatMessage> messages = section.getMessages();
+      appendChatMessageSection(messages.get(0), section.getId());
+      messages.subList(1, messages.size()).forEach(chatMessage -> appendMessage(chatMessage, section.getId()));
+    }
+    flushPendingInsertions(true);
+  }
 
-    int numberOfMessages = (int) engine.executeScript("document.getElementsByClassName('" + MESSAGE_ITEM_CLASS + "').length");
-    while (numberOfMessages > maxMessageItems) {
-      engine.executeScript("document.getElementsByClassName('" + MESSAGE_ITEM_CLASS + "')[0].remove()");
-      numberOfMessages--;
+  private void flushPendingInsertions() {
+    flushPendingInsertions(false);
+  }
+
+  /**
+   * Removes the displayed sections that have been evicted from the chat history, inserts all pending HTML snippets and
+   * scrolls to the bottom if desired, all in one call into the web view. Snippets of sections that have already been
+   * evicted are not inserted at all.
+   *
+   * @param replaceDisplayed whether all displayed sections should be removed, because the pending snippets replace them
+   */
+  private void flushPendingInsertions(boolean replaceDisplayed) {
+    int firstSectionId = chatHistory.getFirstSectionId();
+    int removedSections;
+    if (replaceDisplayed) {
+      removedSections = displayedLastSectionId - displayedFirstSectionId + 1;
+    } else {
+      removedSections = Math.max(0, Math.min(firstSectionId, displayedLastSectionId + 1) - displayedFirstSectionId);
     }
+
+    JsonArray insertions = new JsonArray();
+    for (JsonElement insertion : pendingInsertions) {
+      if (insertion.getAsJsonObject().get("section").getAsInt() >= firstSectionId) {
+        insertions.add(insertion);
+      }
+    }
+    pendingInsertions = new JsonArray();
+    if (insertions.size() == 0 && removedSections == 0) {
+      return;
+    }
+
+    getJsObject().call("appendChatHtml", insertions.toString(), MESSAGE_ITEM_CLASS, removedSections);
+    displayedFirstSectionId = replaceDisplayed ? firstSectionId : Math.max(displayedFirstSectionId, firstSectionId);
+    displayedLastSectionId = chatHistory.getLastSectionId();
+    getMessagesWebView().requestLayout();
   }
 
   private void removeMessageId(String id) {
@@ -580,19 +665,23 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
    */
   private void addMessage(ChatMessage chatMessage) {
     JavaFxUtil.assertApplicationThread();
-    noCatch(() -> {
-      if (!hasFocus() && !playerService.isCurrentPlayer(chatMessage.getSubject())) {
-        setUnread(true);
-        incrementUnreadMessagesCount(1);
-      }
+    if (!hasFocus() && !playerService.isCurrentPlayer(chatMessage.getSubject())) {
+      setUnread(true);
+      incrementUnreadMessagesCount(1);
+    }
 
-      if (requiresNewChatSection(chatMessage)) {
-        appendChatMessageSection(chatMessage);
-      } else {
-        appendMessage(chatMessage);
-      }
-      lastMessage = chatMessage;
-    });
+    if (requiresNewChatSection(chatMessage)) {
+      chatHistory.startSection(++lastEntryId, chatMessage);
+      appendChatMessageSection(chatMessage, lastEntryId);
+    } else {
+      chatHistory.append(chatMessage);
+      appendMessage(chatMessage, lastEntryId);
+    }
+    lastMessage = chatMessage;
+
+    if (mentionPattern.matcher(chatMessage.getMessage()).find()) {
+      onMention(chatMessage);
+    }
   }
 
   private boolean requiresNewChatSection(ChatMessage chatMessage) {
@@ -602,38 +691,35 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
         || lastMessage.isAction();
   }
 
-  private void appendMessage(ChatMessage chatMessage) throws IOException {
-    URL themeFileUrl;
+  private void appendMessage(ChatMessage chatMessage, int sectionId) {
+    String template;
     if (preferencesService.getPreferences().getChat().getChatFormat() == ChatFormat.COMPACT) {
-      themeFileUrl = uiService.getThemeFileUrl(CHAT_TEXT_COMPACT);
+      template = uiService.getThemeTemplate(CHAT_TEXT_COMPACT);
     } else {
-      themeFileUrl = uiService.getThemeFileUrl(CHAT_TEXT_EXTENDED);
+      template = uiService.getThemeTemplate(CHAT_TEXT_EXTENDED);
     }
 
-    String html = renderHtml(chatMessage, themeFileUrl, null);
+    String html = renderHtml(chatMessage, template, null);
 
-    insertIntoContainer(html, "chat-section-" + lastEntryId);
+    // URLs are converted to hyperlinks by the web view when the batch is inserted
+    insertIntoContainer(html, sectionId, "chat-section-" + sectionId, true);
   }
 
-  private void appendChatMessageSection(ChatMessage chatMessage) throws IOException {
-    URL themeFileURL;
+  private void appendChatMessageSection(ChatMessage chatMessage, int sectionId) {
+    String template;
     if (preferencesService.getPreferences().getChat().getChatFormat() == ChatFormat.COMPACT) {
-      themeFileURL = uiService.getThemeFileUrl(CHAT_SECTION_COMPACT);
+      template = uiService.getThemeTemplate(CHAT_SECTION_COMPACT);
     } else {
-      themeFileURL = uiService.getThemeFileUrl(CHAT_SECTION_EXTENDED);
+      template = uiService.getThemeTemplate(CHAT_SECTION_EXTENDED);
     }
 
-    String html = renderHtml(chatMessage, themeFileURL, ++lastEntryId);
-    insertIntoContainer(html, MESSAGE_CONTAINER_ID);
-    appendMessage(chatMessage);
+    String html = renderHtml(chatMessage, template, sectionId);
+    insertIntoContainer(html, sectionId, MESSAGE_CONTAINER_ID, false);
+    appendMessage(chatMessage, sectionId);
   }
 
-  private String renderHtml(ChatMessage chatMessage, URL themeFileUrl, @Nullable Integer sectionId) throws IOException {
-    String html;
-    try (Reader reader = new InputStreamReader(themeFileUrl.openStream())) {
-      html = CharStreams.toString(reader);
-    }
-
+  private String renderHtml(ChatMessage chatMessage, String template, @Nullable Integer sectionId) {
+    String html = template;
     String login = chatMessage.getUsername();
     String avatarUrl = "";
     String clanTag = "";
@@ -675,14 +761,12 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
 
     Optional.ofNullable(getMessageCssClass(login)).ifPresent(cssClasses::add);
 
-    String text = htmlEscaper().escape(chatMessage.getMessage()).replace("\\", "\\\\");
-    text = convertUrlsToHyperlinks(text);
+    String text = htmlEscaper().escape(chatMessage.getMessage());
     text = replaceChannelNamesWithHyperlinks(text);
 
     Matcher matcher = mentionPattern.matcher(text);
     if (matcher.find()) {
       text = matcher.replaceAll("<span class='self'>" + matcher.group(1) + "</span>");
-      onMention(chatMessage);
     }
 
     return html
@@ -748,15 +832,19 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
     return String.format("color: %s;", JavaFxUtil.toRgbCode(messageColor));
   }
 
-  protected String convertUrlsToHyperlinks(String text) {
-    JavaFxUtil.assertApplicationThread();
-    return (String) engine.executeScript("link('" + text.replace("'", "\\'") + "')");
-  }
-
-  private void insertIntoContainer(String html, String containerId) {
-    ((JSObject) engine.executeScript("document.getElementById('" + containerId + "')"))
-        .call("insertAdjacentHTML", "beforeend", html);
-    getMessagesWebView().requestLayout();
+  /**
+   * Queues {@code html} to be appended to the element with the given ID by {@link #flushPendingInsertions()}.
+   *
+   * @param sectionId the section the snippet belongs to
+   * @param link whether URLs in the snippet's text should be converted to hyperlinks
+   */
+  private void insertIntoContainer(String html, int sectionId, String containerId, boolean link) {
+    JsonObject insertion = new JsonObject();
+    insertion.addProperty("section", sectionId);
+    insertion.addProperty("container", containerId);
+    insertion.addProperty("html", html);
+    insertion.addProperty("link", link);
+    pendingInsertions.add(insertion);
   }
 
   public final void display(NavigateEvent navigateEvent) {
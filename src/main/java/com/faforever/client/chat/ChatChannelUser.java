@@ -3,6 +3,7 @@ package com.faforever.client.chat;
 import com.faforever.client.clan.Clan;
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.game.PlayerStatus;
+import com.faforever.client.map.MapPreview;
 import com.faforever.client.player.Player;
 import com.faforever.client.player.SocialStatus;
 import javafx.beans.binding.Bindings;
@@ -54,6 +55,8 @@ public class ChatChannelUser {
   private ChangeListener<String> countryInvalidationListener;
   private ChangeListener<Boolean> displayedChangeListener;
   private ChangeListener<Number> afkSecondsChangeListener;
+  /** The preview {@link #mapImage} is taken from. */
+  private MapPreview mapPreview;
 
   ChatChannelUser(String username, boolean moderator) {
     this.username = new SimpleStringProperty(username);
@@ -251,6 +254,14 @@ public class ChatChannelUser {
     return mapImage;
   }
 
+  /** Replaces the preview the map image is taken from, cancelling the previous one. */
+  public synchronized void setMapPreview(MapPreview mapPreview) {
+    if (this.mapPreview != null) {
+      this.mapPreview.cancel();
+    }
+    this.mapPreview = mapPreview;
+  }
+
   public Optional<Image> getAfkImage() { return Optional.ofNullable(afkImage.get()); }
 
   public void setAfkImage(Image afkImage) {
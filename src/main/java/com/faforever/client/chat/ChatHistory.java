@@ -0,0 +1,117 @@
+package com.faforever.client.chat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The messages displayed by a chat tab, grouped into the sections they are displayed in. Holds at most a fixed number
+ * of sections in a ring buffer; starting a new section when it's full evicts the oldest one. Section IDs are expected
+ * to increase by one with each new section, so the retained sections are always a contiguous ID range.
+ * <p>
+ * Not thread safe, only to be used on the application thread.
+ */
+class ChatHistory {
+
+  private Section[] sections;
+  /** Index of the oldest section in {@link #sections}. */
+  private int head;
+  private int size;
+
+  ChatHistory(int maxSections) {
+    sections = new Section[Math.max(1, maxSections)];
+  }
+
+  int getMaxSections() {
+    return sections.length;
+  }
+
+  /**
+   * Changes the number of retained sections. If there are more sections than that, the oldest ones are evicted.
+   */
+  void setMaxSections(int maxSections) {
+    maxSections = Math.max(1, maxSections);
+    if (maxSections == sections.length) {
+      return;
+    }
+    List<Section> retained = getSections();
+    retained = retained.subList(Math.max(0, retained.size() - maxSections), retained.size());
+    sections = retained.toArray(new Section[maxSections]);
+    head = 0;
+    size = retained.size();
+  }
+
+  /**
+   * Starts a new section with the given message, evicting the oldest section if the history is full.
+   */
+  void startSection(int sectionId, ChatMessage chatMessage) {
+    if (size > 0 && sectionId != getLastSectionId() + 1) {
+      throw new IllegalArgumentException(String.format("Section %d doesn't follow section %d", sectionId, getLastSectionId()));
+    }
+    Section section = new Section(sectionId);
+    section.messages.add(chatMessage);
+    if (size == sections.length) {
+      sections[head] = section;
+      head = (head + 1) % sections.length;
+    } else {
+      sections[(head + size) % sections.length] = section;
+      ++size;
+    }
+  }
+
+  /**
+   * Appends a message to the newest section.
+   */
+  void append(ChatMessage chatMessage) {
+    if (size == 0) {
+      throw new IllegalStateException("There is no section to append to");
+    }
+    sections[(head + size - 1) % sections.length].messages.add(chatMessage);
+  }
+
+  /**
+   * Returns the ID of the oldest retained section, or {@code -1} if there is none.
+   */
+  int getFirstSectionId() {
+    return size == 0 ? -1 : sections[head].id;
+  }
+
+  /**
+   * Returns the ID of the newest section, or {@code -1} if there is none.
+   */
+  int getLastSectionId() {
+    return size == 0 ? -1 : sections[(head + size - 1) % sections.length].id;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the retained sections, oldest first.
+   */
+  List<Section> getSections() {
+    List<Section> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(sections[(head + i) % sections.length]);
+    }
+    return result;
+  }
+
+  static class Section {
+    private final int id;
+    private final List<ChatMessage> messages = new ArrayList<>();
+
+    private Section(int id) {
+      this.id = id;
+    }
+
+    int getId() {
+      return id;
+    }
+
+    List<ChatMessage> getMessages() {
+      return Collections.unmodifiableList(messages);
+    }
+  }
+}
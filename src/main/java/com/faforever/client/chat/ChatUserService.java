@@ -6,6 +6,7 @@ import com.faforever.client.clan.ClanService;
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.game.PlayerStatus;
 import com.faforever.client.i18n.I18n;
+import com.faforever.client.map.MapPreview;
 import com.faforever.client.map.MapService;
 import com.faforever.client.map.MapService.PreviewType;
 import com.faforever.client.player.Player;
@@ -109,6 +110,7 @@ public class ChatUserService implements InitializingBean {
     } else {
       chatChannelUser.setStatusTooltipText(null);
       chatChannelUser.setGameStatusImage(null);
+      chatChannelUser.setMapPreview(null);
       chatChannelUser.setMapImage(null);
       chatChannelUser.setAfkImage(null);
     }
@@ -152,14 +154,15 @@ public class ChatUserService implements InitializingBean {
       default -> null;
     };
 
-    Image mapImage;
+    MapPreview mapPreview;
     if (status != PlayerStatus.IDLE && player.getGame() != null) {
       String modTechnical = player.getGame().getFeaturedMod();
       String mapName = player.getGame().getMapName();
-      mapImage = mapService.loadPreview(modTechnical, mapName, PreviewType.MINI, 10);
+      mapPreview = mapService.requestPreview(modTechnical, mapName, PreviewType.MINI, 10);
     } else {
-      mapImage = null;
+      mapPreview = null;
     }
+    chatChannelUser.setMapPreview(mapPreview);
 
     Image afkImage;
     if ((status == PlayerStatus.IDLE || status == PlayerStatus.HOSTING || status == PlayerStatus.JOINING) &&
@@ -173,7 +176,12 @@ public class ChatUserService implements InitializingBean {
       chatChannelUser.setStatusTooltipText(i18n.get(status.getI18nKey()));
       chatChannelUser.setGameStatusImage(playerStatusImage);
       if (player.getGame() != null && player.getGame().getReplayDelaySeconds() >= 0) {
-        chatChannelUser.setMapImage(mapImage);
+        chatChannelUser.setMapImage(mapPreview != null ? mapPreview.getImage() : null);
+        if (mapPreview != null) {
+          // Once the player moves on to another game, this preview is cancelled and its image won't change anymore
+          JavaFxUtil.addListener(mapPreview.imageProperty(),
+              (observable, oldValue, newValue) -> chatChannelUser.setMapImage(newValue));
+        }
       }
       chatChannelUser.setAfkImage(afkImage);
     });
@@ -193,6 +201,7 @@ public class ChatUserService implements InitializingBean {
       chatChannelUser.setPlayer(null);
       chatChannelUser.setStatusTooltipText(null);
       chatChannelUser.setGameStatusImage(null);
+      chatChannelUser.setMapPreview(null);
       chatChannelUser.setMapImage(null);
       chatChannelUser.setAfkImage(null);
       chatChannelUser.setCountryFlag(null);
@@ -240,6 +249,7 @@ public class ChatUserService implements InitializingBean {
         } else {
           chatChannelUser.setStatusTooltipText(null);
           chatChannelUser.setGameStatusImage(null);
+          chatChannelUser.setMapPreview(null);
           chatChannelUser.setMapImage(null);
           chatChannelUser.setAfkImage(null);
           chatChannelUser.setCountryFlag(null);
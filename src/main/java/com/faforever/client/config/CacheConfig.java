@@ -46,6 +46,7 @@ import static com.faforever.client.config.CacheNames.STATISTICS;
 import static com.faforever.client.config.CacheNames.TADEMO_MAP_HASH;
 import static com.faforever.client.config.CacheNames.TADEMO_MOD_HASH;
 import static com.faforever.client.config.CacheNames.THEME_IMAGES;
+import static com.faforever.client.config.CacheNames.THEME_TEMPLATES;
 import static com.faforever.client.config.CacheNames.URL_PREVIEW;
 import static com.github.benmanes.caffeine.cache.Caffeine.newBuilder;
 import static java.util.concurrent.TimeUnit.HOURS;
@@ -85,6 +86,8 @@ public class CacheConfig extends CachingConfigurerSupport {
         new CaffeineCache(TADEMO_MAP_HASH, newBuilder().expireAfterWrite(1, MINUTES).build()),
         new CaffeineCache(TADEMO_MOD_HASH, newBuilder().expireAfterWrite(1, MINUTES).build()),
         new CaffeineCache(PLAYERS_BY_ID, newBuilder().expireAfterWrite(10, MINUTES).build()),
+        // Cleared whenever the theme or one of its files changes
+        new CaffeineCache(THEME_TEMPLATES, newBuilder().build()),
 
 
         // Images should only be cached as long as they are in use. This avoids loading an image multiple times, while
@@ -17,6 +17,7 @@ public final class CacheNames {
   public static final String MAPS = "maps";
   public static final String MAP_GENERATOR = "mapGenerator";
   public static final String THEME_IMAGES = "themeImages";
+  public static final String THEME_TEMPLATES = "themeTemplates";
   public static final String MOD_THUMBNAIL = "modThumbnail";
   public static final String COOP_MAPS = "coopMaps";
   public static final String AVAILABLE_AVATARS = "availableAvatars";
@@ -18,6 +18,7 @@ public class ClientProperties {
   private Irc irc = new Irc();
   private Server server = new Server();
   private Vault vault = new Vault();
+  private Maps maps = new Maps();
   private Tada tada = new Tada();
   private Replay replay = new Replay();
   private Imgur imgur = new Imgur();
@@ -35,6 +36,70 @@ public class ClientProperties {
   private String statusPageUrl;
   private Map<String, String> links = new HashMap<>();
   private GalacticWar galacticWar = new GalacticWar();
+  private UpdatePump updatePump = new UpdatePump();
+  private Download download = new Download();
+  private Transfer transfer = new Transfer();
+
+  @Data
+  public static class UpdatePump {
+    /**
+     * Maximum number of (coalesced) game or player updates applied on the FX application thread at once.
+     */
+    private int maxBatchSize = 200;
+    /**
+     * Time after which a batch of updates yields the FX application thread, even if it isn't complete.
+     */
+    private Duration pulseBudget = Duration.ofMillis(8);
+  }
+
+  @Data
+  public static class Download {
+    /**
+     * Size of the byte ranges that are requested separately. Files that fit into one segment are downloaded over a
+     * single connection.
+     */
+    private int segmentSize = 8 * 1024 * 1024;
+    /**
+     * Maximum number of connections used to download a single file.
+     */
+    private int maxConnectionsPerFile = 4;
+    /**
+     * How often a segment is requested again after its connection failed.
+     */
+    private int maxRetries = 3;
+    private Duration retryDelay = Duration.ofSeconds(2);
+    private Duration connectTimeout = Duration.ofSeconds(30);
+    private Duration readTimeout = Duration.ofSeconds(60);
+    /**
+     * How often the progress of an unfinished download is saved so that it can be resumed after a restart.
+     */
+    private Duration progressSaveInterval = Duration.ofSeconds(1);
+  }
+
+  @Data
+  public static class Transfer {
+    /**
+     * Number of downloads that may run at the same time.
+     */
+    private int downloadSlots = 4;
+    /**
+     * Number of uploads that may run at the same time.
+     */
+    private int uploadSlots = 1;
+    /**
+     * Additional slots in each direction that only transfers needed to start a game may use.
+     */
+    private int reservedCriticalSlots = 1;
+    /**
+     * Maximum number of slots in each direction that background transfers, like preview images, may use.
+     */
+    private int backgroundSlots = 2;
+    /**
+     * Bytes per second that all uploads and downloads together may use, split evenly between both directions while
+     * both are busy. 0 means unlimited.
+     */
+    private long bandwidthBudget = 0;
+  }
 
   @Data
   public static class News {
@@ -75,6 +140,12 @@ public class ClientProperties {
   public static class Server {
     private String host;
     private int port = 8001;
+    private Duration connectTimeout = Duration.ofSeconds(30);
+    /**
+     * Time without any data from the server after which the connection is considered dead and re-established. The
+     * client pings the server every minute, so this should be well above that.
+     */
+    private Duration readTimeout = Duration.ofMinutes(5);
   }
 
   @Data
@@ -88,6 +159,15 @@ public class ClientProperties {
     private String replayDownloadUrlFormat;
   }
 
+  @Data
+  public static class Maps {
+    /**
+     * How installed maps are enumerated: {@code native} runs the bundled maptool, {@code java} reads the map archives
+     * in-process (previews are always generated by maptool).
+     */
+    private String backend = "native";
+  }
+
   @Data
   public static class Tada {
     private String rootUrl;
@@ -106,6 +186,16 @@ public class ClientProperties {
     private String replayFileGlob = "*.tad";
     // TODO this should acutally be reported by the server
     private int watchDelaySeconds = 300;
+    /** How often the data recorded from a live game is written to the replay file. */
+    private Duration segmentInterval = Duration.ofSeconds(10);
+    /** Recorded data is written to the replay file as soon as this many bytes are buffered. */
+    private int maxSegmentSize = 1024 * 1024;
+    /** How many bytes may be waiting to be relayed before the relay gives up on the connection and reconnects. */
+    private int relayBufferSize = 1024 * 1024;
+    private Duration relayReconnectDelay = Duration.ofSeconds(5);
+    private Duration relayMaxReconnectDelay = Duration.ofMinutes(1);
+    /** How long to wait for the remaining data to be relayed after the game has ended. */
+    private Duration relayDrainTimeout = Duration.ofSeconds(10);
 
     public int getCompilerPort() {  // the demo compiler gathers game data from each player to compile a .tad file
       return remotePort;
@@ -156,6 +246,21 @@ public class ClientProperties {
     private String clientId;
     private String clientSecret;
     private int maxPageSize = 10_000;
+    /** How many pages of a collection may be requested at the same time. */
+    private int maxConcurrentPageRequests = 4;
+    /** Paths of the API whose {@code GET} responses are cached on disk. */
+    private List<String> cacheablePaths = List.of("/data");
+    /**
+     * Paths of read-only API data that may be served from the cache while it's being revalidated in the background.
+     */
+    private List<String> staleWhileRevalidatePaths = List.of(
+        "/data/featuredMod", "/data/leaderboard", "/data/leaderboardRating", "/data/map", "/data/matchmakerQueue",
+        "/data/matchmakerQueueMapPool", "/data/mapPoolAssignment", "/data/achievement", "/data/tutorialCategory",
+        "/data/coopMission"
+    );
+    /** How long a cached response may be served while it's being revalidated in the background. */
+    private Duration responseCacheMaxStale = Duration.ofDays(7);
+    private long responseCacheMaxSize = 200L * 1024 * 1024;
   }
 
   @Data
@@ -6,16 +6,17 @@ import com.google.gson.Gson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.lang.invoke.MethodHandles;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 public class MapTool {
 
@@ -62,6 +63,27 @@ public class MapTool {
     return run(gamePath, null, mapName+"$", true, null, null, 0, null);
   }
 
+  /**
+   * Lists (and hashes) several maps with a single maptool invocation.
+   */
+  static public List<String[]> listMaps(Path gamePath, Collection<String> mapNames) throws IOException {
+    String mapNamesRegex = mapNames.stream()
+        .map(MapTool::escapeRegex)
+        .collect(Collectors.joining("|", "^(", ")$"));
+    return run(gamePath, null, mapNamesRegex, true, null, null, 0, null);
+  }
+
+  private static String escapeRegex(String literal) {
+    StringBuilder escaped = new StringBuilder(literal.length() + 8);
+    for (char c : literal.toCharArray()) {
+      if ("\\^$.|?*+()[]{}".indexOf(c) >= 0) {
+        escaped.append('\\');
+      }
+      escaped.append(c);
+    }
+    return escaped.toString();
+  }
+
   static public List<String[]> listMapsInArchive(Path hpiFile, Path previewCacheDirectory, boolean doCrc) throws IOException {
     // and generate minimap images in previewCacheDirectory if not null
     return run(hpiFile.getParent(), hpiFile.getFileName().toString(), null, doCrc, previewCacheDirectory, PreviewType.MINI, 0, null);
@@ -71,97 +93,79 @@ public class MapTool {
     run(gamePath, null, mapName + "$", false, previewCacheDirectory, previewType, maxPositions, previewCacheDirectory);
   }
 
-  static private List<String[]> run(Path gamePath, String hpiSpecs, String mapName, boolean doCrc, Path previewCacheDirectory, PreviewType previewType, int maxPositions, Path featuresCacheDirectory) throws IOException {
-    String nativeDir = System.getProperty("nativeDir", "lib");
-    Path exe = Paths.get(nativeDir).resolve("bin").resolve(
-        org.bridj.Platform.isLinux() ? "maptool" : "maptool.exe"
-    );
-    Path workingDirectory = exe.getParent();
+  private static final int WORKER_POOL_SIZE = 2;
+  private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(5);
+  private static MapToolWorkerPool workerPool;
+
+  private static synchronized MapToolWorkerPool getWorkerPool() {
+    if (workerPool == null) {
+      String nativeDir = System.getProperty("nativeDir", "lib");
+      Path exe = Paths.get(nativeDir).resolve("bin").resolve(
+          org.bridj.Platform.isLinux() ? "maptool" : "maptool.exe"
+      );
+      workerPool = new MapToolWorkerPool(exe, WORKER_POOL_SIZE, REQUEST_TIMEOUT);
+    }
+    return workerPool;
+  }
+
+  public static synchronized void shutdownWorkers() {
+    if (workerPool != null) {
+      workerPool.shutdown();
+      workerPool = null;
+    }
+  }
 
-    List<String> command = new ArrayList<>();
-    command.add(exe.toAbsolutePath().toString());
-    command.add("--gamepath");
-    command.add(gamePath.toString());
+  static private List<String[]> run(Path gamePath, String hpiSpecs, String mapName, boolean doCrc, Path previewCacheDirectory, PreviewType previewType, int maxPositions, Path featuresCacheDirectory) throws IOException {
+    List<String> arguments = new ArrayList<>();
+    arguments.add("--gamepath");
+    arguments.add(gamePath.toString());
 
     if (hpiSpecs != null) {
-      command.add("--hpispecs");
+      arguments.add("--hpispecs");
       // maptool uses Qt's QDir, which uses wildcardToRegularExpression for globbing: https://doc.qt.io/qt-5/qregularexpression.html#wildcardToRegularExpression
       // so we need to replace "[" with "[[]" and "]" with "[]]"
       hpiSpecs = hpiSpecs.replace("[", "\\[").replace("]", "\\]");
       hpiSpecs = hpiSpecs.replace("\\[", "[[]").replace("\\]", "[]]");
-      command.add(hpiSpecs);
+      arguments.add(hpiSpecs);
     }
     if (mapName != null) {
-      command.add("--mapname");
-      command.add(mapName);
+      arguments.add("--mapname");
+      arguments.add(mapName);
     }
     if (doCrc) {
-      command.add("--hash");
+      arguments.add("--hash");
     }
     if (previewCacheDirectory != null) {
-      command.add("--thumb");
-      command.add(previewCacheDirectory.toString());
+      arguments.add("--thumb");
+      arguments.add(previewCacheDirectory.toString());
     }
     if (previewType != null) {
-      command.add("--thumbtypes");
-      command.add(previewType.toString().toLowerCase());
+      arguments.add("--thumbtypes");
+      arguments.add(previewType.toString().toLowerCase());
     }
     if (maxPositions > 0) {
-      command.add("--maxpositions");
-      command.add(String.valueOf(maxPositions));
+      arguments.add("--maxpositions");
+      arguments.add(String.valueOf(maxPositions));
     }
     if (featuresCacheDirectory != null) {
-      command.add("--featurescachedir");
-      command.add(featuresCacheDirectory.toString());
+      arguments.add("--featurescachedir");
+      arguments.add(featuresCacheDirectory.toString());
     }
 
-    ProcessBuilder processBuilder = new ProcessBuilder();
-    processBuilder.directory(workingDirectory.toFile());
-    processBuilder.command(command);
-    logger.info("{}", processBuilder.command());
-
-    List<String[]> mapList = new ArrayList<>();
+    List<String> lines = getWorkerPool().execute(arguments);
 
+    List<String[]> mapList = new ArrayList<>(lines.size());
     boolean logEnable = false;
-    String maptoolDataReceived = new String();
-
-    final String UNIT_SEPARATOR = Character.toString((char)0x1f);
-    Process process = processBuilder.start();
-
-    BufferedReader input = new BufferedReader(new InputStreamReader(process.getInputStream()));
-
-    String line;
-    while ((line = input.readLine()) != null) {
-      maptoolDataReceived += line + "\n";
-      String parts[] = line.split(UNIT_SEPARATOR);
+    for (String line : lines) {
+      String parts[] = line.split(MapToolWorkerPool.UNIT_SEPARATOR);
       if (parts.length < 9) {
         logEnable = true;
       }
       mapList.add(parts);
     }
     if (logEnable) {
-      logger.warn("Received too few fields from mapTool:\n{}\n{}", processBuilder.command(), maptoolDataReceived);
-      while ((line = input.readLine()) != null) {
-        logger.warn("but theres more:{}", line);
-      }
+      logger.warn("Received too few fields from mapTool:\n{}\n{}", arguments, String.join("\n", lines));
     }
-    input.close();
-
-    BufferedReader err = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-    while ((line = err.readLine()) != null) {
-      logger.error(line);
-    }
-    err.close();
-
-    try {
-      int exitCode = process.waitFor();
-      if (exitCode != 0) {
-        throw new IOException(String.format("Map tool exited with error code %d", exitCode));
-      }
-    } catch (InterruptedException e) {
-      logger.error("maptool process interrupted: {}", e.getMessage());
-    }
-
     return mapList;
   }
 }
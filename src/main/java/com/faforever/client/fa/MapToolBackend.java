@@ -0,0 +1,35 @@
+package com.faforever.client.fa;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Enumerates the maps of a TA installation. Rows are indexed by the {@code MapTool.MAP_DETAIL_COLUMN_*} constants.
+ */
+public interface MapToolBackend {
+
+  /**
+   * Lists all maps in the archives of {@code gamePath}. Backends that support it build the features cache in
+   * {@code previewCacheDirectory} if not {@code null}.
+   */
+  List<String[]> listMapsInstalled(Path gamePath, Path previewCacheDirectory, boolean doCrc) throws IOException;
+
+  /**
+   * Lists and hashes the maps of {@code gamePath} with the given names.
+   */
+  List<String[]> listMaps(Path gamePath, Collection<String> mapNames) throws IOException;
+
+  /**
+   * Lists the maps in a single archive. Backends that support it generate minimap images in
+   * {@code previewCacheDirectory} if not {@code null}.
+   */
+  List<String[]> listMapsInArchive(Path hpiFile, Path previewCacheDirectory, boolean doCrc) throws IOException;
+
+  /**
+   * Releases threads or processes held by the backend.
+   */
+  default void shutdown() {
+  }
+}
@@ -0,0 +1,401 @@
+package com.faforever.client.fa;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Keeps a small pool of long-running maptool processes (started with {@code --stdin}) so that listings, CRCs and
+ * previews don't pay process start-up and game path scanning costs on every request.
+ * <p>
+ * Protocol: a request is the maptool argument list joined by 0x1f on a single line. The worker answers with the same
+ * output a one-shot maptool invocation would print, followed by a line consisting of 0x04 and the request's exit code.
+ * Workers that crash or exceed the request timeout are killed and replaced on the next request.
+ * <p>
+ * Worker mode is only used if {@code maptool --help} lists {@code --stdin}; older maptool builds don't have it and
+ * every request falls back to a one-shot process. If maptool can't be asked at all, it's asked again after a while
+ * rather than on every request. A worker that fails its handshake only turns worker mode off if
+ * maptool rejected the option, a slow start on a busy machine merely costs that one request its worker.
+ */
+public class MapToolWorkerPool {
+
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  static final String UNIT_SEPARATOR = Character.toString((char) 0x1f);
+  static final String END_OF_RESPONSE = Character.toString((char) 0x04);
+  private static final String WORKER_MODE_ARGUMENT = "--stdin";
+  private static final String HELP_ARGUMENT = "--help";
+  private static final Duration DEFAULT_HANDSHAKE_TIMEOUT = Duration.ofSeconds(10);
+  private static final Duration PROBE_RETRY_DELAY = Duration.ofMinutes(5);
+  private static final int ERROR_LINES_KEPT = 10;
+
+  private final Path executable;
+  private final int poolSize;
+  private final Duration requestTimeout;
+  private final Duration handshakeTimeout;
+  private final BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+  private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "maptool-watchdog");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private int workerCount = 0;
+  /** {@code null} until maptool has been asked whether it supports worker mode. */
+  private volatile Boolean workerModeSupported;
+  /** Before this, a failed attempt to ask maptool whether it supports worker mode isn't repeated. */
+  private Instant nextProbe = Instant.MIN;
+  private volatile boolean shutdown = false;
+
+  public MapToolWorkerPool(Path executable, int poolSize, Duration requestTimeout) {
+    this(executable, poolSize, requestTimeout, DEFAULT_HANDSHAKE_TIMEOUT);
+  }
+
+  MapToolWorkerPool(Path executable, int poolSize, Duration requestTimeout, Duration handshakeTimeout) {
+    this.executable = executable;
+    this.poolSize = poolSize;
+    this.requestTimeout = requestTimeout;
+    this.handshakeTimeout = handshakeTimeout;
+  }
+
+  /**
+   * Runs maptool with the given arguments and returns its output lines.
+   */
+  public List<String> execute(List<String> arguments) throws IOException {
+    if (shutdown || !isWorkerModeSupported()) {
+      return runOnce(arguments);
+    }
+
+    Worker worker = acquire();
+    if (worker == null) {
+      return runOnce(arguments);
+    }
+
+    try {
+      List<String> lines = worker.request(arguments, requestTimeout);
+      release(worker);
+      return lines;
+    } catch (MapToolRequestException e) {
+      release(worker);
+      throw e;
+    } catch (IOException e) {
+      discard(worker);
+      throw e;
+    }
+  }
+
+  public void shutdown() {
+    shutdown = true;
+    Worker worker;
+    while ((worker = idleWorkers.poll()) != null) {
+      discard(worker);
+    }
+    watchdog.shutdownNow();
+  }
+
+  private boolean isWorkerModeSupported() {
+    Boolean supported = workerModeSupported;
+    if (supported != null) {
+      return supported;
+    }
+    synchronized (this) {
+      if (workerModeSupported == null) {
+        if (Instant.now().isBefore(nextProbe)) {
+          return false;
+        }
+        try {
+          workerModeSupported = run(List.of(HELP_ARGUMENT), true).stream()
+              .anyMatch(line -> line.contains(WORKER_MODE_ARGUMENT));
+          logger.info("maptool {} worker mode", workerModeSupported ? "supports" : "does not support");
+        } catch (IOException e) {
+          // Ask again later rather than deciding on a failed probe, but not on every request
+          logger.warn("Could not ask maptool whether it supports worker mode: {}", e.getMessage());
+          nextProbe = Instant.now().plus(PROBE_RETRY_DELAY);
+          return false;
+        }
+      }
+      return workerModeSupported;
+    }
+  }
+
+  private Worker acquire() throws IOException {
+    Worker worker;
+    while ((worker = idleWorkers.poll()) != null) {
+      if (worker.isHealthy()) {
+        return worker;
+      }
+      logger.info("maptool worker died, replacing it");
+      discard(worker);
+    }
+
+    boolean start;
+    synchronized (this) {
+      start = workerCount < poolSize;
+      if (start) {
+        ++workerCount;
+      }
+    }
+    if (start) {
+      try {
+        return startWorker();
+      } catch (IOException e) {
+        synchronized (this) {
+          --workerCount;
+        }
+        throw e;
+      }
+    }
+
+    try {
+      worker = idleWorkers.poll(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for a maptool worker", e);
+    }
+    if (worker == null) {
+      logger.warn("No maptool worker became available within {}, running maptool directly", requestTimeout);
+    }
+    return worker;
+  }
+
+  private void release(Worker worker) {
+    if (shutdown) {
+      discard(worker);
+    } else {
+      idleWorkers.offer(worker);
+    }
+  }
+
+  private void discard(Worker worker) {
+    worker.destroy();
+    synchronized (this) {
+      --workerCount;
+    }
+  }
+
+  private Worker startWorker() throws IOException {
+    ProcessBuilder processBuilder = new ProcessBuilder(executable.toAbsolutePath().toString(), WORKER_MODE_ARGUMENT);
+    processBuilder.directory(executable.getParent().toFile());
+    logger.info("Starting maptool worker {}", processBuilder.command());
+
+    Worker worker = new Worker(processBuilder.start());
+    try {
+      // an empty request must be answered with an empty response
+      worker.request(List.of(), handshakeTimeout);
+    } catch (IOException e) {
+      if (worker.rejectedWorkerMode()) {
+        logger.info("maptool rejected worker mode, falling back to one process per request");
+        workerModeSupported = false;
+      } else {
+        logger.warn("maptool worker did not complete its handshake ({}), running maptool directly", e.getMessage());
+      }
+      worker.destroy();
+      synchronized (this) {
+        --workerCount;
+      }
+      return null;
+    }
+    return worker;
+  }
+
+  private List<String> runOnce(List<String> arguments) throws IOException {
+    return run(arguments, false);
+  }
+
+  /**
+   * @param usageProbe whether the output is maptool's usage, which may be printed to stderr and with a non-zero exit
+   * code. Its output then includes stderr and any exit code is accepted.
+   */
+  private List<String> run(List<String> arguments, boolean usageProbe) throws IOException {
+    List<String> command = new ArrayList<>();
+    command.add(executable.toAbsolutePath().toString());
+    command.addAll(arguments);
+
+    ProcessBuilder processBuilder = new ProcessBuilder();
+    processBuilder.directory(executable.getParent().toFile());
+    processBuilder.command(command);
+    processBuilder.redirectErrorStream(usageProbe);
+    logger.info("{}", processBuilder.command());
+
+    Process process = processBuilder.start();
+    Thread stderrDrainer = drainErrorStream(process, line -> {
+    });
+    AtomicBoolean timedOut = new AtomicBoolean(false);
+    ScheduledFuture<?> timeout = watchdog.schedule(() -> {
+      timedOut.set(true);
+      process.destroyForcibly();
+    }, requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+
+    List<String> lines = new ArrayList<>();
+    try (BufferedReader input = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+      String line;
+      while ((line = input.readLine()) != null) {
+        lines.add(line);
+      }
+    }
+
+    try {
+      int exitCode = process.waitFor();
+      stderrDrainer.join();
+      if (timedOut.get()) {
+        throw new IOException(String.format("Map tool did not finish within %s", requestTimeout));
+      }
+      if (exitCode != 0 && !usageProbe) {
+        throw new IOException(String.format("Map tool exited with error code %d", exitCode));
+      }
+    } catch (InterruptedException e) {
+      logger.error("maptool process interrupted: {}", e.getMessage());
+      Thread.currentThread().interrupt();
+    } finally {
+      timeout.cancel(false);
+    }
+    return lines;
+  }
+
+  private static Thread drainErrorStream(Process process, Consumer<String> lineConsumer) {
+    Thread thread = new Thread(() -> {
+      try (BufferedReader err = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+        String line;
+        while ((line = err.readLine()) != null) {
+          logger.error(line);
+          lineConsumer.accept(line);
+        }
+      } catch (IOException e) {
+        logger.debug("maptool error stream closed: {}", e.getMessage());
+      }
+    }, "maptool-stderr");
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  private class Worker {
+    private final Process process;
+    private final BufferedWriter stdin;
+    private final BufferedReader stdout;
+    private final Deque<String> errorLines = new ArrayDeque<>();
+    private final Thread stderrDrainer;
+
+    Worker(Process process) {
+      this.process = process;
+      this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+      this.stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+      this.stderrDrainer = drainErrorStream(process, line -> {
+        synchronized (errorLines) {
+          if (errorLines.size() == ERROR_LINES_KEPT) {
+            errorLines.removeFirst();
+          }
+          errorLines.addLast(line);
+        }
+      });
+    }
+
+    boolean isHealthy() {
+      return process.isAlive();
+    }
+
+    /** Whether the worker exited because maptool doesn't know {@code --stdin}, as opposed to e.g. timing out. */
+    boolean rejectedWorkerMode() {
+      try {
+        if (!process.waitFor(1, TimeUnit.SECONDS)) {
+          return false;
+        }
+        stderrDrainer.join(TimeUnit.SECONDS.toMillis(1));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      synchronized (errorLines) {
+        return errorLines.stream()
+            .map(line -> line.toLowerCase(Locale.ROOT))
+            .anyMatch(line -> line.contains("unknown option") && line.contains(WORKER_MODE_ARGUMENT.substring(2)));
+      }
+    }
+
+    List<String> request(List<String> arguments, Duration timeout) throws IOException {
+      if (!isHealthy()) {
+        throw new IOException(String.format("maptool worker exited with code %d", process.exitValue()));
+      }
+
+      AtomicBoolean timedOut = new AtomicBoolean(false);
+      ScheduledFuture<?> watchdogFuture = watchdog.schedule(() -> {
+        timedOut.set(true);
+        process.destroyForcibly();
+      }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+      try {
+        logger.debug("maptool worker request: {}", arguments);
+        stdin.write(String.join(UNIT_SEPARATOR, arguments));
+        stdin.newLine();
+        stdin.flush();
+
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = stdout.readLine()) != null) {
+          if (line.startsWith(END_OF_RESPONSE)) {
+            int exitCode = parseExitCode(line.substring(END_OF_RESPONSE.length()));
+            if (exitCode != 0) {
+              throw new MapToolRequestException(String.format("Map tool exited with error code %d", exitCode));
+            }
+            return lines;
+          }
+          lines.add(line);
+        }
+        throw new IOException("maptool worker closed its output");
+      } catch (IOException e) {
+        if (e instanceof MapToolRequestException) {
+          throw e;
+        }
+        if (timedOut.get()) {
+          throw new IOException(String.format("Map tool did not finish within %s", timeout), e);
+        }
+        throw e;
+      } finally {
+        watchdogFuture.cancel(false);
+      }
+    }
+
+    void destroy() {
+      process.destroyForcibly();
+    }
+
+    private int parseExitCode(String value) {
+      try {
+        return Integer.parseInt(value.trim());
+      } catch (NumberFormatException e) {
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * A request failed but the worker that processed it is still usable.
+   */
+  private static class MapToolRequestException extends IOException {
+    MapToolRequestException(String message) {
+      super(message);
+    }
+  }
+}
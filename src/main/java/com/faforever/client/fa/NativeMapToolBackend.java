@@ -0,0 +1,27 @@
+package com.faforever.client.fa;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Enumerates maps with the bundled native maptool.
+ */
+public class NativeMapToolBackend implements MapToolBackend {
+
+  @Override
+  public List<String[]> listMapsInstalled(Path gamePath, Path previewCacheDirectory, boolean doCrc) throws IOException {
+    return MapTool.listMapsInstalled(gamePath, previewCacheDirectory, doCrc);
+  }
+
+  @Override
+  public List<String[]> listMaps(Path gamePath, Collection<String> mapNames) throws IOException {
+    return MapTool.listMaps(gamePath, mapNames);
+  }
+
+  @Override
+  public List<String[]> listMapsInArchive(Path hpiFile, Path previewCacheDirectory, boolean doCrc) throws IOException {
+    return MapTool.listMapsInArchive(hpiFile, previewCacheDirectory, doCrc);
+  }
+}
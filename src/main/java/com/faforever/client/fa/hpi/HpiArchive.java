@@ -0,0 +1,330 @@
+package com.faforever.client.fa.hpi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads Total Annihilation HPI archives ({@code .hpi}, {@code .ufo}, {@code .ccx}, {@code .gp3}): the (optionally
+ * encrypted) directory tree and files stored uncompressed or as SQSH chunks compressed with LZ77 or zlib.
+ * <p>
+ * Data is read with positional {@link FileChannel} reads rather than a memory mapping, because a mapped archive stays
+ * locked on Windows until the mapping is garbage collected, which would prevent maps from being renamed or removed.
+ */
+public class HpiArchive implements Closeable {
+
+  private static final int HAPI_MARKER = 0x49504148;
+  private static final int SQSH_MARKER = 0x48535153;
+  private static final int VERSION_TA = 0x00010000;
+  private static final int CHUNK_SIZE = 65536;
+  private static final int CHUNK_HEADER_SIZE = 19;
+  private static final int ENTRY_SIZE = 9;
+
+  private static final int COMPRESSION_NONE = 0;
+  private static final int COMPRESSION_LZ77 = 1;
+  private static final int COMPRESSION_ZLIB = 2;
+
+  private final Path path;
+  private final FileChannel channel;
+  private final int key;
+  private final ByteBuffer directory;
+  private final int rootOffset;
+
+  public static class Entry {
+    private final String path;
+    private final boolean directory;
+    private final int offset;
+
+    private Entry(String path, boolean directory, int offset) {
+      this.path = path;
+      this.directory = directory;
+      this.offset = offset;
+    }
+
+    /** Path within the archive, using {@code /} as separator. */
+    public String getPath() {
+      return path;
+    }
+
+    public String getName() {
+      return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    public boolean isDirectory() {
+      return directory;
+    }
+  }
+
+  private HpiArchive(Path path, FileChannel channel) throws IOException {
+    this.path = path;
+    this.channel = channel;
+
+    ByteBuffer header = readRaw(0, 20);
+    if (header.getInt(0) != HAPI_MARKER) {
+      throw new IOException(String.format("%s is not an HPI archive", path));
+    }
+    if (header.getInt(4) != VERSION_TA) {
+      throw new IOException(String.format("%s has unsupported HPI version 0x%08x", path, header.getInt(4)));
+    }
+    int directorySize = header.getInt(8);
+    int headerKey = header.getInt(12);
+    rootOffset = header.getInt(16);
+    key = headerKey == 0 ? 0 : ~((headerKey * 4) | (headerKey >> 6));
+
+    if (directorySize < rootOffset || directorySize > channel.size()) {
+      throw new IOException(String.format("%s has a corrupt directory", path));
+    }
+    byte[] directoryBytes = new byte[directorySize];
+    readDecrypted(rootOffset, directoryBytes, rootOffset, directorySize - rootOffset);
+    directory = ByteBuffer.wrap(directoryBytes).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  public static HpiArchive open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new HpiArchive(path, channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * Lists the entries of the given directory (case-insensitive, {@code ""} for the root). Returns an empty list if the
+   * directory does not exist.
+   */
+  public List<Entry> list(String directoryPath) throws IOException {
+    int offset = rootOffset;
+    String prefix = "";
+    if (!directoryPath.isEmpty()) {
+      for (String component : directoryPath.split("/")) {
+        Entry subDirectory = listAt(offset, prefix).stream()
+            .filter(entry -> entry.isDirectory() && entry.getName().equalsIgnoreCase(component))
+            .findFirst()
+            .orElse(null);
+        if (subDirectory == null) {
+          return List.of();
+        }
+        offset = subDirectory.offset;
+        prefix = subDirectory.getPath() + "/";
+      }
+    }
+    return listAt(offset, prefix);
+  }
+
+  private List<Entry> listAt(int offset, String prefix) throws IOException {
+    try {
+      int numberOfEntries = directory.getInt(offset);
+      int entryListOffset = directory.getInt(offset + 4);
+      List<Entry> entries = new ArrayList<>(numberOfEntries);
+      for (int i = 0; i < numberOfEntries; ++i) {
+        int entryOffset = entryListOffset + i * ENTRY_SIZE;
+        String name = readName(directory.getInt(entryOffset));
+        int dataOffset = directory.getInt(entryOffset + 4);
+        boolean isDirectory = directory.get(entryOffset + 8) == 1;
+        entries.add(new Entry(prefix + name, isDirectory, dataOffset));
+      }
+      return entries;
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException(String.format("%s has a corrupt directory", path), e);
+    }
+  }
+
+  private String readName(int offset) {
+    int end = offset;
+    while (directory.get(end) != 0) {
+      ++end;
+    }
+    return new String(directory.array(), offset, end - offset, StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * Returns the uncompressed contents of a file entry.
+   */
+  public byte[] read(Entry entry) throws IOException {
+    if (entry.isDirectory()) {
+      throw new IOException(String.format("%s is a directory", entry.getPath()));
+    }
+    int dataOffset;
+    int fileSize;
+    int compression;
+    try {
+      dataOffset = directory.getInt(entry.offset);
+      fileSize = directory.getInt(entry.offset + 4);
+      compression = directory.get(entry.offset + 8);
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException(String.format("%s has a corrupt directory", path), e);
+    }
+
+    if (compression == COMPRESSION_NONE) {
+      byte[] data = new byte[fileSize];
+      readDecrypted(dataOffset, data, 0, fileSize);
+      return data;
+    }
+
+    int chunkCount = (fileSize + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    byte[] chunkSizeBytes = new byte[chunkCount * 4];
+    readDecrypted(dataOffset, chunkSizeBytes, 0, chunkSizeBytes.length);
+    ByteBuffer chunkSizes = ByteBuffer.wrap(chunkSizeBytes).order(ByteOrder.LITTLE_ENDIAN);
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream(fileSize);
+    long position = dataOffset + chunkSizeBytes.length;
+    for (int i = 0; i < chunkCount; ++i) {
+      int chunkSize = chunkSizes.getInt(i * 4);
+      byte[] chunk = new byte[chunkSize];
+      readDecrypted(position, chunk, 0, chunkSize);
+      output.writeBytes(decompressChunk(chunk, entry));
+      position += chunkSize;
+    }
+    if (output.size() != fileSize) {
+      throw new IOException(String.format("%s in %s decompressed to %d bytes instead of %d", entry.getPath(), path, output.size(), fileSize));
+    }
+    return output.toByteArray();
+  }
+
+  private byte[] decompressChunk(byte[] chunk, Entry entry) throws IOException {
+    if (chunk.length < CHUNK_HEADER_SIZE) {
+      throw new IOException(String.format("%s in %s has a corrupt chunk", entry.getPath(), path));
+    }
+    ByteBuffer header = ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN);
+    if (header.getInt(0) != SQSH_MARKER) {
+      throw new IOException(String.format("%s in %s has a corrupt chunk", entry.getPath(), path));
+    }
+    int compressionMethod = chunk[5];
+    boolean encrypted = chunk[6] != 0;
+    int compressedSize = header.getInt(7);
+    int decompressedSize = header.getInt(11);
+    if (compressedSize < 0 || CHUNK_HEADER_SIZE + compressedSize > chunk.length || decompressedSize < 0 || decompressedSize > CHUNK_SIZE) {
+      throw new IOException(String.format("%s in %s has a corrupt chunk", entry.getPath(), path));
+    }
+
+    byte[] data = new byte[compressedSize];
+    System.arraycopy(chunk, CHUNK_HEADER_SIZE, data, 0, compressedSize);
+    if (encrypted) {
+      for (int x = 0; x < compressedSize; ++x) {
+        data[x] = (byte) ((data[x] - x) ^ x);
+      }
+    }
+
+    return switch (compressionMethod) {
+      case COMPRESSION_NONE -> data;
+      case COMPRESSION_LZ77 -> decompressLz77(data, decompressedSize);
+      case COMPRESSION_ZLIB -> decompressZlib(data, decompressedSize);
+      default -> throw new IOException(String.format("%s in %s uses unknown compression %d", entry.getPath(), path, compressionMethod));
+    };
+  }
+
+  static byte[] decompressLz77(byte[] in, int decompressedSize) throws IOException {
+    byte[] out = new byte[decompressedSize];
+    byte[] window = new byte[4096];
+    int inIndex = 0;
+    int outIndex = 0;
+    int windowIndex = 1;
+    try {
+      int tag = in[inIndex++] & 0xff;
+      int mask = 1;
+      while (true) {
+        if ((tag & mask) == 0) {
+          byte value = in[inIndex++];
+          out[outIndex++] = value;
+          window[windowIndex] = value;
+          windowIndex = (windowIndex + 1) & 0xfff;
+        } else {
+          int reference = (in[inIndex] & 0xff) | ((in[inIndex + 1] & 0xff) << 8);
+          inIndex += 2;
+          int windowPointer = reference >> 4;
+          if (windowPointer == 0) {
+            break;
+          }
+          int count = (reference & 0x0f) + 2;
+          for (int x = 0; x < count; ++x) {
+            byte value = window[windowPointer];
+            out[outIndex++] = value;
+            window[windowIndex] = value;
+            windowPointer = (windowPointer + 1) & 0xfff;
+            windowIndex = (windowIndex + 1) & 0xfff;
+          }
+        }
+        mask <<= 1;
+        if ((mask & 0x100) != 0) {
+          mask = 1;
+          tag = in[inIndex++] & 0xff;
+        }
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IOException("Corrupt LZ77 data", e);
+    }
+    if (outIndex != decompressedSize) {
+      throw new IOException(String.format("LZ77 data decompressed to %d bytes instead of %d", outIndex, decompressedSize));
+    }
+    return out;
+  }
+
+  private static byte[] decompressZlib(byte[] in, int decompressedSize) throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(in);
+      byte[] out = new byte[decompressedSize];
+      int length = 0;
+      while (length < decompressedSize && !inflater.finished()) {
+        int inflated = inflater.inflate(out, length, decompressedSize - length);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        length += inflated;
+      }
+      if (length != decompressedSize) {
+        throw new IOException(String.format("zlib data decompressed to %d bytes instead of %d", length, decompressedSize));
+      }
+      return out;
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt zlib data", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private ByteBuffer readRaw(long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException(String.format("Unexpected end of %s", path));
+      }
+    }
+    return buffer.flip();
+  }
+
+  private void readDecrypted(long position, byte[] destination, int destinationOffset, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(destination, destinationOffset, length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position() - destinationOffset) < 0) {
+        throw new IOException(String.format("Unexpected end of %s", path));
+      }
+    }
+    if (key != 0) {
+      for (int i = 0; i < length; ++i) {
+        int tkey = (int) (position + i) ^ key;
+        destination[destinationOffset + i] = (byte) (tkey ^ ~destination[destinationOffset + i]);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
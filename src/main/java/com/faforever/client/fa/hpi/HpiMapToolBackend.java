@@ -0,0 +1,165 @@
+package com.faforever.client.fa.hpi;
+
+import com.faforever.client.fa.MapToolBackend;
+import com.faforever.client.fa.hpi.TdfParser.Section;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.faforever.client.fa.MapTool.MAP_DETAIL_COLUMN_ARCHIVE;
+import static com.faforever.client.fa.MapTool.MAP_DETAIL_COLUMN_CRC;
+import static com.faforever.client.fa.MapTool.MAP_DETAIL_COLUMN_DESCRIPTION;
+import static com.faforever.client.fa.MapTool.MAP_DETAIL_COLUMN_GRAVITY;
+import static com.faforever.client.fa.MapTool.MAP_DETAIL_COLUMN_NAME;
+import static com.faforever.client.fa.MapTool.MAP_DETAIL_COLUMN_NUM_PLAYERS;
+import static com.faforever.client.fa.MapTool.MAP_DETAIL_COLUMN_SIZE;
+import static com.faforever.client.fa.MapTool.MAP_DETAIL_COLUMN_TIDAL;
+import static com.faforever.client.fa.MapTool.MAP_DETAIL_COLUMN_WIND;
+
+/**
+ * Enumerates maps by reading HPI archives in-process, scanning archives in parallel. Produces the same columns as the
+ * native maptool, but cannot generate previews or a features cache, so preview directories are ignored.
+ * <p>
+ * The map CRC is compared with the CRCs known to the server, so it has to be exactly maptool's. Rather than guessing
+ * at its algorithm, listings that need a CRC are left to {@code crcBackend}; all other listings report
+ * {@value #UNKNOWN_CRC}.
+ */
+public class HpiMapToolBackend implements MapToolBackend {
+
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String ARCHIVE_GLOB = "*.{ufo,UFO,hpi,HPI,ccx,CCX,gp3,GP3}";
+  private static final String MAPS_DIRECTORY = "maps";
+  static final String UNKNOWN_CRC = "00000000";
+  private static final int COLUMN_COUNT = 9;
+
+  private final ForkJoinPool pool;
+  private final boolean ownsPool;
+  private final MapToolBackend crcBackend;
+
+  public HpiMapToolBackend(MapToolBackend crcBackend) {
+    this(new ForkJoinPool(Runtime.getRuntime().availableProcessors()), true, crcBackend);
+  }
+
+  /** The pool remains the caller's to shut down. */
+  public HpiMapToolBackend(ForkJoinPool pool, MapToolBackend crcBackend) {
+    this(pool, false, crcBackend);
+  }
+
+  private HpiMapToolBackend(ForkJoinPool pool, boolean ownsPool, MapToolBackend crcBackend) {
+    this.pool = pool;
+    this.ownsPool = ownsPool;
+    this.crcBackend = crcBackend;
+  }
+
+  @Override
+  public List<String[]> listMapsInstalled(Path gamePath, Path previewCacheDirectory, boolean doCrc) throws IOException {
+    if (doCrc) {
+      return crcBackend.listMapsInstalled(gamePath, previewCacheDirectory, true);
+    }
+    return scan(listArchives(gamePath));
+  }
+
+  @Override
+  public List<String[]> listMaps(Path gamePath, Collection<String> mapNames) throws IOException {
+    return crcBackend.listMaps(gamePath, mapNames);
+  }
+
+  @Override
+  public List<String[]> listMapsInArchive(Path hpiFile, Path previewCacheDirectory, boolean doCrc) throws IOException {
+    if (doCrc) {
+      return crcBackend.listMapsInArchive(hpiFile, previewCacheDirectory, true);
+    }
+    return readArchive(hpiFile);
+  }
+
+  @Override
+  public void shutdown() {
+    if (ownsPool) {
+      pool.shutdownNow();
+    }
+    crcBackend.shutdown();
+  }
+
+  private static List<Path> listArchives(Path gamePath) throws IOException {
+    List<Path> archives = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(gamePath, ARCHIVE_GLOB)) {
+      stream.forEach(archives::add);
+    }
+    archives.sort(Comparator.comparing(path -> path.getFileName().toString().toLowerCase(Locale.ROOT)));
+    return archives;
+  }
+
+  private List<String[]> scan(List<Path> archives) throws IOException {
+    try {
+      return pool.submit(() -> archives.parallelStream()
+          .map(archive -> {
+            try {
+              return readArchive(archive);
+            } catch (IOException e) {
+              logger.warn("Could not read maps from {}: {}", archive, e.getMessage());
+              return List.<String[]>of();
+            }
+          })
+          .flatMap(List::stream)
+          .toList()
+      ).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading map archives", e);
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    }
+  }
+
+  static List<String[]> readArchive(Path archivePath) throws IOException {
+    try (HpiArchive archive = HpiArchive.open(archivePath)) {
+      List<HpiArchive.Entry> entries = archive.list(MAPS_DIRECTORY);
+      List<String[]> mapDetails = new ArrayList<>();
+      for (HpiArchive.Entry entry : entries) {
+        if (entry.isDirectory() || !entry.getName().toLowerCase(Locale.ROOT).endsWith(".ota")) {
+          continue;
+        }
+        String mapName = baseName(entry);
+        byte[] ota = archive.read(entry);
+        Section globalHeader = TdfParser.parse(new String(ota, StandardCharsets.ISO_8859_1)).getSection("GlobalHeader");
+        if (globalHeader == null) {
+          globalHeader = new Section();
+        }
+
+        String[] details = new String[COLUMN_COUNT];
+        details[MAP_DETAIL_COLUMN_NAME] = mapName;
+        details[MAP_DETAIL_COLUMN_ARCHIVE] = archivePath.getFileName().toString();
+        details[MAP_DETAIL_COLUMN_CRC] = UNKNOWN_CRC;
+        details[MAP_DETAIL_COLUMN_DESCRIPTION] = globalHeader.getValue("missiondescription", "");
+        details[MAP_DETAIL_COLUMN_SIZE] = globalHeader.getValue("size", "");
+        details[MAP_DETAIL_COLUMN_NUM_PLAYERS] = globalHeader.getValue("numplayers", "");
+        details[MAP_DETAIL_COLUMN_WIND] = String.format("%s-%s",
+            globalHeader.getValue("minwindspeed", "0"), globalHeader.getValue("maxwindspeed", "0"));
+        details[MAP_DETAIL_COLUMN_TIDAL] = globalHeader.getValue("tidalstrength", "0");
+        details[MAP_DETAIL_COLUMN_GRAVITY] = globalHeader.getValue("gravity", "0");
+        mapDetails.add(details);
+      }
+      return mapDetails;
+    }
+  }
+
+  private static String baseName(HpiArchive.Entry entry) {
+    String name = entry.getName();
+    int dot = name.lastIndexOf('.');
+    return dot < 0 ? name : name.substring(0, dot);
+  }
+}
@@ -0,0 +1,125 @@
+package com.faforever.client.fa.hpi;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parses TA's TDF format ({@code .ota}, {@code .tdf}, {@code .fbi}): nested {@code [Section] { key=value; }} blocks
+ * with {@code //} and {@code /* *&#47;} comments. Section names and keys are lower-cased; nested sections are
+ * returned as nested {@link Section}s.
+ */
+public class TdfParser {
+
+  public static class Section {
+    private final Map<String, String> values = new LinkedHashMap<>();
+    private final Map<String, Section> sections = new LinkedHashMap<>();
+
+    public String getValue(String key) {
+      return values.get(key.toLowerCase(Locale.ROOT));
+    }
+
+    public String getValue(String key, String defaultValue) {
+      return values.getOrDefault(key.toLowerCase(Locale.ROOT), defaultValue);
+    }
+
+    public Section getSection(String name) {
+      return sections.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public Map<String, Section> getSections() {
+      return sections;
+    }
+  }
+
+  private final String text;
+  private int position;
+
+  private TdfParser(String text) {
+    this.text = text;
+  }
+
+  /**
+   * Returns the top-level sections of a TDF document. Malformed trailing content is ignored.
+   */
+  public static Section parse(String text) {
+    TdfParser parser = new TdfParser(text);
+    Section root = new Section();
+    parser.parseBody(root, false);
+    return root;
+  }
+
+  private void parseBody(Section section, boolean nested) {
+    while (true) {
+      skipWhitespaceAndComments();
+      if (position >= text.length()) {
+        return;
+      }
+      char c = text.charAt(position);
+      if (c == '}') {
+        ++position;
+        if (nested) {
+          return;
+        }
+      } else if (c == '[') {
+        int end = text.indexOf(']', position);
+        if (end < 0) {
+          position = text.length();
+          return;
+        }
+        String name = text.substring(position + 1, end).trim().toLowerCase(Locale.ROOT);
+        position = end + 1;
+        skipWhitespaceAndComments();
+        Section child = new Section();
+        if (position < text.length() && text.charAt(position) == '{') {
+          ++position;
+          parseBody(child, true);
+        }
+        section.sections.putIfAbsent(name, child);
+      } else {
+        int end = text.indexOf(';', position);
+        int brace = indexOfAny(position, '{', '}', '[');
+        if (end < 0 || (brace >= 0 && brace < end)) {
+          // not a key=value; statement, skip a character to make progress
+          ++position;
+          continue;
+        }
+        String statement = text.substring(position, end);
+        position = end + 1;
+        int equals = statement.indexOf('=');
+        if (equals > 0) {
+          section.values.putIfAbsent(statement.substring(0, equals).trim().toLowerCase(Locale.ROOT), statement.substring(equals + 1).trim());
+        }
+      }
+    }
+  }
+
+  private int indexOfAny(int from, char... chars) {
+    for (int i = from; i < text.length(); ++i) {
+      char c = text.charAt(i);
+      for (char candidate : chars) {
+        if (c == candidate) {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private void skipWhitespaceAndComments() {
+    while (position < text.length()) {
+      char c = text.charAt(position);
+      if (Character.isWhitespace(c)) {
+        ++position;
+      } else if (text.startsWith("//", position)) {
+        int end = text.indexOf('\n', position);
+        position = end < 0 ? text.length() : end + 1;
+      } else if (text.startsWith("/*", position)) {
+        int end = text.indexOf("*/", position + 2);
+        position = end < 0 ? text.length() : end + 2;
+      } else {
+        return;
+      }
+    }
+  }
+}
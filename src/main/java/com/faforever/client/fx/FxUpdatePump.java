@@ -0,0 +1,170 @@
+package com.faforever.client.fx;
+
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+/**
+ * Buffers updates submitted from any thread and applies them on the FX application thread in bounded batches, instead
+ * of posting one runnable per update. Pending updates for the same key are merged (by default the newer one wins), so
+ * each key is applied at most once per batch. A batch ends when it reached the maximum batch size or used up the pulse
+ * budget; the remaining updates are applied in the next pulse.
+ */
+public class FxUpdatePump<K, V> {
+
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final String name;
+  private final int maxBatchSize;
+  private final long pulseBudgetNanos;
+  private final BinaryOperator<V> merger;
+  private final Consumer<V> applier;
+  private final Executor fxExecutor;
+  private final Map<K, V> pending = new LinkedHashMap<>();
+  private boolean drainScheduled;
+  /** Incremented by {@link #clear()}, so that a batch taken before isn't applied or requeued afterwards. */
+  private volatile long clears;
+
+  private long submitted;
+  private long coalesced;
+  private long applied;
+  private long discarded;
+  private long batches;
+  private long maxBatchNanos;
+
+  public FxUpdatePump(String name, int maxBatchSize, Duration pulseBudget, BinaryOperator<V> merger, Consumer<V> applier) {
+    this(name, maxBatchSize, pulseBudget, merger, applier, Platform::runLater);
+  }
+
+  FxUpdatePump(String name, int maxBatchSize, Duration pulseBudget, BinaryOperator<V> merger, Consumer<V> applier, Executor fxExecutor) {
+    this.name = name;
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.pulseBudgetNanos = pulseBudget.toNanos();
+    this.merger = merger;
+    this.applier = applier;
+    this.fxExecutor = fxExecutor;
+  }
+
+  public static <V> BinaryOperator<V> lastWriteWins() {
+    return (pendingValue, newValue) -> newValue;
+  }
+
+  public void submit(K key, V value) {
+    synchronized (pending) {
+      ++submitted;
+      V pendingValue = pending.remove(key);
+      if (pendingValue != null) {
+        ++coalesced;
+        value = merger.apply(pendingValue, value);
+      }
+      // re-inserted at the end, so the key is applied in the order of its latest update
+      pending.put(key, value);
+      scheduleDrain();
+    }
+  }
+
+  /**
+   * Discards all pending updates, including the rest of a batch that is currently being applied, e.g. when the state
+   * they would update has been reset.
+   */
+  public void clear() {
+    synchronized (pending) {
+      ++clears;
+      discarded += pending.size();
+      pending.clear();
+    }
+  }
+
+  private void scheduleDrain() {
+    if (!drainScheduled) {
+      drainScheduled = true;
+      fxExecutor.execute(this::drain);
+    }
+  }
+
+  private void drain() {
+    long start = System.nanoTime();
+    List<Map.Entry<K, V>> batch = new ArrayList<>(Math.min(maxBatchSize, 64));
+    long batchClears;
+    synchronized (pending) {
+      batchClears = clears;
+      Iterator<Map.Entry<K, V>> iterator = pending.entrySet().iterator();
+      while (iterator.hasNext() && batch.size() < maxBatchSize) {
+        Map.Entry<K, V> entry = iterator.next();
+        batch.add(Map.entry(entry.getKey(), entry.getValue()));
+        iterator.remove();
+      }
+    }
+
+    int count = 0;
+    for (Map.Entry<K, V> entry : batch) {
+      if (clears != batchClears) {
+        break;
+      }
+      try {
+        applier.accept(entry.getValue());
+      } catch (Exception e) {
+        logger.warn("Could not apply {} update", name, e);
+      }
+      ++count;
+      if (count < batch.size() && System.nanoTime() - start > pulseBudgetNanos) {
+        requeue(batch.subList(count, batch.size()), batchClears);
+        break;
+      }
+    }
+    long duration = System.nanoTime() - start;
+
+    int remaining;
+    synchronized (pending) {
+      applied += count;
+      ++batches;
+      maxBatchNanos = Math.max(maxBatchNanos, duration);
+      remaining = pending.size();
+      drainScheduled = false;
+      if (remaining > 0) {
+        scheduleDrain();
+      }
+    }
+    logger.debug("Applied {} {} updates in {} us, {} pending", count, name, duration / 1000, remaining);
+  }
+
+  /**
+   * Puts updates that didn't fit into the pulse budget back in front of the queue, merged with any newer update for the
+   * same key that arrived in the meantime. Nothing is put back if the pump has been cleared since the batch was taken.
+   */
+  private void requeue(List<Map.Entry<K, V>> entries, long batchClears) {
+    synchronized (pending) {
+      if (clears != batchClears) {
+        return;
+      }
+      Map<K, V> newer = new LinkedHashMap<>(pending);
+      pending.clear();
+      for (Map.Entry<K, V> entry : entries) {
+        V newerValue = newer.remove(entry.getKey());
+        pending.put(entry.getKey(), newerValue == null ? entry.getValue() : merger.apply(entry.getValue(), newerValue));
+      }
+      pending.putAll(newer);
+    }
+  }
+
+  /**
+   * Returns a one-line summary of the pump's counters, e.g. for logging.
+   */
+  public String getStatistics() {
+    synchronized (pending) {
+      return String.format("%s: %d submitted, %d coalesced, %d applied in %d batches, longest batch %d us, %d discarded, %d pending",
+          name, submitted, coalesced, applied, batches, maxBatchNanos / 1000, discarded, pending.size());
+    }
+  }
+}
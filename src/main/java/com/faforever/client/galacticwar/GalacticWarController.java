@@ -13,6 +13,7 @@ import com.faforever.client.remote.domain.GalacticWarUpdateMessage;
 import com.faforever.client.task.CompletableTask;
 import com.faforever.client.task.CompletableTask.Priority;
 import com.faforever.client.task.TaskService;
+import com.faforever.client.task.TransferPriority;
 import com.faforever.client.theme.UiService;
 import javafx.event.ActionEvent;
 import javafx.scene.Node;
@@ -87,7 +88,7 @@ public class GalacticWarController extends AbstractViewController<Node> {
           Files.deleteIfExists(targetPath);
           downloadService.downloadFile(
               new URL(clientProperties.getGalacticWar().getUrl()),
-              targetPath, null);
+              targetPath, null, TransferPriority.BACKGROUND);
         } catch (IOException e) {
           log.error("[updateLatestState] unable to retrieve Galactic War state: {}", e.getMessage());
         }
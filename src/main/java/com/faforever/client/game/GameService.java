@@ -2,6 +2,7 @@ package com.faforever.client.game;
 
 import com.faforever.client.chat.ChatService;
 import com.faforever.client.config.ClientProperties;
+import com.faforever.client.config.ClientProperties.UpdatePump;
 import com.faforever.client.discord.DiscordRichPresenceService;
 import com.faforever.client.fa.CloseGameEvent;
 import com.faforever.client.fa.DemoFileInfo;
@@ -10,6 +11,7 @@ import com.faforever.client.fa.TotalAnnihilationService;
 import com.faforever.client.fa.relay.event.AutoJoinRequestEvent;
 import com.faforever.client.fa.relay.event.RehostRequestEvent;
 import com.faforever.client.fa.relay.ice.IceAdapter;
+import com.faforever.client.fx.FxUpdatePump;
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.fx.PlatformService;
 import com.faforever.client.i18n.I18n;
@@ -124,6 +126,7 @@ public class GameService implements InitializingBean {
    * An observable copy of {@link #uidToGameInfoBean}. <strong>Do not modify its content directly</strong>.
    */
   private final ObservableMap<Integer, Game> uidToGameInfoBean;
+  private final FxUpdatePump<Integer, GameInfoMessage> gameInfoUpdatePump;
 
   private final ClientProperties clientProperties;
   private final FafService fafService;
@@ -215,6 +218,9 @@ public class GameService implements InitializingBean {
     runningGameUidProperty = new SimpleIntegerProperty();
     currentGame = new SimpleObjectProperty<>();
     currentGameStatusProperty = new SimpleObjectProperty<>();
+    UpdatePump updatePump = clientProperties.getUpdatePump();
+    gameInfoUpdatePump = new FxUpdatePump<>("game", updatePump.getMaxBatchSize(), updatePump.getPulseBudget(),
+        GameService::mergeGameInfo, this::onGameInfo);
 
     games = FXCollections.observableList(new ArrayList<>(),
         item -> new Observable[]{item.statusProperty(), item.getTeams()}
@@ -271,15 +277,16 @@ public class GameService implements InitializingBean {
 
     eventBus.register(this);
 
-    fafService.addOnMessageListener(GameInfoMessage.class, message -> {
-      JavaFxUtil.runLater(() -> onGameInfo(message));
-    });
+    fafService.addOnMessageListener(GameInfoMessage.class, this::submitGameInfo);
     fafService.addOnMessageListener(LoginMessage.class, message -> onLoggedIn());
 
     JavaFxUtil.addListener(
         fafService.connectionStateProperty(),
         (observable, oldValue, newValue) -> {
           if (newValue == ConnectionState.DISCONNECTED) {
+            log.info("Game update pump {}", gameInfoUpdatePump.getStatistics());
+            // Updates still queued would bring back games of the lost connection
+            gameInfoUpdatePump.clear();
             synchronized (uidToGameInfoBean) {
               uidToGameInfoBean.clear();
             }
@@ -1206,6 +1213,27 @@ public class GameService implements InitializingBean {
         .findFirst();
   }
 
+  private void submitGameInfo(GameInfoMessage gameInfoMessage) {
+    if (gameInfoMessage.getGames() != null) {
+      gameInfoMessage.getGames().forEach(this::submitGameInfo);
+      return;
+    }
+    gameInfoUpdatePump.submit(gameInfoMessage.getUid(), gameInfoMessage);
+  }
+
+  /**
+   * Game info without a host only carries pings, so it must not replace a complete update that is still pending.
+   */
+  private static GameInfoMessage mergeGameInfo(GameInfoMessage pendingMessage, GameInfoMessage newMessage) {
+    if (newMessage.getHost() == null && pendingMessage.getHost() != null) {
+      if (newMessage.getPings() != null) {
+        pendingMessage.setPings(newMessage.getPings());
+      }
+      return pendingMessage;
+    }
+    return newMessage;
+  }
+
   private void onGameInfo(GameInfoMessage gameInfoMessage) {
     JavaFxUtil.assertApplicationThread();
     if (gameInfoMessage.getGames() != null) {
@@ -29,6 +29,7 @@ public class GitCheckoutTask extends CompletableTask<Void> implements ProgressMo
   private String progressTitle;
   private boolean doPull;
   private Git git;
+  private LfsObjectStore lfsObjectStore;
 
   public GitCheckoutTask setLocal(File local) {
     this.local = local;
@@ -55,6 +56,11 @@ public class GitCheckoutTask extends CompletableTask<Void> implements ProgressMo
     return this;
   }
 
+  public GitCheckoutTask setLfsObjectStore(LfsObjectStore lfsObjectStore) {
+    this.lfsObjectStore = lfsObjectStore;
+    return this;
+  }
+
   @Inject
   public GitCheckoutTask() {
     super(Priority.HIGH);
@@ -86,6 +92,10 @@ public class GitCheckoutTask extends CompletableTask<Void> implements ProgressMo
         .map(Ref::getName)
         .anyMatch(name -> name.equals("refs/heads/" + branchName))) {
 
+      if (!doPull && lfsObjectStore != null) {
+        // When pulling, the objects of the upstream branch are prefetched instead
+        lfsObjectStore.prefetch(git.getRepository(), branchName, this::updateProgress);
+      }
       git.checkout()
           .setForced(true)
           .setName(branchName)
@@ -94,15 +104,28 @@ public class GitCheckoutTask extends CompletableTask<Void> implements ProgressMo
           .call();
 
       if (this.doPull) {
-        git.pull()
-            .setProgressMonitor(this)
-            .call();
+        Ref upstream = lfsObjectStore != null
+            ? lfsObjectStore.fetchAndPrefetchUpstream(git, branchName, this, this::updateProgress)
+            : null;
+        if (upstream != null) {
+          git.merge()
+              .include(upstream)
+              .setProgressMonitor(this)
+              .call();
+        } else {
+          git.pull()
+              .setProgressMonitor(this)
+              .call();
+        }
       }
 
     }
     else {
       git.fetch()
           .call();
+      if (lfsObjectStore != null) {
+        lfsObjectStore.prefetch(git.getRepository(), "origin/" + branchName, this::updateProgress);
+      }
       git.branchCreate()
           .setName(branchName)
           .setStartPoint("origin/"+ branchName)
@@ -0,0 +1,233 @@
+package com.faforever.client.git;
+
+import com.faforever.client.preferences.PreferencesService;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Tells whether the working tree of a repository has uncommitted changes without running a full {@code git status}
+ * when nothing changed since the tree was last found clean.
+ * <p>
+ * Whenever a full status finds a working tree clean, the commit, the index and the size and modification time of
+ * every tracked file are remembered. As long as all of them are the same, the tree is still clean; only the tracked
+ * files are looked at, so large untracked directories (maps, mods, replays) cost nothing. Files modified within
+ * {@link #RACY_INTERVAL_NANOS} before the status can't be told apart from files modified right after it, so a tree
+ * with such files is not remembered until it has settled.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class GitStatusCache {
+
+  private static final String STATUS_FILE_NAME = "git-status.json";
+  private static final long RACY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(3);
+  private static final Type SNAPSHOTS_TYPE = new TypeToken<Map<String, Snapshot>>() {
+  }.getType();
+
+  private final PreferencesService preferencesService;
+
+  private final Gson gson = new Gson();
+  private Map<String, Snapshot> snapshots;
+
+  /**
+   * Like {@code git.status().call().hasUncommittedChanges()}, but only falls back to it if the working tree may have
+   * changed since it was last found clean.
+   */
+  public synchronized boolean hasUncommittedChanges(Git git) throws IOException, GitAPIException {
+    Repository repository = git.getRepository();
+    String key = key(repository.getWorkTree().toPath());
+    Snapshot snapshot = getSnapshots().get(key);
+    if (snapshot != null && snapshot.matches(repository)) {
+      log.debug("Working tree '{}' is unchanged since it was last found clean", key);
+      return false;
+    }
+
+    long start = System.currentTimeMillis();
+    Snapshot candidate = Snapshot.take(repository);
+    boolean hasUncommittedChanges = git.status().call().hasUncommittedChanges();
+    if (candidate != null) {
+      // The status may have refreshed the stat information in the index
+      candidate.index = FileStat.of(repository.getIndexFile().toPath());
+    }
+    log.debug("Full status of '{}' took {} ms", key, System.currentTimeMillis() - start);
+
+    if (!hasUncommittedChanges && candidate != null && !candidate.isRacy()) {
+      getSnapshots().put(key, candidate);
+      save();
+    } else if (getSnapshots().remove(key) != null) {
+      save();
+    }
+    return hasUncommittedChanges;
+  }
+
+  /**
+   * Returns the tracked {@code .ini} files of the working tree, relative to it, as listed in the index.
+   */
+  public List<Path> getTrackedIniFiles(Git git) throws IOException {
+    DirCache dirCache = git.getRepository().readDirCache();
+    List<Path> iniFiles = new ArrayList<>();
+    for (int i = 0; i < dirCache.getEntryCount(); i++) {
+      String path = dirCache.getEntry(i).getPathString();
+      if (path.toLowerCase().endsWith(".ini")) {
+        iniFiles.add(Path.of(path));
+      }
+    }
+    return iniFiles;
+  }
+
+  private Map<String, Snapshot> getSnapshots() {
+    if (snapshots == null) {
+      snapshots = load();
+    }
+    return snapshots;
+  }
+
+  private Path getStatusFile() {
+    return preferencesService.getCacheDirectory().resolve(STATUS_FILE_NAME);
+  }
+
+  private static String key(Path path) {
+    return path.toAbsolutePath().normalize().toString();
+  }
+
+  private Map<String, Snapshot> load() {
+    Path statusFile = getStatusFile();
+    if (Files.exists(statusFile)) {
+      try (Reader reader = Files.newBufferedReader(statusFile, StandardCharsets.UTF_8)) {
+        Map<String, Snapshot> loaded = gson.fromJson(reader, SNAPSHOTS_TYPE);
+        if (loaded != null) {
+          return new HashMap<>(loaded);
+        }
+      } catch (IOException | JsonParseException e) {
+        log.warn("Could not read git status cache '{}'", statusFile, e);
+      }
+    }
+    return new HashMap<>();
+  }
+
+  private void save() {
+    Path statusFile = getStatusFile();
+    Path temporaryFile = statusFile.resolveSibling(STATUS_FILE_NAME + ".tmp");
+    try {
+      Files.createDirectories(statusFile.getParent());
+      try (Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+        gson.toJson(snapshots, SNAPSHOTS_TYPE, writer);
+      }
+      try {
+        Files.move(temporaryFile, statusFile, REPLACE_EXISTING, ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporaryFile, statusFile, REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      // Only costs a full status next time
+      log.warn("Could not write git status cache '{}'", statusFile, e);
+    }
+  }
+
+  private static class Snapshot {
+    private String head;
+    private FileStat index;
+    private Map<String, FileStat> trackedFiles;
+    private long takenAt;
+
+    /** Returns {@code null} if the repository has no commit yet. */
+    static Snapshot take(Repository repository) throws IOException {
+      ObjectId head = repository.resolve(Constants.HEAD);
+      if (head == null) {
+        return null;
+      }
+      Snapshot snapshot = new Snapshot();
+      snapshot.takenAt = System.currentTimeMillis() * 1_000_000;
+      snapshot.head = head.getName();
+      snapshot.index = FileStat.of(repository.getIndexFile().toPath());
+      snapshot.trackedFiles = new HashMap<>();
+      DirCache dirCache = repository.readDirCache();
+      Path workTree = repository.getWorkTree().toPath();
+      for (int i = 0; i < dirCache.getEntryCount(); i++) {
+        String path = dirCache.getEntry(i).getPathString();
+        snapshot.trackedFiles.put(path, FileStat.of(workTree.resolve(path)));
+      }
+      return snapshot;
+    }
+
+    boolean matches(Repository repository) throws IOException {
+      ObjectId currentHead = repository.resolve(Constants.HEAD);
+      if (currentHead == null || !currentHead.getName().equals(head)
+          || !Objects.equals(index, FileStat.of(repository.getIndexFile().toPath()))) {
+        return false;
+      }
+      Path workTree = repository.getWorkTree().toPath();
+      for (Map.Entry<String, FileStat> trackedFile : trackedFiles.entrySet()) {
+        if (!Objects.equals(trackedFile.getValue(), FileStat.of(workTree.resolve(trackedFile.getKey())))) {
+          log.debug("Tracked file '{}' has changed", trackedFile.getKey());
+          return false;
+        }
+      }
+      return true;
+    }
+
+    boolean isRacy() {
+      return index == null || trackedFiles.values().stream()
+          .anyMatch(stat -> stat != null && stat.lastModified > takenAt - RACY_INTERVAL_NANOS);
+    }
+  }
+
+  private static class FileStat {
+    private long size;
+    private long lastModified;
+
+    /** Returns {@code null} if the file doesn't exist. */
+    static FileStat of(Path file) throws IOException {
+      BasicFileAttributes attributes;
+      try {
+        attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      } catch (NoSuchFileException e) {
+        return null;
+      }
+      FileStat stat = new FileStat();
+      stat.size = attributes.size();
+      stat.lastModified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+      return stat;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof FileStat other && size == other.size && lastModified == other.lastModified;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(size, lastModified);
+    }
+  }
+}
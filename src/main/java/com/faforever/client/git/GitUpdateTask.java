@@ -2,9 +2,11 @@ package com.faforever.client.git;
 
 import com.faforever.client.task.CompletableTask;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lfs.BuiltinLFS;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTree;
@@ -35,6 +37,7 @@ public class GitUpdateTask extends CompletableTask<Void> implements ProgressMoni
 
   private File local;
   private Git git;
+  private LfsObjectStore lfsObjectStore;
   private String progressTitle;
 
   public GitUpdateTask setLocal(File local) {
@@ -47,6 +50,11 @@ public class GitUpdateTask extends CompletableTask<Void> implements ProgressMoni
     return this;
   }
 
+  public GitUpdateTask setLfsObjectStore(LfsObjectStore lfsObjectStore) {
+    this.lfsObjectStore = lfsObjectStore;
+    return this;
+  }
+
   public GitUpdateTask setProgressTitle(String progressTitle) {
     this.progressTitle = progressTitle;
     return this;
@@ -78,10 +86,11 @@ public class GitUpdateTask extends CompletableTask<Void> implements ProgressMoni
       updateTitle(progressTitle);
     }
 
+    Ref upstream = lfsObjectStore != null
+        ? lfsObjectStore.fetchAndPrefetchUpstream(git, branchName, this, this::updateProgress)
+        : null;
     try {
-      git.pull()
-          .setProgressMonitor(this)
-          .call();
+      update(upstream);
     }
     catch (org.eclipse.jgit.api.errors.CheckoutConflictException e) {
       logger.info("git pull {} had conflicts", branchName);
@@ -96,12 +105,26 @@ public class GitUpdateTask extends CompletableTask<Void> implements ProgressMoni
       });
 
       logger.info("Updating after removal of conflicts {}", branchName);
+      update(upstream);
+    }
+
+    return null;
+  }
+
+  /**
+   * Merges the already fetched upstream, or pulls if it hasn't been fetched.
+   */
+  private void update(Ref upstream) throws GitAPIException {
+    if (upstream == null) {
       git.pull()
           .setProgressMonitor(this)
           .call();
+      return;
     }
-
-    return null;
+    git.merge()
+        .include(upstream)
+        .setProgressMonitor(this)
+        .call();
   }
 
   int totalTasks;
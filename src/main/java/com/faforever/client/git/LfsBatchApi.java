@@ -0,0 +1,31 @@
+package com.faforever.client.git;
+
+import org.eclipse.jgit.lfs.internal.LfsConnectionFactory;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.http.HttpConnection;
+import org.eclipse.jgit.util.HttpSupport;
+
+import java.io.IOException;
+
+/**
+ * Opens connections to the LFS batch API of a repository.
+ * <p>
+ * JGit only offers this through {@link LfsConnectionFactory}, which is internal API. It's used anyway because a plain
+ * connection to the remote URL would have to reimplement how the smudge filter finds the LFS server: {@code lfs.url}
+ * and the remote's configuration, the {@code git-lfs-authenticate} handshake of SSH remotes, credentials and the HTTP
+ * settings of the repository. All uses of the internal API are kept in this class, so a JGit upgrade that changes it
+ * only breaks here.
+ */
+final class LfsBatchApi {
+
+  private LfsBatchApi() {
+    throw new AssertionError("Not instantiatable");
+  }
+
+  /**
+   * Opens a POST connection to the batch endpoint for the given operation, with the headers the server expects.
+   */
+  static HttpConnection openConnection(Repository repository, String operation) throws IOException {
+    return LfsConnectionFactory.getLfsConnection(repository, HttpSupport.METHOD_POST, operation);
+  }
+}
@@ -0,0 +1,341 @@
+package com.faforever.client.git;
+
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.io.DownloadService;
+import com.faforever.client.preferences.PreferencesService;
+import com.faforever.client.task.TransferPriority;
+import com.faforever.commons.io.ByteCountListener;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lfs.Lfs;
+import org.eclipse.jgit.lfs.LfsPointer;
+import org.eclipse.jgit.lfs.Protocol;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.BranchConfig;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.http.HttpConnection;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.faforever.client.util.LinkOrCopy.hardLinkOrCopy;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Keeps the Git LFS objects of all featured mod repositories in one content-addressed store, and fetches the objects
+ * a commit needs before it is checked out.
+ * <p>
+ * JGit's smudge filter downloads missing LFS objects one at a time while checking out. Prefetching asks the LFS
+ * server for all missing objects of a commit in batches, downloads them in parallel (resuming where earlier attempts
+ * stopped) into the store and hard links them into the repository's own LFS directory, where the smudge filter then
+ * finds them. Objects already in the store are only linked, so repositories that share files don't download them
+ * twice.
+ */
+@Service
+@Lazy
+@Slf4j
+@RequiredArgsConstructor
+public class LfsObjectStore {
+
+  /** The maximum number of objects per batch request that LFS servers have to accept. */
+  private static final int BATCH_SIZE = 100;
+  private static final String STORE_DIRECTORY = "lfs";
+
+  private final PreferencesService preferencesService;
+  private final DownloadService downloadService;
+  private final ExecutorService executorService;
+  private final ClientProperties clientProperties;
+
+  /**
+   * Fetches the upstream of the given branch and prefetches the LFS objects of its new head, so that merging it only
+   * has to check them out. Nothing is prefetched if the upstream hasn't moved past {@code HEAD}.
+   *
+   * @return the fetched upstream branch, or {@code null} if the branch doesn't have one
+   */
+  public Ref fetchAndPrefetchUpstream(Git git, String branchName, ProgressMonitor progressMonitor,
+                                      ByteCountListener progressListener) throws GitAPIException, IOException {
+    Repository repository = git.getRepository();
+    String upstreamName = new BranchConfig(repository.getConfig(), branchName).getRemoteTrackingBranch();
+    if (upstreamName == null) {
+      return null;
+    }
+    git.fetch()
+        .setProgressMonitor(progressMonitor)
+        .call();
+
+    Ref upstream = repository.exactRef(upstreamName);
+    if (upstream == null || upstream.getObjectId() == null) {
+      return null;
+    }
+    if (upstream.getObjectId().equals(repository.resolve(Constants.HEAD))) {
+      log.debug("{} is up to date with {}, no LFS objects to prefetch", branchName, upstreamName);
+      return upstream;
+    }
+    prefetch(repository, upstreamName, progressListener);
+    return upstream;
+  }
+
+  /**
+   * Makes sure all LFS objects of the given revision are in the repository's LFS directory. Failures other than
+   * interruption are only logged, since the smudge filter still downloads whatever is missing.
+   */
+  public void prefetch(Repository repository, String revision, ByteCountListener progressListener)
+      throws InterruptedIOException {
+    try {
+      ObjectId commitId = repository.resolve(revision);
+      if (commitId == null) {
+        log.warn("Can't prefetch LFS objects of unknown revision '{}'", revision);
+        return;
+      }
+
+      Lfs lfs = new Lfs(repository);
+      List<LfsPointer> missingPointers = new ArrayList<>();
+      Collection<LfsPointer> pointers = findPointers(repository, commitId);
+      for (LfsPointer pointer : pointers) {
+        Path mediaFile = lfs.getMediaFile(pointer.getOid());
+        Path storedFile = getStoredFile(pointer.getOid().name());
+        if (Files.exists(mediaFile)) {
+          share(mediaFile, storedFile);
+        } else if (!Files.exists(storedFile)) {
+          missingPointers.add(pointer);
+        }
+      }
+      log.info("Prefetching {} of {} LFS objects of {}", missingPointers.size(), pointers.size(), revision);
+
+      download(repository, missingPointers, progressListener);
+
+      for (LfsPointer pointer : pointers) {
+        Path mediaFile = lfs.getMediaFile(pointer.getOid());
+        Path storedFile = getStoredFile(pointer.getOid().name());
+        if (Files.notExists(mediaFile) && Files.exists(storedFile)) {
+          Files.createDirectories(mediaFile.getParent());
+          hardLinkOrCopy(storedFile, mediaFile);
+        }
+      }
+    } catch (InterruptedIOException e) {
+      throw e;
+    } catch (IOException e) {
+      log.warn("Could not prefetch LFS objects of '{}', leaving them to the smudge filter", revision, e);
+    }
+  }
+
+  private Collection<LfsPointer> findPointers(Repository repository, ObjectId commitId) throws IOException {
+    Map<String, LfsPointer> pointersByOid = new LinkedHashMap<>();
+    try (RevWalk revWalk = new RevWalk(repository);
+         TreeWalk treeWalk = new TreeWalk(repository)) {
+      RevCommit commit = revWalk.parseCommit(commitId);
+      treeWalk.addTree(commit.getTree());
+      treeWalk.setRecursive(true);
+      ObjectReader reader = treeWalk.getObjectReader();
+      while (treeWalk.next()) {
+        if (treeWalk.getFileMode(0).getObjectType() != Constants.OBJ_BLOB) {
+          continue;
+        }
+        ObjectId blobId = treeWalk.getObjectId(0);
+        // Pointer files are tiny, so most blobs don't have to be read
+        if (reader.getObjectSize(blobId, Constants.OBJ_BLOB) > LfsPointer.SIZE_THRESHOLD) {
+          continue;
+        }
+        try (InputStream inputStream = reader.open(blobId).openStream()) {
+          LfsPointer pointer = LfsPointer.parseLfsPointer(inputStream);
+          if (pointer != null) {
+            pointersByOid.putIfAbsent(pointer.getOid().name(), pointer);
+          }
+        }
+      }
+    }
+    return pointersByOid.values();
+  }
+
+  /**
+   * Downloads the given objects into the store, as many at a time as there are download slots.
+   */
+  private void download(Repository repository, List<LfsPointer> pointers, ByteCountListener progressListener)
+      throws IOException {
+    if (pointers.isEmpty()) {
+      return;
+    }
+    List<ObjectDownload> downloads = new ArrayList<>();
+    for (List<LfsPointer> batch : Lists.partition(pointers, BATCH_SIZE)) {
+      downloads.addAll(requestDownloads(repository, batch));
+    }
+
+    long totalBytes = downloads.stream().mapToLong(download -> download.size).sum();
+    AtomicLong bytesDone = new AtomicLong();
+    AtomicInteger nextDownload = new AtomicInteger();
+    int workerCount = Math.max(1, Math.min(downloads.size(), clientProperties.getTransfer().getDownloadSlots()));
+    List<Future<Void>> workers = new ArrayList<>(workerCount);
+    for (int i = 0; i < workerCount; i++) {
+      workers.add(executorService.submit(() -> {
+        int index;
+        while ((index = nextDownload.getAndIncrement()) < downloads.size()) {
+          ObjectDownload download = downloads.get(index);
+          AtomicLong lastWritten = new AtomicLong();
+          downloadObject(download, (written, total) -> progressListener.updateBytesWritten(
+              bytesDone.addAndGet(written - lastWritten.getAndSet(written)), totalBytes));
+        }
+        return null;
+      }));
+    }
+
+    try {
+      for (Future<Void> worker : workers) {
+        worker.get();
+      }
+    } catch (InterruptedException e) {
+      workers.forEach(worker -> worker.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while downloading LFS objects");
+    } catch (ExecutionException e) {
+      workers.forEach(worker -> worker.cancel(true));
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      }
+      throw new IOException("Could not download LFS objects", e.getCause());
+    }
+  }
+
+  /**
+   * Asks the LFS server where to download the given objects from. Objects the server can't provide are left out.
+   */
+  private List<ObjectDownload> requestDownloads(Repository repository, List<LfsPointer> pointers) throws IOException {
+    HttpConnection connection = LfsBatchApi.openConnection(repository, Protocol.OPERATION_DOWNLOAD);
+    Protocol.Request request = new Protocol.Request();
+    request.operation = Protocol.OPERATION_DOWNLOAD;
+    request.objects = new ArrayList<>(pointers.size());
+    for (LfsPointer pointer : pointers) {
+      Protocol.ObjectSpec objectSpec = new Protocol.ObjectSpec();
+      objectSpec.oid = pointer.getOid().name();
+      objectSpec.size = pointer.getSize();
+      request.objects.add(objectSpec);
+    }
+    Gson gson = Protocol.gson();
+    try (OutputStream outputStream = connection.getOutputStream()) {
+      outputStream.write(gson.toJson(request).getBytes(StandardCharsets.UTF_8));
+    }
+    int responseCode = connection.getResponseCode();
+    if (responseCode != HttpURLConnection.HTTP_OK && responseCode != HttpURLConnection.HTTP_NOT_AUTHORITATIVE) {
+      throw new IOException("LFS batch request to " + connection.getURL() + " failed with status " + responseCode);
+    }
+
+    Protocol.Response response;
+    try (Reader reader = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)) {
+      response = gson.fromJson(reader, Protocol.Response.class);
+    } catch (JsonParseException e) {
+      throw new IOException("Invalid response to LFS batch request to " + connection.getURL(), e);
+    }
+
+    List<ObjectDownload> downloads = new ArrayList<>();
+    if (response == null || response.objects == null) {
+      return downloads;
+    }
+    for (Protocol.ObjectInfo object : response.objects) {
+      Protocol.Action action = object.actions != null ? object.actions.get(Protocol.OPERATION_DOWNLOAD) : null;
+      if (object.error != null || action == null) {
+        log.warn("LFS server can't provide object {}: {}", object.oid,
+            object.error != null ? object.error.message : "no download action");
+        continue;
+      }
+      downloads.add(new ObjectDownload(object.oid, object.size, action));
+    }
+    return downloads;
+  }
+
+  private void downloadObject(ObjectDownload download, ByteCountListener progressListener) throws IOException {
+    Path storedFile = getStoredFile(download.oid);
+    // Partial downloads stay here, so the next attempt resumes them
+    Path incompleteFile = getStoreDirectory().resolve("incomplete").resolve(download.oid);
+    // The href is usually signed and differs with every batch request, the object id doesn't
+    downloadService.downloadFile(new URL(download.action.href), incompleteFile, progressListener, null,
+        download.action.header != null ? download.action.header : Map.of(), "lfs:" + download.oid, download.size,
+        TransferPriority.CRITICAL);
+
+    String sha256 = MoreFiles.asByteSource(incompleteFile).hash(Hashing.sha256()).toString();
+    if (!sha256.equals(download.oid)) {
+      Files.delete(incompleteFile);
+      throw new IOException("Checksum mismatch for LFS object " + download.oid + ": was " + sha256);
+    }
+    Files.createDirectories(storedFile.getParent());
+    try {
+      Files.move(incompleteFile, storedFile, REPLACE_EXISTING, ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(incompleteFile, storedFile, REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Adds an object a repository already has to the store, as long as that doesn't cost a copy.
+   */
+  private static void share(Path mediaFile, Path storedFile) {
+    if (Files.exists(storedFile)) {
+      return;
+    }
+    try {
+      Files.createDirectories(storedFile.getParent());
+      Files.createLink(storedFile, mediaFile);
+    } catch (UnsupportedOperationException | IOException e) {
+      log.debug("Could not add '{}' to the LFS object store", mediaFile, e);
+    }
+  }
+
+  private Path getStoreDirectory() {
+    return preferencesService.getPatchReposDirectory().resolve(STORE_DIRECTORY);
+  }
+
+  /** Uses the same layout as the LFS directory of a repository. */
+  Path getStoredFile(String oid) {
+    return getStoreDirectory().resolve("objects")
+        .resolve(oid.substring(0, 2))
+        .resolve(oid.substring(2, 4))
+        .resolve(oid);
+  }
+
+  private static class ObjectDownload {
+    private final String oid;
+    private final long size;
+    private final Protocol.Action action;
+
+    ObjectDownload(String oid, long size, Protocol.Action action) {
+      this.oid = oid;
+      this.size = size;
+      this.action = action;
+    }
+  }
+}
@@ -1,63 +1,85 @@
 package com.faforever.client.io;
 
-import com.faforever.client.task.ResourceLocks;
-import com.faforever.commons.io.ByteCopier;
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.task.TransferPriority;
+import com.faforever.client.task.TransferScheduler;
+import com.faforever.client.task.TransferScheduler.ScheduledTransfer;
 import com.faforever.commons.io.ByteCountListener;
 import com.google.gson.Gson;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 @Service
 @Lazy
 @Slf4j
+@RequiredArgsConstructor
 public class DownloadService {
 
+  private final ClientProperties clientProperties;
+  private final ExecutorService executorService;
+  private final TransferScheduler transferScheduler;
+
   public void downloadFile(URL url, Path targetFile, ByteCountListener progressListener) throws IOException {
-    if (!Files.exists(targetFile.getParent())) {
-      Files.createDirectories(targetFile.getParent());
-    }
-    Path tempFile = Files.createTempFile(targetFile.getParent(), "download", null);
+    downloadFile(url, targetFile, progressListener, TransferPriority.NORMAL);
+  }
 
-    HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+  public void downloadFile(URL url, Path targetFile, ByteCountListener progressListener, TransferPriority priority) throws IOException {
+    downloadFile(url, targetFile, progressListener, null, priority);
+  }
 
-    ResourceLocks.acquireDownloadLock();
-    try (InputStream inputStream = url.openStream();
-         OutputStream outputStream = Files.newOutputStream(tempFile)) {
+  /**
+   * Downloads a file, using several connections for large files. If the download fails, what has been downloaded is
+   * kept next to the target file and the next download of the same URL to the same file resumes from there.
+   *
+   * @param md5 the expected MD5 hash of the file, or {@code null} if it isn't known
+   * @param priority decides how long the download has to wait for others to finish
+   */
+  public void downloadFile(URL url, Path targetFile, ByteCountListener progressListener, String md5,
+                           TransferPriority priority) throws IOException {
+    downloadFile(url, targetFile, progressListener, md5, Map.of(), priority);
+  }
 
-      ByteCopier.from(inputStream)
-          .to(outputStream)
-          .totalBytes(urlConnection.getContentLength())
-          .listener(progressListener)
-          .copy();
+  /**
+   * Like {@link #downloadFile(URL, Path, ByteCountListener, String, TransferPriority)}, sending the given headers
+   * (e.g. for authorization) with every request.
+   */
+  public void downloadFile(URL url, Path targetFile, ByteCountListener progressListener, String md5,
+                           Map<String, String> requestHeaders, TransferPriority priority) throws IOException {
+    downloadFile(url, targetFile, progressListener, md5, requestHeaders, url.toString(), -1, priority);
+  }
 
-      Files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
-    } finally {
-      ResourceLocks.freeDownloadLock();
-      try {
-        Files.deleteIfExists(tempFile);
-      } catch (IOException e) {
-        log.warn("Could not delete temporary file: " + tempFile.toAbsolutePath(), e);
-      }
+  /**
+   * Like {@link #downloadFile(URL, Path, ByteCountListener, String, Map, TransferPriority)}, but resumes a partial
+   * download made with the same {@code resumeKey} even if it was made from another URL, e.g. because the URL is signed
+   * and expires.
+   *
+   * @param expectedLength the size of the file, or {@code -1} if it isn't known; partial downloads of another size
+   * are not resumed
+   */
+  public void downloadFile(URL url, Path targetFile, ByteCountListener progressListener, String md5,
+                           Map<String, String> requestHeaders, String resumeKey, long expectedLength,
+                           TransferPriority priority) throws IOException {
+    try (ScheduledTransfer transfer = transferScheduler.startDownload(priority)) {
+      new SegmentedDownload(url, resumeKey, expectedLength, targetFile, progressListener, md5, requestHeaders,
+          clientProperties.getDownload(), executorService, transfer).run();
     }
   }
 
   // @param charsetName eg StandardCharsets.UTF_8.name()
   public <T> T downloadJson(URL url, Class<T> classT) throws IOException {
-    ResourceLocks.acquireDownloadLock();
-    try (InputStream inputStream = url.openStream();
+    try (ScheduledTransfer transfer = transferScheduler.startDownload(TransferPriority.NORMAL);
+         InputStream inputStream = transfer.throttle(url.openStream());
          ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
       byte[] buffer = new byte[4096];
       int length;
@@ -67,9 +89,6 @@ public class DownloadService {
       String json = outputStream.toString(StandardCharsets.UTF_8.name());
       Gson gson = new Gson();
       return gson.fromJson(json, classT);
-
-    } finally {
-      ResourceLocks.freeDownloadLock();
     }
   }
 }
@@ -2,9 +2,9 @@ package com.faforever.client.io;
 
 import com.faforever.client.api.dto.FeaturedModFile;
 import com.faforever.client.preferences.PreferencesService;
-import com.faforever.client.task.ResourceLocks;
+import com.faforever.client.task.TransferScheduler;
+import com.faforever.client.task.TransferScheduler.DirectoryLock;
 import com.faforever.client.util.UpdaterUtil;
-import com.google.common.hash.Hashing;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.InitializingBean;
@@ -19,23 +19,39 @@ import java.nio.file.attribute.FileTime;
 import java.text.MessageFormat;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.LongConsumer;
 import java.util.stream.Stream;
 
-import static com.google.common.io.Files.hash;
-
-
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class FeaturedModFileCacheService implements InitializingBean {
   private final PreferencesService preferencesService;
+  private final TransferScheduler transferScheduler;
+  private final FileHashIndex fileHashIndex;
 
   public boolean isCached(FeaturedModFile featuredModFile) throws IOException {
     return Files.exists(getCachedFilePath(featuredModFile));
   }
 
   public String readHashFromFile(Path filePath) throws IOException {
-    return hash(filePath.toFile(), Hashing.md5()).toString();
+    return fileHashIndex.hash(filePath);
+  }
+
+  /**
+   * Returns the hashes of those of the given files that exist, hashing the ones that changed in parallel.
+   */
+  public Map<Path, String> readHashesFromFiles(Collection<Path> filePaths, LongConsumer bytesVerifiedListener) throws IOException {
+    return fileHashIndex.hashAll(filePaths, bytesVerifiedListener);
+  }
+
+  /**
+   * Remembers the hash of a file that was just downloaded and verified.
+   */
+  public void rememberHash(Path filePath, String hash) throws IOException {
+    fileHashIndex.put(filePath, hash);
   }
 
   private Path getCachedFilePath(String hash, String group) {
@@ -53,23 +69,44 @@ public class FeaturedModFileCacheService implements InitializingBean {
   }
 
   public void moveFeaturedModFileFromCache(FeaturedModFile featuredModFile, Path targetPath) throws IOException {
+    installFromCache(featuredModFile, targetPath, false);
+  }
+
+  /**
+   * Like {@link #moveFeaturedModFileFromCache(FeaturedModFile, Path)}, but leaves the cached file in place for other
+   * files with the same content.
+   */
+  public void copyFeaturedModFileFromCache(FeaturedModFile featuredModFile, Path targetPath) throws IOException {
+    installFromCache(featuredModFile, targetPath, true);
+  }
+
+  private void installFromCache(FeaturedModFile featuredModFile, Path targetPath, boolean keepCachedFile) throws IOException {
     Files.createDirectories(targetPath.getParent());
-    ResourceLocks.acquireDiskLock();
+    Path cachedFilePath = getCachedFilePath(featuredModFile);
+    Path cacheGroupDirectory = preferencesService.getFeaturedModCachePath()
+        .resolve(targetPath.getParent().getFileName().toString());
 
-    try {
+    try (DirectoryLock lock = transferScheduler.lockDirectories(
+        targetPath.getParent(), cachedFilePath.getParent(), cacheGroupDirectory)) {
       if (Files.exists(targetPath) && preferencesService.getPreferences().isGameDataCacheActivated()) {
         //We want to keep the old file for now in case it is needed again for example for old replays
         moveFeaturedModFileToCache(targetPath);
       }
-      Files.move(getCachedFilePath(featuredModFile), targetPath, StandardCopyOption.REPLACE_EXISTING);
+      if (keepCachedFile) {
+        Files.copy(cachedFilePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+        fileHashIndex.put(targetPath, featuredModFile.getMd5());
+      } else {
+        Files.move(cachedFilePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+        fileHashIndex.moved(cachedFilePath, targetPath);
+      }
       UpdaterUtil.extractMoviesIfPresent(targetPath, preferencesService.getFafDataDirectory());
-    } finally {
-      ResourceLocks.freeDiskLock();
     }
   }
 
   private void moveFeaturedModFileToCache(Path targetPath) throws IOException {
-    Files.move(targetPath, getCachedFilePath(targetPath), StandardCopyOption.REPLACE_EXISTING);
+    Path cachedFilePath = getCachedFilePath(targetPath);
+    Files.move(targetPath, cachedFilePath, StandardCopyOption.REPLACE_EXISTING);
+    fileHashIndex.moved(targetPath, cachedFilePath);
   }
 
   /**
@@ -104,9 +141,7 @@ public class FeaturedModFileCacheService implements InitializingBean {
    * Per directory cleanup old files.
    */
   private void deleteCachedFileIfNeeded(Path filePath) {
-    try {
-      ResourceLocks.acquireDiskLock();
-
+    try (DirectoryLock lock = transferScheduler.lockDirectories(filePath.getParent())) {
       FileTime lastAccessTime = Files.readAttributes(filePath, BasicFileAttributes.class).lastAccessTime();
       OffsetDateTime comparableLastAccessTime = OffsetDateTime.ofInstant(lastAccessTime.toInstant(), ZoneId.systemDefault());
       final boolean olderThanCacheTime = comparableLastAccessTime.plusDays(preferencesService.getPreferences().getCacheLifeTimeInDays()).isBefore(OffsetDateTime.now());
@@ -117,8 +152,6 @@ public class FeaturedModFileCacheService implements InitializingBean {
       }
     } catch (Exception e) {
       log.error("Exception during deleting the cache files", e);
-    } finally {
-      ResourceLocks.freeDiskLock();
     }
   }
 }
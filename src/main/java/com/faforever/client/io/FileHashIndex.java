@@ -0,0 +1,316 @@
+package com.faforever.client.io;
+
+import com.faforever.client.preferences.PreferencesService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Remembers the MD5 hashes of files so that files that haven't changed don't have to be read again. A file counts as
+ * unchanged as long as its size, modification time and file key (the inode, where the file system has one) are the
+ * same as when it was hashed.
+ * <p>
+ * The index is saved in the cache directory and discarded if the data directory has moved since it was written.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class FileHashIndex implements InitializingBean, DisposableBean {
+
+  private static final String INDEX_FILE_NAME = "file-hashes.json";
+  private static final int BUFFER_SIZE = 1024 * 1024;
+  private static final int HASHING_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+  private final PreferencesService preferencesService;
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final Gson gson = new Gson();
+  private ExecutorService hashingExecutor;
+  private volatile boolean dirty;
+
+  @Override
+  public void afterPropertiesSet() {
+    load();
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    if (hashingExecutor != null) {
+      hashingExecutor.shutdownNow();
+    }
+    save();
+  }
+
+  /**
+   * Returns the MD5 hash of the given file, reading the file only if it changed since it was last hashed.
+   */
+  public String hash(Path file) throws IOException {
+    Entry entry = lookUp(file);
+    if (entry != null) {
+      return entry.md5;
+    }
+    String hash = computeAndRemember(file, bytes -> {
+    });
+    save();
+    return hash;
+  }
+
+  /**
+   * Returns the MD5 hashes of all given files that exist. Files that changed since they were last hashed are read in
+   * parallel.
+   */
+  public Map<Path, String> hashAll(Collection<Path> files) throws IOException {
+    return hashAll(files, bytes -> {
+    });
+  }
+
+  /**
+   * Like {@link #hashAll(Collection)}, telling the listener about the bytes of each file that has been verified, be it
+   * by reading it or by finding it unchanged. The listener may be called from several threads at once.
+   */
+  public Map<Path, String> hashAll(Collection<Path> files, LongConsumer bytesVerifiedListener) throws IOException {
+    Map<Path, String> hashes = new HashMap<>();
+    List<Path> changedFiles = new ArrayList<>();
+    for (Path file : files) {
+      if (Files.notExists(file)) {
+        continue;
+      }
+      Entry entry = lookUp(file);
+      if (entry != null) {
+        hashes.put(file, entry.md5);
+        bytesVerifiedListener.accept(entry.size);
+      } else {
+        changedFiles.add(file);
+      }
+    }
+    if (changedFiles.isEmpty()) {
+      return hashes;
+    }
+
+    log.debug("Hashing {} of {} files", changedFiles.size(), files.size());
+    List<Future<String>> futures = new ArrayList<>(changedFiles.size());
+    for (Path file : changedFiles) {
+      futures.add(getHashingExecutor().submit(() -> computeAndRemember(file, bytesVerifiedListener)));
+    }
+    try {
+      for (int i = 0; i < changedFiles.size(); i++) {
+        hashes.put(changedFiles.get(i), futures.get(i).get());
+      }
+    } catch (InterruptedException e) {
+      futures.forEach(future -> future.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while hashing files");
+    } catch (ExecutionException e) {
+      futures.forEach(future -> future.cancel(true));
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      }
+      throw new IOException("Could not hash files", e.getCause());
+    } finally {
+      save();
+    }
+    return hashes;
+  }
+
+  /**
+   * Remembers the hash of a file whose content has just been verified, so it doesn't need to be read again. Like
+   * {@link #moved(Path, Path)}, this only changes the index in memory; it's saved with the next hashing or on shutdown.
+   */
+  public void put(Path file, String md5) throws IOException {
+    entries.put(key(file), Entry.of(Files.readAttributes(file, BasicFileAttributes.class), md5));
+    dirty = true;
+  }
+
+  /**
+   * Keeps the hash of a file that was moved, as long as the move didn't change it.
+   */
+  public void moved(Path source, Path target) throws IOException {
+    Entry entry = entries.remove(key(source));
+    entries.remove(key(target));
+    dirty = true;
+    if (entry != null) {
+      BasicFileAttributes attributes = Files.readAttributes(target, BasicFileAttributes.class);
+      if (entry.matches(attributes)) {
+        entries.put(key(target), entry);
+      }
+    }
+  }
+
+  private Entry lookUp(Path file) throws IOException {
+    Entry entry = entries.get(key(file));
+    if (entry == null) {
+      return null;
+    }
+    try {
+      if (entry.matches(Files.readAttributes(file, BasicFileAttributes.class))) {
+        return entry;
+      }
+    } catch (NoSuchFileException e) {
+      // Hashing it will report it missing
+    }
+    entries.remove(key(file));
+    dirty = true;
+    return null;
+  }
+
+  private String computeAndRemember(Path file, LongConsumer bytesReadListener) throws IOException {
+    BasicFileAttributes before = Files.readAttributes(file, BasicFileAttributes.class);
+    String md5 = computeHash(file, bytesReadListener);
+    BasicFileAttributes after = Files.readAttributes(file, BasicFileAttributes.class);
+    // Only remember the hash if the file didn't change while it was being read
+    if (Entry.of(before, md5).matches(after)) {
+      entries.put(key(file), Entry.of(after, md5));
+      dirty = true;
+    }
+    return md5;
+  }
+
+  static String computeHash(Path file, LongConsumer bytesReadListener) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    try (FileChannel channel = FileChannel.open(file, READ)) {
+      int length;
+      while ((length = channel.read(buffer)) != -1) {
+        bytesReadListener.accept(length);
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private synchronized ExecutorService getHashingExecutor() {
+    if (hashingExecutor == null) {
+      hashingExecutor = Executors.newFixedThreadPool(HASHING_THREADS, new ThreadFactoryBuilder()
+          .setNameFormat("file-hashing-%d")
+          .setDaemon(true)
+          .build());
+    }
+    return hashingExecutor;
+  }
+
+  private Path getIndexFile() {
+    return preferencesService.getCacheDirectory().resolve(INDEX_FILE_NAME);
+  }
+
+  private String getDataDirectory() {
+    return key(preferencesService.getFafDataDirectory());
+  }
+
+  private static String key(Path file) {
+    return file.toAbsolutePath().normalize().toString();
+  }
+
+  private void load() {
+    Path indexFile = getIndexFile();
+    if (Files.notExists(indexFile)) {
+      return;
+    }
+    try (Reader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+      Index index = gson.fromJson(reader, Index.class);
+      if (index == null || index.entries == null || !getDataDirectory().equals(index.dataDirectory)) {
+        log.debug("Discarding file hash index of a different data directory");
+        dirty = true;
+        return;
+      }
+      entries.putAll(index.entries);
+    } catch (IOException | JsonParseException e) {
+      log.warn("Could not read file hash index '{}'", indexFile, e);
+    }
+  }
+
+  synchronized void save() throws IOException {
+    if (!dirty) {
+      return;
+    }
+    dirty = false;
+    Index index = new Index();
+    index.dataDirectory = getDataDirectory();
+    index.entries = new HashMap<>(entries);
+    // Forget about files that are gone
+    index.entries.keySet().removeIf(file -> Files.notExists(Path.of(file)));
+
+    Path indexFile = getIndexFile();
+    Files.createDirectories(indexFile.getParent());
+    Path temporaryFile = indexFile.resolveSibling(INDEX_FILE_NAME + ".tmp");
+    try (Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+      gson.toJson(index, writer);
+    }
+    try {
+      Files.move(temporaryFile, indexFile, REPLACE_EXISTING, ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temporaryFile, indexFile, REPLACE_EXISTING);
+    }
+  }
+
+  private static class Index {
+    private String dataDirectory;
+    private Map<String, Entry> entries;
+  }
+
+  private static class Entry {
+    private long size;
+    private long lastModified;
+    private String fileKey;
+    private String md5;
+
+    static Entry of(BasicFileAttributes attributes, String md5) {
+      Entry entry = new Entry();
+      entry.size = attributes.size();
+      entry.lastModified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+      entry.fileKey = Objects.toString(attributes.fileKey(), null);
+      entry.md5 = md5;
+      return entry;
+    }
+
+    boolean matches(BasicFileAttributes attributes) {
+      return size == attributes.size()
+          && lastModified == attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+          && Objects.equals(fileKey, Objects.toString(attributes.fileKey(), null));
+    }
+  }
+}
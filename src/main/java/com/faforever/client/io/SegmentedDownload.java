@@ -0,0 +1,492 @@
+package com.faforever.client.io;
+
+import com.faforever.client.config.ClientProperties.Download;
+import com.faforever.client.task.TransferScheduler.ScheduledTransfer;
+import com.faforever.commons.io.ByteCountListener;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Downloads a file in segments that are requested with HTTP range requests, several of them in parallel. Data is
+ * written to a {@value #PART_SUFFIX} file next to the target file and the progress of each segment is saved in a
+ * {@value #STATE_SUFFIX} file, so a failed download is resumed where it stopped, even after a restart of the client.
+ * Resumed requests carry the validator (ETag or last modification time) of the original response in an
+ * {@code If-Range} header, so a file that changed on the server is downloaded again from the start. A partial download
+ * is resumed if it was made with the same resume key, which is the URL unless the caller knows better, e.g. for signed
+ * URLs that change with every request.
+ * <p>
+ * The first request asks for the first segment only and its response tells the total size, so no extra request is
+ * needed to find out how large a file is. Servers that don't support range requests answer it with the complete file,
+ * which is then downloaded over that single connection and can't be resumed.
+ */
+@Slf4j
+class SegmentedDownload {
+
+  static final String PART_SUFFIX = ".part";
+  static final String STATE_SUFFIX = ".part.json";
+  private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
+  private final URL url;
+  private final String resumeKey;
+  /** The size the file must have, or {@code -1} if it isn't known. */
+  private final long expectedLength;
+  private final Path targetFile;
+  private final Path partFile;
+  private final Path stateFile;
+  private final ByteCountListener progressListener;
+  private final String md5;
+  private final Map<String, String> requestHeaders;
+  private final Download properties;
+  private final ExecutorService executorService;
+  private final ScheduledTransfer transfer;
+  private final Gson gson = new Gson();
+
+  private State state;
+  private FileChannel channel;
+  private AtomicLongArray segmentProgress;
+  private final AtomicLong bytesWritten = new AtomicLong();
+  private final AtomicInteger nextSegment = new AtomicInteger();
+  private final AtomicReference<Exception> failure = new AtomicReference<>();
+  private volatile long lastSaveTime;
+  private int[] pendingSegments;
+
+  SegmentedDownload(URL url, String resumeKey, long expectedLength, Path targetFile,
+                    ByteCountListener progressListener, String md5, Map<String, String> requestHeaders,
+                    Download properties, ExecutorService executorService, ScheduledTransfer transfer) {
+    this.url = url;
+    this.resumeKey = resumeKey;
+    this.expectedLength = expectedLength;
+    this.targetFile = targetFile;
+    this.partFile = targetFile.resolveSibling(targetFile.getFileName() + PART_SUFFIX);
+    this.stateFile = targetFile.resolveSibling(targetFile.getFileName() + STATE_SUFFIX);
+    this.progressListener = progressListener;
+    this.md5 = md5;
+    this.requestHeaders = requestHeaders;
+    this.properties = properties;
+    this.executorService = executorService;
+    this.transfer = transfer;
+  }
+
+  void run() throws IOException {
+    Files.createDirectories(targetFile.getParent());
+    state = readState();
+
+    if (state == null || !state.isComplete()) {
+      download();
+    }
+
+    verifyChecksum();
+    try {
+      Files.move(partFile, targetFile, REPLACE_EXISTING, ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(partFile, targetFile, REPLACE_EXISTING);
+    }
+    Files.deleteIfExists(stateFile);
+  }
+
+  private void download() throws IOException {
+    int firstSegment = state != null ? state.firstPendingSegment() : 0;
+    long rangeStart = state != null ? state.segmentStart(firstSegment) + state.progress[firstSegment] : 0;
+    long rangeEnd = state != null ? state.segmentEnd(firstSegment) : properties.getSegmentSize() - 1;
+
+    HttpURLConnection connection = openConnection(rangeStart, rangeEnd);
+    try {
+      int responseCode = connection.getResponseCode();
+      ContentRange contentRange = ContentRange.parse(connection.getHeaderField("Content-Range"));
+
+      if (responseCode == HttpURLConnection.HTTP_PARTIAL && contentRange != null && contentRange.start == rangeStart
+          && (state == null || contentRange.total == state.totalLength)) {
+        if (state == null) {
+          if (expectedLength >= 0 && contentRange.total != expectedLength) {
+            throw new IOException("Expected " + expectedLength + " bytes but " + url + " has " + contentRange.total);
+          }
+          state = new State(resumeKey, getValidator(connection), contentRange.total, properties.getSegmentSize());
+          log.debug("Downloading '{}' ({} bytes) in {} segments", url, state.totalLength, state.progress.length);
+        } else {
+          log.info("Resuming download of '{}' at {} of {} bytes", url, state.downloadedLength(), state.totalLength);
+        }
+        downloadSegments(connection, firstSegment);
+      } else if (responseCode == HttpURLConnection.HTTP_OK) {
+        if (state != null) {
+          log.info("'{}' has changed or doesn't support range requests, downloading it again", url);
+        }
+        state = null;
+        downloadWhole(connection);
+      } else if (responseCode == HTTP_RANGE_NOT_SATISFIABLE) {
+        // E.g. an empty file or one that became shorter
+        state = null;
+        HttpURLConnection wholeFileConnection = openConnection(-1, -1);
+        try {
+          downloadWhole(wholeFileConnection);
+        } finally {
+          wholeFileConnection.disconnect();
+        }
+      } else {
+        throw new IOException("Unexpected response " + responseCode + " when downloading " + url);
+      }
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  /**
+   * Downloads all pending segments with up to {@code maxConnectionsPerFile} connections. The calling thread reads the
+   * response of the first request.
+   */
+  private void downloadSegments(HttpURLConnection firstConnection, int firstSegment) throws IOException {
+    segmentProgress = new AtomicLongArray(state.progress);
+    bytesWritten.set(state.downloadedLength());
+    pendingSegments = IntStream.range(0, state.progress.length)
+        .filter(segment -> segment != firstSegment && state.progress[segment] < state.segmentLength(segment))
+        .toArray();
+
+    channel = FileChannel.open(partFile, CREATE, WRITE);
+    // A part file left behind without usable state may be longer than this download
+    channel.truncate(state.totalLength);
+    lastSaveTime = System.nanoTime();
+    try {
+      int connectionCount = Math.min(properties.getMaxConnectionsPerFile() - 1, pendingSegments.length);
+      List<CompletableFuture<Void>> workers = new ArrayList<>();
+      for (int i = 0; i < connectionCount; i++) {
+        workers.add(CompletableFuture.runAsync(this::downloadPendingSegments, executorService));
+      }
+
+      try {
+        try {
+          readSegment(firstSegment, firstConnection);
+        } catch (InterruptedIOException e) {
+          throw e;
+        } catch (IOException e) {
+          log.debug("Segment {} of '{}' failed, retrying", firstSegment, url, e);
+          downloadSegment(firstSegment);
+        }
+        downloadPendingSegments();
+      } catch (IOException e) {
+        failure.compareAndSet(null, e);
+      }
+      for (CompletableFuture<Void> worker : workers) {
+        try {
+          worker.join();
+        } catch (CompletionException e) {
+          failure.compareAndSet(null, e.getCause() instanceof Exception cause ? cause : e);
+        }
+      }
+
+      Exception exception = failure.get();
+      if (exception != null) {
+        saveState();
+        throw exception instanceof IOException ioException ? ioException : new IOException(exception);
+      }
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void downloadPendingSegments() {
+    int index;
+    while (failure.get() == null && (index = nextSegment.getAndIncrement()) < pendingSegments.length) {
+      try {
+        downloadSegment(pendingSegments[index]);
+      } catch (IOException e) {
+        failure.compareAndSet(null, e);
+      }
+    }
+  }
+
+  private void downloadSegment(int segment) throws IOException {
+    for (int attempt = 0; ; attempt++) {
+      long start = state.segmentStart(segment) + segmentProgress.get(segment);
+      HttpURLConnection connection = openConnection(start, state.segmentEnd(segment));
+      try {
+        int responseCode = connection.getResponseCode();
+        ContentRange contentRange = ContentRange.parse(connection.getHeaderField("Content-Range"));
+        if (responseCode != HttpURLConnection.HTTP_PARTIAL || contentRange == null || contentRange.start != start
+            || contentRange.total != state.totalLength) {
+          throw new IOException("Server ignored the range request for segment " + segment + " of " + url
+              + " (response " + responseCode + ")");
+        }
+        readSegment(segment, connection);
+        return;
+      } catch (InterruptedIOException e) {
+        throw e;
+      } catch (IOException e) {
+        if (attempt >= properties.getMaxRetries() || failure.get() != null) {
+          throw e;
+        }
+        log.debug("Segment {} of '{}' failed, retrying", segment, url, e);
+        sleepBeforeRetry(attempt);
+      } finally {
+        connection.disconnect();
+      }
+    }
+  }
+
+  private void readSegment(int segment, HttpURLConnection connection) throws IOException {
+    long position = state.segmentStart(segment) + segmentProgress.get(segment);
+    long end = state.segmentEnd(segment) + 1;
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (InputStream inputStream = connection.getInputStream()) {
+      while (position < end) {
+        if (failure.get() != null) {
+          return;
+        }
+        int length = inputStream.read(buffer, 0, (int) Math.min(buffer.length, end - position));
+        if (length == -1) {
+          throw new IOException("Connection closed at byte " + position + " of " + url);
+        }
+        ByteBuffer data = ByteBuffer.wrap(buffer, 0, length);
+        while (data.hasRemaining()) {
+          position += channel.write(data, position);
+        }
+        segmentProgress.addAndGet(segment, length);
+        onBytesWritten(length);
+        transfer.throttle(length);
+      }
+    }
+  }
+
+  private void downloadWhole(HttpURLConnection connection) throws IOException {
+    long totalLength = connection.getContentLengthLong();
+    try (InputStream inputStream = connection.getInputStream();
+         FileChannel channel = FileChannel.open(partFile, CREATE, TRUNCATE_EXISTING, WRITE)) {
+      Files.deleteIfExists(stateFile);
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int length;
+      long written = 0;
+      while ((length = inputStream.read(buffer)) != -1) {
+        ByteBuffer data = ByteBuffer.wrap(buffer, 0, length);
+        while (data.hasRemaining()) {
+          channel.write(data);
+        }
+        written += length;
+        if (progressListener != null) {
+          progressListener.updateBytesWritten(written, totalLength);
+        }
+        transfer.throttle(length);
+      }
+      if (totalLength >= 0 && written != totalLength) {
+        throw new IOException("Expected " + totalLength + " bytes but got " + written + " from " + url);
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(partFile);
+      throw e;
+    }
+  }
+
+  private void onBytesWritten(int length) {
+    long written = bytesWritten.addAndGet(length);
+    if (progressListener != null) {
+      progressListener.updateBytesWritten(written, state.totalLength);
+    }
+    long now = System.nanoTime();
+    if (now - lastSaveTime > properties.getProgressSaveInterval().toNanos()) {
+      lastSaveTime = now;
+      try {
+        saveState();
+      } catch (IOException e) {
+        log.debug("Could not save progress of '{}'", url, e);
+      }
+    }
+  }
+
+  /**
+   * Writes the progress of all segments to the state file. Data is forced to disk first, so the state never claims
+   * more than has been written.
+   */
+  private synchronized void saveState() throws IOException {
+    channel.force(false);
+    for (int segment = 0; segment < state.progress.length; segment++) {
+      state.progress[segment] = segmentProgress.get(segment);
+    }
+    Path temporaryFile = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+    try (Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+      gson.toJson(state, writer);
+    }
+    try {
+      Files.move(temporaryFile, stateFile, REPLACE_EXISTING, ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temporaryFile, stateFile, REPLACE_EXISTING);
+    }
+  }
+
+  private State readState() {
+    if (Files.notExists(stateFile) || Files.notExists(partFile)) {
+      return null;
+    }
+    try (Reader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+      State state = gson.fromJson(reader, State.class);
+      if (state == null || !resumeKey.equals(state.resumeKey) || state.progress == null
+          || state.progress.length != state.segmentCount()
+          || (expectedLength >= 0 && state.totalLength != expectedLength)) {
+        log.debug("Discarding partial download of a different file: '{}'", stateFile);
+        return null;
+      }
+      return state;
+    } catch (IOException | JsonParseException e) {
+      log.warn("Could not read download state '{}'", stateFile, e);
+      return null;
+    }
+  }
+
+  private void verifyChecksum() throws IOException {
+    if (md5 == null) {
+      return;
+    }
+    String actualMd5 = MoreFiles.asByteSource(partFile).hash(Hashing.md5()).toString();
+    if (!md5.equalsIgnoreCase(actualMd5)) {
+      Files.deleteIfExists(partFile);
+      Files.deleteIfExists(stateFile);
+      throw new IOException("Checksum mismatch for " + url + ": expected " + md5 + " but was " + actualMd5);
+    }
+  }
+
+  /**
+   * Opens a connection that requests the specified range, or the whole file if {@code rangeStart} is negative.
+   */
+  private HttpURLConnection openConnection(long rangeStart, long rangeEnd) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setConnectTimeout((int) properties.getConnectTimeout().toMillis());
+    connection.setReadTimeout((int) properties.getReadTimeout().toMillis());
+    requestHeaders.forEach(connection::setRequestProperty);
+    if (rangeStart >= 0) {
+      connection.setRequestProperty("Range", "bytes=" + rangeStart + "-" + rangeEnd);
+      if (state != null && state.validator != null) {
+        connection.setRequestProperty("If-Range", state.validator);
+      }
+    }
+    return connection;
+  }
+
+  private static String getValidator(HttpURLConnection connection) {
+    String etag = connection.getHeaderField("ETag");
+    if (etag != null && !etag.startsWith("W/")) {
+      return etag;
+    }
+    return connection.getHeaderField("Last-Modified");
+  }
+
+  private void sleepBeforeRetry(int attempt) throws InterruptedIOException {
+    try {
+      Thread.sleep(properties.getRetryDelay().toMillis() * (attempt + 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry " + url);
+    }
+  }
+
+  /**
+   * The progress of a segmented download as saved in the state file.
+   */
+  private static class State {
+    private String resumeKey;
+    private String validator;
+    private long totalLength;
+    private int segmentSize;
+    /** The number of bytes written to each segment. */
+    private long[] progress;
+
+    private State(String resumeKey, String validator, long totalLength, int segmentSize) {
+      this.resumeKey = resumeKey;
+      this.validator = validator;
+      this.totalLength = totalLength;
+      this.segmentSize = segmentSize;
+      this.progress = new long[segmentCount()];
+    }
+
+    private int segmentCount() {
+      return (int) Math.max(1, (totalLength + segmentSize - 1) / segmentSize);
+    }
+
+    private long segmentStart(int segment) {
+      return (long) segment * segmentSize;
+    }
+
+    private long segmentEnd(int segment) {
+      return Math.min(segmentStart(segment) + segmentSize, totalLength) - 1;
+    }
+
+    private long segmentLength(int segment) {
+      return segmentEnd(segment) - segmentStart(segment) + 1;
+    }
+
+    private int firstPendingSegment() {
+      for (int segment = 0; segment < progress.length; segment++) {
+        if (progress[segment] < segmentLength(segment)) {
+          return segment;
+        }
+      }
+      return -1;
+    }
+
+    private boolean isComplete() {
+      return firstPendingSegment() == -1;
+    }
+
+    private long downloadedLength() {
+      long length = 0;
+      for (long segmentProgress : progress) {
+        length += segmentProgress;
+      }
+      return length;
+    }
+  }
+
+  private static class ContentRange {
+    private final long start;
+    private final long total;
+
+    private ContentRange(long start, long total) {
+      this.start = start;
+      this.total = total;
+    }
+
+    private static ContentRange parse(String header) {
+      if (header == null) {
+        return null;
+      }
+      Matcher matcher = CONTENT_RANGE_PATTERN.matcher(header.trim());
+      if (!matcher.matches()) {
+        return null;
+      }
+      return new ContentRange(Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(3)));
+    }
+  }
+}
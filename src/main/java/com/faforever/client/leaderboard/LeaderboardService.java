@@ -4,6 +4,7 @@ import com.faforever.client.util.Tuple;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
 
 public interface LeaderboardService {
   int MINIMUM_GAMES_PLAYED_TO_BE_SHOWN = 10;
@@ -13,7 +14,13 @@ public interface LeaderboardService {
 
   CompletableFuture<List<LeaderboardEntry>> getEntriesForPlayer(int playerId);
 
-  CompletableFuture<List<LeaderboardEntry>> getEntries(Leaderboard leaderboard);
+  /**
+   * Returns all entries of the leaderboard. Snapshots are cached for a while, so repeated calls are cheap.
+   *
+   * @param loadedEntriesListener is told how many entries have been loaded so far while the snapshot is being loaded;
+   * not called for a snapshot that is already cached or being loaded for another caller
+   */
+  CompletableFuture<LeaderboardSnapshot> getSnapshot(Leaderboard leaderboard, IntConsumer loadedEntriesListener);
 
   CompletableFuture<Tuple<List<LeaderboardEntry>, Integer>> getPagedEntries(Leaderboard leaderboard, int count, int page);
 
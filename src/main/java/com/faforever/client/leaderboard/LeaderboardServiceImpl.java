@@ -2,18 +2,19 @@ package com.faforever.client.leaderboard;
 
 import com.faforever.client.FafClientApplication;
 import com.faforever.client.remote.FafService;
-import com.faforever.client.util.RatingUtil;
 import com.faforever.client.util.Tuple;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.IntConsumer;
+
+import static java.util.concurrent.TimeUnit.HOURS;
 
 
 @Lazy
@@ -22,14 +23,19 @@ import java.util.stream.Stream;
 @RequiredArgsConstructor
 public class LeaderboardServiceImpl implements LeaderboardService {
   private final FafService fafService;
+  /** Failed loads are removed by the cache, so they are retried on the next call. */
+  private final AsyncCache<String, LeaderboardSnapshot> snapshots = Caffeine.newBuilder()
+      .maximumSize(10)
+      .expireAfterWrite(1, HOURS)
+      .buildAsync();
 
   @Override
   public CompletableFuture<List<Leaderboard>> getLeaderboards() {
     return fafService.getLeaderboards();
   }
 
-  public CompletableFuture<List<LeaderboardEntry>> getEntries(Leaderboard leaderboard) {
-    return fafService.getAllLeaderboardEntries(leaderboard.getTechnicalName());
+  public CompletableFuture<LeaderboardSnapshot> getSnapshot(Leaderboard leaderboard, IntConsumer loadedEntriesListener) {
+    return getSnapshot(leaderboard.getTechnicalName(), loadedEntriesListener);
   }
 
   public CompletableFuture<Tuple<List<LeaderboardEntry>, Integer>> getPagedEntries(Leaderboard leaderboard, int count, int page) {
@@ -37,25 +43,13 @@ public class LeaderboardServiceImpl implements LeaderboardService {
   }
 
   public CompletableFuture<List<RatingStat>> getLeaderboardStats(String leaderboardTechnicalName) {
-    return fafService.getAllLeaderboardEntries(leaderboardTechnicalName).thenApply(this::toRatingStats);
-  }
-
-  private List<RatingStat> toRatingStats(List<LeaderboardEntry> entries) {
-    Map<Integer, Long> totalCount = countByRating(entries.stream());
-    Map<Integer, Long> countWithoutFewGames = countByRating(entries.stream()
-        .filter(entry -> entry.wonGamesProperty().get() >= MINIMUM_GAMES_PLAYED_TO_BE_SHOWN));
-
-    return totalCount.entrySet().stream()
-        .map(entry -> new RatingStat(
-            entry.getKey(),
-            entry.getValue().intValue(),
-            countWithoutFewGames.getOrDefault(entry.getKey(), 0L).intValue()))
-        .collect(Collectors.toList());
+    return getSnapshot(leaderboardTechnicalName, loadedEntries -> {
+    }).thenApply(LeaderboardSnapshot::getRatingStats);
   }
 
-  private Map<Integer, Long> countByRating(Stream<LeaderboardEntry> entries) {
-    return entries.collect(Collectors.groupingBy(leaderboardEntry ->
-        RatingUtil.roundRatingToNextLowest100(leaderboardEntry.getRating()), Collectors.counting()));
+  private CompletableFuture<LeaderboardSnapshot> getSnapshot(String leaderboardTechnicalName, IntConsumer loadedEntriesListener) {
+    return snapshots.get(leaderboardTechnicalName,
+        (technicalName, executor) -> fafService.getLeaderboardSnapshot(technicalName, loadedEntriesListener));
   }
 
   @Override
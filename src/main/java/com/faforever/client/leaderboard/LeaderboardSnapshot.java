@@ -0,0 +1,295 @@
+package com.faforever.client.leaderboard;
+
+import com.faforever.client.util.RatingUtil;
+
+import java.time.OffsetDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static com.faforever.client.leaderboard.LeaderboardService.MINIMUM_GAMES_PLAYED_TO_BE_SHOWN;
+
+/**
+ * An immutable, column oriented copy of all entries of a leaderboard, sorted by rating in descending order. Building
+ * a {@link LeaderboardEntry} for each of the many thousand entries of a leaderboard is expensive, so the snapshot only
+ * keeps the raw values and {@link #entries()} creates the beans for the rows that are actually accessed, e.g. the
+ * visible rows of a table. The rating distribution is computed once when the snapshot is built.
+ */
+public final class LeaderboardSnapshot {
+
+  private final Leaderboard leaderboard;
+  private final int[] playerIds;
+  private final String[] usernames;
+  /** Sorted in descending order. */
+  private final double[] ratings;
+  private final int[] wonGames;
+  private final int[] drawnGames;
+  private final int[] lostGames;
+  private final int[] streaks;
+  private final int[] bestStreaks;
+  /** Epoch milliseconds, or {@link Long#MIN_VALUE} if unknown. */
+  private final long[] updateTimes;
+  private final String[] recentScores;
+  private final String[] recentMods;
+  private final List<RatingStat> ratingStats;
+
+  private LeaderboardSnapshot(Leaderboard leaderboard, int size) {
+    this.leaderboard = leaderboard;
+    playerIds = new int[size];
+    usernames = new String[size];
+    ratings = new double[size];
+    wonGames = new int[size];
+    drawnGames = new int[size];
+    lostGames = new int[size];
+    streaks = new int[size];
+    bestStreaks = new int[size];
+    updateTimes = new long[size];
+    recentScores = new String[size];
+    recentMods = new String[size];
+    ratingStats = new ArrayList<>();
+  }
+
+  public static LeaderboardSnapshot fromDtos(List<com.faforever.client.api.dto.LeaderboardEntry> dtos) {
+    Leaderboard leaderboard = dtos.isEmpty() || dtos.get(0).getLeaderboard() == null
+        ? null : Leaderboard.fromDto(dtos.get(0).getLeaderboard());
+    LeaderboardSnapshot snapshot = new LeaderboardSnapshot(leaderboard, dtos.size());
+
+    int[] order = IntStream.range(0, dtos.size()).boxed()
+        .sorted(Comparator.comparingDouble((Integer index) -> dtos.get(index).getRating()).reversed())
+        .mapToInt(Integer::intValue)
+        .toArray();
+
+    for (int row = 0; row < order.length; row++) {
+      com.faforever.client.api.dto.LeaderboardEntry dto = dtos.get(order[row]);
+      snapshot.playerIds[row] = Integer.parseInt(dto.getPlayer().getId());
+      snapshot.usernames[row] = dto.getPlayer().getLogin();
+      snapshot.ratings[row] = dto.getRating();
+      snapshot.wonGames[row] = dto.getWonGames();
+      snapshot.drawnGames[row] = dto.getDrawnGames();
+      snapshot.lostGames[row] = dto.getLostGames();
+      snapshot.streaks[row] = dto.getStreak();
+      snapshot.bestStreaks[row] = dto.getBestStreak();
+      OffsetDateTime updateTime = dto.getUpdateTime();
+      snapshot.updateTimes[row] = updateTime != null ? updateTime.toInstant().toEpochMilli() : Long.MIN_VALUE;
+      snapshot.recentScores[row] = dto.getRecentScores();
+      snapshot.recentMods[row] = dto.getRecentMod();
+    }
+    snapshot.computeRatingStats();
+    return snapshot;
+  }
+
+  /**
+   * Since the ratings are sorted, the entries of a rating bucket are contiguous and the distribution can be counted
+   * in a single pass, starting with the lowest bucket.
+   */
+  private void computeRatingStats() {
+    int row = ratings.length - 1;
+    while (row >= 0) {
+      int bucket = RatingUtil.roundRatingToNextLowest100(ratings[row]);
+      int totalCount = 0;
+      int countWithEnoughGamesPlayed = 0;
+      for (; row >= 0 && RatingUtil.roundRatingToNextLowest100(ratings[row]) == bucket; row--) {
+        totalCount++;
+        if (wonGames[row] >= MINIMUM_GAMES_PLAYED_TO_BE_SHOWN) {
+          countWithEnoughGamesPlayed++;
+        }
+      }
+      ratingStats.add(new RatingStat(bucket, totalCount, countWithEnoughGamesPlayed));
+    }
+  }
+
+  public static LeaderboardSnapshot empty() {
+    return fromDtos(Collections.emptyList());
+  }
+
+  public Leaderboard getLeaderboard() {
+    return leaderboard;
+  }
+
+  public int size() {
+    return ratings.length;
+  }
+
+  public int getPlayerId(int row) {
+    return playerIds[row];
+  }
+
+  public String getUsername(int row) {
+    return usernames[row];
+  }
+
+  public double getRating(int row) {
+    return ratings[row];
+  }
+
+  public int getTotalGames(int row) {
+    return wonGames[row] + drawnGames[row] + lostGames[row];
+  }
+
+  /**
+   * Returns the time of the entry's last update in epoch milliseconds, or {@link Long#MIN_VALUE} if it is unknown.
+   */
+  public long getUpdateTime(int row) {
+    return updateTimes[row];
+  }
+
+  /**
+   * Returns the number of players per rating bucket of 100, ordered by rating.
+   */
+  public List<RatingStat> getRatingStats() {
+    return Collections.unmodifiableList(ratingStats);
+  }
+
+  /**
+   * Returns the rank a player with the specified rating would have, i.e. one more than the number of entries with a
+   * higher rating.
+   */
+  public int rankOf(double rating) {
+    int low = 0;
+    int high = ratings.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (ratings[middle] > rating) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low + 1;
+  }
+
+  /**
+   * Returns all entries, see {@link #entries(IntPredicate)}.
+   */
+  public EntryList entries() {
+    return new EntryList(IntStream.range(0, size()).toArray());
+  }
+
+  /**
+   * Returns the entries of the players whose ID matches {@code playerIdFilter}, e.g. only friends. Beans are created
+   * on first access and kept by the returned list, which must only be used by one thread.
+   */
+  public EntryList entries(IntPredicate playerIdFilter) {
+    return new EntryList(IntStream.range(0, size()).filter(row -> playerIdFilter.test(playerIds[row])).toArray());
+  }
+
+  private LeaderboardEntry createEntry(int row) {
+    LeaderboardEntry entry = new LeaderboardEntry();
+    entry.setLeaderboard(leaderboard);
+    entry.setUserId(playerIds[row]);
+    entry.setUsername(usernames[row]);
+    entry.setRating(ratings[row]);
+    entry.setStreak(streaks[row]);
+    entry.setBestStreak(bestStreaks[row]);
+    entry.setRecentMod(recentMods[row]);
+
+    int totalGames = getTotalGames(row);
+    entry.setTotalGames(totalGames);
+    entry.setWinRate(wonGames[row] / (float) totalGames);
+    entry.setWonGames(wonGames[row]);
+    entry.setDrawnGames(drawnGames[row]);
+    entry.setLostGames(lostGames[row]);
+    entry.setAllResults(String.format("%d-%d-%d", wonGames[row], drawnGames[row], lostGames[row]));
+
+    int recentWinCount = 0;
+    int recentDrawCount = 0;
+    int recentLossCount = 0;
+    String scores = recentScores[row] != null ? recentScores[row] : "";
+    for (int i = 0; i < scores.length(); i++) {
+      switch (scores.charAt(i)) {
+        case '2' -> recentWinCount++;
+        case '1' -> recentDrawCount++;
+        case '0' -> recentLossCount++;
+        default -> {
+        }
+      }
+    }
+    entry.setRecentResults(String.format("%d-%d-%d", recentWinCount, recentDrawCount, recentLossCount));
+    return entry;
+  }
+
+  /**
+   * A list of snapshot rows that creates the {@link LeaderboardEntry} of a row when it is first accessed. The list
+   * can be reordered with {@link #set(int, LeaderboardEntry)}, which is what sorting does, but its size is fixed.
+   * {@link #indexOf(Object)} and {@link #getUsername(int)} don't create any beans.
+   */
+  public final class EntryList extends AbstractList<LeaderboardEntry> implements RandomAccess {
+    private final int[] rows;
+    private final LeaderboardEntry[] entries;
+    private final Map<LeaderboardEntry, Integer> positions = new IdentityHashMap<>();
+
+    private EntryList(int[] rows) {
+      this.rows = rows;
+      this.entries = new LeaderboardEntry[rows.length];
+    }
+
+    @Override
+    public LeaderboardEntry get(int index) {
+      LeaderboardEntry entry = entries[index];
+      if (entry == null) {
+        entry = createEntry(rows[index]);
+        entries[index] = entry;
+        positions.put(entry, index);
+      }
+      return entry;
+    }
+
+    @Override
+    public LeaderboardEntry set(int index, LeaderboardEntry element) {
+      LeaderboardEntry previous = get(index);
+      positions.remove(previous, index);
+      entries[index] = element;
+      positions.put(element, index);
+      return previous;
+    }
+
+    @Override
+    public int size() {
+      return rows.length;
+    }
+
+    /**
+     * Returns the name of the player at {@code index} without creating its entry.
+     */
+    public String getUsername(int index) {
+      return entries[index] != null ? entries[index].getUsername() : usernames[rows[index]];
+    }
+
+    @Override
+    public int indexOf(Object o) {
+      Integer position = positions.get(o);
+      if (position != null) {
+        return position;
+      }
+      if (!(o instanceof LeaderboardEntry entry) || entry.getUsername() == null) {
+        return -1;
+      }
+      for (int index = 0; index < rows.length; index++) {
+        if (entry.getUsername().equalsIgnoreCase(getUsername(index))) {
+          return index;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return indexOf(o) >= 0;
+    }
+
+    /**
+     * Returns the names of all players in this list, in list order.
+     */
+    public List<String> getUsernames() {
+      return Arrays.asList(IntStream.range(0, rows.length).mapToObj(this::getUsername).toArray(String[]::new));
+    }
+  }
+}
@@ -23,6 +23,7 @@ import javafx.scene.Node;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.ContextMenu;
+import javafx.scene.control.Label;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
@@ -75,11 +76,14 @@ public class LeaderboardsController extends AbstractViewController<Node> {
   public ComboBox<Leaderboard> leaderboardComboBox;
   public TextField searchTextField;
   public Pane connectionProgressPane;
+  public Label loadingLabel;
   public Pane contentPane;
   public CheckBox friendsOnlyCheckBox;
 
   @VisibleForTesting
   protected AutoCompletionBinding<String> usernamesAutoCompletion;
+  /** The rows of the table; entries are created only for the rows that are displayed. */
+  private LeaderboardSnapshot.EntryList entries;
 
   @Override
   public void initialize() {
@@ -131,24 +135,10 @@ public class LeaderboardsController extends AbstractViewController<Node> {
       if (Validator.isInt(newValue)) {
         ratingTable.scrollTo(Integer.parseInt(newValue) - 1);
       } else {
-        LeaderboardEntry foundPlayer = null;
-        for (LeaderboardEntry leaderboardEntry : ratingTable.getItems()) {
-          if (leaderboardEntry.getUsername().toLowerCase().startsWith(newValue.toLowerCase())) {
-            foundPlayer = leaderboardEntry;
-            break;
-          }
-        }
-        if (foundPlayer == null) {
-          for (LeaderboardEntry leaderboardEntry : ratingTable.getItems()) {
-            if (leaderboardEntry.getUsername().toLowerCase().contains(newValue.toLowerCase())) {
-              foundPlayer = leaderboardEntry;
-              break;
-            }
-          }
-        }
-        if (foundPlayer != null) {
-          ratingTable.scrollTo(foundPlayer);
-          ratingTable.getSelectionModel().select(foundPlayer);
+        int index = findPlayer(newValue.toLowerCase());
+        if (index >= 0) {
+          ratingTable.scrollTo(index);
+          ratingTable.getSelectionModel().select(index);
         } else {
           ratingTable.getSelectionModel().select(null);
         }
@@ -156,6 +146,27 @@ public class LeaderboardsController extends AbstractViewController<Node> {
     });
   }
 
+  /**
+   * Returns the index of the first player whose name starts with {@code search}, or otherwise contains it. Only looks
+   * at names so that no entries are created for rows that aren't visible.
+   */
+  private int findPlayer(String search) {
+    if (entries == null) {
+      return -1;
+    }
+    for (int index = 0; index < entries.size(); index++) {
+      if (entries.getUsername(index).toLowerCase().startsWith(search)) {
+        return index;
+      }
+    }
+    for (int index = 0; index < entries.size(); index++) {
+      if (entries.getUsername(index).toLowerCase().contains(search)) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
   private void initialiseLeaderboardComboBox(List<Leaderboard> leaderboards) {
     leaderboardComboBox.setConverter(leaderboardStringConverter());
     leaderboardComboBox.setItems(leaderboards.stream()
@@ -201,20 +212,21 @@ public class LeaderboardsController extends AbstractViewController<Node> {
       usernamesAutoCompletion.dispose();
     }
 
-    preferencesService.getPreferences().setLastLeaderboardSelection(leaderboardComboBox.getValue().getTechnicalName());
+    Leaderboard leaderboard = leaderboardComboBox.getValue();
+    preferencesService.getPreferences().setLastLeaderboardSelection(leaderboard.getTechnicalName());
     preferencesService.getPreferences().setLastLeaderboardFriendsOnlySelection(friendsOnlyCheckBox.isSelected());
     preferencesService.storeInBackground();
 
-    leaderboardService.getEntries(leaderboardComboBox.getValue()).thenAccept(leaderboardEntryBeans -> {
-      ratingTable.getItems().clear();
-      if (friendsOnlyCheckBox.isSelected()) {
-        leaderboardEntryBeans = leaderboardEntryBeans.stream()
-            .filter(leaderboardEntry -> playerService.isFriend(leaderboardEntry.getUserId()))
-            .collect(Collectors.toList());
+    loadingLabel.setText(i18n.get("leaderboard.loading"));
+    leaderboardService.getSnapshot(leaderboard, loadedEntries -> JavaFxUtil.runLater(() -> {
+      // A page may still arrive for a leaderboard that was selected before
+      if (leaderboard.equals(leaderboardComboBox.getValue())) {
+        loadingLabel.setText(i18n.get("leaderboard.loadingEntries", loadedEntries));
       }
-      ratingTable.setItems(observableList(leaderboardEntryBeans));
-      usernamesAutoCompletion = TextFields.bindAutoCompletion(searchTextField,
-          leaderboardEntryBeans.stream().map(LeaderboardEntry::getUsername).collect(Collectors.toList()));
+    })).thenAccept(snapshot -> {
+      entries = friendsOnlyCheckBox.isSelected() ? snapshot.entries(playerService::isFriend) : snapshot.entries();
+      ratingTable.setItems(observableList(entries));
+      usernamesAutoCompletion = TextFields.bindAutoCompletion(searchTextField, entries.getUsernames());
       usernamesAutoCompletion.setDelay(0);
       contentPane.setVisible(true);
     }).exceptionally(throwable -> {
@@ -10,6 +10,7 @@ import com.faforever.client.notification.NotificationService;
 import com.faforever.client.notification.Severity;
 import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.task.CompletableTask;
+import com.faforever.client.task.TransferPriority;
 import com.faforever.commons.io.Unzipper;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.slf4j.Logger;
@@ -151,7 +152,8 @@ public class DownloadMapTask extends CompletableTask<Void> {
           .unzip();
     }
     else {
-      downloadService.downloadFile(mapUrl, downloadDirectory.resolve(hpiArchiveName), this::updateProgress);
+      downloadService.downloadFile(mapUrl, downloadDirectory.resolve(hpiArchiveName), this::updateProgress,
+          TransferPriority.CRITICAL);
     }
   }
 
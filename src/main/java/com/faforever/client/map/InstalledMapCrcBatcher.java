@@ -0,0 +1,104 @@
+package com.faforever.client.map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects requests for the CRCs of installed maps and resolves them in batches, so that opening a map list or joining
+ * several games results in a handful of maptool invocations rather than one per map. Requests arriving within
+ * {@link #BATCH_WINDOW_MILLIS} of each other (or while a batch is being resolved) are resolved together, and all futures
+ * of a batch are completed at once.
+ */
+class InstalledMapCrcBatcher {
+
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  static final String UNKNOWN_CRC = "00000000";
+  private static final long BATCH_WINDOW_MILLIS = 50;
+  private static final int MAX_BATCH_SIZE = 200;
+
+  interface Resolver {
+    /**
+     * Returns the CRCs of the given maps, keyed by map name. Maps that could not be found may be omitted.
+     */
+    Map<String, String> resolve(List<String> mapNames) throws IOException;
+  }
+
+  private final Resolver resolver;
+  private final Executor executor;
+  private final Map<String, CompletableFuture<String>> pending = new LinkedHashMap<>();
+  private boolean running = false;
+
+  InstalledMapCrcBatcher(Resolver resolver) {
+    this(resolver, CompletableFuture.delayedExecutor(BATCH_WINDOW_MILLIS, TimeUnit.MILLISECONDS));
+  }
+
+  InstalledMapCrcBatcher(Resolver resolver, Executor executor) {
+    this.resolver = resolver;
+    this.executor = executor;
+  }
+
+  CompletableFuture<String> requestCrc(String mapName) {
+    boolean schedule;
+    CompletableFuture<String> future;
+    synchronized (this) {
+      future = pending.computeIfAbsent(mapName, name -> new CompletableFuture<>());
+      schedule = !running;
+      running = true;
+    }
+    if (schedule) {
+      executor.execute(this::resolvePending);
+    }
+    return future;
+  }
+
+  private void resolvePending() {
+    Map<String, CompletableFuture<String>> batch = new LinkedHashMap<>();
+    synchronized (this) {
+      for (Map.Entry<String, CompletableFuture<String>> entry : new ArrayList<>(pending.entrySet())) {
+        if (batch.size() >= MAX_BATCH_SIZE) {
+          break;
+        }
+        batch.put(entry.getKey(), entry.getValue());
+        pending.remove(entry.getKey());
+      }
+      if (batch.isEmpty()) {
+        running = false;
+        return;
+      }
+    }
+
+    Map<String, String> crcs;
+    try {
+      logger.debug("Resolving CRCs of {} maps", batch.size());
+      crcs = resolver.resolve(new ArrayList<>(batch.keySet()));
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Could not resolve map CRCs: {}", e.getMessage());
+      crcs = Collections.emptyMap();
+    }
+
+    for (Map.Entry<String, CompletableFuture<String>> entry : batch.entrySet()) {
+      entry.getValue().complete(crcs.getOrDefault(entry.getKey(), UNKNOWN_CRC));
+    }
+
+    boolean more;
+    synchronized (this) {
+      more = !pending.isEmpty();
+      running = more;
+    }
+    if (more) {
+      executor.execute(this::resolvePending);
+    }
+  }
+}
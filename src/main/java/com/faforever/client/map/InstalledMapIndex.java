@@ -0,0 +1,289 @@
+package com.faforever.client.map;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.faforever.client.fa.MapTool.MAP_DETAIL_COLUMN_ARCHIVE;
+import static com.faforever.client.fa.MapTool.MAP_DETAIL_COLUMN_CRC;
+import static com.faforever.client.fa.MapTool.MAP_DETAIL_COLUMN_NAME;
+
+/**
+ * On-disk index of the maps found in the archives of a TA installation, keyed by archive file name and validated
+ * against the archive's size and modification time. Only archives whose stat has changed since the last enumeration
+ * need to be handed to maptool; everything else is served straight from the index.
+ */
+class InstalledMapIndex {
+
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final int FORMAT_VERSION = 1;
+  private static final String ARCHIVE_GLOB = "*.{ufo,UFO,hpi,HPI,ccx,CCX,gp3,GP3}";
+  private static final String UNKNOWN_CRC = "00000000";
+
+  private final Path indexFile;
+  private final Gson gson = new GsonBuilder().create();
+
+  private IndexData data = new IndexData();
+  private boolean dirty;
+
+  InstalledMapIndex(Path indexFile) {
+    this.indexFile = indexFile;
+  }
+
+  private static class IndexData {
+    int version = FORMAT_VERSION;
+    String gamePath;
+    LinkedHashMap<String, ArchiveEntry> archives = new LinkedHashMap<>();
+  }
+
+  private static class ArchiveEntry {
+    long size;
+    long lastModified;
+    List<String[]> maps = new ArrayList<>();
+  }
+
+  /**
+   * Result of comparing the index against the archives currently present in the game directory.
+   */
+  static class Delta {
+    private final Map<String, BasicFileAttributes> changedArchives = new LinkedHashMap<>();
+    private final List<String> removedArchives = new ArrayList<>();
+
+    Map<String, BasicFileAttributes> getChangedArchives() {
+      return changedArchives;
+    }
+
+    List<String> getRemovedArchives() {
+      return removedArchives;
+    }
+
+    boolean isEmpty() {
+      return changedArchives.isEmpty() && removedArchives.isEmpty();
+    }
+  }
+
+  synchronized void load() {
+    if (!Files.exists(indexFile)) {
+      return;
+    }
+    try (Reader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+      IndexData loaded = gson.fromJson(reader, IndexData.class);
+      if (loaded != null && loaded.version == FORMAT_VERSION && loaded.archives != null) {
+        data = loaded;
+      } else {
+        logger.info("Discarding map index {} with unsupported format", indexFile);
+      }
+    } catch (IOException | JsonParseException e) {
+      logger.warn("Could not read map index {}: {}", indexFile, e.getMessage());
+    }
+  }
+
+  synchronized void save() {
+    if (!dirty) {
+      return;
+    }
+    try {
+      Files.createDirectories(indexFile.getParent());
+      Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+      try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+        gson.toJson(data, writer);
+      }
+      Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      dirty = false;
+    } catch (IOException e) {
+      logger.warn("Could not write map index {}: {}", indexFile, e.getMessage());
+    }
+  }
+
+  synchronized boolean isEmpty() {
+    return data.archives.isEmpty();
+  }
+
+  /**
+   * Returns {@code true} if the index was built for the given game path. If not, the index is cleared.
+   */
+  synchronized boolean validateGamePath(Path gamePath) {
+    String gamePathString = gamePath.toAbsolutePath().toString();
+    if (gamePathString.equals(data.gamePath)) {
+      return true;
+    }
+    data = new IndexData();
+    data.gamePath = gamePathString;
+    dirty = true;
+    return false;
+  }
+
+  /**
+   * Stats the map archives in {@code gamePath} as well as any indexed archive. Archives that no longer exist are mapped
+   * to {@code null}.
+   */
+  Map<String, BasicFileAttributes> statArchives(Path gamePath) throws IOException {
+    Map<String, Path> candidates = new LinkedHashMap<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(gamePath, ARCHIVE_GLOB)) {
+      for (Path archive : stream) {
+        candidates.put(archive.getFileName().toString(), archive);
+      }
+    }
+    synchronized (this) {
+      // maptool may have reported maps from archives that are not matched by the glob above
+      data.archives.keySet().forEach(archiveName -> candidates.putIfAbsent(archiveName, gamePath.resolve(archiveName)));
+    }
+    return stat(candidates);
+  }
+
+  /**
+   * Stats only the given archives in {@code gamePath}. Archives that do not exist are mapped to {@code null}.
+   */
+  Map<String, BasicFileAttributes> statArchives(Path gamePath, Collection<String> archiveNames) {
+    Map<String, Path> candidates = new LinkedHashMap<>();
+    archiveNames.forEach(archiveName -> candidates.put(archiveName, gamePath.resolve(archiveName)));
+    return stat(candidates);
+  }
+
+  private static Map<String, BasicFileAttributes> stat(Map<String, Path> candidates) {
+    Map<String, BasicFileAttributes> archiveStats = new LinkedHashMap<>();
+    for (Map.Entry<String, Path> candidate : candidates.entrySet()) {
+      BasicFileAttributes attributes;
+      try {
+        attributes = Files.readAttributes(candidate.getValue(), BasicFileAttributes.class);
+      } catch (IOException e) {
+        attributes = null;
+      }
+      archiveStats.put(candidate.getKey(), attributes != null && attributes.isRegularFile() ? attributes : null);
+    }
+    return archiveStats;
+  }
+
+  /**
+   * Returns the archives that were added, changed or removed since they were last indexed.
+   */
+  synchronized Delta diff(Map<String, BasicFileAttributes> archiveStats) {
+    Delta delta = new Delta();
+    archiveStats.forEach((archiveName, attributes) -> {
+      ArchiveEntry entry = data.archives.get(archiveName);
+      if (attributes == null) {
+        if (entry != null) {
+          delta.removedArchives.add(archiveName);
+        }
+      } else if (entry == null || entry.size != attributes.size()
+          || entry.lastModified != attributes.lastModifiedTime().toMillis()) {
+        delta.changedArchives.put(archiveName, attributes);
+      }
+    });
+    return delta;
+  }
+
+  synchronized void putArchive(String archiveName, BasicFileAttributes attributes, List<String[]> mapDetails) {
+    ArchiveEntry entry = new ArchiveEntry();
+    entry.size = attributes.size();
+    entry.lastModified = attributes.lastModifiedTime().toMillis();
+    entry.maps = new ArrayList<>(mapDetails);
+    data.archives.put(archiveName, entry);
+    dirty = true;
+  }
+
+  synchronized void removeArchive(String archiveName) {
+    if (data.archives.remove(archiveName) != null) {
+      dirty = true;
+    }
+  }
+
+  /**
+   * Replaces the contents of the index with the result of a full enumeration. Rows are bucketed by their archive
+   * column; {@code archiveStats} holds the stat of every archive that was scanned, including those without maps.
+   * Rows referring to archives that were not scanned are kept but will be re-listed on the next enumeration.
+   */
+  synchronized void putAll(Map<String, BasicFileAttributes> archiveStats, List<String[]> allMapDetails) {
+    Map<String, String> archiveNamesLowerCase = new HashMap<>();
+    archiveStats.forEach((name, attributes) -> {
+      if (attributes != null) {
+        archiveNamesLowerCase.put(name.toLowerCase(Locale.ROOT), name);
+      }
+    });
+
+    Map<String, List<String[]>> mapsByArchive = new LinkedHashMap<>();
+    for (String[] details : allMapDetails) {
+      if (details.length <= MAP_DETAIL_COLUMN_ARCHIVE) {
+        continue;
+      }
+      String archiveName = archiveNamesLowerCase.getOrDefault(
+          details[MAP_DETAIL_COLUMN_ARCHIVE].toLowerCase(Locale.ROOT), details[MAP_DETAIL_COLUMN_ARCHIVE]);
+      mapsByArchive.computeIfAbsent(archiveName, name -> new ArrayList<>()).add(details);
+    }
+
+    LinkedHashMap<String, ArchiveEntry> archives = new LinkedHashMap<>();
+    mapsByArchive.forEach((archiveName, maps) -> {
+      ArchiveEntry entry = new ArchiveEntry();
+      BasicFileAttributes attributes = archiveStats.get(archiveName);
+      entry.size = attributes != null ? attributes.size() : -1;
+      entry.lastModified = attributes != null ? attributes.lastModifiedTime().toMillis() : -1;
+      entry.maps = maps;
+      archives.put(archiveName, entry);
+    });
+    archiveStats.forEach((archiveName, attributes) -> {
+      if (attributes != null && !archives.containsKey(archiveName)) {
+        ArchiveEntry entry = new ArchiveEntry();
+        entry.size = attributes.size();
+        entry.lastModified = attributes.lastModifiedTime().toMillis();
+        archives.put(archiveName, entry);
+      }
+    });
+
+    data.archives = archives;
+    dirty = true;
+  }
+
+  synchronized List<String[]> getAllMapDetails() {
+    List<String[]> allMapDetails = new ArrayList<>();
+    data.archives.values().forEach(entry -> allMapDetails.addAll(entry.maps));
+    return allMapDetails;
+  }
+
+  synchronized List<String[]> getMapDetails(Collection<String> archiveNames) {
+    List<String[]> mapDetails = new ArrayList<>();
+    archiveNames.stream()
+        .map(data.archives::get)
+        .filter(Objects::nonNull)
+        .forEach(entry -> mapDetails.addAll(entry.maps));
+    return mapDetails;
+  }
+
+  synchronized void updateCrc(String archiveName, String mapName, String crc) {
+    if (crc == null || UNKNOWN_CRC.equals(crc)) {
+      return;
+    }
+    ArchiveEntry entry = data.archives.get(archiveName);
+    if (entry == null) {
+      return;
+    }
+    for (String[] details : entry.maps) {
+      if (details.length > MAP_DETAIL_COLUMN_CRC && Objects.equals(details[MAP_DETAIL_COLUMN_NAME], mapName)
+          && !crc.equals(details[MAP_DETAIL_COLUMN_CRC])) {
+        details[MAP_DETAIL_COLUMN_CRC] = crc;
+        dirty = true;
+      }
+    }
+  }
+}
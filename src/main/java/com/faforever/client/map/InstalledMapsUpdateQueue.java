@@ -0,0 +1,136 @@
+package com.faforever.client.map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Coalesces requests to update the installed maps of an installation. Changed archive names are merged into a single
+ * pending delta; a request for a full reconciliation supersedes any pending delta. At most one update runs per
+ * installation at a time and anything requested meanwhile is merged into the next run. While the queue is suspended
+ * (e.g. while a featured mod update rewrites the game directory), requests are collected but not processed.
+ *
+ * @param <K> the installation type
+ */
+class InstalledMapsUpdateQueue<K> {
+
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  interface Processor<K> {
+    /**
+     * Processes an update. Implementations must invoke {@code onDone} once the update completed, successfully or not.
+     *
+     * @param archiveNames the archives to update, or {@code null} if the whole installation has to be reconciled
+     */
+    void process(K installation, Set<String> archiveNames, Runnable onDone);
+  }
+
+  private static class Pending {
+    final Set<String> archiveNames = new LinkedHashSet<>();
+    boolean reconcile;
+    boolean running;
+
+    boolean isEmpty() {
+      return !reconcile && archiveNames.isEmpty();
+    }
+  }
+
+  private static class Work<K> {
+    final K installation;
+    final Set<String> archiveNames;
+
+    Work(K installation, Set<String> archiveNames) {
+      this.installation = installation;
+      this.archiveNames = archiveNames;
+    }
+  }
+
+  private final Processor<K> processor;
+  private final Map<K, Pending> pendingByInstallation = new HashMap<>();
+  private int suspendCount = 0;
+
+  InstalledMapsUpdateQueue(Processor<K> processor) {
+    this.processor = processor;
+  }
+
+  void requestReconcile(K installation) {
+    synchronized (this) {
+      Pending pending = pendingByInstallation.computeIfAbsent(installation, key -> new Pending());
+      pending.reconcile = true;
+      pending.archiveNames.clear();
+    }
+    drain();
+  }
+
+  void requestArchives(K installation, Collection<String> archiveNames) {
+    synchronized (this) {
+      Pending pending = pendingByInstallation.computeIfAbsent(installation, key -> new Pending());
+      if (!pending.reconcile) {
+        pending.archiveNames.addAll(archiveNames);
+      }
+    }
+    drain();
+  }
+
+  synchronized void suspend() {
+    ++suspendCount;
+  }
+
+  void resume() {
+    synchronized (this) {
+      suspendCount = Math.max(0, suspendCount - 1);
+    }
+    drain();
+  }
+
+  synchronized boolean isSuspended() {
+    return suspendCount > 0;
+  }
+
+  private void drain() {
+    List<Work<K>> work = new ArrayList<>();
+    synchronized (this) {
+      if (suspendCount > 0) {
+        return;
+      }
+      pendingByInstallation.forEach((installation, pending) -> {
+        if (pending.running || pending.isEmpty()) {
+          return;
+        }
+        work.add(new Work<>(installation, pending.reconcile ? null : new HashSet<>(pending.archiveNames)));
+        pending.running = true;
+        pending.reconcile = false;
+        pending.archiveNames.clear();
+      });
+    }
+
+    for (Work<K> item : work) {
+      try {
+        processor.process(item.installation, item.archiveNames, () -> onDone(item.installation));
+      } catch (RuntimeException e) {
+        logger.error("Could not update installed maps", e);
+        onDone(item.installation);
+      }
+    }
+  }
+
+  private void onDone(K installation) {
+    synchronized (this) {
+      Pending pending = pendingByInstallation.get(installation);
+      if (pending == null || !pending.running) {
+        return;
+      }
+      pending.running = false;
+    }
+    drain();
+  }
+}
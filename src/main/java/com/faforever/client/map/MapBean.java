@@ -27,7 +27,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class MapBean implements Comparable<MapBean> {
 
@@ -40,7 +40,7 @@ public class MapBean implements Comparable<MapBean> {
   private final ObjectProperty<MapSize> size;
   private final ObjectProperty<ComparableVersion> version;
   private CompletableFuture<String> crcFuture;
-  private Function<Void,String> getInstalledMapCrc;
+  private Supplier<CompletableFuture<String>> installedMapCrcSupplier;
   private final StringProperty id;
   private final StringProperty author;
   private final BooleanProperty hidden;
@@ -57,7 +57,7 @@ public class MapBean implements Comparable<MapBean> {
     mapName = new SimpleStringProperty();
     hpiArchiveName = new SimpleStringProperty();
     crcFuture = null;
-    getInstalledMapCrc = null;
+    installedMapCrcSupplier = null;
     description = new SimpleStringProperty();
     numberOfPlays = new SimpleIntegerProperty(0);
     downloads = new SimpleIntegerProperty();
@@ -262,15 +262,15 @@ public class MapBean implements Comparable<MapBean> {
 
   public CompletableFuture<String> getCrcFuture() {
     synchronized(this) {
-      if (crcFuture == null && getInstalledMapCrc != null) {
-        crcFuture = CompletableFuture.supplyAsync(() -> getInstalledMapCrc.apply(null));
+      if (crcFuture == null && installedMapCrcSupplier != null) {
+        crcFuture = installedMapCrcSupplier.get();
       }
     }
     return crcFuture;
   }
 
-  public void setInstalledMapCrcGetter(Function<Void, String> getter) {
-    this.getInstalledMapCrc = getter;
+  public void setInstalledMapCrcSupplier(Supplier<CompletableFuture<String>> supplier) {
+    this.installedMapCrcSupplier = supplier;
   }
 
   public void setCrcFuture(CompletableFuture<String> crcFuture) {
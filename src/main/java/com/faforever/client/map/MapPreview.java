@@ -0,0 +1,55 @@
+package com.faforever.client.map;
+
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.scene.image.Image;
+
+/**
+ * A map preview that may still be generated. Its image is a placeholder until the preview is ready, then it's replaced
+ * by the preview on the JavaFX application thread. Whoever shows it tells whether it's on screen, so visible previews
+ * are generated first, and cancels it when it's no longer needed (e.g. when a list cell is reused for another map).
+ */
+public class MapPreview {
+
+  private final ReadOnlyObjectWrapper<Image> image;
+  /** {@code null} if the preview didn't need to be generated. */
+  private final MapPreviewGenerationQueue<?>.Request request;
+  private volatile boolean cancelled;
+
+  MapPreview(Image image, MapPreviewGenerationQueue<?>.Request request) {
+    this.image = new ReadOnlyObjectWrapper<>(image);
+    this.request = request;
+  }
+
+  public Image getImage() {
+    return image.get();
+  }
+
+  public ReadOnlyObjectProperty<Image> imageProperty() {
+    return image.getReadOnlyProperty();
+  }
+
+  void setImage(Image image) {
+    this.image.set(image);
+  }
+
+  /** Moves the generation of this preview ahead of previews that aren't on screen, or behind them. */
+  public void setVisible(boolean visible) {
+    if (request != null) {
+      request.setPriority(visible ? MapPreviewGenerationQueue.Priority.VISIBLE
+          : MapPreviewGenerationQueue.Priority.BACKGROUND);
+    }
+  }
+
+  /** Gives up on this preview; its image won't change anymore. */
+  public void cancel() {
+    cancelled = true;
+    if (request != null) {
+      request.cancel();
+    }
+  }
+
+  boolean isCancelled() {
+    return cancelled;
+  }
+}
@@ -0,0 +1,205 @@
+package com.faforever.client.map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs map preview generations on a bounded number of worker threads, most urgent first. Requests for a key that is
+ * already queued or being generated share that generation instead of starting another one. Every request can change
+ * its priority (e.g. when the cell showing the preview scrolls in or out of view) or be cancelled; a queued generation
+ * is dropped once all of its requests have been cancelled.
+ *
+ * @param <K> the key identifying a preview, requests with equal keys are coalesced
+ */
+class MapPreviewGenerationQueue<K> {
+
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** Priorities in order of urgency. */
+  enum Priority {
+    /** The preview is currently on screen. */
+    VISIBLE,
+    /** The preview is needed, but not necessarily shown right now. */
+    NORMAL,
+    /** The preview is only nice to have, e.g. for a cell that has scrolled out of view. */
+    BACKGROUND
+  }
+
+  private final ThreadPoolExecutor executor;
+  private final Map<K, Generation> generations = new HashMap<>();
+  private long sequence = 0;
+
+  MapPreviewGenerationQueue(int workerCount) {
+    AtomicInteger threadNumber = new AtomicInteger();
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(runnable, "map-preview-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    // Only Generations are ever executed, so the queue can order them directly
+    executor = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+        new PriorityBlockingQueue<>(), threadFactory);
+  }
+
+  /**
+   * Requests {@code generator} to be run for {@code key}. If a generation for the same key is already queued or
+   * running, the request joins it and {@code generator} is not run.
+   */
+  synchronized Request request(K key, Priority priority, Runnable generator) {
+    Generation generation = generations.get(key);
+    if (generation == null) {
+      generation = new Generation(key, generator, sequence++);
+      generations.put(key, generation);
+    } else {
+      logger.trace("Preview '{}' is already being generated", key);
+    }
+    Request request = new Request(generation, priority);
+    generation.requests.add(request);
+    reschedule(generation);
+    return request;
+  }
+
+  /** Returns the number of generations that are queued or running. */
+  synchronized int size() {
+    return generations.size();
+  }
+
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /** Must be called while holding the lock. */
+  private void reschedule(Generation generation) {
+    if (generation.state != State.QUEUED) {
+      return;
+    }
+    Priority priority = generation.requests.stream()
+        .map(request -> request.priority)
+        .min(Comparator.naturalOrder())
+        .orElse(null);
+    if (priority == generation.priority) {
+      return;
+    }
+
+    // Removal fails if a worker has just taken the generation, in which case it runs anyway
+    boolean queued = generation.priority != null;
+    if (queued && !executor.remove(generation)) {
+      return;
+    }
+    generation.priority = priority;
+    if (priority == null) {
+      logger.trace("Dropping generation of preview '{}' as nobody needs it anymore", generation.key);
+      generations.remove(generation.key);
+      generation.future.cancel(false);
+    } else {
+      try {
+        executor.execute(generation);
+      } catch (RejectedExecutionException e) {
+        generations.remove(generation.key);
+        generation.future.cancel(false);
+      }
+    }
+  }
+
+  private enum State {
+    QUEUED, RUNNING, DONE
+  }
+
+  private class Generation implements Runnable, Comparable<Generation> {
+    private final K key;
+    private final Runnable generator;
+    private final long sequenceNumber;
+    private final List<Request> requests = new ArrayList<>();
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    /** Guarded by the queue; only changes while the generation is not in the executor's queue. */
+    private Priority priority;
+    private State state = State.QUEUED;
+
+    private Generation(K key, Runnable generator, long sequenceNumber) {
+      this.key = key;
+      this.generator = generator;
+      this.sequenceNumber = sequenceNumber;
+    }
+
+    @Override
+    public void run() {
+      synchronized (MapPreviewGenerationQueue.this) {
+        if (state != State.QUEUED) {
+          return;
+        }
+        state = State.RUNNING;
+      }
+      try {
+        generator.run();
+        future.complete(null);
+      } catch (RuntimeException e) {
+        logger.warn("Could not generate preview '{}'", key, e);
+        future.completeExceptionally(e);
+      } finally {
+        synchronized (MapPreviewGenerationQueue.this) {
+          state = State.DONE;
+          generations.remove(key);
+        }
+      }
+    }
+
+    @Override
+    public int compareTo(Generation other) {
+      int result = priority.compareTo(other.priority);
+      return result != 0 ? result : Long.compare(sequenceNumber, other.sequenceNumber);
+    }
+  }
+
+  /** A caller's interest in a preview generation. */
+  class Request {
+    private final Generation generation;
+    private final CompletableFuture<Void> future;
+    private Priority priority;
+
+    private Request(Generation generation, Priority priority) {
+      this.generation = generation;
+      this.priority = priority;
+      // A separate future so that cancelling it doesn't affect other requests of the same generation
+      this.future = generation.future.thenApply(ignored -> null);
+    }
+
+    /** Completes once the preview has been generated, or is cancelled along with the request. */
+    CompletableFuture<Void> getFuture() {
+      return future;
+    }
+
+    void setPriority(Priority priority) {
+      synchronized (MapPreviewGenerationQueue.this) {
+        if (!generation.requests.contains(this)) {
+          return;
+        }
+        this.priority = priority;
+        reschedule(generation);
+      }
+    }
+
+    /** Withdraws this request; the generation is dropped if it hasn't started and nobody else needs it. */
+    void cancel() {
+      future.cancel(false);
+      synchronized (MapPreviewGenerationQueue.this) {
+        if (generation.requests.remove(this)) {
+          reschedule(generation);
+        }
+      }
+    }
+  }
+}
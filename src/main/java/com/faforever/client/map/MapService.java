@@ -4,6 +4,9 @@ import com.faforever.client.config.CacheNames;
 import com.faforever.client.config.ClientProperties;
 import com.faforever.client.config.ClientProperties.Vault;
 import com.faforever.client.fa.MapTool;
+import com.faforever.client.fa.MapToolBackend;
+import com.faforever.client.fa.NativeMapToolBackend;
+import com.faforever.client.fa.hpi.HpiMapToolBackend;
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.fx.PlatformService;
 import com.faforever.client.game.KnownFeaturedMod;
@@ -27,6 +30,7 @@ import com.faforever.client.task.CompletableTask;
 import com.faforever.client.task.CompletableTask.Priority;
 import com.faforever.client.task.TaskService;
 import com.faforever.client.teammatchmaking.MatchmakingQueue;
+import com.faforever.client.theme.UiService;
 import com.faforever.client.util.Tuple;
 import com.faforever.client.vault.search.SearchController.SearchConfig;
 import com.google.common.annotations.VisibleForTesting;
@@ -69,20 +73,26 @@ import java.nio.file.Paths;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -99,6 +109,7 @@ import static java.lang.String.format;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
 
 
 @Lazy
@@ -106,6 +117,8 @@ import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
 public class MapService implements InitializingBean, DisposableBean {
 
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  /** As many as maptool has workers, more would only wait for one. */
+  private static final int PREVIEW_GENERATION_THREADS = 2;
 
   private final PreferencesService preferencesService;
   private final TaskService taskService;
@@ -120,6 +133,9 @@ public class MapService implements InitializingBean, DisposableBean {
 
   private final String mapDownloadUrlFormat;
   private final String mapPreviewUrlFormat;
+  private final MapToolBackend mapToolBackend;
+  private final MapPreviewGenerationQueue<List<Object>> previewGenerationQueue =
+      new MapPreviewGenerationQueue<>(PREVIEW_GENERATION_THREADS);
   private final Object notifiedBadMapToolLock = new Object();
   private Boolean notifiedBadMapTool = false;
 
@@ -129,10 +145,15 @@ public class MapService implements InitializingBean, DisposableBean {
     private final ObservableList<MapBean> maps = FXCollections.observableArrayList();
     final private List<String> downloadingList = new ArrayList<>(); // guard against multiple attempts to download same archive prolly due to clicky users
     private Thread directoryWatcherThread;
-    private Integer enumerationsRequested = 0;
+    private final InstalledMapIndex mapIndex;
+    private final InstalledMapCrcBatcher crcBatcher;
+    private boolean mapIndexLoaded = false;
 
     public Installation(String modTechnical) {
       this.modTechnicalName = modTechnical;
+      this.mapIndex = new InstalledMapIndex(preferencesService.getCacheDirectory()
+          .resolve("maps").resolve(MAP_INDEX_DIRECTORY).resolve(modTechnical + ".json"));
+      this.crcBatcher = new InstalledMapCrcBatcher(mapNames -> resolveInstalledMapCrcs(this, mapNames));
 
       maps.addListener((ListChangeListener<MapBean>) change -> {
         while (change.next()) {
@@ -161,6 +182,7 @@ public class MapService implements InitializingBean, DisposableBean {
 
   // keyed by ModTechnical
   private final Map<String, Installation> installations = new HashMap<>();
+  private final InstalledMapsUpdateQueue<Installation> installedMapsUpdateQueue = new InstalledMapsUpdateQueue<>(this::updateInstalledMaps);
 
   public Installation getInstallation(String modTechnical) {
     Installation installation = installations.get(modTechnical);
@@ -195,6 +217,8 @@ public class MapService implements InitializingBean, DisposableBean {
     Vault vault = clientProperties.getVault();
     this.mapDownloadUrlFormat = vault.getMapDownloadUrlFormat();
     this.mapPreviewUrlFormat = vault.getMapPreviewUrlFormat();
+    this.mapToolBackend = "java".equalsIgnoreCase(clientProperties.getMaps().getBackend())
+        ? new HpiMapToolBackend(new NativeMapToolBackend()) : new NativeMapToolBackend();
 
     preferencesService.getTotalAnnihilationAllMods().addListener((ListChangeListener<TotalAnnihilationPrefs>) change -> {
       while (change.next()) {
@@ -258,6 +282,11 @@ public class MapService implements InitializingBean, DisposableBean {
       "tademo.ufo");
 
   private static final String HPI_ARCHIVE_TA_FEATURES_2013 = "TA_Features_2013.ccx";
+  private static final String MAP_INDEX_DIRECTORY = "index";
+  /** If more archives than this have changed since the last enumeration, a single full maptool run is cheaper. */
+  private static final int FULL_ENUMERATION_THRESHOLD = 64;
+  private static final long WATCHER_DEBOUNCE_MILLIS = 500;
+  private static final long WATCHER_MAX_DEBOUNCE_MILLIS = 5000;
 
   private static URL getDownloadUrl(String hpiArchiveName, String baseUrl) {
     return noCatch(() -> new URL(format(baseUrl, urlFragmentEscaper().escape(hpiArchiveName))));
@@ -299,38 +328,20 @@ public class MapService implements InitializingBean, DisposableBean {
       // TODO notify user
     }
 
-    loadInstalledMaps(installation, false);
+    installedMapsUpdateQueue.requestReconcile(installation);
   }
 
-  private final Object deferInstalledMapsUpdateMutex = new Object();
-  private Integer deferInstalledMapsUpdate = 0;
-  public void addInstalledMapsUpdateDeferal() {
-    synchronized(deferInstalledMapsUpdateMutex) {
-      deferInstalledMapsUpdate += 1;
-    }
-  }
-
-  public void releaseInstalledMapsUpdateDeferal() {
-    synchronized(deferInstalledMapsUpdateMutex) {
-      deferInstalledMapsUpdate = Math.max(0, deferInstalledMapsUpdate - 1);
-    }
-
-    if (deferInstalledMapsUpdate == 0) {
-      for (Installation installation: installations.values()) {
-        synchronized(installation) {
-          if (installation.enumerationsRequested > 0) {
-            installation.enumerationsRequested = 1; // there may have been multiple load requests while deferred
-            loadInstalledMaps(installation, true);
-          }
-        }
-      }
-    }
+  /**
+   * Holds back updates of the installed maps (e.g. while a featured mod update rewrites the game directory). Changes
+   * detected meanwhile are coalesced and applied once {@link #resumeInstalledMapsUpdates()} has been called as often
+   * as this method.
+   */
+  public void suspendInstalledMapsUpdates() {
+    installedMapsUpdateQueue.suspend();
   }
 
-  private boolean isInstalledMapsUpdateDeferred() {
-    synchronized(deferInstalledMapsUpdateMutex) {
-      return deferInstalledMapsUpdate > 0;
-    }
+  public void resumeInstalledMapsUpdates() {
+    installedMapsUpdateQueue.resume();
   }
 
   private Thread startDirectoryWatcher(Installation installation, Path mapsDirectory) {
@@ -341,12 +352,30 @@ public class MapService implements InitializingBean, DisposableBean {
         PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:*.{ufo,hpi,ccx}");
         while (!Thread.interrupted()) {
           WatchKey key = watcher.take();
-          List<WatchEvent<?>> events = key.pollEvents();
-          if (events.stream()
-              .anyMatch(event -> matcher.matches((Path)event.context()) )) {
-            Platform.runLater(() -> loadInstalledMaps(installation, false) );
+
+          // collect events until the directory has been quiet for a moment, so that a download or a map pack being
+          // unpacked results in a single update
+          Set<String> changedArchives = new LinkedHashSet<>();
+          boolean overflow = false;
+          long deadline = System.currentTimeMillis() + WATCHER_MAX_DEBOUNCE_MILLIS;
+          while (key != null) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+              if (event.kind() == OVERFLOW) {
+                overflow = true;
+              } else if (matcher.matches((Path) event.context())) {
+                changedArchives.add(event.context().toString());
+              }
+            }
+            key.reset();
+            long remaining = deadline - System.currentTimeMillis();
+            key = remaining > 0 ? watcher.poll(Math.min(WATCHER_DEBOUNCE_MILLIS, remaining), TimeUnit.MILLISECONDS) : null;
+          }
+
+          if (overflow) {
+            installedMapsUpdateQueue.requestReconcile(installation);
+          } else if (!changedArchives.isEmpty()) {
+            installedMapsUpdateQueue.requestArchives(installation, changedArchives);
           }
-          key.reset();
         }
       } catch (InterruptedException e) {
         logger.debug("Watcher terminated ({})", e.getMessage());
@@ -371,26 +400,14 @@ public class MapService implements InitializingBean, DisposableBean {
   }
 
   public void loadInstalledMaps(String modTechnical) {
-    Installation installation = getInstallation(modTechnical);
-    loadInstalledMaps(installation, false);
+    installedMapsUpdateQueue.requestReconcile(getInstallation(modTechnical));
   }
 
-  private void loadInstalledMaps(Installation installation, boolean ignoreEnumerationsRequestedCount) {
-    if (!ignoreEnumerationsRequestedCount) {
-      synchronized (installation) {
-        ++installation.enumerationsRequested;
-        if (installation.enumerationsRequested > 1) {
-          logger.info("[loadInstalledMaps] enumeration already in progress.  returning straight away");
-          return;
-        }
-      }
-    }
-
-    if (isInstalledMapsUpdateDeferred()) {
-      logger.info("[loadInstalledMaps] enumeration deferral in force.  returning straight away");
-      return;
-    }
-
+  /**
+   * Invoked by {@link #installedMapsUpdateQueue}. Reconciles the whole installation against the map index if
+   * {@code archiveNames} is {@code null}, otherwise only re-lists the given archives.
+   */
+  private void updateInstalledMaps(Installation installation, @Nullable Set<String> archiveNames, Runnable onDone) {
     taskService.submitTask(new CompletableTask<Void>(Priority.LOW) {
 
       protected Void call() {
@@ -398,66 +415,154 @@ public class MapService implements InitializingBean, DisposableBean {
 
         Path exePath = preferencesService.getTotalAnnihilation(installation.modTechnicalName).getInstalledExePath();
         if (exePath == null || !Files.isExecutable(exePath)) {
-          synchronized(installation) {
-            installation.enumerationsRequested = 0;
-          }
           return null;
         }
         Path gamePath = exePath.getParent();
 
-        List<MapBean> mapList = new ArrayList<>();
-        try {
-          for (String[] details : MapTool.listMapsInstalled(gamePath, preferencesService.getCacheDirectory().resolve("maps"), false)) {
-            Function<Void,String> getInstalledMapCrc = (aVoid) -> {
-              try {
-                List<String[]> detailsWithCrc = MapTool.listMap(gamePath, details[MAP_DETAIL_COLUMN_NAME]);
-                return detailsWithCrc.get(0)[MAP_DETAIL_COLUMN_CRC];
-              } catch (IOException e) {
-                notifyBadMapTool(e);
-                return "00000000";
-              }
-            };
-            MapBean mapBean = readMap(details[0], details, getInstalledMapCrc);
-            mapList.add(mapBean);
-          }
+        boolean mapIndexLoaded;
+        synchronized (installation) {
+          mapIndexLoaded = installation.mapIndexLoaded;
         }
-        catch (IOException e) {
-          notifyBadMapTool(e);
+        if (archiveNames == null || !mapIndexLoaded) {
+          reconcileInstalledMaps(installation, gamePath);
+        } else {
+          applyInstalledMapsDelta(installation, gamePath, archiveNames);
         }
-        JavaFxUtil.runLater(() -> {
-          installation.maps.setAll(mapList);
-          if (installation.maps.isEmpty()) {
-            logger.warn("no maps found for mod={}. inserting OTA maps", installation.modTechnicalName);
-            for (String map : otaMaps) {
-              installation.addMap(map);
-            }
-          }
-        });
         updateProgress(1, 1);
+        return null;
+      }
+    }).getFuture().whenComplete((aVoid, throwable) -> onDone.run());
+  }
 
-        boolean again = false;
-        synchronized(installation) {
-          if (installation.enumerationsRequested > 1) {
-            installation.enumerationsRequested = 1;
-            again = true;
-          }
-          else {
-            installation.enumerationsRequested = 0;
-          }
-        }
-        if (again) {
-          return call();
+  private void reconcileInstalledMaps(Installation installation, Path gamePath) {
+    InstalledMapIndex mapIndex = installation.mapIndex;
+
+    synchronized (installation) {
+      if (!installation.mapIndexLoaded) {
+        installation.mapIndexLoaded = true;
+        mapIndex.load();
+        if (mapIndex.validateGamePath(gamePath) && !mapIndex.isEmpty()) {
+          List<MapBean> indexedMaps = readMaps(installation, gamePath, mapIndex.getAllMapDetails());
+          JavaFxUtil.runLater(() -> installation.maps.setAll(indexedMaps));
         }
-        else {
-          return null;
+      }
+    }
+
+    try {
+      mapIndex.validateGamePath(gamePath);
+      Map<String, BasicFileAttributes> archiveStats = mapIndex.statArchives(gamePath);
+      InstalledMapIndex.Delta delta = mapIndex.diff(archiveStats);
+      if (mapIndex.isEmpty() || delta.getChangedArchives().size() > FULL_ENUMERATION_THRESHOLD) {
+        logger.info("[loadInstalledMaps] full enumeration of {} ({} archives changed)", gamePath, delta.getChangedArchives().size());
+        List<String[]> allMapDetails = mapToolBackend.listMapsInstalled(gamePath, preferencesService.getCacheDirectory().resolve("maps"), false);
+        mapIndex.putAll(archiveStats, allMapDetails);
+      } else {
+        updateMapIndex(mapIndex, gamePath, delta);
+      }
+    }
+    catch (IOException e) {
+      notifyBadMapTool(e);
+    }
+    mapIndex.save();
+
+    List<MapBean> mapList = readMaps(installation, gamePath, mapIndex.getAllMapDetails());
+    JavaFxUtil.runLater(() -> {
+      installation.maps.setAll(mapList);
+      if (installation.maps.isEmpty()) {
+        logger.warn("no maps found for mod={}. inserting OTA maps", installation.modTechnicalName);
+        for (String map : otaMaps) {
+          installation.addMap(map);
         }
       }
     });
   }
 
+  private void applyInstalledMapsDelta(Installation installation, Path gamePath, Set<String> archiveNames) {
+    InstalledMapIndex mapIndex = installation.mapIndex;
+    InstalledMapIndex.Delta delta = mapIndex.diff(mapIndex.statArchives(gamePath, archiveNames));
+    if (delta.isEmpty()) {
+      return;
+    }
+
+    try {
+      updateMapIndex(mapIndex, gamePath, delta);
+    }
+    catch (IOException e) {
+      notifyBadMapTool(e);
+    }
+    mapIndex.save();
+
+    List<MapBean> addedMaps = readMaps(installation, gamePath, mapIndex.getMapDetails(delta.getChangedArchives().keySet()));
+    Set<String> affectedArchives = new HashSet<>();
+    delta.getChangedArchives().keySet().forEach(archive -> affectedArchives.add(archive.toLowerCase(Locale.ROOT)));
+    delta.getRemovedArchives().forEach(archive -> affectedArchives.add(archive.toLowerCase(Locale.ROOT)));
+
+    JavaFxUtil.runLater(() -> {
+      List<MapBean> staleMaps = installation.maps.stream()
+          .filter(map -> affectedArchives.contains(map.getHpiArchiveName().toLowerCase(Locale.ROOT)))
+          .collect(Collectors.toList());
+      if (addedMaps.isEmpty()) {
+        installation.maps.removeAll(staleMaps);
+      } else {
+        Set<MapBean> staleMapSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        staleMapSet.addAll(staleMaps);
+        List<MapBean> updatedMaps = new ArrayList<>(installation.maps.size() + addedMaps.size());
+        installation.maps.stream().filter(map -> !staleMapSet.contains(map)).forEach(updatedMaps::add);
+        updatedMaps.addAll(addedMaps);
+        installation.maps.setAll(updatedMaps);
+      }
+    });
+  }
+
+  private void updateMapIndex(InstalledMapIndex mapIndex, Path gamePath, InstalledMapIndex.Delta delta) throws IOException {
+    if (delta.isEmpty()) {
+      return;
+    }
+    logger.info("[loadInstalledMaps] {} archives changed, {} removed in {}",
+        delta.getChangedArchives().size(), delta.getRemovedArchives().size(), gamePath);
+    delta.getRemovedArchives().forEach(mapIndex::removeArchive);
+    for (Map.Entry<String, BasicFileAttributes> changed : delta.getChangedArchives().entrySet()) {
+      mapIndex.putArchive(changed.getKey(), changed.getValue(),
+          mapToolBackend.listMapsInArchive(gamePath.resolve(changed.getKey()), null, false));
+    }
+  }
+
+  private List<MapBean> readMaps(Installation installation, Path gamePath, List<String[]> allMapDetails) {
+    List<MapBean> mapList = new ArrayList<>();
+    for (String[] details : allMapDetails) {
+      String mapName = details[MAP_DETAIL_COLUMN_NAME];
+      mapList.add(readMap(mapName, details, () -> installation.crcBatcher.requestCrc(mapName)));
+    }
+    return mapList;
+  }
+
+  /**
+   * Invoked by an installation's {@link InstalledMapCrcBatcher} to hash a batch of installed maps in one go.
+   */
+  private Map<String, String> resolveInstalledMapCrcs(Installation installation, List<String> mapNames) {
+    Path exePath = preferencesService.getTotalAnnihilation(installation.modTechnicalName).getInstalledExePath();
+    if (exePath == null) {
+      return Collections.emptyMap();
+    }
+
+    Map<String, String> crcs = new HashMap<>();
+    try {
+      for (String[] details : mapToolBackend.listMaps(exePath.getParent(), mapNames)) {
+        if (details.length > MAP_DETAIL_COLUMN_CRC) {
+          crcs.putIfAbsent(details[MAP_DETAIL_COLUMN_NAME], details[MAP_DETAIL_COLUMN_CRC]);
+          installation.mapIndex.updateCrc(details[MAP_DETAIL_COLUMN_ARCHIVE], details[MAP_DETAIL_COLUMN_NAME], details[MAP_DETAIL_COLUMN_CRC]);
+        }
+      }
+    } catch (IOException e) {
+      notifyBadMapTool(e);
+    }
+    installation.mapIndex.save();
+    return crcs;
+  }
+
   static final Pattern MAP_SIZE_FROM_DESCRIPTION_REGEX = Pattern.compile("([0-9]+\\s?[xX]\\s?[0-9]+)[\\s\\.].*");
   @NotNull
-  public MapBean readMap(String mapName, @Nullable String [] mapDetails, @Nullable Function<Void, String> getInstalledMapCrc) {
+  public MapBean readMap(String mapName, @Nullable String [] mapDetails, @Nullable Supplier<CompletableFuture<String>> installedMapCrcSupplier) {
     MapBean mapBean = new MapBean();
 
     String archiveName = "unknown.ufo";
@@ -498,8 +603,8 @@ public class MapService implements InitializingBean, DisposableBean {
     if (!"00000000".equals(crc)) {
       mapBean.setCrcFuture(CompletableFuture.completedFuture(crc));
     }
-    else if (getInstalledMapCrc != null) {
-      mapBean.setInstalledMapCrcGetter(getInstalledMapCrc);
+    else if (installedMapCrcSupplier != null) {
+      mapBean.setInstalledMapCrcSupplier(installedMapCrcSupplier);
     }
     else {
       mapBean.setCrcFuture(CompletableFuture.completedFuture(crc));
@@ -582,7 +687,7 @@ public class MapService implements InitializingBean, DisposableBean {
     Path installationPath = preferencesService.getTotalAnnihilation(modTechnical).getInstalledPath();
     List<CompletableFuture<Void>> removeArchiveFutures = new ArrayList<>();
     try {
-      List<String[]> archiveMaps = MapTool.listMapsInArchive(newArchive, null, false);
+      List<String[]> archiveMaps = mapToolBackend.listMapsInArchive(newArchive, null, false);
       Set<String> archiveMapNames = archiveMaps.stream()
           .map(details -> details[MapTool.MAP_DETAIL_COLUMN_NAME].toLowerCase())
           .collect(Collectors.toSet());
@@ -798,7 +903,7 @@ public class MapService implements InitializingBean, DisposableBean {
       downloadList.add(HPI_ARCHIVE_TA_FEATURES_2013);
     }
 
-    addInstalledMapsUpdateDeferal();
+    suspendInstalledMapsUpdates();
 
     // make a copy of this list before we do anything to the installation
     HashMap<String, MapBean> alreadyInstalledForModAllMaps = new HashMap<>(getInstallation(modTechnicalName).mapsByName);
@@ -850,7 +955,7 @@ public class MapService implements InitializingBean, DisposableBean {
     }
 
     if (downloadList.isEmpty()) {
-      releaseInstalledMapsUpdateDeferal();
+      resumeInstalledMapsUpdates();
       return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
     }
 
@@ -861,7 +966,7 @@ public class MapService implements InitializingBean, DisposableBean {
 
     if (downloadList.isEmpty()) {
       logger.info("[ensureMap] Dude, hold up! {} is already downloading", downloadHpiArchiveName);
-      releaseInstalledMapsUpdateDeferal();
+      resumeInstalledMapsUpdates();
       return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
     }
 
@@ -889,7 +994,7 @@ public class MapService implements InitializingBean, DisposableBean {
 
     futures.add(downloadFuture);
     return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
-        .thenRun(this::releaseInstalledMapsUpdateDeferal);
+        .thenRun(this::resumeInstalledMapsUpdates);
   }
 
   public CompletableFuture<MapBean> optionalEnsureMapLatestVersion(String modTechnical, MapBean map) {
@@ -1025,10 +1130,71 @@ public class MapService implements InitializingBean, DisposableBean {
   private Image loadPreview(String modTechnical, String mapName, URL url, PreviewType previewType, int maxPositions) {
     Path cacheDir = preferencesService.getCacheDirectory().resolve("maps").resolve(previewType.getFolderName(maxPositions));
     Path cachedFile = cacheDir.resolve(mapName+".png");
-    generatePreview(modTechnical, mapName, cachedFile, previewType, maxPositions);
+    if (needsGeneration(cachedFile, previewType)) {
+      try {
+        requestPreviewGeneration(modTechnical, mapName, cachedFile, previewType, maxPositions, MapPreviewGenerationQueue.Priority.VISIBLE)
+            .getFuture().join();
+      } catch (CompletionException | CancellationException e) {
+        logger.debug("Preview of map '{}' has not been generated", mapName, e);
+      }
+    }
     return assetService.loadAndCacheImage(url, cacheDir, null);
   }
 
+  /**
+   * Like {@link #loadPreview(String, MapBean, PreviewType, int)}, but doesn't wait for the preview to be generated. The
+   * returned preview shows an "unknown map" image until then. Callers should {@link MapPreview#cancel() cancel} it
+   * once they don't show it anymore.
+   */
+  public MapPreview requestPreview(String modTechnical, MapBean map, PreviewType previewType, int maxPositions) {
+    return requestPreview(modTechnical, map.getMapName(), map.getThumbnailUrl(), previewType, maxPositions);
+  }
+
+  /**
+   * Like {@link #loadPreview(String, String, PreviewType, int)}, but doesn't wait for the preview to be generated.
+   */
+  public MapPreview requestPreview(String modTechnical, String mapName, PreviewType previewType, int maxPositions) {
+    return requestPreview(modTechnical, mapName, getPreviewUrl(mapName, mapPreviewUrlFormat, previewType), previewType, maxPositions);
+  }
+
+  private MapPreview requestPreview(String modTechnical, String mapName, URL url, PreviewType previewType, int maxPositions) {
+    Path cacheDir = preferencesService.getCacheDirectory().resolve("maps").resolve(previewType.getFolderName(maxPositions));
+    Path cachedFile = cacheDir.resolve(mapName+".png");
+    if (!needsGeneration(cachedFile, previewType)) {
+      return new MapPreview(assetService.loadAndCacheImage(url, cacheDir, null), null);
+    }
+
+    MapPreviewGenerationQueue<?>.Request request = requestPreviewGeneration(
+        modTechnical, mapName, cachedFile, previewType, maxPositions, MapPreviewGenerationQueue.Priority.NORMAL);
+    MapPreview preview = new MapPreview(
+        applicationContext.getBean(UiService.class).getThemeImage(UiService.UNKNOWN_MAP_IMAGE), request);
+    request.getFuture().whenComplete((ignored, throwable) -> {
+      if (preview.isCancelled()) {
+        return;
+      }
+      // Falls back to the preview from the server if it couldn't be generated
+      Image image = assetService.loadAndCacheImage(url, cacheDir, null);
+      JavaFxUtil.runLater(() -> {
+        if (!preview.isCancelled()) {
+          preview.setImage(image);
+        }
+      });
+    });
+    return preview;
+  }
+
+  private static boolean needsGeneration(Path cachedFile, PreviewType previewType) {
+    return previewType != PreviewType.MINI || Files.notExists(cachedFile);
+  }
+
+  private MapPreviewGenerationQueue<List<Object>>.Request requestPreviewGeneration(
+      String modTechnical, String mapName, Path cachedFile, PreviewType previewType, int maxPositions,
+      MapPreviewGenerationQueue.Priority priority) {
+    // The cached file only depends on these, so generating it once serves all featured mods
+    return previewGenerationQueue.request(List.of(mapName, previewType, maxPositions), priority,
+        () -> generatePreview(modTechnical, mapName, cachedFile, previewType, maxPositions));
+  }
+
   @CacheEvict(value = CacheNames.MAP_PREVIEW, allEntries = true)
   public void resetPreviews(String mapName) {
     for (PreviewType previewType: PreviewType.values()) {
@@ -1157,7 +1323,11 @@ public class MapService implements InitializingBean, DisposableBean {
   public void destroy() {
     for (Installation installation: installations.values()) {
       Optional.ofNullable(installation.directoryWatcherThread).ifPresent(Thread::interrupt);
+      installation.mapIndex.save();
     }
+    previewGenerationQueue.shutdown();
+    mapToolBackend.shutdown();
+    MapTool.shutdownWorkers();
   }
 
   public enum PreviewType {
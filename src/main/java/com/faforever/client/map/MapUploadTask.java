@@ -4,7 +4,9 @@ import com.faforever.client.api.FafApiAccessor;
 import com.faforever.client.i18n.I18n;
 import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.task.CompletableTask;
-import com.faforever.client.task.ResourceLocks;
+import com.faforever.client.task.TransferPriority;
+import com.faforever.client.task.TransferScheduler;
+import com.faforever.client.task.TransferScheduler.ScheduledTransfer;
 import com.faforever.client.util.Validator;
 import com.faforever.commons.io.ByteCountListener;
 import com.faforever.commons.io.Zipper;
@@ -39,6 +41,7 @@ public class MapUploadTask extends CompletableTask<Void> implements Initializing
   private final PreferencesService preferencesService;
   private final FafApiAccessor fafApiAccessor;
   private final I18n i18n;
+  private final TransferScheduler transferScheduler;
 
   private String archiveFileName;
   private Path stagingDirectory;
@@ -46,11 +49,13 @@ public class MapUploadTask extends CompletableTask<Void> implements Initializing
   private List<Map<String,String>> mapDetails;
 
   @Inject
-  public MapUploadTask(PreferencesService preferencesService, FafApiAccessor fafApiAccessor, I18n i18n) {
+  public MapUploadTask(PreferencesService preferencesService, FafApiAccessor fafApiAccessor, I18n i18n,
+                       TransferScheduler transferScheduler) {
     super(Priority.HIGH);
     this.preferencesService = preferencesService;
     this.fafApiAccessor = fafApiAccessor;
     this.i18n = i18n;
+    this.transferScheduler = transferScheduler;
   }
 
   @Override
@@ -75,7 +80,6 @@ public class MapUploadTask extends CompletableTask<Void> implements Initializing
       throw new FileNotFoundException("staging directory must be given same name as map archive");
     }
 
-    ResourceLocks.acquireUploadLock();
     Path tmpFile = createTempFile(stagingDirectory.getParent(), "mapupload", ".tar");
 
     try {
@@ -99,11 +103,12 @@ public class MapUploadTask extends CompletableTask<Void> implements Initializing
       logger.debug("Uploading map {} as {}", stagingDirectory, tmpFile);
       updateTitle(i18n.get("mapVault.upload.uploading"));
 
-      fafApiAccessor.uploadMap(tmpFile, isRanked, mapDetails, byteListener);
+      try (ScheduledTransfer transfer = transferScheduler.startUpload(TransferPriority.NORMAL)) {
+        fafApiAccessor.uploadMap(tmpFile, isRanked, mapDetails, transfer.throttle(byteListener));
+      }
       return null;
     } finally {
       Files.delete(tmpFile);
-      ResourceLocks.freeUploadLock();
     }
   }
 
@@ -3,6 +3,7 @@ package com.faforever.client.map.management;
 import com.faforever.client.fx.Controller;
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.map.MapBean;
+import com.faforever.client.map.MapPreview;
 import com.faforever.client.map.MapService;
 import com.faforever.client.map.MapService.PreviewType;
 import com.faforever.client.notification.NotificationService;
@@ -34,17 +35,36 @@ public class RemovableMapCellController extends ListCell<MapBean> implements Con
   private final NotificationService notificationService;
   private final PreferencesService preferencesService;
 
+  private MapPreview mapPreview;
+
+  @Override
+  public void initialize() {
+    // The list view hides cells it keeps around for reuse, their previews can wait
+    JavaFxUtil.addListener(visibleProperty(), (observable, oldValue, newValue) -> {
+      if (mapPreview != null) {
+        mapPreview.setVisible(newValue);
+      }
+    });
+  }
+
   @Override
   protected void updateItem(MapBean item, boolean empty) {
     super.updateItem(item, empty);
     JavaFxUtil.runLater(() -> {
       setText(null);
+      if (mapPreview != null) {
+        previewMapView.imageProperty().unbind();
+        mapPreview.cancel();
+        mapPreview = null;
+      }
 
       if (item == null || empty) {
         setGraphic(null);
       } else {
         String modTechnical = preferencesService.getPreferences().getLastGame().getLastGameType();
-        previewMapView.setImage(mapService.loadPreview(modTechnical, item, PreviewType.MINI, 10));
+        mapPreview = mapService.requestPreview(modTechnical, item, PreviewType.MINI, 10);
+        mapPreview.setVisible(isVisible());
+        previewMapView.imageProperty().bind(mapPreview.imageProperty());
         mapNameLabel.setText(item.getMapName());
         if (!mapService.isOfficialMap(item.getMapName())) {
           removeButton.setOnMouseClicked(event -> mapService.uninstallMap(modTechnical, item.getMapName(), item.getCrcValue()).exceptionally(throwable -> {
@@ -0,0 +1,341 @@
+package com.faforever.client.mod;
+
+import com.faforever.commons.io.ByteCountListener;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.sevenzipjbinding.ExtractAskMode;
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IArchiveExtractCallback;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+import static com.faforever.client.util.LinkOrCopy.hardLinkOrCopy;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Extracts files from an archive that 7-Zip can read, using its bulk extraction callbacks to write the decompressed
+ * data straight into file channels.
+ * <p>
+ * Solid blocks have to be decompressed from their start, so the files are grouped by the block they are stored in and
+ * the groups are spread over several threads, each with its own view of the archive. Formats without solid blocks,
+ * like zip, are spread file by file. Files that are identical (same size and CRC) to one of the given link sources are
+ * hard linked to it instead of being extracted.
+ */
+@Slf4j
+class FeaturedModArchiveExtractor {
+
+  static final int MAX_THREADS = 4;
+
+  private final ExecutorService executorService;
+  private final int maxThreads;
+  private final Map<Path, Integer> linkSourceCrcs = new HashMap<>();
+
+  FeaturedModArchiveExtractor(ExecutorService executorService) {
+    this(executorService, Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors())));
+  }
+
+  FeaturedModArchiveExtractor(ExecutorService executorService, int maxThreads) {
+    this.executorService = executorService;
+    this.maxThreads = maxThreads;
+  }
+
+  /**
+   * Extracts all files for which {@code destinationResolver} returns a path, given their path in the archive with
+   * forward slashes. Existing files are replaced; if several files in the archive map to the same path, the last one
+   * wins.
+   *
+   * @param linkSources files that extracted files may be hard linked to if they are identical
+   * @param progressListener told about the bytes extracted (or linked) so far, from several threads
+   */
+  void extract(Path archive, Function<String, Path> destinationResolver, Collection<Path> linkSources,
+               ByteCountListener progressListener) throws IOException {
+    Map<Path, Item> itemsByDestination = new LinkedHashMap<>();
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(archive.toFile(), "r");
+         IInArchive inArchive = SevenZip.openInArchive(null, new RandomAccessFileInStream(randomAccessFile))) {
+      for (int index = 0; index < inArchive.getNumberOfItems(); index++) {
+        if (Boolean.TRUE.equals(inArchive.getProperty(index, PropID.IS_FOLDER))) {
+          continue;
+        }
+        String path = String.valueOf(inArchive.getProperty(index, PropID.PATH)).replace('\\', '/');
+        Path destination = destinationResolver.apply(path);
+        if (destination != null) {
+          itemsByDestination.remove(destination);
+          itemsByDestination.put(destination, new Item(index, path, destination,
+              toLong(inArchive.getProperty(index, PropID.SIZE)),
+              (Integer) inArchive.getProperty(index, PropID.CRC),
+              inArchive.getProperty(index, PropID.BLOCK)));
+        }
+      }
+    }
+
+    long totalBytes = itemsByDestination.values().stream().mapToLong(item -> item.size).sum();
+    AtomicLong bytesDone = new AtomicLong();
+    LongConsumer bytesExtractedListener = bytes -> progressListener.updateBytesWritten(bytesDone.addAndGet(bytes), totalBytes);
+
+    List<Item> itemsToExtract = new ArrayList<>();
+    for (Item item : itemsByDestination.values()) {
+      createParentDirectories(item.destination);
+      Path linkSource = findIdenticalFile(item, linkSources);
+      if (linkSource != null) {
+        // The source may be the destination itself if the game is installed over the original one
+        if (!linkSource.toAbsolutePath().normalize().equals(item.destination.toAbsolutePath().normalize())) {
+          log.debug("Linking {} to identical {}", item.destination, linkSource);
+          hardLinkOrCopy(linkSource, item.destination);
+        }
+        bytesExtractedListener.accept(item.size);
+      } else {
+        itemsToExtract.add(item);
+      }
+    }
+
+    List<int[]> batches = splitIntoBatches(itemsToExtract);
+    log.debug("Extracting {} files from {} using {} threads", itemsToExtract.size(), archive, batches.size());
+    List<Future<Void>> futures = new ArrayList<>(batches.size());
+    for (int[] batch : batches) {
+      futures.add(executorService.submit(() -> {
+        extractBatch(archive, batch, itemsToExtract, bytesExtractedListener);
+        return null;
+      }));
+    }
+    try {
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      futures.forEach(future -> future.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while extracting " + archive);
+    } catch (ExecutionException e) {
+      futures.forEach(future -> future.cancel(true));
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      }
+      throw new IOException("Could not extract " + archive, e.getCause());
+    }
+  }
+
+  /**
+   * Groups the items by solid block and deals the groups, largest first, to the thread with the least bytes so far.
+   * Returns the archive indices each thread has to extract.
+   */
+  private List<int[]> splitIntoBatches(List<Item> items) {
+    Map<Object, List<Item>> blocks = new LinkedHashMap<>();
+    for (Item item : items) {
+      Object block = item.block != null ? item.block : item;
+      blocks.computeIfAbsent(block, key -> new ArrayList<>()).add(item);
+    }
+    List<List<Item>> groups = new ArrayList<>(blocks.values());
+    groups.sort(Comparator.comparingLong(FeaturedModArchiveExtractor::sizeOf).reversed());
+
+    int threads = Math.min(maxThreads, groups.size());
+    List<List<Item>> batches = new ArrayList<>(threads);
+    long[] batchSizes = new long[threads];
+    for (int i = 0; i < threads; i++) {
+      batches.add(new ArrayList<>());
+    }
+    for (List<Item> group : groups) {
+      int smallest = 0;
+      for (int i = 1; i < threads; i++) {
+        if (batchSizes[i] < batchSizes[smallest]) {
+          smallest = i;
+        }
+      }
+      batches.get(smallest).addAll(group);
+      batchSizes[smallest] += sizeOf(group);
+    }
+
+    return batches.stream()
+        .map(batch -> batch.stream().mapToInt(item -> item.index).sorted().toArray())
+        .toList();
+  }
+
+  private void extractBatch(Path archive, int[] indices, List<Item> items, LongConsumer listener) throws IOException {
+    Map<Integer, Item> itemsByIndex = new HashMap<>();
+    for (Item item : items) {
+      itemsByIndex.put(item.index, item);
+    }
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(archive.toFile(), "r");
+         IInArchive inArchive = SevenZip.openInArchive(null, new RandomAccessFileInStream(randomAccessFile));
+         ExtractCallback callback = new ExtractCallback(itemsByIndex, listener)) {
+      inArchive.extract(indices, false, callback);
+    }
+  }
+
+  private Path findIdenticalFile(Item item, Collection<Path> linkSources) throws IOException {
+    if (item.crc == null) {
+      return null;
+    }
+    for (Path linkSource : linkSources) {
+      if (Files.isRegularFile(linkSource) && Files.size(linkSource) == item.size
+          && item.crc.equals(crcOf(linkSource))) {
+        return linkSource;
+      }
+    }
+    return null;
+  }
+
+  private Integer crcOf(Path file) throws IOException {
+    Integer crc = linkSourceCrcs.get(file);
+    if (crc == null) {
+      CRC32 crc32 = new CRC32();
+      ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+      try (FileChannel channel = FileChannel.open(file, READ)) {
+        while (channel.read(buffer) != -1) {
+          buffer.flip();
+          crc32.update(buffer);
+          buffer.clear();
+        }
+      }
+      crc = (int) crc32.getValue();
+      linkSourceCrcs.put(file, crc);
+    }
+    return crc;
+  }
+
+  private static void createParentDirectories(Path file) throws IOException {
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+  }
+
+  private static long sizeOf(List<Item> items) {
+    return items.stream().mapToLong(item -> item.size).sum();
+  }
+
+  private static long toLong(Object value) {
+    return value instanceof Number number ? number.longValue() : 0;
+  }
+
+  private static class Item {
+    private final int index;
+    private final String path;
+    private final Path destination;
+    private final long size;
+    private final Integer crc;
+    private final Object block;
+
+    Item(int index, String path, Path destination, long size, Integer crc, Object block) {
+      this.index = index;
+      this.path = path;
+      this.destination = destination;
+      this.size = size;
+      this.crc = crc;
+      this.block = block;
+    }
+  }
+
+  /**
+   * Writes each extracted item into a new file channel. Existing files are deleted first rather than truncated, as
+   * they may be hard links to the original game files.
+   */
+  private static class ExtractCallback implements IArchiveExtractCallback, AutoCloseable {
+    private final Map<Integer, Item> itemsByIndex;
+    private final LongConsumer listener;
+    private Item currentItem;
+    private FileChannel currentChannel;
+
+    ExtractCallback(Map<Integer, Item> itemsByIndex, LongConsumer listener) {
+      this.itemsByIndex = itemsByIndex;
+      this.listener = listener;
+    }
+
+    @Override
+    public ISequentialOutStream getStream(int index, ExtractAskMode extractAskMode) throws SevenZipException {
+      closeCurrentChannel();
+      if (extractAskMode != ExtractAskMode.EXTRACT) {
+        return null;
+      }
+      currentItem = Objects.requireNonNull(itemsByIndex.get(index), "Unexpected archive item " + index);
+      try {
+        Files.deleteIfExists(currentItem.destination);
+        currentChannel = FileChannel.open(currentItem.destination, CREATE_NEW, WRITE);
+      } catch (IOException e) {
+        throw new SevenZipException("Could not create " + currentItem.destination, e);
+      }
+      return this::write;
+    }
+
+    private int write(byte[] data) throws SevenZipException {
+      if (Thread.currentThread().isInterrupted()) {
+        throw new SevenZipException("Extraction of " + currentItem.path + " was interrupted");
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      try {
+        while (buffer.hasRemaining()) {
+          currentChannel.write(buffer);
+        }
+      } catch (IOException e) {
+        throw new SevenZipException("Could not write " + currentItem.destination, e);
+      }
+      listener.accept(data.length);
+      return data.length;
+    }
+
+    @Override
+    public void prepareOperation(ExtractAskMode extractAskMode) {
+    }
+
+    @Override
+    public void setOperationResult(ExtractOperationResult extractOperationResult) throws SevenZipException {
+      closeCurrentChannel();
+      if (extractOperationResult != ExtractOperationResult.OK) {
+        throw new SevenZipException(String.format("Error extracting %s: %s",
+            currentItem != null ? currentItem.path : "archive", extractOperationResult));
+      }
+    }
+
+    @Override
+    public void setTotal(long total) {
+    }
+
+    @Override
+    public void setCompleted(long complete) {
+    }
+
+    @Override
+    public void close() throws SevenZipException {
+      closeCurrentChannel();
+    }
+
+    private void closeCurrentChannel() throws SevenZipException {
+      if (currentChannel == null) {
+        return;
+      }
+      try {
+        currentChannel.close();
+      } catch (IOException e) {
+        throw new SevenZipException("Could not close " + currentItem.destination, e);
+      } finally {
+        currentChannel = null;
+      }
+    }
+  }
+}
@@ -9,11 +9,6 @@ import com.faforever.client.notification.NotificationService;
 import com.faforever.client.notification.Severity;
 import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.task.CompletableTask;
-import net.sf.sevenzipjbinding.ExtractOperationResult;
-import net.sf.sevenzipjbinding.IInArchive;
-import net.sf.sevenzipjbinding.SevenZip;
-import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
-import net.sf.sevenzipjbinding.simple.ISimpleInArchiveItem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
@@ -21,11 +16,7 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.lang.invoke.MethodHandles;
 import java.net.URL;
 import java.net.URLConnection;
@@ -34,10 +25,12 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import static com.faforever.client.task.CompletableTask.Priority.HIGH;
 import static com.faforever.client.util.LinkOrCopy.hardLinkOrCopy;
@@ -76,6 +69,7 @@ public class InstallFeaturedModTask extends CompletableTask<Path> {
   private final NotificationService notificationService;
   private final DownloadService downloadService;
   private final I18n i18n;
+  private final ExecutorService executorService;
   private final List<String> installPackagePathOrUrls;
 
   private Boolean okOverwriteTarget;
@@ -106,13 +100,15 @@ public class InstallFeaturedModTask extends CompletableTask<Path> {
 
   @Inject
   public InstallFeaturedModTask(PlatformService platformService, PreferencesService preferencesService,
-                                NotificationService notificationService, DownloadService downloadService, I18n i18n) {
+                                NotificationService notificationService, DownloadService downloadService, I18n i18n,
+                                ExecutorService executorService) {
     super(HIGH);
     this.platformService = platformService;
     this.preferencesService = preferencesService;
     this.notificationService = notificationService;
     this.downloadService = downloadService;
     this.i18n = i18n;
+    this.executorService = executorService;
     this.okOverwriteTarget = false;
     this.installPackagePathOrUrls = new ArrayList<>();
   }
@@ -248,38 +244,16 @@ public class InstallFeaturedModTask extends CompletableTask<Path> {
   }
 
   private void extractFeaturedModFiles(Path archive, String filesRegex) throws IOException {
-    RandomAccessFile randomAccessFile = new RandomAccessFile(archive.toFile(), "r");
-    RandomAccessFileInStream randomAccessFileStream = new RandomAccessFileInStream(randomAccessFile);
-    IInArchive inArchive = SevenZip.openInArchive(null, randomAccessFileStream);
-    logger.info("[extractFeaturedModFiles] with regex={}", filesRegex);
+    logger.info("[extractFeaturedModFiles] extracting {} with regex={}", archive, filesRegex);
     Pattern pattern = Pattern.compile(filesRegex);
-    for (ISimpleInArchiveItem item : inArchive.getSimpleInterface().getArchiveItems()) {
-      if (!item.isFolder()) {
-        Matcher matcher = pattern.matcher(item.getPath().replace('\\', '/'));
-        if (matcher.find()) {
-          Path dest = targetPath.resolve(matcher.group(1));
-          logger.info("[extractFeaturedModFiles] extracting {}:{} to {}", archive, item.getPath(), dest);
-          if (dest.getParent() != null && !Files.exists(dest.getParent())) {
-            dest.getParent().toFile().mkdirs();
-          }
-          Files.deleteIfExists(dest);
-          FileOutputStream destStream = new FileOutputStream(dest.toFile());
-          ExtractOperationResult result = item.extractSlow(data -> {
-            try {
-              new BufferedInputStream(new ByteArrayInputStream(data)).transferTo(destStream);
-            } catch (IOException e) {
-              logger.error("[extractFeaturedModFiles] error writing file {}: {}", dest, e.getMessage());
-              return 0;
-            }
-            return data.length;
-          });
-
-          destStream.close();
-          if (result != ExtractOperationResult.OK) {
-            throw new RuntimeException(String.format("Error extracting archive. Extracting error: %s", result));
-          }
-        }
-      }
-    }
+    List<Path> baseFiles = Stream.of(REQUIRED_BASE_FILES, OPTIONAL_BASE_FILES)
+        .flatMap(Arrays::stream)
+        .map(referenceTaPath::resolve)
+        .toList();
+
+    new FeaturedModArchiveExtractor(executorService).extract(archive, itemPath -> {
+      Matcher matcher = pattern.matcher(itemPath);
+      return matcher.find() ? targetPath.resolve(matcher.group(1)) : null;
+    }, baseFiles, this::updateProgress);
   }
 }
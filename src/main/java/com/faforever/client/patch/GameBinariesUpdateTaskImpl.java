@@ -6,7 +6,9 @@ import com.faforever.client.game.KnownFeaturedMod;
 import com.faforever.client.i18n.I18n;
 import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.task.CompletableTask;
-import com.faforever.client.task.ResourceLocks;
+import com.faforever.client.task.TransferPriority;
+import com.faforever.client.task.TransferScheduler;
+import com.faforever.client.task.TransferScheduler.ScheduledTransfer;
 import com.faforever.client.util.Assert;
 import com.faforever.client.util.Validator;
 import com.faforever.commons.fa.ForgedAllianceExePatcher;
@@ -62,17 +64,19 @@ public class GameBinariesUpdateTaskImpl extends CompletableTask<Void> implements
   private final I18n i18n;
   private final PreferencesService preferencesService;
   private final PlatformService platformService;
+  private final TransferScheduler transferScheduler;
 
   private final String fafExeUrl;
 
   private Integer version;
 
-  public GameBinariesUpdateTaskImpl(I18n i18n, PreferencesService preferencesService, PlatformService platformService, ClientProperties clientProperties) {
+  public GameBinariesUpdateTaskImpl(I18n i18n, PreferencesService preferencesService, PlatformService platformService, ClientProperties clientProperties, TransferScheduler transferScheduler) {
     super(Priority.HIGH);
 
     this.i18n = i18n;
     this.preferencesService = preferencesService;
     this.platformService = platformService;
+    this.transferScheduler = transferScheduler;
 
     this.fafExeUrl = clientProperties.getForgedAlliance().getExeUrl();
   }
@@ -98,11 +102,10 @@ public class GameBinariesUpdateTaskImpl extends CompletableTask<Void> implements
       platformService.setUnixExecutableAndWritableBits(exePath);
       return;
     }
-    ResourceLocks.acquireDownloadLock();
-    try {
+    try (ScheduledTransfer transfer = transferScheduler.startDownload(TransferPriority.CRITICAL)) {
       logger.debug("Downloading {} to {}", fafExeUrl, exePath);
       URLConnection urlConnection = new URL(fafExeUrl).openConnection();
-      try (InputStream inputStream = urlConnection.getInputStream();
+      try (InputStream inputStream = transfer.throttle(urlConnection.getInputStream());
            OutputStream outputStream = Files.newOutputStream(exePath)) {
         ByteCopier.from(inputStream)
             .to(outputStream)
@@ -111,8 +114,6 @@ public class GameBinariesUpdateTaskImpl extends CompletableTask<Void> implements
             .copy();
       }
       platformService.setUnixExecutableAndWritableBits(exePath);
-    } finally {
-      ResourceLocks.freeDownloadLock();
     }
   }
 
@@ -72,10 +72,10 @@ public class GameUpdaterImpl implements GameUpdater {
   private CompletableFuture<String> updateFeaturedMod(FeaturedMod featuredMod, String version) {
     for (FeaturedModUpdater featuredModUpdater : featuredModUpdaters) {
       if (featuredModUpdater.canUpdate(featuredMod)) {
-        mapService.addInstalledMapsUpdateDeferal();
+        mapService.suspendInstalledMapsUpdates();
         return featuredModUpdater.updateMod(featuredMod, version)
             .thenApply(modVersionKey -> {
-              mapService.releaseInstalledMapsUpdateDeferal();
+              mapService.resumeInstalledMapsUpdates();
               return modVersionKey;
             });
       }
@@ -4,7 +4,9 @@ import com.faforever.client.FafClientApplication;
 import com.faforever.client.fx.PlatformService;
 import com.faforever.client.git.GitCheckoutTask;
 import com.faforever.client.git.GitCloneTask;
+import com.faforever.client.git.GitStatusCache;
 import com.faforever.client.git.GitUpdateTask;
+import com.faforever.client.git.LfsObjectStore;
 import com.faforever.client.i18n.I18n;
 import com.faforever.client.mod.FeaturedMod;
 import com.faforever.client.notification.Action;
@@ -50,6 +52,8 @@ public class GitLfsFeaturedModUpdater implements FeaturedModUpdater {
   private final NotificationService notificationService;
   private final PlatformService platformService;
   private final I18n i18n;
+  private final GitStatusCache gitStatusCache;
+  private final LfsObjectStore lfsObjectStore;
 
   /*
    * @param version set to null to do a proactive check for updates of the currently checked out version
@@ -69,7 +73,7 @@ public class GitLfsFeaturedModUpdater implements FeaturedModUpdater {
         _git = Git.open(deployPath.toFile());
         _git.getRepository().getConfig().setString("remote", "origin", "url", repoUrl);
         _git.getRepository().getConfig().save();
-        _hasUncommittedChanges = _git.status().call().hasUncommittedChanges();
+        _hasUncommittedChanges = gitStatusCache.hasUncommittedChanges(_git);
       } catch (IOException | GitAPIException e1) {
         log.info("[updateMod] Exception in git status: {}", e1.getMessage());
         _git = null;
@@ -180,20 +184,19 @@ public class GitLfsFeaturedModUpdater implements FeaturedModUpdater {
 
   private void resetExceptUserIniFiles(Git git) throws GitAPIException, IOException {
     // Get the source and destination directories
-    Path srcDirectory = Path.of(git.getRepository().getDirectory().getParent());
-    Path destDirectory = preferencesService.getCacheDirectory();
-
-    // List all files in the source directory
-    List<String> foundUserIniFiles = Files.walk(srcDirectory)
-        .map(Path::getFileName)
-        .map(Path::toString)
-        .filter(fileName -> fileName.toLowerCase().endsWith(".ini")) // Case-insensitive match
+    Path srcDirectory = git.getRepository().getWorkTree().toPath();
+    Path destDirectory = preferencesService.getCacheDirectory().resolve("ini-backup");
+
+    // Only tracked files are reset, so the index lists all ".ini" files that need to be kept
+    List<Path> foundUserIniFiles = gitStatusCache.getTrackedIniFiles(git).stream()
+        .filter(userIniFile -> Files.exists(srcDirectory.resolve(userIniFile)))
         .toList();
 
     // Copy each ".ini" file from source to destination directory
-    for (String userIniFile : foundUserIniFiles) {
+    for (Path userIniFile : foundUserIniFiles) {
       Path src = srcDirectory.resolve(userIniFile);
       Path dest = destDirectory.resolve(userIniFile);
+      Files.createDirectories(dest.getParent());
       Files.copy(src, dest, StandardCopyOption.REPLACE_EXISTING);
     }
 
@@ -201,7 +204,7 @@ public class GitLfsFeaturedModUpdater implements FeaturedModUpdater {
     git.reset().setMode(ResetType.HARD).call();
 
     // Move back the ".ini" files from the cache directory to the source directory
-    for (String userIniFile : foundUserIniFiles) {
+    for (Path userIniFile : foundUserIniFiles) {
       Path src = destDirectory.resolve(userIniFile);
       Path dest = srcDirectory.resolve(userIniFile);
       Files.move(src, dest, StandardCopyOption.REPLACE_EXISTING);
@@ -234,18 +237,16 @@ public class GitLfsFeaturedModUpdater implements FeaturedModUpdater {
         // (eg UseVideoMemory).  So we only want to reset the non-TA.ini-like files
         log.info("[doUpdate] Git reset HARD {}", git.getRepository().getDirectory());
         resetExceptUserIniFiles(git);
-        hasUncommitedChanges = git.status().call().hasUncommittedChanges();
+        hasUncommitedChanges = gitStatusCache.hasUncommittedChanges(git);
       }
 
       boolean stashCreated = false;
       if (hasUncommitedChanges) {
         // and we're going to stash the TA.ini-like files
         try {
-          if (git.status().call().hasUncommittedChanges()) {
-            log.info("[doUpdate] Git stash {}", git.getRepository().getDirectory());
-            git.stashCreate().call();
-            stashCreated = true;
-          }
+          log.info("[doUpdate] Git stash {}", git.getRepository().getDirectory());
+          git.stashCreate().call();
+          stashCreated = true;
         } catch (GitAPIException e) {
           log.warn("[doUpdate] Git stash failed: {}", e.getMessage());
         }
@@ -259,6 +260,7 @@ public class GitLfsFeaturedModUpdater implements FeaturedModUpdater {
           // version == null is a proactive request to check for updates
           log.info("[doUpdate] checking for branch updates. version={}, gitCommit={}", version, gitCommit);
           future = taskService.submitTask(new GitUpdateTask().setGit(git)
+              .setLfsObjectStore(lfsObjectStore)
               .setProgressTitle(i18n.get("checkoutFeaturedMod.progress.title", featuredMod.getDisplayName()))
           ).getFuture();
         }
@@ -273,6 +275,7 @@ public class GitLfsFeaturedModUpdater implements FeaturedModUpdater {
         log.info("[doUpdate] switching branches. version={}, gitCommit={}", version, gitCommit);
         future = taskService.submitTask(new GitCheckoutTask()
             .setGit(git)
+            .setLfsObjectStore(lfsObjectStore)
             .setBranchName(gitCommit)
             .setProgressTitle(i18n.get("checkoutFeaturedMod.progress.title", featuredMod.getDisplayName()))
             .setDoPull(true)
@@ -1,6 +1,7 @@
 package com.faforever.client.patch;
 
 import com.faforever.client.api.dto.FeaturedModFile;
+import com.faforever.client.config.ClientProperties;
 import com.faforever.client.i18n.I18n;
 import com.faforever.client.io.DownloadService;
 import com.faforever.client.io.FeaturedModFileCacheService;
@@ -8,6 +9,9 @@ import com.faforever.client.mod.FeaturedMod;
 import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.remote.FafService;
 import com.faforever.client.task.CompletableTask;
+import com.faforever.client.task.TransferPriority;
+import com.faforever.commons.io.ByteCountListener;
+import com.google.common.util.concurrent.Uninterruptibles;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.maven.artifact.versioning.ComparableVersion;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
@@ -18,18 +22,40 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Brings the files of a featured mod up to date in three stages: all installed files are verified in parallel, the
+ * missing ones are downloaded into the featured mod cache a few at a time, and only then are they moved into the data
+ * directory, in the order the server listed them. Cancelling before the last stage leaves the data directory
+ * untouched; once files are being moved, the task finishes moving all of them so the installation is never half
+ * updated.
+ */
 @Component
 @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 @Slf4j
 public class SimpleHttpFeaturedModUpdaterTask extends CompletableTask<String> {
+
+  /** How much moving a file into place weighs in the progress, compared to verifying or downloading one byte. */
+  private static final long BYTES_PER_FILE = 64 * 1024;
+
   private final FafService fafService;
   private final PreferencesService preferencesService;
   private final DownloadService downloadService;
   private final I18n i18n;
   private final FeaturedModFileCacheService featuredModFileCacheService;
+  private final ExecutorService executorService;
+  private final ClientProperties clientProperties;
 
   private FeaturedMod featuredMod;
   private Integer version;
@@ -39,7 +65,9 @@ public class SimpleHttpFeaturedModUpdaterTask extends CompletableTask<String> {
       PreferencesService preferencesService,
       DownloadService downloadService,
       I18n i18n,
-      FeaturedModFileCacheService featuredModFileCacheService
+      FeaturedModFileCacheService featuredModFileCacheService,
+      ExecutorService executorService,
+      ClientProperties clientProperties
   ) {
     super(Priority.HIGH);
 
@@ -48,6 +76,8 @@ public class SimpleHttpFeaturedModUpdaterTask extends CompletableTask<String> {
     this.downloadService = downloadService;
     this.i18n = i18n;
     this.featuredModFileCacheService = featuredModFileCacheService;
+    this.executorService = executorService;
+    this.clientProperties = clientProperties;
   }
 
   @Override
@@ -59,34 +89,64 @@ public class SimpleHttpFeaturedModUpdaterTask extends CompletableTask<String> {
 
     List<FeaturedModFile> featuredModFiles = fafService.getFeaturedModFiles(featuredMod, version).get();
     Path fafDataDirectory = preferencesService.getFafDataDirectory();
+    List<Path> targetPaths = featuredModFiles.stream()
+        .map(featuredModFile -> getTargetPath(fafDataDirectory, featuredModFile))
+        .toList();
 
-    featuredModFiles
-        .forEach(featuredModFile -> {
-          Path targetPath = fafDataDirectory
-              .resolve(featuredModFile.getGroup())
-              .resolve(featuredModFile.getName());
-
-          try {
-            if (fileAlreadyLoaded(featuredModFile, targetPath)) {
-              log.debug("Featured mod file already prepared: {}", featuredModFile);
-            } else if (featuredModFileCacheService.isCached(featuredModFile)) {
-              featuredModFileCacheService.moveFeaturedModFileFromCache(featuredModFile, targetPath);
-            } else {
-              downloadFeaturedModFile(featuredModFile, featuredModFileCacheService.getCachedFilePath(featuredModFile));
-              featuredModFileCacheService.moveFeaturedModFileFromCache(featuredModFile, targetPath);
-            }
-          } catch (IOException e) {
-            log.error("Error on updating featured mod file: {}", featuredModFile, e);
-            throw new RuntimeException(e);
-          }
-        });
+    UpdateProgress progress = new UpdateProgress(featuredModFiles.size(), sizeOf(targetPaths));
+
+    updateMessage(i18n.get("updater.verifyingFiles"));
+    Map<Path, String> installedHashes = featuredModFileCacheService.readHashesFromFiles(targetPaths, progress::verified);
+
+    List<FeaturedModFile> outdatedFiles = new ArrayList<>();
+    // Files with the same content share a cached file, which must only be downloaded once
+    Map<Path, FeaturedModFile> missingFiles = new LinkedHashMap<>();
+    Map<Path, Integer> targetCounts = new HashMap<>();
+    for (FeaturedModFile featuredModFile : featuredModFiles) {
+      Path targetPath = getTargetPath(fafDataDirectory, featuredModFile);
+      if (Objects.equals(featuredModFile.getMd5(), installedHashes.get(targetPath))) {
+        log.debug("Featured mod file already prepared: {}", featuredModFile);
+        progress.fileDone();
+        continue;
+      }
+      outdatedFiles.add(featuredModFile);
+      Path cachedFilePath = featuredModFileCacheService.getCachedFilePath(featuredModFile);
+      targetCounts.merge(cachedFilePath, 1, Integer::sum);
+      if (!missingFiles.containsKey(cachedFilePath) && !featuredModFileCacheService.isCached(featuredModFile)) {
+        missingFiles.put(cachedFilePath, featuredModFile);
+      }
+    }
+
+    downloadAll(List.copyOf(missingFiles.values()), progress);
+
+    if (isCancelled()) {
+      throw new CancellationException("Update of " + featuredMod.getTechnicalName() + " was cancelled");
+    }
+    // Cancelling interrupts this thread, so the files are moved where it can't stop them halfway
+    Future<Void> installation = executorService.submit(() -> {
+      for (FeaturedModFile featuredModFile : outdatedFiles) {
+        updateMessage(i18n.get("updater.patchingFile", featuredModFile.getName()));
+        Path targetPath = getTargetPath(fafDataDirectory, featuredModFile);
+        // The last file with this content gets the cached file, the others a copy of it
+        if (targetCounts.merge(featuredModFileCacheService.getCachedFilePath(featuredModFile), -1, Integer::sum) > 0) {
+          featuredModFileCacheService.copyFeaturedModFileFromCache(featuredModFile, targetPath);
+        } else {
+          featuredModFileCacheService.moveFeaturedModFileFromCache(featuredModFile, targetPath);
+        }
+        progress.fileDone();
+      }
+      return null;
+    });
+    try {
+      Uninterruptibles.getUninterruptibly(installation);
+    } catch (ExecutionException e) {
+      throw causeOf(e);
+    }
 
     Path initFile = featuredModFiles.stream()
         .filter(featuredModFile -> "bin".equals(featuredModFile.getGroup()) &&
             initFileName.equalsIgnoreCase(featuredModFile.getName()))
-        .map(featuredModFile -> fafDataDirectory
-            .resolve(featuredModFile.getGroup())
-            .resolve(featuredModFile.getName()))
+        .map(featuredModFile -> getTargetPath(fafDataDirectory, featuredModFile))
         .filter(Files::exists)
         .findAny()
         .orElseThrow(() -> new IllegalStateException("No init file found for featured mod: " + featuredMod.getTechnicalName()));
@@ -99,17 +159,71 @@ public class SimpleHttpFeaturedModUpdaterTask extends CompletableTask<String> {
     return String.format("%d", version);
   }
 
-  private boolean fileAlreadyLoaded(FeaturedModFile featuredModFile, Path targetPath) throws IOException {
-    return Files.exists(targetPath)
-        && Objects.equals(featuredModFile.getMd5(), featuredModFileCacheService.readHashFromFile(targetPath));
+  /**
+   * Downloads the given files into the featured mod cache, as many at a time as there are download slots.
+   */
+  private void downloadAll(List<FeaturedModFile> featuredModFiles, UpdateProgress progress) throws Exception {
+    if (featuredModFiles.isEmpty()) {
+      return;
+    }
+    AtomicInteger nextFile = new AtomicInteger();
+    int workerCount = Math.max(1, Math.min(featuredModFiles.size(), clientProperties.getTransfer().getDownloadSlots()));
+    List<Future<Void>> workers = new ArrayList<>(workerCount);
+    for (int i = 0; i < workerCount; i++) {
+      workers.add(executorService.submit(() -> {
+        int index;
+        while ((index = nextFile.getAndIncrement()) < featuredModFiles.size() && !isCancelled()) {
+          downloadFeaturedModFile(featuredModFiles.get(index), progress);
+        }
+        return null;
+      }));
+    }
+
+    try {
+      for (Future<Void> worker : workers) {
+        worker.get();
+      }
+    } catch (InterruptedException e) {
+      workers.forEach(worker -> worker.cancel(true));
+      throw e;
+    } catch (ExecutionException e) {
+      workers.forEach(worker -> worker.cancel(true));
+      throw causeOf(e);
+    }
+  }
+
+  private static Exception causeOf(ExecutionException e) {
+    return e.getCause() instanceof Exception cause ? cause : e;
   }
 
-  private void downloadFeaturedModFile(FeaturedModFile featuredModFile, Path targetPath) throws java.io.IOException {
-    Files.createDirectories(targetPath.getParent());
+  private void downloadFeaturedModFile(FeaturedModFile featuredModFile, UpdateProgress progress) throws IOException {
+    Path cachedFilePath = featuredModFileCacheService.getCachedFilePath(featuredModFile);
+    Files.createDirectories(cachedFilePath.getParent());
     updateMessage(i18n.get("updater.downloadingFile", featuredModFile.getName()));
 
     String url = featuredModFile.getUrl();
-    downloadService.downloadFile(new URL(url), targetPath, this::updateProgress);
+    downloadService.downloadFile(new URL(url), cachedFilePath, progress.newDownloadListener(), featuredModFile.getMd5(),
+        TransferPriority.CRITICAL);
+    if (featuredModFile.getMd5() != null) {
+      // The download has been verified against this hash
+      featuredModFileCacheService.rememberHash(cachedFilePath, featuredModFile.getMd5());
+    }
+  }
+
+  private static Path getTargetPath(Path fafDataDirectory, FeaturedModFile featuredModFile) {
+    return fafDataDirectory
+        .resolve(featuredModFile.getGroup())
+        .resolve(featuredModFile.getName());
+  }
+
+  private static long sizeOf(List<Path> files) throws IOException {
+    long size = 0;
+    for (Path file : files) {
+      if (Files.isRegularFile(file)) {
+        size += Files.size(file);
+      }
+    }
+    return size;
   }
 
   public void setFeaturedMod(FeaturedMod featuredMod) {
@@ -119,4 +233,60 @@ public class SimpleHttpFeaturedModUpdaterTask extends CompletableTask<String> {
   public void setVersion(Integer version) {
     this.version = version;
   }
+
+  /**
+   * Combines the bytes verified, the bytes downloaded and the files moved into place into one progress. The sizes of
+   * downloads are only known once they start, so the reported progress never goes back when they become known.
+   */
+  private class UpdateProgress {
+    private final long fileCount;
+    private final long bytesToVerify;
+    private long bytesVerified;
+    private long bytesToDownload;
+    private long bytesDownloaded;
+    private long filesDone;
+    private double reported;
+
+    UpdateProgress(int fileCount, long bytesToVerify) {
+      this.fileCount = fileCount;
+      this.bytesToVerify = bytesToVerify;
+    }
+
+    synchronized void verified(long bytes) {
+      bytesVerified += bytes;
+      report();
+    }
+
+    synchronized void fileDone() {
+      filesDone++;
+      report();
+    }
+
+    ByteCountListener newDownloadListener() {
+      return new ByteCountListener() {
+        private long lastWritten;
+        private long lastTotal;
+
+        @Override
+        public void updateBytesWritten(long written, long total) {
+          synchronized (UpdateProgress.this) {
+            bytesToDownload += Math.max(total, 0) - lastTotal;
+            bytesDownloaded += written - lastWritten;
+            lastTotal = Math.max(total, 0);
+            lastWritten = written;
+            report();
+          }
+        }
+      };
+    }
+
+    private void report() {
+      double done = bytesVerified + bytesDownloaded + (double) filesDone * BYTES_PER_FILE;
+      double total = bytesToVerify + bytesToDownload + (double) fileCount * BYTES_PER_FILE;
+      if (total > 0 && done / total > reported) {
+        reported = Math.min(1, done / total);
+        updateProgress(reported, 1);
+      }
+    }
+  }
 }
@@ -5,6 +5,9 @@ import com.faforever.client.chat.avatar.event.AvatarChangedEvent;
 import com.faforever.client.chat.event.ChatMessageEvent;
 import com.faforever.client.chat.event.ChatUserCategoryChangeEvent;
 import com.faforever.client.chat.event.ChatUserGameChangeEvent;
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.config.ClientProperties.UpdatePump;
+import com.faforever.client.fx.FxUpdatePump;
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.game.Game;
 import com.faforever.client.game.GameAddedEvent;
@@ -70,8 +73,9 @@ public class PlayerService implements InitializingBean {
   private final UserService userService;
   private final EventBus eventBus;
   private final HashMap<Integer, List<Player>> playersByGame;
+  private final FxUpdatePump<Integer, com.faforever.client.remote.domain.Player> playerInfoUpdatePump;
 
-  public PlayerService(FafService fafService, UserService userService, EventBus eventBus) {
+  public PlayerService(FafService fafService, UserService userService, EventBus eventBus, ClientProperties clientProperties) {
     this.fafService = fafService;
     this.userService = userService;
     this.eventBus = eventBus;
@@ -83,6 +87,10 @@ public class PlayerService implements InitializingBean {
     foeList = new ArrayList<>();
     currentPlayer = new SimpleObjectProperty<>();
     playersByGame = new HashMap<>();
+
+    UpdatePump updatePump = clientProperties.getUpdatePump();
+    playerInfoUpdatePump = new FxUpdatePump<>("player", updatePump.getMaxBatchSize(), updatePump.getPulseBudget(),
+        FxUpdatePump.lastWriteWins(), this::onPlayerInfo);
   }
 
   @Override
@@ -345,7 +353,7 @@ public class PlayerService implements InitializingBean {
   }
 
   private void onPlayersInfo(PlayersMessage playersMessage) {
-    playersMessage.getPlayers().forEach(dto -> JavaFxUtil.runLater(() -> onPlayerInfo(dto)));
+    playersMessage.getPlayers().forEach(dto -> playerInfoUpdatePump.submit(dto.getId(), dto));
   }
 
   private void onFoeList(SocialMessage socialMessage) {
@@ -18,7 +18,6 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
@@ -34,6 +33,7 @@ public class JSkillsRatingService implements RatingService {
   private final GameInfo gameInfo;
   private final PlayerService playerService;
   private final FafService fafService;
+  private final TeamBalancer teamBalancer = new TeamBalancer(2);
 
   public JSkillsRatingService(ClientProperties clientProperties, PlayerService playerService, FafService fafService) {
     this.playerService = playerService;
@@ -127,7 +127,7 @@ public class JSkillsRatingService implements RatingService {
     // prepend the host
     List<Player> hostAndPlayers = new ArrayList<>(List.of(host.get()));
     hostAndPlayers.addAll(players);
-    if (hostAndPlayers.size() < 1) {
+    if (hostAndPlayers.size() < 2) {
       return hostAndPlayers;
     }
 
@@ -165,44 +165,31 @@ public class JSkillsRatingService implements RatingService {
       }
     }
 
-    // search random combinations of teams to optimise balance
-    List<Player> bestTeams = null;
-    Double bestScore = null;
-    for (int nSearch = 0; nSearch < 30; ++nSearch) {
-      Collections.shuffle(players);
-      hostAndPlayers = new ArrayList<>(List.of(host.get()));
-      hostAndPlayers.addAll(players);
-
-      double m1 = 0.0, m2 = 0.0, v1 = 0.0, v2 = 0.0;
-      for (int n=0; n<hostAndPlayers.size(); ++n) {
-        LeaderboardRating lbr = distilledRatings.get(hostAndPlayers.get(n).getId()).getValue();
-        if (n % 2 == 0) {
-          m1 += lbr.getMean();
-          v1 += lbr.getDeviation() * lbr.getDeviation();
-        } else {
-          m2 += lbr.getMean();
-          v2 += lbr.getDeviation() * lbr.getDeviation();
-        }
-      }
+    // search all combinations of teams for the best balance, with the host in the first start position
+    double[] means = new double[hostAndPlayers.size()];
+    double[] deviations = new double[hostAndPlayers.size()];
+    int[] lockedTeams = new int[hostAndPlayers.size()];
+    for (int n=0; n<hostAndPlayers.size(); ++n) {
+      LeaderboardRating lbr = distilledRatings.get(hostAndPlayers.get(n).getId()).getValue();
+      means[n] = lbr.getMean();
+      deviations[n] = lbr.getDeviation();
+      lockedTeams[n] = n == 0 ? 0 : TeamBalancer.UNLOCKED;
+    }
+    TeamBalancer.Assignment best = teamBalancer.balance(means, deviations, lockedTeams, 1).get(0);
 
-      // https://stats.stackexchange.com/questions/66271/kullback-leibler-divergence-of-two-normal-distributions
-      double kl = 0.5 * ((m1-m2)*(m1-m2) + v1+v2) * (1.0/v1 + 1.0/v2) - 2.0;
-
-      if (bestTeams == null || kl < bestScore) {
-        bestTeams = hostAndPlayers;
-        bestScore = kl;
-
-        log.info("[getBalancedTeams] {} {}. kl={}",
-            game.getRatingType(),
-            String.join(",", hostAndPlayers.stream().map(p -> String.format("%s(%s:%d/%d)",
-                    p.getUsername(),
-                    distilledRatings.get(p.getId()).getKey(),
-                    (int)distilledRatings.get(p.getId()).getValue().getMean(),
-                    (int)distilledRatings.get(p.getId()).getValue().getDeviation()))
-                .toList()),
-            bestScore);
-      }
+    List<Player> bestTeams = new ArrayList<>(hostAndPlayers.size());
+    for (int n : best.getStartPositions()) {
+      bestTeams.add(hostAndPlayers.get(n));
     }
+    log.info("[getBalancedTeams] {} {}. kl={}",
+        game.getRatingType(),
+        String.join(",", bestTeams.stream().map(p -> String.format("%s(%s:%d/%d)",
+                p.getUsername(),
+                distilledRatings.get(p.getId()).getKey(),
+                (int)distilledRatings.get(p.getId()).getValue().getMean(),
+                (int)distilledRatings.get(p.getId()).getValue().getDeviation()))
+            .toList()),
+        best.getScore());
     return bestTeams;
   }
 
@@ -0,0 +1,382 @@
+package com.faforever.client.rating;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Splits players into teams such that the teams' summed ratings are as similar as possible. Players take the start
+ * positions in turns, so team {@code t} consists of the players at positions {@code t}, {@code t + teamCount}, ...
+ * and team sizes differ by at most one.
+ * <p>
+ * The search is exhaustive: players are assigned one by one, strongest first, and a partial assignment is abandoned as
+ * soon as a lower bound of its score can't beat the worst of the best assignments found so far. Teams that are still
+ * empty and of the same size are interchangeable, so only the first of them is tried. The search doesn't allocate
+ * and large searches are split into fork-join tasks that share their bound.
+ * <p>
+ * The score of two teams is the symmetric Kullback-Leibler divergence of the normal distributions of their summed
+ * ratings; with more teams it's the score of the worst pairing.
+ */
+final class TeamBalancer {
+
+  /** Searches with more unassigned players than this are split into parallel tasks. */
+  static final int DEFAULT_PARALLEL_THRESHOLD = 12;
+  static final int UNLOCKED = -1;
+
+  private final int teamCount;
+  private final int parallelThreshold;
+  private final ForkJoinPool pool;
+
+  TeamBalancer(int teamCount) {
+    this(teamCount, DEFAULT_PARALLEL_THRESHOLD, ForkJoinPool.commonPool());
+  }
+
+  TeamBalancer(int teamCount, int parallelThreshold, ForkJoinPool pool) {
+    if (teamCount < 1) {
+      throw new IllegalArgumentException("At least one team is required: " + teamCount);
+    }
+    this.teamCount = teamCount;
+    this.parallelThreshold = parallelThreshold;
+    this.pool = pool;
+  }
+
+  /**
+   * Returns the score of teams with the specified summed means and variances; lower is better and 0 is perfect.
+   */
+  static double score(double[] teamMeans, double[] teamVariances, int teamCount) {
+    double worst = 0;
+    for (int a = 0; a < teamCount; a++) {
+      for (int b = a + 1; b < teamCount; b++) {
+        double meanDifference = teamMeans[a] - teamMeans[b];
+        double variance = teamVariances[a] + teamVariances[b];
+        // https://stats.stackexchange.com/questions/66271/kullback-leibler-divergence-of-two-normal-distributions
+        double divergence = 0.5 * (meanDifference * meanDifference + variance)
+            * (1.0 / teamVariances[a] + 1.0 / teamVariances[b]) - 2.0;
+        if (Double.isNaN(divergence)) {
+          return Double.POSITIVE_INFINITY;
+        }
+        worst = Math.max(worst, divergence);
+      }
+    }
+    return worst;
+  }
+
+  /**
+   * Returns the {@code limit} best assignments, best first.
+   *
+   * @param means the rating mean of each player
+   * @param deviations the rating deviation of each player
+   * @param lockedTeams the team each player must be in, or {@link #UNLOCKED}; may be {@code null}
+   */
+  List<Assignment> balance(double[] means, double[] deviations, int[] lockedTeams, int limit) {
+    if (means.length != deviations.length || (lockedTeams != null && lockedTeams.length != means.length)) {
+      throw new IllegalArgumentException("Player arrays differ in length");
+    }
+    if (limit < 1) {
+      throw new IllegalArgumentException("Limit must be positive: " + limit);
+    }
+    Problem problem = new Problem(means, deviations, lockedTeams);
+    Search search = new Search(problem, limit, new AtomicLong(Double.doubleToLongBits(Double.POSITIVE_INFINITY)));
+
+    if (problem.free.length > parallelThreshold) {
+      pool.invoke(new SearchTask(search, 0));
+    } else {
+      search.search(0);
+    }
+    return search.results.toAssignments();
+  }
+
+  /**
+   * The players and team sizes of a search, with the unlocked players ordered by descending absolute mean.
+   */
+  private final class Problem {
+    private final double[] means;
+    private final double[] variances;
+    private final int[] lockedTeams;
+    private final int[] capacities;
+    private final int[] free;
+    /** The sum of the absolute means of {@code free[i]} and all players after it. */
+    private final double[] remainingMeans;
+    private final double totalVariance;
+
+    private Problem(double[] means, double[] deviations, int[] lockedTeams) {
+      int playerCount = means.length;
+      this.means = means;
+      this.variances = Arrays.stream(deviations).map(deviation -> deviation * deviation).toArray();
+      this.lockedTeams = lockedTeams != null ? lockedTeams : filled(playerCount, UNLOCKED);
+      capacities = IntStream.range(0, teamCount).map(team -> (playerCount - team + teamCount - 1) / teamCount).toArray();
+
+      int[] lockedCounts = new int[teamCount];
+      for (int player = 0; player < playerCount; player++) {
+        int team = this.lockedTeams[player];
+        if (team == UNLOCKED) {
+          continue;
+        }
+        if (team < 0 || team >= teamCount) {
+          throw new IllegalArgumentException("Player " + player + " is locked to nonexistent team " + team);
+        }
+        if (++lockedCounts[team] > capacities[team]) {
+          throw new IllegalArgumentException("Too many players are locked to team " + team);
+        }
+      }
+
+      free = IntStream.range(0, playerCount)
+          .filter(player -> this.lockedTeams[player] == UNLOCKED)
+          .boxed()
+          .sorted(Comparator.comparingDouble((Integer player) -> Math.abs(means[player])).reversed())
+          .mapToInt(Integer::intValue)
+          .toArray();
+      remainingMeans = new double[free.length + 1];
+      for (int i = free.length - 1; i >= 0; i--) {
+        remainingMeans[i] = remainingMeans[i + 1] + Math.abs(means[free[i]]);
+      }
+      totalVariance = Arrays.stream(variances).sum();
+    }
+  }
+
+  private static int[] filled(int length, int value) {
+    int[] array = new int[length];
+    Arrays.fill(array, value);
+    return array;
+  }
+
+  /**
+   * The state of a depth-first search. Not thread safe; parallel tasks work on copies.
+   */
+  private final class Search {
+    private final Problem problem;
+    private final Results results;
+    /** The bits of the lowest score any search needs to beat, shared between all tasks of a search. */
+    private final AtomicLong sharedBound;
+    private final int[] teams;
+    private final int[] teamSizes = new int[teamCount];
+    private final double[] teamMeans = new double[teamCount];
+    private final double[] teamVariances = new double[teamCount];
+
+    private Search(Problem problem, int limit, AtomicLong sharedBound) {
+      this.problem = problem;
+      this.results = new Results(limit, problem.means.length);
+      this.sharedBound = sharedBound;
+      teams = problem.lockedTeams.clone();
+      for (int player = 0; player < teams.length; player++) {
+        if (teams[player] != UNLOCKED) {
+          add(player, teams[player]);
+        }
+      }
+    }
+
+    private Search(Search search) {
+      problem = search.problem;
+      results = new Results(search.results.scores.length, problem.means.length);
+      sharedBound = search.sharedBound;
+      teams = search.teams.clone();
+      System.arraycopy(search.teamSizes, 0, teamSizes, 0, teamCount);
+      System.arraycopy(search.teamMeans, 0, teamMeans, 0, teamCount);
+      System.arraycopy(search.teamVariances, 0, teamVariances, 0, teamCount);
+    }
+
+    private void search(int depth) {
+      if (depth == problem.free.length) {
+        offer();
+        return;
+      }
+      if (lowerBound(depth) >= bound()) {
+        return;
+      }
+      int player = problem.free[depth];
+      for (int team = 0; team < teamCount; team++) {
+        if (canJoin(team)) {
+          add(player, team);
+          search(depth + 1);
+          remove(player, team);
+        }
+      }
+    }
+
+    private boolean canJoin(int team) {
+      if (teamSizes[team] == problem.capacities[team]) {
+        return false;
+      }
+      if (teamSizes[team] == 0) {
+        for (int other = 0; other < team; other++) {
+          if (teamSizes[other] == 0 && problem.capacities[other] == problem.capacities[team]) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private void add(int player, int team) {
+      teams[player] = team;
+      teamSizes[team]++;
+      teamMeans[team] += problem.means[player];
+      teamVariances[team] += problem.variances[player];
+    }
+
+    private void remove(int player, int team) {
+      teams[player] = UNLOCKED;
+      teamSizes[team]--;
+      teamMeans[team] -= problem.means[player];
+      teamVariances[team] -= problem.variances[player];
+    }
+
+    /**
+     * The remaining players can close the gap between any two teams by at most the sum of their absolute means, and
+     * since no two teams can have more than the total variance, the score of a pairing is at least
+     * {@code 2 * gap * gap / totalVariance}.
+     */
+    private double lowerBound(int depth) {
+      double highest = Double.NEGATIVE_INFINITY;
+      double lowest = Double.POSITIVE_INFINITY;
+      for (int team = 0; team < teamCount; team++) {
+        highest = Math.max(highest, teamMeans[team]);
+        lowest = Math.min(lowest, teamMeans[team]);
+      }
+      double gap = highest - lowest - problem.remainingMeans[depth];
+      return gap > 0 ? 2 * gap * gap / problem.totalVariance : 0;
+    }
+
+    private double bound() {
+      return Math.min(results.worstScore(), Double.longBitsToDouble(sharedBound.get()));
+    }
+
+    private void offer() {
+      double score = score(teamMeans, teamVariances, teamCount);
+      if (results.offer(score, teams) && results.isFull()) {
+        long bits = Double.doubleToLongBits(results.worstScore());
+        // Non-negative doubles are ordered like their bits
+        sharedBound.accumulateAndGet(bits, Math::min);
+      }
+    }
+  }
+
+  /**
+   * Assigns the first unassigned players in parallel tasks until few enough are left to search sequentially.
+   */
+  private final class SearchTask extends RecursiveAction {
+    private final Search search;
+    private final int depth;
+
+    private SearchTask(Search search, int depth) {
+      this.search = search;
+      this.depth = depth;
+    }
+
+    @Override
+    protected void compute() {
+      if (search.problem.free.length - depth <= parallelThreshold) {
+        search.search(depth);
+        return;
+      }
+      if (search.lowerBound(depth) >= search.bound()) {
+        return;
+      }
+      int player = search.problem.free[depth];
+      List<SearchTask> subtasks = new ArrayList<>(teamCount);
+      for (int team = 0; team < teamCount; team++) {
+        if (search.canJoin(team)) {
+          Search subsearch = new Search(search);
+          subsearch.add(player, team);
+          subtasks.add(new SearchTask(subsearch, depth + 1));
+        }
+      }
+      invokeAll(subtasks);
+      for (SearchTask subtask : subtasks) {
+        search.results.addAll(subtask.search.results);
+      }
+    }
+  }
+
+  /**
+   * The best assignments found so far, ordered by score. Rows are reused, so offering doesn't allocate.
+   */
+  private final class Results {
+    private final double[] scores;
+    private final int[][] teams;
+    private int size;
+
+    private Results(int limit, int playerCount) {
+      scores = new double[limit];
+      teams = new int[limit][playerCount];
+    }
+
+    private boolean isFull() {
+      return size == scores.length;
+    }
+
+    private double worstScore() {
+      return isFull() ? scores[size - 1] : Double.POSITIVE_INFINITY;
+    }
+
+    private boolean offer(double score, int[] assignment) {
+      if (isFull() && score >= scores[size - 1]) {
+        return false;
+      }
+      int index = isFull() ? size - 1 : size++;
+      int[] row = teams[index];
+      while (index > 0 && scores[index - 1] > score) {
+        scores[index] = scores[index - 1];
+        teams[index] = teams[index - 1];
+        index--;
+      }
+      scores[index] = score;
+      teams[index] = row;
+      System.arraycopy(assignment, 0, row, 0, assignment.length);
+      return true;
+    }
+
+    private void addAll(Results other) {
+      for (int i = 0; i < other.size; i++) {
+        offer(other.scores[i], other.teams[i]);
+      }
+    }
+
+    private List<Assignment> toAssignments() {
+      List<Assignment> assignments = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        assignments.add(new Assignment(scores[i], teams[i].clone(), teamCount));
+      }
+      return assignments;
+    }
+  }
+
+  static final class Assignment {
+    private final double score;
+    private final int[] teams;
+    private final int teamCount;
+
+    private Assignment(double score, int[] teams, int teamCount) {
+      this.score = score;
+      this.teams = teams;
+      this.teamCount = teamCount;
+    }
+
+    double getScore() {
+      return score;
+    }
+
+    int getTeam(int player) {
+      return teams[player];
+    }
+
+    /**
+     * Returns the players in the order of their start positions. Players of the same team keep their relative order.
+     */
+    int[] getStartPositions() {
+      int[] positions = new int[teams.length];
+      int[] nextPositions = IntStream.range(0, teamCount).toArray();
+      for (int player = 0; player < teams.length; player++) {
+        int team = teams[player];
+        positions[nextPositions[team]] = player;
+        nextPositions[team] += teamCount;
+      }
+      return positions;
+    }
+  }
+}
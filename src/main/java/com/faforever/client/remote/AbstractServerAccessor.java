@@ -2,17 +2,15 @@ package com.faforever.client.remote;
 
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.remote.domain.FafServerMessage;
-import com.faforever.client.remote.io.QDataInputStream;
+import com.faforever.client.remote.io.ServerConnection;
 import org.apache.commons.compress.utils.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
-import java.net.Socket;
+import java.net.InetSocketAddress;
 
 /**
  * Super class for all server accessors.
@@ -22,7 +20,7 @@ public abstract class AbstractServerAccessor implements DisposableBean {
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   private boolean stopped;
-  private QDataInputStream dataInput;
+  private ServerConnection connection;
 
   /**
    * Reads data received from the server and dispatches it. So far, there are two types of data sent by the server: <ol>
@@ -30,13 +28,13 @@ public abstract class AbstractServerAccessor implements DisposableBean {
    * <li><strong>Objects</strong> are JSON-encoded objects like preferences or player information. Those are converted into a
    * {@link FafServerMessage}</li> </ol> I'm not yet happy with those terms, so any suggestions are welcome.
    */
-  protected void blockingReadServer(Socket socket) throws IOException {
+  protected void blockingReadServer(ServerConnection connection) throws IOException {
     JavaFxUtil.assertBackgroundThread();
 
-    dataInput = new QDataInputStream(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
-    while (!stopped && !socket.isInputShutdown()) {
-      dataInput.skipBlockSize();
-      String message = dataInput.readQString();
+    this.connection = connection;
+    InetSocketAddress remoteAddress = connection.getRemoteAddress();
+    while (!stopped && connection.isOpen()) {
+      String message = connection.readFrame();
 
       logger.debug("Message from server: {}", message);
 
@@ -47,7 +45,7 @@ public abstract class AbstractServerAccessor implements DisposableBean {
       }
     }
 
-    logger.info("Connection to server {} has been closed", socket.getRemoteSocketAddress());
+    logger.info("Connection to server {} has been closed", remoteAddress);
   }
 
   protected abstract void onServerMessage(String message) throws IOException;
@@ -55,7 +53,7 @@ public abstract class AbstractServerAccessor implements DisposableBean {
   @Override
   public void destroy() throws IOException {
     stopped = true;
-    IOUtils.closeQuietly(dataInput);
+    IOUtils.closeQuietly(connection);
   }
 
 }
@@ -89,9 +89,11 @@ import com.faforever.client.remote.gson.MatchmakingStateTypeAdapter;
 import com.faforever.client.remote.gson.MessageTargetTypeAdapter;
 import com.faforever.client.remote.gson.PlayerStateTypeAdapter;
 import com.faforever.client.remote.gson.RatingRangeTypeAdapter;
+import com.faforever.client.remote.gson.ServerMessageDecoder;
 import com.faforever.client.remote.gson.ServerMessageTypeAdapter;
 import com.faforever.client.remote.gson.ServerMessageTypeTypeAdapter;
 import com.faforever.client.remote.gson.VictoryConditionTypeAdapter;
+import com.faforever.client.remote.io.ServerConnection;
 import com.faforever.client.reporting.ReportingService;
 import com.faforever.client.teammatchmaking.MatchmakingQueue;
 import com.faforever.client.update.Version;
@@ -126,8 +128,6 @@ import javax.security.auth.login.LoginException;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.Socket;
 import java.net.URL;
 import java.time.Duration;
 import java.time.Instant;
@@ -154,23 +154,8 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 public class FafServerAccessorImpl extends AbstractServerAccessor implements FafServerAccessor,
     InitializingBean, DisposableBean {
 
-  private final Gson gson = new GsonBuilder()
-      .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-      .registerTypeAdapter(VictoryCondition.class, VictoryConditionTypeAdapter.INSTANCE)
-      .registerTypeAdapter(GameStatus.class, GameStateTypeAdapter.INSTANCE)
-      .registerTypeAdapter(PlayerStatus.class, PlayerStateTypeAdapter.INSTANCE)
-      .registerTypeAdapter(GameAccess.class, GameAccessTypeAdapter.INSTANCE)
-      .registerTypeAdapter(GameType.class, GameTypeTypeAdapter.INSTANCE)
-      .registerTypeAdapter(ClientMessageType.class, ClientMessageTypeTypeAdapter.INSTANCE)
-      .registerTypeAdapter(FafServerMessageType.class, ServerMessageTypeTypeAdapter.INSTANCE)
-      .registerTypeAdapter(GpgServerMessageType.class, GpgServerMessageTypeTypeAdapter.INSTANCE)
-      .registerTypeAdapter(MessageTarget.class, MessageTargetTypeAdapter.INSTANCE)
-      .registerTypeAdapter(ServerMessage.class, ServerMessageTypeAdapter.INSTANCE)
-      .registerTypeAdapter(RatingRange.class, RatingRangeTypeAdapter.INSTANCE)
-      .registerTypeAdapter(Faction.class, FactionTypeAdapter.INSTANCE)
-      .registerTypeAdapter(LobbyMode.class, LobbyModeTypeAdapter.INSTANCE)
-      .registerTypeAdapter(MatchmakingState.class, MatchmakingStateTypeAdapter.INSTANCE)
-      .create();
+  private final Gson gson = createGson();
+  private final ServerMessageDecoder serverMessageDecoder = new ServerMessageDecoder(gson);
   private final HashMap<Class<? extends ServerMessage>, Collection<Consumer<ServerMessage>>> messageListeners = new HashMap<>();
 
   private final PreferencesService preferencesService;
@@ -194,7 +179,7 @@ public class FafServerAccessorImpl extends AbstractServerAccessor implements Faf
   private String username;
   private String password;
   private final ObjectProperty<ConnectionState> connectionState = new SimpleObjectProperty<>();
-  private Socket fafServerSocket;
+  private ServerConnection serverConnection;
   private CompletableFuture<List<Avatar>> avatarsFuture;
   private CompletableFuture<List<IceServer>> iceServersFuture;
 
@@ -279,11 +264,8 @@ public class FafServerAccessorImpl extends AbstractServerAccessor implements Faf
           JavaFxUtil.runLater(() -> connectionState.set(ConnectionState.CONNECTING));
 
 
-          try (Socket fafServerSocket = new Socket(serverHost, serverPort);
-               OutputStream outputStream = fafServerSocket.getOutputStream()) {
-            FafServerAccessorImpl.this.fafServerSocket = fafServerSocket;
-
-            fafServerSocket.setKeepAlive(true);
+          try (ServerConnection serverConnection = ServerConnection.connect(serverHost, serverPort, server.getConnectTimeout(), server.getReadTimeout())) {
+            FafServerAccessorImpl.this.serverConnection = serverConnection;
 
             localIps = new ArrayList<String>();
             for (String service: new String[]{
@@ -307,9 +289,9 @@ public class FafServerAccessorImpl extends AbstractServerAccessor implements Faf
                 log.info(String.format("unable to obtain ip address from %s", service));
               };
             }
-            localIps.add(fafServerSocket.getLocalAddress().getHostAddress());
+            localIps.add(serverConnection.getLocalAddress().getHostAddress());
 
-            serverWriter = createServerWriter(outputStream);
+            serverWriter = createServerWriter(serverConnection);
 
             writeToServer(new InitSessionMessage(Version.getCurrentVersion()));
 
@@ -317,7 +299,7 @@ public class FafServerAccessorImpl extends AbstractServerAccessor implements Faf
             JavaFxUtil.runLater(() -> connectionState.set(ConnectionState.CONNECTED));
             reconnectTimerService.resetConnectionFailures();
 
-            blockingReadServer(fafServerSocket);
+            blockingReadServer(serverConnection);
           } catch (IOException e) {
             JavaFxUtil.runLater(() -> connectionState.set(ConnectionState.DISCONNECTED));
             if (isCancelled()) {
@@ -347,13 +329,13 @@ public class FafServerAccessorImpl extends AbstractServerAccessor implements Faf
           loginFuture = null;
         }
         IOUtils.closeQuietly(serverWriter);
-        IOUtils.closeQuietly(fafServerSocket);
+        IOUtils.closeQuietly(serverConnection);
       }
 
       @Override
       protected void cancelled() {
         IOUtils.closeQuietly(serverWriter);
-        IOUtils.closeQuietly(fafServerSocket);
+        IOUtils.closeQuietly(serverConnection);
         log.debug("Closed connection to FAF lobby server");
       }
     };
@@ -408,7 +390,7 @@ public class FafServerAccessorImpl extends AbstractServerAccessor implements Faf
 
   @Override
   public void reconnect() {
-    IOUtils.closeQuietly(fafServerSocket);
+    IOUtils.closeQuietly(serverConnection);
     reconnectTimerService.skipWait();
   }
 
@@ -505,8 +487,8 @@ public class FafServerAccessorImpl extends AbstractServerAccessor implements Faf
     writeToServer(new RestoreGameSessionMessage(id));
   }
 
-  private ServerWriter createServerWriter(OutputStream outputStream) {
-    ServerWriter serverWriter = new ServerWriter(outputStream);
+  private ServerWriter createServerWriter(ServerConnection serverConnection) {
+    ServerWriter serverWriter = new ServerWriter(serverConnection);
     serverWriter.registerMessageSerializer(new ClientMessageSerializer(), ClientMessage.class);
     serverWriter.registerMessageSerializer(new StringSerializer(), String.class);
     serverWriter.registerMessageSerializer(new GpgClientMessageSerializer(), GpgGameMessage.class);
@@ -550,9 +532,30 @@ public class FafServerAccessorImpl extends AbstractServerAccessor implements Faf
     }
   }
 
+  @VisibleForTesting
+  static Gson createGson() {
+    return new GsonBuilder()
+        .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+        .registerTypeAdapter(VictoryCondition.class, VictoryConditionTypeAdapter.INSTANCE)
+        .registerTypeAdapter(GameStatus.class, GameStateTypeAdapter.INSTANCE)
+        .registerTypeAdapter(PlayerStatus.class, PlayerStateTypeAdapter.INSTANCE)
+        .registerTypeAdapter(GameAccess.class, GameAccessTypeAdapter.INSTANCE)
+        .registerTypeAdapter(GameType.class, GameTypeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(ClientMessageType.class, ClientMessageTypeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(FafServerMessageType.class, ServerMessageTypeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(GpgServerMessageType.class, GpgServerMessageTypeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(MessageTarget.class, MessageTargetTypeAdapter.INSTANCE)
+        .registerTypeAdapter(ServerMessage.class, ServerMessageTypeAdapter.INSTANCE)
+        .registerTypeAdapter(RatingRange.class, RatingRangeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(Faction.class, FactionTypeAdapter.INSTANCE)
+        .registerTypeAdapter(LobbyMode.class, LobbyModeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(MatchmakingState.class, MatchmakingStateTypeAdapter.INSTANCE)
+        .create();
+  }
+
   private void parseServerObject(String jsonString) {
     try {
-      ServerMessage serverMessage = gson.fromJson(jsonString, ServerMessage.class);
+      ServerMessage serverMessage = serverMessageDecoder.decode(jsonString);
       if (serverMessage == null) {
         log.debug("Discarding unimplemented server message: {}", jsonString);
         return;
@@ -636,7 +639,7 @@ public class FafServerAccessorImpl extends AbstractServerAccessor implements Faf
   @Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
   @Override
   public void ping() {
-    if (fafServerSocket == null || !fafServerSocket.isConnected() || serverWriter == null) {
+    if (serverConnection == null || !serverConnection.isOpen() || serverWriter == null) {
       return;
     }
     long playerAfkSeconds = 0;
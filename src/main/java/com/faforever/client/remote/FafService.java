@@ -24,6 +24,7 @@ import com.faforever.client.fa.relay.GpgGameMessage;
 import com.faforever.client.game.NewGameInfo;
 import com.faforever.client.leaderboard.Leaderboard;
 import com.faforever.client.leaderboard.LeaderboardEntry;
+import com.faforever.client.leaderboard.LeaderboardSnapshot;
 import com.faforever.client.map.MapBean;
 import com.faforever.client.mod.FeaturedMod;
 import com.faforever.client.mod.FeaturedModVersion;
@@ -40,7 +41,9 @@ import com.faforever.client.remote.domain.PeriodType;
 import com.faforever.client.remote.domain.ServerMessage;
 import com.faforever.client.replay.Replay;
 import com.faforever.client.reporting.ModerationReport;
-import com.faforever.client.task.ResourceLocks;
+import com.faforever.client.task.TransferPriority;
+import com.faforever.client.task.TransferScheduler;
+import com.faforever.client.task.TransferScheduler.ScheduledTransfer;
 import com.faforever.client.teammatchmaking.MatchmakingQueue;
 import com.faforever.client.tournament.TournamentBean;
 import com.faforever.client.tutorial.TutorialCategory;
@@ -73,7 +76,9 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -89,6 +94,7 @@ public class FafService {
   private final FafServerAccessor fafServerAccessor;
   private final FafApiAccessor fafApiAccessor;
   private final EventBus eventBus;
+  private final TransferScheduler transferScheduler;
 
   public <T extends ServerMessage> void addOnMessageListener(Class<T> type, Consumer<T> listener) {
     fafServerAccessor.addOnMessageListener(type, listener);
@@ -172,12 +178,14 @@ public class FafService {
         .collect(toList()));
   }
 
+  /**
+   * @param loadedEntriesListener is called with the number of entries loaded so far whenever a page has arrived
+   */
   @Async
-  public CompletableFuture<List<LeaderboardEntry>> getAllLeaderboardEntries(String leaderboardTechnicalName) {
-    return CompletableFuture.completedFuture(fafApiAccessor.getAllLeaderboardEntries(leaderboardTechnicalName)
-        .parallelStream()
-        .map(LeaderboardEntry::fromDto)
-        .collect(toList()));
+  public CompletableFuture<LeaderboardSnapshot> getLeaderboardSnapshot(String leaderboardTechnicalName, IntConsumer loadedEntriesListener) {
+    AtomicInteger loadedEntries = new AtomicInteger();
+    return CompletableFuture.completedFuture(LeaderboardSnapshot.fromDtos(fafApiAccessor.getAllLeaderboardEntries(leaderboardTechnicalName,
+        page -> loadedEntriesListener.accept(loadedEntries.addAndGet(page.size())))));
   }
 
   @Async
@@ -392,9 +400,10 @@ public class FafService {
       }
 
       if (files.length > 0) {
-        ResourceLocks.acquireUploadLock();
-        fafApiAccessor.uploadGameLogs(targetZipFile, context, gameId, (written, total) -> {
-        });
+        try (ScheduledTransfer transfer = transferScheduler.startUpload(TransferPriority.BACKGROUND)) {
+          fafApiAccessor.uploadGameLogs(targetZipFile, context, gameId, transfer.throttle((written, total) -> {
+          }));
+        }
         if (modTechnical != null) {
           this.removeErrorLog(modTechnical);
           this.removeReplay0Log();
@@ -404,7 +413,6 @@ public class FafService {
     } catch (Exception e) {
       log.error("[uploadGameLogs] unable to submit logs", e);
     } finally {
-      ResourceLocks.freeUploadLock();
       try { Files.delete(targetZipFile); } catch(Exception ignored) {}
     }
   }
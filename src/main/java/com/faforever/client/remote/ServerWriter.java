@@ -2,6 +2,7 @@ package com.faforever.client.remote;
 
 import com.faforever.client.remote.domain.SerializableMessage;
 import com.faforever.client.remote.io.QDataWriter;
+import com.faforever.client.remote.io.ServerConnection;
 import com.faforever.client.util.Assert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,6 +17,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
 import java.net.SocketException;
+import java.nio.channels.ClosedChannelException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -28,10 +30,21 @@ public class ServerWriter implements Closeable {
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   private final QDataWriter qDataWriter;
+  private final ServerConnection connection;
   private final Map<Class<?>, Serializer<?>> objectWriters;
 
   public ServerWriter(OutputStream outputStream) {
     qDataWriter = new QDataWriter(new DataOutputStream(new BufferedOutputStream(outputStream)));
+    connection = null;
+    objectWriters = new HashMap<>();
+  }
+
+  /**
+   * Creates a writer that writes frames to the channel of the given connection.
+   */
+  public ServerWriter(ServerConnection connection) {
+    qDataWriter = null;
+    this.connection = connection;
     objectWriters = new HashMap<>();
   }
 
@@ -52,11 +65,15 @@ public class ServerWriter implements Closeable {
 
       serializer.serialize(object, outputStream);
 
-      synchronized (qDataWriter) {
-        qDataWriter.appendWithSize(outputStream.toByteArray());
-        qDataWriter.flush();
+      if (connection != null) {
+        connection.writeFrame(outputStream.toByteArray());
+      } else {
+        synchronized (qDataWriter) {
+          qDataWriter.appendWithSize(outputStream.toByteArray());
+          qDataWriter.flush();
+        }
       }
-    } catch (EOFException | SocketException e) {
+    } catch (EOFException | SocketException | ClosedChannelException e) {
       logger.debug("Server writer has been closed");
     } catch (IOException e) {
       logger.debug("Server writer has been closed", e);
@@ -82,6 +99,10 @@ public class ServerWriter implements Closeable {
 
   @Override
   public void close() throws IOException {
-    qDataWriter.close();
+    if (connection != null) {
+      connection.close();
+    } else {
+      qDataWriter.close();
+    }
   }
 }
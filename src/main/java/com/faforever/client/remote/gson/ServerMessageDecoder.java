@@ -0,0 +1,181 @@
+package com.faforever.client.remote.gson;
+
+import com.faforever.client.fa.relay.GpgServerMessageType;
+import com.faforever.client.remote.domain.FafServerMessageType;
+import com.faforever.client.remote.domain.MessageTarget;
+import com.faforever.client.remote.domain.ServerMessage;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Decodes server messages in a single streaming pass. The {@code command} and {@code target} fields are picked out of
+ * the raw JSON by {@link #scanHeader(String)} without building a tree, and the message is then read by the type adapter
+ * of its concrete class, which is looked up once per message type.
+ * <p>
+ * Messages the scanner can't handle (e.g. escaped characters in {@code command}) are passed to
+ * {@link ServerMessageTypeAdapter}, which must be registered with the given {@link Gson}.
+ */
+public class ServerMessageDecoder {
+
+  private static final String COMMAND_KEY = "command";
+  private static final String TARGET_KEY = "target";
+
+  private final Gson gson;
+  private final Map<FafServerMessageType, TypeAdapter<? extends ServerMessage>> fafAdapters = new EnumMap<>(FafServerMessageType.class);
+  private final Map<GpgServerMessageType, TypeAdapter<? extends ServerMessage>> gpgAdapters = new EnumMap<>(GpgServerMessageType.class);
+
+  public ServerMessageDecoder(Gson gson) {
+    this.gson = gson;
+    for (FafServerMessageType messageType : FafServerMessageType.values()) {
+      fafAdapters.put(messageType, gson.getAdapter(messageType.<ServerMessage>getType()));
+    }
+    for (GpgServerMessageType messageType : GpgServerMessageType.values()) {
+      gpgAdapters.put(messageType, gson.getAdapter(messageType.<ServerMessage>getType()));
+    }
+  }
+
+  /**
+   * Returns the decoded message or {@code null} if the message's command or target is unknown.
+   *
+   * @throws JsonSyntaxException if the message is not valid JSON or doesn't match its type
+   */
+  public ServerMessage decode(String json) {
+    Header header = scanHeader(json);
+    if (header == null) {
+      return gson.fromJson(json, ServerMessage.class);
+    }
+
+    MessageTarget messageTarget = MessageTarget.fromString(header.target);
+    if (messageTarget == null) {
+      return null;
+    }
+
+    TypeAdapter<? extends ServerMessage> adapter = switch (messageTarget) {
+      case GAME, CONNECTIVITY -> gpgAdapters.get(GpgServerMessageType.fromString(header.command));
+      case CLIENT -> {
+        FafServerMessageType messageType = FafServerMessageType.fromString(header.command);
+        yield messageType == null ? null : fafAdapters.get(messageType);
+      }
+    };
+    if (adapter == null) {
+      return null;
+    }
+
+    try {
+      JsonReader reader = new JsonReader(new StringReader(json));
+      reader.setLenient(true);
+      return adapter.read(reader);
+    } catch (IOException | IllegalStateException e) {
+      throw new JsonSyntaxException(e);
+    }
+  }
+
+  static class Header {
+    final String command;
+    final String target;
+
+    Header(String command, String target) {
+      this.command = command;
+      this.target = target;
+    }
+  }
+
+  /**
+   * Finds the string values of the top-level {@code command} and {@code target} keys. Returns {@code null} if there is
+   * no string {@code command}, or if either value contains escape sequences.
+   */
+  static Header scanHeader(String json) {
+    String command = null;
+    String target = null;
+    boolean targetFound = false;
+    int depth = 0;
+    int length = json.length();
+    int i = 0;
+    while (i < length && !(command != null && targetFound)) {
+      char c = json.charAt(i);
+      if (c == '{' || c == '[') {
+        ++depth;
+        ++i;
+      } else if (c == '}' || c == ']') {
+        if (--depth <= 0) {
+          break;
+        }
+        ++i;
+      } else if (c == '"') {
+        int end = skipString(json, i);
+        if (end < 0) {
+          return null;
+        }
+        if (depth == 1) {
+          int colon = skipWhitespace(json, end);
+          if (colon < length && json.charAt(colon) == ':') {
+            boolean isCommand = json.regionMatches(i + 1, COMMAND_KEY, 0, COMMAND_KEY.length()) && end - i - 2 == COMMAND_KEY.length();
+            boolean isTarget = json.regionMatches(i + 1, TARGET_KEY, 0, TARGET_KEY.length()) && end - i - 2 == TARGET_KEY.length();
+            if (isCommand || isTarget) {
+              int valueStart = skipWhitespace(json, colon + 1);
+              String value;
+              if (json.startsWith("null", valueStart)) {
+                value = null;
+                end = valueStart + 4;
+              } else if (valueStart < length && json.charAt(valueStart) == '"') {
+                end = skipString(json, valueStart);
+                if (end < 0 || json.lastIndexOf('\\', end - 1) > valueStart) {
+                  return null;
+                }
+                value = json.substring(valueStart + 1, end - 1);
+              } else {
+                return null;
+              }
+              if (isCommand) {
+                command = value;
+              } else {
+                target = value;
+                targetFound = true;
+              }
+            } else {
+              end = colon + 1;
+            }
+          }
+        }
+        i = end;
+      } else {
+        ++i;
+      }
+    }
+    return command == null ? null : new Header(command, target);
+  }
+
+  /**
+   * Returns the index after the closing quote of the string starting at {@code start}, or -1 if it is unterminated.
+   */
+  private static int skipString(String json, int start) {
+    int i = start + 1;
+    int length = json.length();
+    while (i < length) {
+      char c = json.charAt(i);
+      if (c == '\\') {
+        i += 2;
+      } else if (c == '"') {
+        return i + 1;
+      } else {
+        ++i;
+      }
+    }
+    return -1;
+  }
+
+  private static int skipWhitespace(String json, int start) {
+    int i = start;
+    while (i < json.length() && Character.isWhitespace(json.charAt(i))) {
+      ++i;
+    }
+    return i;
+  }
+}
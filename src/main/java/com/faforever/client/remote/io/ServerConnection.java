@@ -0,0 +1,207 @@
+package com.faforever.client.remote.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+
+/**
+ * Non-blocking connection to the lobby server. Incoming data is accumulated in a single reusable direct buffer, from
+ * which complete frames ({@code int} block size followed by a QString, i.e. an {@code int} byte count and UTF-16BE
+ * data) are decoded straight into a {@link String}, without an intermediate {@code byte[]}. Outgoing frames are
+ * written to the same channel.
+ * <p>
+ * {@link #readFrame()} must only be called by a single thread; {@link #writeFrame(byte[])} may be called from any
+ * thread.
+ */
+public class ServerConnection implements Closeable {
+
+  private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+  private static final int FRAME_HEADER_SIZE = 2 * Integer.BYTES;
+  private static final int NULL_STRING_SIZE = -1;
+
+  private final SocketChannel channel;
+  private final Selector readSelector;
+  private final Object writeLock = new Object();
+  private final long readTimeoutMillis;
+  private ByteBuffer readBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+  /** Index of the first byte in {@link #readBuffer} that has not yet been consumed. */
+  private int frameStart;
+  private volatile Selector writeSelector;
+  private volatile boolean closed;
+
+  private ServerConnection(SocketChannel channel, Duration readTimeout) throws IOException {
+    this.channel = channel;
+    this.readTimeoutMillis = readTimeout.toMillis();
+    channel.configureBlocking(false);
+    readSelector = Selector.open();
+    channel.register(readSelector, SelectionKey.OP_READ);
+  }
+
+  /**
+   * Connects to the given server.
+   *
+   * @param connectTimeout how long to wait for the connection to be established, {@link Duration#ZERO} to wait forever
+   * @param readTimeout how long {@link #readFrame()} and {@link #writeFrame(byte[])} may wait for the server before
+   * they fail with a {@link SocketTimeoutException}, {@link Duration#ZERO} to wait forever
+   */
+  public static ServerConnection connect(String host, int port, Duration connectTimeout, Duration readTimeout) throws IOException {
+    SocketChannel channel = SocketChannel.open();
+    try {
+      channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+      channel.socket().connect(new InetSocketAddress(host, port), (int) connectTimeout.toMillis());
+      return new ServerConnection(channel, readTimeout);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public boolean isOpen() {
+    return !closed && channel.isOpen();
+  }
+
+  public InetAddress getLocalAddress() throws IOException {
+    return ((InetSocketAddress) channel.getLocalAddress()).getAddress();
+  }
+
+  public InetSocketAddress getRemoteAddress() throws IOException {
+    return (InetSocketAddress) channel.getRemoteAddress();
+  }
+
+  /**
+   * Blocks until the next complete frame has been received and returns its string, which may be {@code null} if the
+   * server sent a null QString.
+   *
+   * @throws EOFException if the server closed the connection
+   * @throws SocketTimeoutException if no data was received within the read timeout
+   */
+  public String readFrame() throws IOException {
+    while (true) {
+      int available = readBuffer.position() - frameStart;
+      if (available >= FRAME_HEADER_SIZE) {
+        int stringSize = readBuffer.getInt(frameStart + Integer.BYTES);
+        if (stringSize == NULL_STRING_SIZE) {
+          frameStart += FRAME_HEADER_SIZE;
+          return null;
+        }
+        if (stringSize < 0 || stringSize > MAX_FRAME_SIZE || stringSize % 2 != 0) {
+          throw new IOException(String.format("Received invalid frame with string size %d", stringSize));
+        }
+        int frameSize = FRAME_HEADER_SIZE + stringSize;
+        if (available >= frameSize) {
+          // UTF-16BE is exactly Java's char representation in network byte order
+          String frame = readBuffer.slice(frameStart + FRAME_HEADER_SIZE, stringSize).asCharBuffer().toString();
+          frameStart += frameSize;
+          return frame;
+        }
+        ensureCapacity(frameSize);
+      }
+      fill();
+    }
+  }
+
+  private void ensureCapacity(int frameSize) {
+    if (frameSize <= readBuffer.capacity()) {
+      return;
+    }
+    int capacity = readBuffer.capacity();
+    while (capacity < frameSize) {
+      capacity *= 2;
+    }
+    ByteBuffer newBuffer = ByteBuffer.allocateDirect(capacity);
+    newBuffer.put(readBuffer.flip().position(frameStart));
+    readBuffer = newBuffer;
+    frameStart = 0;
+  }
+
+  private void fill() throws IOException {
+    if (frameStart > 0) {
+      readBuffer.flip().position(frameStart);
+      readBuffer.compact();
+      frameStart = 0;
+    }
+
+    while (true) {
+      if (closed) {
+        throw new AsynchronousCloseException();
+      }
+      int read = channel.read(readBuffer);
+      if (read < 0) {
+        throw new EOFException("Connection closed by server");
+      }
+      if (read > 0) {
+        return;
+      }
+      int ready = select(readSelector);
+      if (ready == 0 && !closed && readTimeoutMillis > 0) {
+        throw new SocketTimeoutException(String.format("No data received from server within %d ms", readTimeoutMillis));
+      }
+    }
+  }
+
+  /**
+   * Writes {@code payload} prefixed with its size as a single frame.
+   */
+  public void writeFrame(byte[] payload) throws IOException {
+    ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + payload.length);
+    frame.putInt(payload.length).put(payload).flip();
+
+    synchronized (writeLock) {
+      while (frame.hasRemaining()) {
+        if (closed) {
+          throw new AsynchronousCloseException();
+        }
+        if (channel.write(frame) == 0) {
+          awaitWritable();
+        }
+      }
+    }
+  }
+
+  private void awaitWritable() throws IOException {
+    if (writeSelector == null) {
+      writeSelector = Selector.open();
+      channel.register(writeSelector, SelectionKey.OP_WRITE);
+    }
+    int ready = select(writeSelector);
+    if (ready == 0 && !closed && readTimeoutMillis > 0) {
+      throw new SocketTimeoutException(String.format("Could not write to server within %d ms", readTimeoutMillis));
+    }
+  }
+
+  private int select(Selector selector) throws IOException {
+    try {
+      int ready = selector.select(readTimeoutMillis);
+      selector.selectedKeys().clear();
+      return ready;
+    } catch (ClosedSelectorException e) {
+      throw new AsynchronousCloseException();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    try {
+      channel.close();
+    } finally {
+      readSelector.close();
+      Selector writeSelector = this.writeSelector;
+      if (writeSelector != null) {
+        writeSelector.close();
+      }
+    }
+  }
+}
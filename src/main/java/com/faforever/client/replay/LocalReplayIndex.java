@@ -0,0 +1,206 @@
+package com.faforever.client.replay;
+
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.preferences.PreferencesService;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Index of the local replay files, persisted in the cache directory. For each replay file, it keeps the file's header
+ * together with its size and modification time. A replay file's header is only read again if its size or modification
+ * time changed, so listing the local replays doesn't need to open any replay file that has been indexed before.
+ */
+@Lazy
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class LocalReplayIndex {
+
+  private static final String INDEX_FILE_NAME = "local-replays.json";
+  private static final int INDEX_VERSION = 1;
+  private static final Comparator<Entry> NEWEST_FIRST = Comparator.comparingLong(Entry::getLastModified).reversed()
+      .thenComparing(Entry::getFileName);
+
+  private final ClientProperties clientProperties;
+  private final PreferencesService preferencesService;
+  private final ReplayFileReader replayFileReader;
+  private final Gson gson = ReplayFiles.gson();
+
+  /** Entries by file name, loaded on first use. */
+  private Map<String, Entry> entries;
+
+  /**
+   * Brings the index up to date with the replays directory and returns its entries, newest first. Only replays that
+   * are new or have changed since they were last indexed are read, and only their header.
+   */
+  public synchronized List<Entry> refresh() throws IOException {
+    if (entries == null) {
+      entries = load();
+    }
+
+    Path replaysDirectory = preferencesService.getReplaysDirectory();
+    Map<String, Entry> currentEntries = new HashMap<>();
+    int indexedReplays = 0;
+    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(replaysDirectory, clientProperties.getReplay().getReplayFileGlob())) {
+      for (Path replayFile : directoryStream) {
+        BasicFileAttributes attributes;
+        try {
+          attributes = Files.readAttributes(replayFile, BasicFileAttributes.class);
+        } catch (IOException e) {
+          log.warn("Could not read attributes of replay file '{}'", replayFile, e);
+          continue;
+        }
+        if (!attributes.isRegularFile()) {
+          continue;
+        }
+
+        String fileName = replayFile.getFileName().toString();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        Entry entry = entries.get(fileName);
+        if (entry == null || entry.getSize() != attributes.size() || entry.getLastModified() != lastModified) {
+          entry = new Entry(fileName, attributes.size(), lastModified, readHeader(replayFile));
+          indexedReplays++;
+        }
+        currentEntries.put(fileName, entry);
+      }
+    }
+
+    boolean changed = indexedReplays > 0 || currentEntries.size() != entries.size();
+    entries = currentEntries;
+    if (changed) {
+      log.debug("Indexed {} local replays, {} replays in total", indexedReplays, entries.size());
+      save();
+    }
+
+    List<Entry> result = new ArrayList<>(entries.values());
+    result.sort(NEWEST_FIRST);
+    return result;
+  }
+
+  /**
+   * Removes a replay file from the index, e.g. because it has been moved away.
+   */
+  public synchronized void remove(Path replayFile) {
+    if (entries != null && entries.remove(replayFile.getFileName().toString()) != null) {
+      save();
+    }
+  }
+
+  @Nullable
+  private LocalReplayInfo readHeader(Path replayFile) {
+    try {
+      return replayFileReader.parseMetaData(replayFile);
+    } catch (Exception e) {
+      log.warn("Could not read header of replay file '{}'", replayFile, e);
+      return null;
+    }
+  }
+
+  private Path getIndexFile() {
+    return preferencesService.getCacheDirectory().resolve(INDEX_FILE_NAME);
+  }
+
+  private Map<String, Entry> load() {
+    Map<String, Entry> result = new HashMap<>();
+    Path indexFile = getIndexFile();
+    if (Files.notExists(indexFile)) {
+      return result;
+    }
+
+    IndexFile index;
+    try (Reader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+      index = gson.fromJson(reader, IndexFile.class);
+    } catch (IOException | JsonParseException e) {
+      log.warn("Could not read local replay index '{}', replays will be indexed again", indexFile, e);
+      return result;
+    }
+
+    String replaysDirectory = preferencesService.getReplaysDirectory().toAbsolutePath().toString();
+    if (index == null || index.version != INDEX_VERSION || !replaysDirectory.equals(index.directory) || index.entries == null) {
+      log.debug("Local replay index '{}' is outdated, replays will be indexed again", indexFile);
+      return result;
+    }
+    index.entries.forEach(entry -> result.put(entry.getFileName(), entry));
+    return result;
+  }
+
+  private void save() {
+    IndexFile index = new IndexFile();
+    index.version = INDEX_VERSION;
+    index.directory = preferencesService.getReplaysDirectory().toAbsolutePath().toString();
+    index.entries = new ArrayList<>(entries.values());
+
+    Path indexFile = getIndexFile();
+    try {
+      Files.createDirectories(indexFile.getParent());
+      Path tempFile = Files.createTempFile(indexFile.getParent(), INDEX_FILE_NAME, ".tmp");
+      try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+        gson.toJson(index, writer);
+      }
+      Files.move(tempFile, indexFile, REPLACE_EXISTING, ATOMIC_MOVE);
+    } catch (IOException e) {
+      log.warn("Could not write local replay index '{}'", indexFile, e);
+    }
+  }
+
+  private static class IndexFile {
+    private int version;
+    private String directory;
+    private List<Entry> entries;
+  }
+
+  public static class Entry {
+    private final String fileName;
+    private final long size;
+    private final long lastModified;
+    /** The replay's header, or {@code null} if it could not be read. */
+    @Nullable
+    private final LocalReplayInfo header;
+
+    Entry(String fileName, long size, long lastModified, @Nullable LocalReplayInfo header) {
+      this.fileName = fileName;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.header = header;
+    }
+
+    public String getFileName() {
+      return fileName;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    @Nullable
+    public LocalReplayInfo getHeader() {
+      return header;
+    }
+  }
+}
@@ -3,6 +3,8 @@ package com.faforever.client.replay;
 
 import com.faforever.commons.replay.ReplayData;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 
 public interface ReplayFileReader {
@@ -17,6 +19,12 @@ public interface ReplayFileReader {
    */
   byte[] readRawReplayData(Path replayFile);
 
+  /**
+   * Opens a stream of the binary replay data, which is read from the file and decompressed as the stream is consumed,
+   * so replays can be processed without holding them in memory. The caller is responsible for closing the stream.
+   */
+  InputStream openReplayData(Path replayFile) throws IOException;
+
   /**
    * Parses the actual replay data of the specified file and returns information such as chat messages, game options,
    * executed commands and so on.
@@ -1,34 +1,41 @@
 package com.faforever.client.replay;
 
-import com.faforever.commons.replay.QtCompress;
 import com.faforever.commons.replay.ReplayData;
 import com.faforever.commons.replay.ReplayDataParser;
-import com.google.common.io.BaseEncoding;
 import com.google.gson.Gson;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.compress.compressors.CompressorInputStream;
+import org.apache.commons.compress.compressors.CompressorException;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
-import org.apache.commons.compress.utils.IOUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Arrays;
+import java.util.Base64;
 import java.util.Objects;
+import java.util.zip.InflaterInputStream;
 
 @Lazy
 @Component
 @Slf4j
 public class ReplayFileReaderImpl implements ReplayFileReader {
 
+  private static final int BUFFER_SIZE = 8192;
+  /**
+   * Size of the big-endian {@code int} that precedes the zlib data in Qt's {@code qCompress} format.
+   */
+  private static final int QT_COMPRESS_SIZE_PREFIX = 4;
+
   private final Gson gson;
 
   public ReplayFileReaderImpl() {
@@ -40,23 +47,46 @@ public class ReplayFileReaderImpl implements ReplayFileReader {
   public LocalReplayInfo parseMetaData(Path replayPath) {
     log.debug("Parsing metadata of replay file: {}", replayPath);
 
-    byte[] replayData = Files.readAllBytes(replayPath);
-
-    String header = new String(Arrays.copyOf(replayData, findReplayHeaderEnd(replayData)), StandardCharsets.UTF_8);
-    return gson.fromJson(header, LocalReplayInfo.class);
+    try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(replayPath), BUFFER_SIZE)) {
+      return gson.fromJson(readHeader(inputStream), LocalReplayInfo.class);
+    }
   }
 
-  private int findReplayHeaderEnd(byte[] replayData) {
-    int headerEnd;
-    for (headerEnd = 0; headerEnd < replayData.length; headerEnd++) {
-      if (replayData[headerEnd] == '\n') {
-        return headerEnd;
+  /**
+   * Reads the replay's JSON header, which ends at the first newline, leaving the stream positioned at the start of the
+   * replay body.
+   */
+  private String readHeader(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream header = new ByteArrayOutputStream(BUFFER_SIZE);
+    int b;
+    while ((b = inputStream.read()) != -1) {
+      if (b == '\n') {
+        return header.toString(StandardCharsets.UTF_8);
       }
+      header.write(b);
     }
-
     throw new IllegalArgumentException("Missing separator between replay header and body");
   }
 
+  @Override
+  public InputStream openReplayData(Path replayFile) throws IOException {
+    return openReplayData(replayFile, null);
+  }
+
+  private InputStream openReplayData(Path replayPath, @Nullable LocalReplayInfo localReplayInfo) throws IOException {
+    log.debug("Reading replay file: {}", replayPath);
+
+    InputStream inputStream = new BufferedInputStream(Files.newInputStream(replayPath), BUFFER_SIZE);
+    try {
+      String header = readHeader(inputStream);
+      LocalReplayInfo metadata = localReplayInfo != null ? localReplayInfo : gson.fromJson(header, LocalReplayInfo.class);
+      return decompressing(inputStream, metadata);
+    } catch (IOException | RuntimeException e) {
+      inputStream.close();
+      throw e;
+    }
+  }
+
   @Override
   @SneakyThrows
   public byte[] readRawReplayData(Path replayFile) {
@@ -65,35 +95,40 @@ public class ReplayFileReaderImpl implements ReplayFileReader {
 
   @SneakyThrows
   public byte[] readRawReplayData(Path replayPath, @Nullable LocalReplayInfo localReplayInfo) {
-    log.debug("Reading replay file: {}", replayPath);
-
-    final LocalReplayInfo metadata;
-    if (localReplayInfo == null) {
-      metadata = parseMetaData(replayPath);
-    } else {
-      metadata = localReplayInfo;
+    try (InputStream inputStream = openReplayData(replayPath, localReplayInfo)) {
+      return inputStream.readAllBytes();
     }
-
-    byte[] replayData = Files.readAllBytes(replayPath);
-    int replayHeaderEnd = findReplayHeaderEnd(replayData);
-
-    return decompress(Arrays.copyOfRange(replayData, replayHeaderEnd + 1, replayData.length), metadata);
   }
 
   @SneakyThrows
   public byte[] decompress(byte[] data, @NotNull LocalReplayInfo metadata) {
+    try (InputStream inputStream = decompressing(new ByteArrayInputStream(data), metadata)) {
+      return inputStream.readAllBytes();
+    }
+  }
+
+  /**
+   * Wraps the compressed replay body so that it is decoded and decompressed as it is read. {@code body} must support
+   * {@link InputStream#mark(int)}.
+   */
+  private InputStream decompressing(InputStream body, @NotNull LocalReplayInfo metadata) throws IOException {
     CompressionType compressionType = Objects.requireNonNullElse(metadata.getCompression(), CompressionType.QTCOMPRESS);
 
     return switch (compressionType) {
-      case QTCOMPRESS -> QtCompress.qUncompress(BaseEncoding.base64().decode(new String(data)));
+      case QTCOMPRESS -> {
+        // Base64 of Qt's qCompress format, which is the uncompressed size followed by a zlib stream
+        InputStream decoded = Base64.getMimeDecoder().wrap(body);
+        if (decoded.readNBytes(QT_COMPRESS_SIZE_PREFIX).length < QT_COMPRESS_SIZE_PREFIX) {
+          throw new EOFException("Replay body is too short");
+        }
+        yield new InflaterInputStream(decoded);
+      }
       case ZSTD -> {
-        ByteArrayInputStream arrayInputStream = new ByteArrayInputStream(data);
-        CompressorInputStream compressorInputStream = new CompressorStreamFactory()
-            .createCompressorInputStream(arrayInputStream);
-
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        IOUtils.copy(compressorInputStream, out);
-        yield out.toByteArray();
+        try {
+          yield new CompressorStreamFactory().createCompressorInputStream(body);
+        } catch (CompressorException e) {
+          throw new IOException("Could not decompress replay body", e);
+        }
       }
       case UNKNOWN -> throw new IOException("Unknown replay format in replay file");
     };
@@ -0,0 +1,231 @@
+package com.faforever.client.replay;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+
+/**
+ * Relays a live replay stream to the remote replay server over a non-blocking channel, driven by the selector loop of
+ * the recording thread so that relaying never blocks recording.
+ * <p>
+ * Live data is queued in a bounded buffer. If the server doesn't keep up and the buffer would overflow, or if the
+ * connection fails, the relay disconnects and reconnects after a delay that doubles with each failed attempt. After
+ * (re)connecting, the stream is sent from its beginning, read back from the segments of the replay file, before the
+ * relay switches back to live data.
+ * <p>
+ * Not thread safe, only to be used on the recording thread.
+ */
+@Slf4j
+class ReplayRelay implements Closeable {
+
+  private enum State {
+    DISCONNECTED, CONNECTING, CATCHING_UP, LIVE
+  }
+
+  private final InetSocketAddress address;
+  private final Selector selector;
+  private final SegmentedReplayFile replayFile;
+  private final Duration reconnectDelay;
+  private final Duration maxReconnectDelay;
+  /** Data waiting to be sent, in read mode. */
+  private final ByteBuffer outgoing;
+
+  private State state = State.DISCONNECTED;
+  private SocketChannel channel;
+  private SelectionKey selectionKey;
+  /** The stream prefix to send before the replay data, see {@link #setStreamPrefix(ByteBuffer)}. */
+  private byte[] streamPrefix = new byte[0];
+  /** Index of the next replay file segment to send while catching up. */
+  private int nextSegment;
+  /** The unsent rest of the segment that is being sent while catching up. */
+  private ByteBuffer catchUpData;
+  private long nextConnectAttempt;
+  private Duration currentReconnectDelay;
+
+  ReplayRelay(InetSocketAddress address, Selector selector, SegmentedReplayFile replayFile, int bufferSize,
+              Duration reconnectDelay, Duration maxReconnectDelay) {
+    this.address = address;
+    this.selector = selector;
+    this.replayFile = replayFile;
+    this.reconnectDelay = reconnectDelay;
+    this.maxReconnectDelay = maxReconnectDelay;
+    this.currentReconnectDelay = reconnectDelay;
+    outgoing = ByteBuffer.allocateDirect(bufferSize).flip();
+  }
+
+  /**
+   * Sets the bytes that precede the replay data in the live replay protocol. They are not part of the replay file but
+   * need to be sent first on each connection.
+   */
+  void setStreamPrefix(ByteBuffer prefix) {
+    streamPrefix = new byte[prefix.remaining()];
+    prefix.get(streamPrefix);
+  }
+
+  /**
+   * Queues the remaining bytes of {@code data}, which must already have been written to the replay file, for relaying.
+   */
+  void relay(ByteBuffer data) {
+    if (state != State.LIVE) {
+      // Not connected, or the data will be sent from the replay file when catching up
+      return;
+    }
+    outgoing.compact();
+    if (outgoing.remaining() < data.remaining()) {
+      outgoing.flip();
+      disconnect("Replay server can't keep up with the replay stream", null);
+      return;
+    }
+    outgoing.put(data).flip();
+    selectionKey.interestOps(SelectionKey.OP_WRITE);
+  }
+
+  /**
+   * Connects to the replay server if disconnected and the reconnect delay has passed.
+   *
+   * @return the time in millis until this method needs to be called again, or {@code 0} if there is no deadline
+   */
+  long tick(long now) {
+    if (state != State.DISCONNECTED) {
+      return 0;
+    }
+    if (now < nextConnectAttempt) {
+      return nextConnectAttempt - now;
+    }
+    try {
+      log.debug("Connecting to replay server at '{}'", address);
+      channel = SocketChannel.open();
+      channel.configureBlocking(false);
+      selectionKey = channel.register(selector, SelectionKey.OP_CONNECT, this);
+      state = State.CONNECTING;
+      if (channel.connect(address)) {
+        onConnected();
+      }
+    } catch (IOException e) {
+      disconnect("Could not connect to replay server", e);
+    }
+    return state == State.DISCONNECTED ? Math.max(1, nextConnectAttempt - now) : 0;
+  }
+
+  /**
+   * Handles a ready operation of this relay's channel.
+   */
+  void handle(SelectionKey key) {
+    try {
+      if (key.isConnectable()) {
+        if (channel.finishConnect()) {
+          onConnected();
+        }
+      } else if (key.isWritable()) {
+        flush();
+      }
+    } catch (IOException e) {
+      disconnect("Connection to replay server lost", e);
+    }
+  }
+
+  /**
+   * Returns whether all replay data written to the replay file so far has been sent.
+   */
+  boolean isDrained() {
+    return state == State.LIVE && !outgoing.hasRemaining();
+  }
+
+  private void onConnected() throws IOException {
+    log.debug("Connected to replay server at '{}', sending {} bytes of recorded replay data", address,
+        replayFile.getCommittedRawLength());
+    state = State.CATCHING_UP;
+    nextSegment = 0;
+    catchUpData = null;
+    outgoing.clear();
+    outgoing.put(streamPrefix).flip();
+    selectionKey.interestOps(SelectionKey.OP_WRITE);
+    flush();
+  }
+
+  private void flush() throws IOException {
+    while (true) {
+      ByteBuffer source;
+      if (outgoing.hasRemaining()) {
+        source = outgoing;
+      } else if (state == State.CATCHING_UP && loadCatchUpData()) {
+        source = catchUpData;
+      } else {
+        selectionKey.interestOps(0);
+        return;
+      }
+      if (channel.write(source) == 0) {
+        // The socket's send buffer is full, wait until it's writable again
+        return;
+      }
+    }
+  }
+
+  /**
+   * Makes sure {@link #catchUpData} holds unsent data by reading the next replay file segment if needed. If all
+   * segments have been sent, switches to live data.
+   *
+   * @return whether there is data to send
+   */
+  private boolean loadCatchUpData() throws IOException {
+    if (catchUpData != null && catchUpData.hasRemaining()) {
+      return true;
+    }
+    if (nextSegment == replayFile.getSegments().size()) {
+      // Make sure everything that has been recorded while catching up is sent, too
+      replayFile.commit();
+    }
+    if (nextSegment == replayFile.getSegments().size()) {
+      log.debug("Relaying live replay data to '{}'", address);
+      state = State.LIVE;
+      catchUpData = null;
+      currentReconnectDelay = reconnectDelay;
+      return false;
+    }
+    catchUpData = ByteBuffer.wrap(replayFile.readSegment(replayFile.getSegments().get(nextSegment++)));
+    return true;
+  }
+
+  private void disconnect(String reason, @Nullable Exception e) {
+    if (e != null) {
+      log.warn("{} ({}), reconnecting in {}", reason, e.getMessage(), currentReconnectDelay);
+    } else {
+      log.warn("{}, reconnecting in {}", reason, currentReconnectDelay);
+    }
+    closeChannel();
+    state = State.DISCONNECTED;
+    nextConnectAttempt = System.currentTimeMillis() + currentReconnectDelay.toMillis();
+    Duration doubled = currentReconnectDelay.multipliedBy(2);
+    currentReconnectDelay = doubled.compareTo(maxReconnectDelay) > 0 ? maxReconnectDelay : doubled;
+    outgoing.clear().flip();
+    catchUpData = null;
+  }
+
+  private void closeChannel() {
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      log.debug("Could not close connection to replay server", e);
+    }
+    channel = null;
+    selectionKey = null;
+  }
+
+  @Override
+  public void close() {
+    closeChannel();
+    state = State.DISCONNECTED;
+    catchUpData = null;
+  }
+}
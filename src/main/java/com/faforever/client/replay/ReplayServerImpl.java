@@ -3,25 +3,34 @@ package com.faforever.client.replay;
 import com.faforever.client.config.ClientProperties;
 import com.faforever.client.game.Game;
 import com.faforever.client.i18n.I18n;
+import com.faforever.client.notification.Action;
 import com.faforever.client.notification.NotificationService;
+import com.faforever.client.notification.PersistentNotification;
+import com.faforever.client.notification.Severity;
+import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.remote.domain.GameStatus;
 import com.faforever.client.update.ClientUpdateService;
 import com.faforever.client.user.UserService;
-import com.google.common.primitives.Bytes;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.Nullable;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
@@ -34,15 +43,14 @@ import static com.github.nocatch.NoCatch.noCatch;
 public class ReplayServerImpl implements ReplayServer {
 
   /**
-   * Size for buffer used to send data to the live replay server. The buffer needs to be large enough to not flush too
-   * many times (after all, it's a TCP stream so we don't want to send single bytes) but small enough to not delay data
-   * for too long. I don't have any data right now but it can be expected that the replay stream produces about 70 bytes
-   * per second (See #973).
+   * Size of the buffer the replay stream is read into. The stream only produces about 70 bytes per second (See #973),
+   * so this is mostly relevant for the burst at the start of a game.
    */
-  private static final int REPLAY_BUFFER_SIZE = 128;
+  private static final int READ_BUFFER_SIZE = 8192;
 
   /**
-   * This is a prefix used in the FA live replay protocol that needs to be stripped away when storing to a file.
+   * This is a prefix used in the FA live replay protocol that needs to be stripped away when storing to a file. It
+   * ends with the first {@code 0x00}.
    */
   private static final byte[] LIVE_REPLAY_PREFIX = new byte[]{'P', '/'};
 
@@ -50,12 +58,12 @@ public class ReplayServerImpl implements ReplayServer {
   private final NotificationService notificationService;
   private final I18n i18n;
   private final UserService userService;
-  private final ReplayFileWriter replayFileWriter;
   private final ClientUpdateService clientUpdateService;
+  private final PreferencesService preferencesService;
 
   private LocalReplayInfo replayInfo;
-  private ServerSocket serverSocket;
-  private boolean stoppedGracefully;
+  private volatile ServerSocketChannel serverChannel;
+  private volatile boolean stoppedGracefully;
 
   /**
    * Returns the current millis the same way as python does since this is what's stored in the replay files *yay*.
@@ -66,51 +74,43 @@ public class ReplayServerImpl implements ReplayServer {
 
   @Override
   public void stop() {
-    if (serverSocket == null) {
+    if (serverChannel == null) {
       return;
     }
     stoppedGracefully = true;
-    noCatch(() -> serverSocket.close());
+    noCatch(() -> serverChannel.close());
   }
 
   @Override
   public CompletableFuture<Integer> start(int gameId, Supplier<Game> gameSupplier) {
     stoppedGracefully = false;
     CompletableFuture<Integer> future = new CompletableFuture<>();
-    future.complete(0);
+    Thread thread = new Thread(() -> {
+      SegmentedReplayFile.recoverPartFiles(preferencesService.getReplaysDirectory(), clientProperties.getReplay().getReplayFileGlob());
+
+      try (ServerSocketChannel localChannel = ServerSocketChannel.open()) {
+        localChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        int port = ((InetSocketAddress) localChannel.getLocalAddress()).getPort();
+        log.debug("Opening local replay server on port {}", port);
+        this.serverChannel = localChannel;
+        future.complete(port);
+
+        recordAndRelay(gameId, localChannel, gameSupplier);
+      } catch (IOException e) {
+        if (stoppedGracefully) {
+          return;
+        }
+        future.completeExceptionally(e);
+        log.warn("Error in replay server", e);
+        notificationService.addNotification(new PersistentNotification(
+            i18n.get("replayServer.listeningFailed"),
+            Severity.WARN, Collections.singletonList(new Action(i18n.get("replayServer.retry"), event -> start(gameId, gameSupplier)))
+        ));
+      }
+    }, "replay-server");
+    thread.setDaemon(true);
+    thread.start();
     return future;
-//    new Thread(() -> {
-//      String remoteReplayServerHost = clientProperties.getReplay().getRemoteHost();
-//      Integer remoteReplayServerPort = clientProperties.getReplay().getRemotePort();
-//
-//      log.debug("Connecting to replay server at '{}:{}'", remoteReplayServerHost, remoteReplayServerPort);
-//
-//      try (ServerSocket localSocket = new ServerSocket(0)) {
-//        log.debug("Opening local replay server on port {}", localSocket.getLocalPort());
-//        this.serverSocket = localSocket;
-//        future.complete(serverSocket.getLocalPort());
-//
-//        try (Socket remoteReplayServerSocket = new Socket(remoteReplayServerHost, remoteReplayServerPort);
-//             DataOutputStream fafReplayOutputStream = new DataOutputStream(remoteReplayServerSocket.getOutputStream())) {
-//          recordAndRelay(gameId, localSocket, fafReplayOutputStream, gameSupplier);
-//        } catch (ConnectException e) {
-//          log.warn("Could not connect to remote replay server", e);
-//          notificationService.addNotification(new PersistentNotification(i18n.get("replayServer.unreachable"), Severity.WARN));
-//          recordAndRelay(gameId, localSocket, null, gameSupplier);
-//        }
-//      } catch (IOException e) {
-//        if (stoppedGracefully) {
-//          return;
-//        }
-//        future.completeExceptionally(e);
-//        log.warn("Error in replay server", e);
-//        notificationService.addNotification(new PersistentNotification(
-//            i18n.get("replayServer.listeningFailed"),
-//            Severity.WARN, Collections.singletonList(new Action(i18n.get("replayServer.retry"), event -> start(gameId, gameSupplier)))
-//        ));
-//      }
-//    }).start();
-//    return future;
   }
 
   private void initReplayInfo(int uid) {
@@ -121,56 +121,188 @@ public class ReplayServerImpl implements ReplayServer {
     replayInfo.getVersionInfo().put("lobby",
         String.format("dfaf-%s", clientUpdateService.getCurrentVersion())
     );
+    replayInfo.setRecorder(userService.getUsername());
+  }
+
+  /**
+   * Records the replay stream of the game that connects to {@code serverChannel} into a replay file as it arrives, and
+   * relays it to the remote replay server if one is configured. Reading, writing and relaying all happen on this
+   * thread, driven by a selector, so a slow or unreachable replay server never holds up recording.
+   */
+  private void recordAndRelay(int uid, ServerSocketChannel serverChannel, Supplier<Game> onGameInfoFinished) throws IOException {
+    ClientProperties.Replay properties = clientProperties.getReplay();
+
+    try (SocketChannel gameChannel = serverChannel.accept();
+         Selector selector = Selector.open()) {
+      Game game = onGameInfoFinished.get();
+      log.debug("Accepted connection from {}", gameChannel.getRemoteAddress());
+
+      initReplayInfo(uid);
+      replayInfo.updateFromGameInfoBean(game);
+      Path replayPath = preferencesService.getReplaysDirectory()
+          .resolve(String.format(properties.getReplayFileFormat(), uid, replayInfo.getRecorder()));
+      SegmentedReplayFile replayFile = SegmentedReplayFile.create(replayPath, replayInfo, properties.getMaxSegmentSize());
+
+      try (ReplayRelay relay = createRelay(selector, replayFile)) {
+        gameChannel.configureBlocking(false);
+        gameChannel.register(selector, SelectionKey.OP_READ);
+        record(gameChannel, selector, replayFile, relay);
+
+        log.debug("FAF has disconnected, finishing replay file");
+        replayFile.commit();
+        if (relay != null) {
+          drain(selector, relay);
+        }
+        finishReplayInfo(game);
+        replayFile.finish(replayInfo);
+      } catch (IOException | RuntimeException e) {
+        log.warn("Error while recording replay, keeping incomplete replay in '{}'", replayFile.getPartFile(), e);
+        replayFile.close();
+        throw e;
+      }
+    }
+  }
+
+  @Nullable
+  private ReplayRelay createRelay(Selector selector, SegmentedReplayFile replayFile) {
+    ClientProperties.Replay properties = clientProperties.getReplay();
+    if (StringUtils.isBlank(properties.getRemoteHost())) {
+      return null;
+    }
+    return new ReplayRelay(
+        new InetSocketAddress(properties.getRemoteHost(), properties.getRemotePort()),
+        selector,
+        replayFile,
+        properties.getRelayBufferSize(),
+        properties.getRelayReconnectDelay(),
+        properties.getRelayMaxReconnectDelay()
+    );
   }
 
   /**
-   * @param fafReplayOutputStream if {@code null}, the replay won't be relayed
+   * Reads the replay stream until the game disconnects. The live replay prefix is stripped by advancing the read
+   * buffer past it, so the buffer is handed to the replay file and the relay without copying.
    */
-  private void recordAndRelay(int uid, ServerSocket serverSocket, @Nullable OutputStream fafReplayOutputStream, Supplier<Game> onGameInfoFinished) throws IOException {
-    Socket socket = serverSocket.accept();
-    Game game = onGameInfoFinished.get();
-    log.debug("Accepted connection from {}", socket.getRemoteSocketAddress());
-
-    initReplayInfo(uid);
-
-    ByteArrayOutputStream replayData = new ByteArrayOutputStream();
-
-    boolean connectionToServerLost = false;
-    byte[] buffer = new byte[REPLAY_BUFFER_SIZE];
-    try (InputStream inputStream = socket.getInputStream()) {
-      int bytesRead;
-      while ((bytesRead = inputStream.read(buffer)) != -1) {
-        if (replayData.size() == 0 && Bytes.indexOf(buffer, LIVE_REPLAY_PREFIX) != -1) {
-          int dataBeginIndex = Bytes.indexOf(buffer, (byte) 0x00) + 1;
-          replayData.write(buffer, dataBeginIndex, bytesRead - dataBeginIndex);
-        } else {
-          replayData.write(buffer, 0, bytesRead);
+  private void record(SocketChannel gameChannel, Selector selector, SegmentedReplayFile replayFile, @Nullable ReplayRelay relay) throws IOException {
+    long segmentInterval = clientProperties.getReplay().getSegmentInterval().toMillis();
+    ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    ByteArrayOutputStream streamPrefix = null;
+    boolean streamStarted = false;
+    long nextCommit = System.currentTimeMillis() + segmentInterval;
+
+    while (true) {
+      long now = System.currentTimeMillis();
+      if (now >= nextCommit) {
+        replayFile.commit();
+        nextCommit = now + segmentInterval;
+      }
+      long timeout = nextCommit - now;
+      if (relay != null && streamStarted) {
+        long relayTimeout = relay.tick(now);
+        if (relayTimeout > 0) {
+          timeout = Math.min(timeout, relayTimeout);
+        }
+      }
+
+      selector.select(timeout);
+      for (Iterator<SelectionKey> iterator = selector.selectedKeys().iterator(); iterator.hasNext(); ) {
+        SelectionKey key = iterator.next();
+        iterator.remove();
+        if (!key.isValid()) {
+          continue;
+        }
+        if (key.attachment() instanceof ReplayRelay keyRelay) {
+          keyRelay.handle(key);
+          continue;
         }
 
-        if (!connectionToServerLost && fafReplayOutputStream != null) {
-          try {
-            fafReplayOutputStream.write(buffer, 0, bytesRead);
-          } catch (SocketException e) {
-            // In case we lose connection to the replay server, just stop writing to it
-            log.warn("Connection to replay server lost ({})", e.getMessage());
-            connectionToServerLost = true;
+        buffer.clear();
+        if (gameChannel.read(buffer) == -1) {
+          key.cancel();
+          return;
+        }
+        buffer.flip();
+
+        if (!streamStarted && streamPrefix == null && startsWith(buffer, LIVE_REPLAY_PREFIX)) {
+          streamPrefix = new ByteArrayOutputStream();
+        }
+        if (streamPrefix != null) {
+          if (!readStreamPrefix(buffer, streamPrefix)) {
+            continue;
+          }
+          if (relay != null) {
+            relay.setStreamPrefix(ByteBuffer.wrap(streamPrefix.toByteArray()));
           }
+          streamPrefix = null;
         }
+        streamStarted = true;
+
+        int dataStart = buffer.position();
+        replayFile.write(buffer);
+        if (relay != null) {
+          relay.relay(buffer.position(dataStart));
+        }
+      }
+    }
+  }
+
+  /**
+   * Moves the bytes of the live replay prefix from {@code buffer} to {@code streamPrefix}.
+   *
+   * @return {@code true} if the end of the prefix has been reached
+   */
+  private static boolean readStreamPrefix(ByteBuffer buffer, ByteArrayOutputStream streamPrefix) {
+    while (buffer.hasRemaining()) {
+      byte b = buffer.get();
+      streamPrefix.write(b);
+      if (b == 0x00) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean startsWith(ByteBuffer buffer, byte[] prefix) {
+    if (buffer.remaining() < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (buffer.get(buffer.position() + i) != prefix[i]) {
+        return false;
       }
-    } catch (Exception e) {
-      log.warn("Error while recording replay", e);
-      throw e;
     }
+    return true;
+  }
 
-    log.debug("FAF has disconnected, writing replay data to file");
-    finishReplayInfo(game);
-    replayFileWriter.writeReplayDataToFile(replayData, replayInfo);
+  /**
+   * Gives the relay some time to send the rest of the replay to the remote replay server.
+   */
+  private void drain(Selector selector, ReplayRelay relay) throws IOException {
+    long deadline = System.currentTimeMillis() + clientProperties.getReplay().getRelayDrainTimeout().toMillis();
+    long now;
+    while (!relay.isDrained() && (now = System.currentTimeMillis()) < deadline) {
+      long timeout = deadline - now;
+      long relayTimeout = relay.tick(now);
+      if (relayTimeout > 0) {
+        timeout = Math.min(timeout, relayTimeout);
+      }
+      selector.select(timeout);
+      for (Iterator<SelectionKey> iterator = selector.selectedKeys().iterator(); iterator.hasNext(); ) {
+        SelectionKey key = iterator.next();
+        iterator.remove();
+        if (key.isValid() && key.attachment() instanceof ReplayRelay) {
+          relay.handle(key);
+        }
+      }
+    }
+    if (!relay.isDrained()) {
+      log.warn("Could not relay the end of the replay in time");
+    }
   }
 
   private void finishReplayInfo(Game game) {
     replayInfo.updateFromGameInfoBean(game);
     replayInfo.setGameEnd(pythonTime());
-    replayInfo.setRecorder(userService.getUsername());
     replayInfo.setState(GameStatus.ENDED);
     replayInfo.setComplete(true);
   }
@@ -41,6 +41,7 @@ import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -59,12 +60,10 @@ import java.net.URI;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -72,8 +71,6 @@ import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import static com.faforever.client.notification.Severity.WARN;
 import static com.faforever.commons.api.elide.ElideNavigator.qBuilder;
@@ -110,6 +107,7 @@ public class ReplayService implements InitializingBean {
   private final PreferencesService preferencesService;
   private final UserService userService;
   private final ReplayFileReader replayFileReader;
+  private final LocalReplayIndex localReplayIndex;
   private final NotificationService notificationService;
   private final DownloadService downloadService;
   private final GameService gameService;
@@ -179,8 +177,6 @@ public class ReplayService implements InitializingBean {
 
   @Async
   public CompletableFuture<Tuple<List<Replay>, Integer>> loadLocalReplayPage(int pageSize, int page) throws IOException {
-    String replayFileGlob = clientProperties.getReplay().getReplayFileGlob();
-
     Path replaysDirectory = preferencesService.getReplaysDirectory();
     if (Files.notExists(replaysDirectory)) {
       noCatch(() -> createDirectories(replaysDirectory));
@@ -188,34 +184,34 @@ public class ReplayService implements InitializingBean {
 
     int skippedReplays = pageSize * (page - 1);
 
-    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(replaysDirectory, replayFileGlob)) {
-      Stream<Path> filesStream = StreamSupport.stream(directoryStream.spliterator(), false)
-          .sorted(Comparator.comparing(path -> noCatch(() -> Files.getLastModifiedTime((Path) path))).reversed());
-
-      List<Path> filesList = filesStream.collect(Collectors.toList());
-      int numPages = filesList.size() / pageSize;
-
-      List<CompletableFuture<Replay>> replayFutures = filesList.stream()
-          .skip(skippedReplays)
-          .limit(pageSize)
-          .map(this::tryLoadingLocalReplay)
-          .filter(e -> !e.isCompletedExceptionally())
-          .collect(Collectors.toList());
-
-      return CompletableFuture.allOf(replayFutures.toArray(new CompletableFuture[0]))
-          .thenApply(ignoredVoid ->
-              replayFutures.stream()
-                  .map(CompletableFuture::join)
-                  .filter(Objects::nonNull)
-                  .collect(Collectors.toList()))
-          .thenApply(replays -> new Tuple<>(replays, numPages));
-    }
+    List<LocalReplayIndex.Entry> indexEntries = localReplayIndex.refresh();
+    int numPages = indexEntries.size() / pageSize;
+
+    List<CompletableFuture<Replay>> replayFutures = indexEntries.stream()
+        .skip(skippedReplays)
+        .limit(pageSize)
+        .map(entry -> tryLoadingLocalReplay(replaysDirectory.resolve(entry.getFileName()), entry.getHeader()))
+        .filter(e -> !e.isCompletedExceptionally())
+        .collect(Collectors.toList());
+
+    return CompletableFuture.allOf(replayFutures.toArray(new CompletableFuture[0]))
+        .thenApply(ignoredVoid ->
+            replayFutures.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()))
+        .thenApply(replays -> new Tuple<>(replays, numPages));
   }
 
 
-  private CompletableFuture<Replay> tryLoadingLocalReplay(Path replayFile) {
+  /**
+   * @param replayInfo the replay's header as indexed, {@code null} if it could not be read
+   */
+  private CompletableFuture<Replay> tryLoadingLocalReplay(Path replayFile, @Nullable LocalReplayInfo replayInfo) {
     try {
-      LocalReplayInfo replayInfo = replayFileReader.parseMetaData(replayFile);
+      if (replayInfo == null) {
+        throw new IllegalArgumentException("Replay header could not be read");
+      }
 
       CompletableFuture<FeaturedMod> featuredModFuture = modService.getFeaturedMod(replayInfo.getFeaturedMod());
       FeaturedMod featuredMod = featuredModFuture.join();
@@ -231,6 +227,7 @@ public class ReplayService implements InitializingBean {
     } catch (Exception e) {
       logger.warn("Could not read replay file '{}'", replayFile, e);
       moveCorruptedReplayFile(replayFile);
+      localReplayIndex.remove(replayFile);
       return CompletableFuture.completedFuture(null);
     }
   }
@@ -0,0 +1,238 @@
+package com.faforever.client.replay;
+
+import com.github.luben.zstd.Zstd;
+import com.google.gson.Gson;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A replay file that is written while the game is still running. Recorded data is buffered up to a maximum segment size
+ * and then appended as an independent zstd frame to a {@value #PART_SUFFIX} file which starts with a preliminary
+ * header. Since the part file is a valid (incomplete) replay after every {@link #commit()}, at most one segment is lost
+ * if the client crashes. {@link #finish(LocalReplayInfo)} writes the final header and moves the replay to its final
+ * name atomically.
+ * <p>
+ * Not thread safe.
+ */
+@Slf4j
+class SegmentedReplayFile implements Closeable {
+
+  static final String PART_SUFFIX = ".part";
+  private static final int COMPRESSION_LEVEL = 3;
+
+  private final Path replayFile;
+  private final Path partFile;
+  private final FileChannel channel;
+  private final Gson gson = ReplayFiles.gson();
+  /** Data that has been recorded but not written to the file yet. */
+  private final byte[] pending;
+  private final List<Segment> segments = new ArrayList<>();
+  private final long bodyOffset;
+  private int pendingLength;
+  private long committedRawLength;
+
+  private SegmentedReplayFile(Path replayFile, Path partFile, FileChannel channel, long bodyOffset, int maxSegmentSize) {
+    this.replayFile = replayFile;
+    this.partFile = partFile;
+    this.channel = channel;
+    this.bodyOffset = bodyOffset;
+    this.pending = new byte[maxSegmentSize];
+  }
+
+  /**
+   * Creates the part file of {@code replayFile} and writes the preliminary header to it.
+   */
+  static SegmentedReplayFile create(Path replayFile, LocalReplayInfo preliminaryHeader, int maxSegmentSize) throws IOException {
+    Files.createDirectories(replayFile.getParent());
+    Path partFile = replayFile.resolveSibling(replayFile.getFileName() + PART_SUFFIX);
+
+    preliminaryHeader.setCompression(CompressionType.ZSTD);
+    preliminaryHeader.setComplete(false);
+    ByteBuffer header = ByteBuffer.wrap((ReplayFiles.gson().toJson(preliminaryHeader) + '\n').getBytes(StandardCharsets.UTF_8));
+
+    FileChannel channel = FileChannel.open(partFile, CREATE, TRUNCATE_EXISTING, READ, WRITE);
+    try {
+      writeFully(channel, header);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    log.debug("Recording replay to '{}'", partFile);
+    return new SegmentedReplayFile(replayFile, partFile, channel, header.capacity(), maxSegmentSize);
+  }
+
+  /**
+   * Renames the part files left behind by recordings that were never finished, e.g. because the client crashed, to
+   * regular replay files. Their headers mark them as incomplete.
+   */
+  static void recoverPartFiles(Path replaysDirectory, String replayFileGlob) {
+    if (Files.notExists(replaysDirectory)) {
+      return;
+    }
+    try (DirectoryStream<Path> partFiles = Files.newDirectoryStream(replaysDirectory, replayFileGlob + PART_SUFFIX)) {
+      for (Path partFile : partFiles) {
+        String fileName = partFile.getFileName().toString();
+        Path replayFile = partFile.resolveSibling(fileName.substring(0, fileName.length() - PART_SUFFIX.length()));
+        if (Files.exists(replayFile)) {
+          continue;
+        }
+        log.info("Recovering unfinished replay '{}'", replayFile);
+        Files.move(partFile, replayFile, ATOMIC_MOVE);
+      }
+    } catch (IOException e) {
+      log.warn("Could not recover unfinished replays in '{}'", replaysDirectory, e);
+    }
+  }
+
+  Path getPartFile() {
+    return partFile;
+  }
+
+  /**
+   * Records the remaining bytes of {@code data}, writing full segments to the file as needed.
+   */
+  void write(ByteBuffer data) throws IOException {
+    while (data.hasRemaining()) {
+      int length = Math.min(data.remaining(), pending.length - pendingLength);
+      data.get(pending, pendingLength, length);
+      pendingLength += length;
+      if (pendingLength == pending.length) {
+        commit();
+      }
+    }
+  }
+
+  /**
+   * Writes the recorded data that hasn't been written yet to the file as a new segment.
+   */
+  void commit() throws IOException {
+    if (pendingLength == 0) {
+      return;
+    }
+    byte[] frame = Zstd.compress(Arrays.copyOf(pending, pendingLength), COMPRESSION_LEVEL);
+    long offset = channel.size();
+    writeFully(channel, ByteBuffer.wrap(frame));
+    segments.add(new Segment(offset, frame.length, pendingLength));
+    committedRawLength += pendingLength;
+    pendingLength = 0;
+  }
+
+  /**
+   * Returns the segments written so far, oldest first.
+   */
+  List<Segment> getSegments() {
+    return Collections.unmodifiableList(segments);
+  }
+
+  /**
+   * Returns the number of uncompressed bytes that have been written to the file.
+   */
+  long getCommittedRawLength() {
+    return committedRawLength;
+  }
+
+  /**
+   * Reads and decompresses a segment.
+   */
+  byte[] readSegment(Segment segment) throws IOException {
+    ByteBuffer frame = ByteBuffer.allocate(segment.compressedLength);
+    while (frame.hasRemaining()) {
+      if (channel.read(frame, segment.offset + frame.position()) == -1) {
+        throw new EOFException("Replay segment is truncated: " + partFile);
+      }
+    }
+    return Zstd.decompress(frame.array(), segment.rawLength);
+  }
+
+  /**
+   * Writes the remaining data, then writes the replay with the final header and moves it to its final name. The part
+   * file is deleted afterwards.
+   *
+   * @return the final replay file
+   */
+  Path finish(LocalReplayInfo header) throws IOException {
+    commit();
+    header.setCompression(CompressionType.ZSTD);
+    byte[] headerBytes = (gson.toJson(header) + '\n').getBytes(StandardCharsets.UTF_8);
+
+    Path temporaryFile = Files.createTempFile(replayFile.getParent(), replayFile.getFileName().toString(), ".tmp");
+    try (FileChannel target = FileChannel.open(temporaryFile, WRITE, TRUNCATE_EXISTING)) {
+      writeFully(target, ByteBuffer.wrap(headerBytes));
+      long position = bodyOffset;
+      long end = channel.size();
+      while (position < end) {
+        position += channel.transferTo(position, end - position, target);
+      }
+      target.force(true);
+    } catch (IOException e) {
+      Files.deleteIfExists(temporaryFile);
+      throw e;
+    }
+
+    Files.move(temporaryFile, replayFile, REPLACE_EXISTING, ATOMIC_MOVE);
+    channel.close();
+    Files.delete(partFile);
+    log.info("Wrote replay file '{}' ({} bytes of replay data)", replayFile, committedRawLength);
+    return replayFile;
+  }
+
+  /**
+   * Writes the remaining data and closes the part file, which is kept as an incomplete replay.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!channel.isOpen()) {
+      return;
+    }
+    try {
+      commit();
+    } finally {
+      channel.close();
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * A zstd frame in the part file.
+   */
+  static class Segment {
+    private final long offset;
+    private final int compressedLength;
+    private final int rawLength;
+
+    private Segment(long offset, int compressedLength, int rawLength) {
+      this.offset = offset;
+      this.compressedLength = compressedLength;
+      this.rawLength = rawLength;
+    }
+
+    int getRawLength() {
+      return rawLength;
+    }
+  }
+}
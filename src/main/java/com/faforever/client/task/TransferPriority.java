@@ -0,0 +1,12 @@
+package com.faforever.client.task;
+
+/**
+ * Order in which waiting transfers get a slot from the {@link TransferScheduler}.
+ */
+public enum TransferPriority {
+  /** Files without which a game can't start, like its map or the files of its featured mod. */
+  CRITICAL,
+  NORMAL,
+  /** Transfers nobody waits for, like preview images. */
+  BACKGROUND
+}
@@ -0,0 +1,368 @@
+package com.faforever.client.task;
+
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.config.ClientProperties.Transfer;
+import com.faforever.commons.io.ByteCountListener;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Decides when uploads and downloads may run and how fast, and serializes disk access per directory.
+ * <p>
+ * Uploads and downloads each have their own slots, so neither blocks the other. Waiting transfers get a free slot in
+ * order of their {@link TransferPriority}: critical transfers may use a few reserved slots on top of the regular ones,
+ * background transfers never use more than a few of the regular ones. The configured bandwidth budget is split evenly
+ * between the directions that have transfers running.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TransferScheduler {
+
+  public enum Direction {
+    DOWNLOAD, UPLOAD
+  }
+
+  private final ClientProperties clientProperties;
+
+  private final Map<Direction, SlotQueue> queues = new EnumMap<>(Map.of(
+      Direction.DOWNLOAD, new SlotQueue(Direction.DOWNLOAD),
+      Direction.UPLOAD, new SlotQueue(Direction.UPLOAD)
+  ));
+  private final LoadingCache<Path, ReentrantLock> directoryLocks = Caffeine.newBuilder()
+      .weakValues()
+      .build(directory -> new ReentrantLock());
+  private long sequence;
+
+  /**
+   * Blocks until a download of the given priority may start. The returned transfer must be closed when the download
+   * is finished.
+   */
+  public ScheduledTransfer startDownload(TransferPriority priority) throws InterruptedIOException {
+    return queues.get(Direction.DOWNLOAD).start(priority);
+  }
+
+  /**
+   * Blocks until an upload of the given priority may start. The returned transfer must be closed when the upload is
+   * finished.
+   */
+  public ScheduledTransfer startUpload(TransferPriority priority) throws InterruptedIOException {
+    return queues.get(Direction.UPLOAD).start(priority);
+  }
+
+  /**
+   * Blocks until no one else is changing any of the given directories. Locks are reentrant and always taken in the
+   * same order, so callers may lock several directories at once without risking a deadlock.
+   */
+  public DirectoryLock lockDirectories(Path... directories) {
+    List<ReentrantLock> locks = Stream.of(directories)
+        .map(directory -> directory.toAbsolutePath().normalize())
+        .distinct()
+        .sorted()
+        .map(directoryLocks::get)
+        .toList();
+    List<ReentrantLock> acquired = new ArrayList<>(locks.size());
+    try {
+      for (ReentrantLock lock : locks) {
+        lock.lock();
+        acquired.add(lock);
+      }
+    } catch (RuntimeException e) {
+      acquired.forEach(ReentrantLock::unlock);
+      throw e;
+    }
+    return new DirectoryLock(acquired);
+  }
+
+  /** Number of transfers that are waiting for a slot. */
+  public int getQueueDepth(Direction direction) {
+    synchronized (this) {
+      return queues.get(direction).waiting.size();
+    }
+  }
+
+  /** Number of transfers that currently hold a slot. */
+  public int getActiveTransfers(Direction direction) {
+    synchronized (this) {
+      return queues.get(direction).active;
+    }
+  }
+
+  public Duration getAverageWaitTime(Direction direction, TransferPriority priority) {
+    return queues.get(direction).waitTimes.get(priority).getAverage();
+  }
+
+  public Duration getMaxWaitTime(Direction direction, TransferPriority priority) {
+    return queues.get(direction).waitTimes.get(priority).getMax();
+  }
+
+  private int slotLimit(Direction direction, TransferPriority priority) {
+    Transfer properties = clientProperties.getTransfer();
+    int slots = direction == Direction.DOWNLOAD ? properties.getDownloadSlots() : properties.getUploadSlots();
+    return switch (priority) {
+      case CRITICAL -> slots + properties.getReservedCriticalSlots();
+      case NORMAL -> slots;
+      case BACKGROUND -> Math.min(slots, properties.getBackgroundSlots());
+    };
+  }
+
+  /** The share of the bandwidth budget that transfers in the given direction may use, or 0 if it's unlimited. */
+  private synchronized long bandwidthShare(Direction direction) {
+    long budget = clientProperties.getTransfer().getBandwidthBudget();
+    if (budget <= 0) {
+      return 0;
+    }
+    long busyDirections = queues.values().stream()
+        .filter(queue -> queue.direction == direction || queue.active > 0)
+        .count();
+    return Math.max(1, budget / busyDirections);
+  }
+
+  private class SlotQueue {
+    private final Direction direction;
+    private final PriorityQueue<Waiter> waiting = new PriorityQueue<>();
+    private final Map<TransferPriority, WaitTimes> waitTimes = new EnumMap<>(TransferPriority.class);
+    private final TokenBucket bandwidth = new TokenBucket();
+    private int active;
+
+    SlotQueue(Direction direction) {
+      this.direction = direction;
+      for (TransferPriority priority : TransferPriority.values()) {
+        waitTimes.put(priority, new WaitTimes());
+      }
+    }
+
+    ScheduledTransfer start(TransferPriority priority) throws InterruptedIOException {
+      long startTime = System.nanoTime();
+      synchronized (TransferScheduler.this) {
+        Waiter waiter = new Waiter(priority, sequence++);
+        waiting.add(waiter);
+        try {
+          // Limits only grow with the priority, so if the first transfer in line can't start, no other one can
+          while (waiting.peek() != waiter || active >= slotLimit(direction, priority)) {
+            TransferScheduler.this.wait();
+          }
+        } catch (InterruptedException e) {
+          waiting.remove(waiter);
+          TransferScheduler.this.notifyAll();
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for a " + direction + " slot");
+        }
+        waiting.remove();
+        active++;
+        // The next one in line may fit into a slot as well
+        TransferScheduler.this.notifyAll();
+      }
+
+      long waitTime = System.nanoTime() - startTime;
+      waitTimes.get(priority).add(waitTime);
+      if (waitTime > TimeUnit.SECONDS.toNanos(1)) {
+        log.debug("{} {} waited {} ms for a slot", priority, direction, TimeUnit.NANOSECONDS.toMillis(waitTime));
+      }
+      return new ScheduledTransfer(this);
+    }
+
+    void finish() {
+      synchronized (TransferScheduler.this) {
+        active--;
+        TransferScheduler.this.notifyAll();
+      }
+    }
+
+    void throttle(long bytes) throws InterruptedIOException {
+      long rate = bandwidthShare(direction);
+      if (rate == 0) {
+        return;
+      }
+      long delay = bandwidth.take(bytes, rate);
+      if (delay <= 0) {
+        return;
+      }
+      try {
+        TimeUnit.NANOSECONDS.sleep(delay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while throttling " + direction);
+      }
+    }
+  }
+
+  private static class Waiter implements Comparable<Waiter> {
+    private final TransferPriority priority;
+    private final long sequence;
+
+    Waiter(TransferPriority priority, long sequence) {
+      this.priority = priority;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int compareTo(Waiter other) {
+      int result = priority.compareTo(other.priority);
+      return result != 0 ? result : Long.compare(sequence, other.sequence);
+    }
+  }
+
+  /**
+   * Hands out bytes at a given rate and allows bursts of up to one second. Callers that take more than is available
+   * go into debt and are told how long to wait until it's paid back.
+   */
+  private static class TokenBucket {
+    private double tokens = Double.NaN;
+    private long lastRefill;
+
+    synchronized long take(long bytes, long rate) {
+      long now = System.nanoTime();
+      if (Double.isNaN(tokens)) {
+        tokens = rate;
+      } else {
+        tokens = Math.min(rate, tokens + (now - lastRefill) * rate / 1e9);
+      }
+      lastRefill = now;
+      tokens -= bytes;
+      return tokens >= 0 ? 0 : (long) (-tokens * 1e9 / rate);
+    }
+  }
+
+  private static class WaitTimes {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    void add(long nanos) {
+      count.increment();
+      total.add(nanos);
+      max.accumulateAndGet(nanos, Math::max);
+    }
+
+    Duration getAverage() {
+      long count = this.count.sum();
+      return count == 0 ? Duration.ZERO : Duration.ofNanos(total.sum() / count);
+    }
+
+    Duration getMax() {
+      return Duration.ofNanos(max.get());
+    }
+  }
+
+  /**
+   * A slot for an upload or a download. Transfers should pass the bytes they move through {@link #throttle(long)} or
+   * one of the wrapped streams so that the bandwidth budget is kept.
+   */
+  public static class ScheduledTransfer implements AutoCloseable {
+    private final SlotQueue queue;
+    private boolean closed;
+
+    private ScheduledTransfer(SlotQueue queue) {
+      this.queue = queue;
+    }
+
+    /** Blocks for as long as needed to keep the bandwidth budget after transferring the given number of bytes. */
+    public void throttle(long bytes) throws InterruptedIOException {
+      queue.throttle(bytes);
+    }
+
+    public InputStream throttle(InputStream inputStream) {
+      return new FilterInputStream(inputStream) {
+        @Override
+        public int read() throws IOException {
+          int result = super.read();
+          if (result != -1) {
+            throttle(1);
+          }
+          return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+          int result = super.read(buffer, offset, length);
+          if (result > 0) {
+            throttle(result);
+          }
+          return result;
+        }
+      };
+    }
+
+    /**
+     * Throttles a transfer through the progress it reports, for transfers whose stream is out of reach, e.g. an upload
+     * whose request body is written by the HTTP client. Throws an {@link UncheckedIOException} if interrupted.
+     */
+    public ByteCountListener throttle(ByteCountListener listener) {
+      AtomicLong reported = new AtomicLong();
+      return (written, total) -> {
+        long bytes = written - reported.getAndSet(written);
+        if (bytes > 0) {
+          try {
+            throttle(bytes);
+          } catch (InterruptedIOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+        listener.updateBytesWritten(written, total);
+      };
+    }
+
+    public OutputStream throttle(OutputStream outputStream) {
+      return new FilterOutputStream(outputStream) {
+        @Override
+        public void write(int b) throws IOException {
+          throttle(1);
+          out.write(b);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+          throttle(length);
+          out.write(buffer, offset, length);
+        }
+      };
+    }
+
+    @Override
+    public synchronized void close() {
+      if (!closed) {
+        closed = true;
+        queue.finish();
+      }
+    }
+  }
+
+  public static class DirectoryLock implements AutoCloseable {
+    private final List<ReentrantLock> locks;
+
+    private DirectoryLock(List<ReentrantLock> locks) {
+      this.locks = locks;
+    }
+
+    @Override
+    public void close() {
+      for (int i = locks.size() - 1; i >= 0; i--) {
+        locks.get(i).unlock();
+      }
+    }
+  }
+}
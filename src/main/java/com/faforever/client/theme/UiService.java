@@ -11,6 +11,7 @@ import com.faforever.client.ui.dialog.Dialog;
 import com.faforever.client.ui.dialog.Dialog.DialogTransition;
 import com.faforever.client.ui.dialog.DialogLayout;
 import com.github.nocatch.NoCatch.NoCatchRunnable;
+import com.google.common.io.CharStreams;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
@@ -42,10 +43,13 @@ import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
@@ -272,6 +276,7 @@ public class UiService implements InitializingBean, DisposableBean {
     } catch (InterruptedException e) {
       log.info("Watch thread was interrupted");
     }
+    cacheManager.getCache(CacheNames.THEME_TEMPLATES).clear();
     reloadStylesheet();
   }
 
@@ -317,6 +322,19 @@ public class UiService implements InitializingBean, DisposableBean {
     return new Image(getThemeFile(relativeImage), true);
   }
 
+  /**
+   * Reads a text file, like an HTML template, from the current theme. The content is cached until the theme or one of
+   * its files changes.
+   */
+  @Cacheable(value = CacheNames.THEME_TEMPLATES, sync = true)
+  public String getThemeTemplate(String relativeFile) {
+    try (Reader reader = new InputStreamReader(getThemeFileUrl(relativeFile).openStream(), StandardCharsets.UTF_8)) {
+      return CharStreams.toString(reader);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read theme template " + relativeFile, e);
+    }
+  }
+
   public URL getThemeFileUrl(String relativeFile) {
     String themeFile = getThemeFile(relativeFile);
     if (themeFile.startsWith("file:") || themeFile.startsWith("jar:")) {
@@ -336,8 +354,9 @@ public class UiService implements InitializingBean, DisposableBean {
       preferencesService.getPreferences().setThemeName(getThemeDirectory(theme).getFileName().toString());
     }
     preferencesService.storeInBackground();
-    currentTheme.set(theme);
     cacheManager.getCache(CacheNames.THEME_IMAGES).clear();
+    cacheManager.getCache(CacheNames.THEME_TEMPLATES).clear();
+    currentTheme.set(theme);
     reloadStylesheet();
   }
 
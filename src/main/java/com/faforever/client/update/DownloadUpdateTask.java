@@ -3,7 +3,9 @@ package com.faforever.client.update;
 import com.faforever.client.i18n.I18n;
 import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.task.CompletableTask;
-import com.faforever.client.task.ResourceLocks;
+import com.faforever.client.task.TransferPriority;
+import com.faforever.client.task.TransferScheduler;
+import com.faforever.client.task.TransferScheduler.ScheduledTransfer;
 import com.faforever.commons.io.ByteCopier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,15 +31,17 @@ public class DownloadUpdateTask extends CompletableTask<Path> {
 
   private final I18n i18n;
   private final PreferencesService preferencesService;
+  private final TransferScheduler transferScheduler;
 
   private UpdateInfo updateInfo;
 
   @Inject
-  public DownloadUpdateTask(I18n i18n, PreferencesService preferencesService) {
+  public DownloadUpdateTask(I18n i18n, PreferencesService preferencesService, TransferScheduler transferScheduler) {
     super(Priority.MEDIUM);
 
     this.i18n = i18n;
     this.preferencesService = preferencesService;
+    this.transferScheduler = transferScheduler;
   }
 
   @Override
@@ -51,8 +55,9 @@ public class DownloadUpdateTask extends CompletableTask<Path> {
 
     Path tempFile = Files.createTempFile(targetFile.getParent(), "update", null);
 
-      ResourceLocks.acquireDownloadLock();
-    try (InputStream inputStream = url.openStream(); OutputStream outputStream = Files.newOutputStream(tempFile)) {
+    try (ScheduledTransfer transfer = transferScheduler.startDownload(TransferPriority.NORMAL);
+         InputStream inputStream = transfer.throttle(url.openStream());
+         OutputStream outputStream = Files.newOutputStream(tempFile)) {
       ByteCopier.from(inputStream)
           .to(outputStream)
           .totalBytes(updateInfo.getSize() > 0 ? updateInfo.getSize() : 150000000)
@@ -61,7 +66,6 @@ public class DownloadUpdateTask extends CompletableTask<Path> {
 
       Files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
     } finally {
-      ResourceLocks.freeDownloadLock();
       try {
         Files.deleteIfExists(tempFile);
       } catch (IOException e) {
@@ -54,6 +54,32 @@ function scrollToBottomIfDesired() {
   }
 }
 
+/**
+ * Removes the first removeCount elements of the given class, inserts a batch of rendered HTML snippets and scrolls to
+ * the bottom if desired. insertionsJson is an array of {container, html, link} objects.
+ */
+function appendChatHtml(insertionsJson, itemClass, removeCount) {
+  var items = document.getElementsByClassName(itemClass);
+  var count = Math.min(removeCount, items.length);
+  if (count > 0) {
+    // The items are siblings, so they can be removed as a single range
+    var range = document.createRange();
+    range.setStartBefore(items[0]);
+    range.setEndAfter(items[count - 1]);
+    range.deleteContents();
+  }
+
+  var insertions = JSON.parse(insertionsJson);
+  for (var i = 0; i < insertions.length; i++) {
+    var container = document.getElementById(insertions[i].container);
+    if (container != null) {
+      container.insertAdjacentHTML("beforeend", insertions[i].link ? link(insertions[i].html) : insertions[i].html);
+    }
+  }
+
+  scrollToBottomIfDesired();
+}
+
 function setAllMessageColors(userListString) {
   var userList = JSON.parse(userListString);
 
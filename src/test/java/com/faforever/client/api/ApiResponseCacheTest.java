@@ -0,0 +1,228 @@
+package com.faforever.client.api;
+
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.preferences.PreferencesService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ApiResponseCacheTest {
+
+  private static final byte[] NO_BODY = new byte[0];
+
+  @Rule
+  public TemporaryFolder cacheDirectory = new TemporaryFolder();
+
+  @Mock
+  private PreferencesService preferencesService;
+  @Mock
+  private ExecutorService executorService;
+  @Mock
+  private ClientHttpRequestExecution execution;
+
+  private ClientProperties clientProperties;
+  private ApiResponseCache instance;
+
+  @Before
+  public void setUp() throws Exception {
+    MockitoAnnotations.initMocks(this);
+
+    clientProperties = new ClientProperties();
+    when(preferencesService.getCacheDirectory()).thenReturn(cacheDirectory.getRoot().toPath());
+
+    instance = new ApiResponseCache(clientProperties, preferencesService, executorService);
+  }
+
+  @Test
+  public void testRevalidatesWithETag() throws Exception {
+    when(execution.execute(any(), any()))
+        .thenReturn(response("first", HttpStatus.OK, "\"1\""))
+        .thenReturn(response("", HttpStatus.NOT_MODIFIED, "\"1\""));
+
+    assertThat(body(instance.intercept(request("/data/player"), NO_BODY, execution)), is("first"));
+    MockClientHttpRequest revalidation = request("/data/player");
+    ClientHttpResponse response = instance.intercept(revalidation, NO_BODY, execution);
+
+    assertThat(revalidation.getHeaders().getIfNoneMatch().get(0), is("\"1\""));
+    assertThat(response.getRawStatusCode(), is(200));
+    assertThat(body(response), is("first"));
+    assertThat(instance.getMisses(), is(1L));
+    assertThat(instance.getRevalidations(), is(1L));
+    assertThat(instance.getNotModified(), is(1L));
+  }
+
+  @Test
+  public void testChangedResponseReplacesCachedResponse() throws Exception {
+    when(execution.execute(any(), any()))
+        .thenReturn(response("first", HttpStatus.OK, "\"1\""))
+        .thenReturn(response("second", HttpStatus.OK, "\"2\""))
+        .thenReturn(response("", HttpStatus.NOT_MODIFIED, "\"2\""));
+
+    instance.intercept(request("/data/player"), NO_BODY, execution);
+    assertThat(body(instance.intercept(request("/data/player"), NO_BODY, execution)), is("second"));
+    assertThat(body(instance.intercept(request("/data/player"), NO_BODY, execution)), is("second"));
+  }
+
+  @Test
+  public void testFreshResponseIsServedWithoutRequest() throws Exception {
+    MockClientHttpResponse fresh = response("fresh", HttpStatus.OK, null);
+    fresh.getHeaders().setCacheControl("max-age=3600");
+    when(execution.execute(any(), any())).thenReturn(fresh);
+
+    instance.intercept(request("/data/player"), NO_BODY, execution);
+    assertThat(body(instance.intercept(request("/data/player"), NO_BODY, execution)), is("fresh"));
+
+    verify(execution, times(1)).execute(any(), any());
+    assertThat(instance.getHits(), is(1L));
+  }
+
+  @Test
+  public void testStaleResponseIsServedWhileRevalidating() throws Exception {
+    when(execution.execute(any(), any())).thenReturn(response("stale", HttpStatus.OK, null));
+
+    instance.intercept(request("/data/featuredMod"), NO_BODY, execution);
+    assertThat(body(instance.intercept(request("/data/featuredMod"), NO_BODY, execution)), is("stale"));
+
+    verify(execution, times(1)).execute(any(), any());
+    verify(executorService).execute(any());
+    assertThat(instance.getStaleHits(), is(1L));
+  }
+
+  @Test
+  public void testResponseWithoutValidatorIsNotStored() throws Exception {
+    when(execution.execute(any(), any()))
+        .thenReturn(response("first", HttpStatus.OK, null))
+        .thenReturn(response("second", HttpStatus.OK, null));
+
+    instance.intercept(request("/data/player"), NO_BODY, execution);
+    assertThat(body(instance.intercept(request("/data/player"), NO_BODY, execution)), is("second"));
+
+    assertThat(instance.getMisses(), is(2L));
+  }
+
+  @Test
+  public void testOnlyGetRequestsAreCached() throws Exception {
+    when(execution.execute(any(), any())).thenReturn(response("first", HttpStatus.OK, "\"1\""));
+
+    instance.intercept(new MockClientHttpRequest(HttpMethod.POST, URI.create("http://localhost/data/player")), NO_BODY, execution);
+    instance.intercept(request("/me"), NO_BODY, execution);
+
+    assertThat(instance.getMisses(), is(0L));
+  }
+
+  @Test
+  public void testSuccessfulModificationEvictsPathAndCollection() throws Exception {
+    when(execution.execute(any(), any())).then(invocation -> response("first", HttpStatus.OK, "\"1\""));
+    instance.intercept(request("/data/mod/1"), NO_BODY, execution);
+    instance.intercept(request("/data/mod?filter=hidden==false"), NO_BODY, execution);
+    instance.intercept(request("/data/player"), NO_BODY, execution);
+
+    when(execution.execute(any(), any())).then(invocation -> response("", HttpStatus.NO_CONTENT, null));
+    instance.intercept(new MockClientHttpRequest(HttpMethod.PATCH, URI.create("http://localhost/data/mod/1")), NO_BODY, execution);
+
+    when(execution.execute(any(), any())).then(invocation -> response("", HttpStatus.NOT_MODIFIED, "\"1\""));
+    instance.intercept(request("/data/mod/1"), NO_BODY, execution);
+    instance.intercept(request("/data/mod?filter=hidden==false"), NO_BODY, execution);
+    instance.intercept(request("/data/player"), NO_BODY, execution);
+
+    assertThat(instance.getMisses(), is(5L));
+    assertThat(instance.getRevalidations(), is(1L));
+  }
+
+  @Test
+  public void testFailedModificationDoesNotEvict() throws Exception {
+    when(execution.execute(any(), any())).then(invocation -> response("first", HttpStatus.OK, "\"1\""));
+    instance.intercept(request("/data/mod/1"), NO_BODY, execution);
+
+    when(execution.execute(any(), any())).then(invocation -> response("", HttpStatus.FORBIDDEN, null));
+    instance.intercept(new MockClientHttpRequest(HttpMethod.PATCH, URI.create("http://localhost/data/mod/1")), NO_BODY, execution);
+
+    when(execution.execute(any(), any())).then(invocation -> response("", HttpStatus.NOT_MODIFIED, "\"1\""));
+    instance.intercept(request("/data/mod/1"), NO_BODY, execution);
+
+    assertThat(instance.getMisses(), is(1L));
+    assertThat(instance.getRevalidations(), is(1L));
+  }
+
+  @Test
+  public void testResponsesAreCachedPerPlayer() throws Exception {
+    when(execution.execute(any(), any())).then(invocation -> response("first", HttpStatus.OK, "\"1\""));
+
+    instance.setPlayerId(1);
+    instance.intercept(request("/data/player"), NO_BODY, execution);
+    instance.setPlayerId(2);
+    instance.intercept(request("/data/player"), NO_BODY, execution);
+
+    assertThat(instance.getMisses(), is(2L));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedResponseIsEvicted() throws Exception {
+    clientProperties.getApi().setResponseCacheMaxSize(500);
+    when(execution.execute(any(), any()))
+        .then(invocation -> response("x".repeat(100), HttpStatus.OK, "\"1\""));
+
+    instance.intercept(request("/data/player/1"), NO_BODY, execution);
+    instance.intercept(request("/data/player/2"), NO_BODY, execution);
+    instance.intercept(request("/data/player/3"), NO_BODY, execution);
+
+    assertThat(instance.getMisses(), is(3L));
+    instance.intercept(request("/data/player/3"), NO_BODY, execution);
+    assertThat(instance.getRevalidations(), is(1L));
+    instance.intercept(request("/data/player/1"), NO_BODY, execution);
+    assertThat(instance.getMisses(), is(4L));
+  }
+
+  @Test
+  public void testCacheIsPersisted() throws Exception {
+    when(execution.execute(any(), any()))
+        .thenReturn(response("first", HttpStatus.OK, "\"1\""))
+        .thenReturn(response("", HttpStatus.NOT_MODIFIED, "\"1\""));
+    instance.intercept(request("/data/player"), NO_BODY, execution);
+
+    ApiResponseCache restarted = new ApiResponseCache(clientProperties, preferencesService, executorService);
+
+    assertThat(body(restarted.intercept(request("/data/player"), NO_BODY, execution)), is("first"));
+    assertThat(restarted.getNotModified(), is(1L));
+    verify(executorService, never()).execute(any());
+  }
+
+  private static MockClientHttpRequest request(String path) {
+    return new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost" + path));
+  }
+
+  private static MockClientHttpResponse response(String body, HttpStatus status, String etag) {
+    MockClientHttpResponse response = new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8), status);
+    if (etag != null) {
+      response.getHeaders().setETag(etag);
+    }
+    response.getHeaders().set(HttpHeaders.CONTENT_TYPE, "application/vnd.api+json");
+    return response;
+  }
+
+  private static String body(ClientHttpResponse response) throws Exception {
+    return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+  }
+}
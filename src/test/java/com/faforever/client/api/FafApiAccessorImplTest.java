@@ -17,7 +17,10 @@ import com.faforever.client.config.ClientProperties;
 import com.faforever.client.mod.ModVersion;
 import com.faforever.client.mod.ModVersionBuilder;
 import com.faforever.client.reporting.ModerationReportBuilder;
+import com.faforever.client.test.FakeTestException;
+import com.github.jasminb.jsonapi.JSONAPIDocument;
 import com.google.common.eventbus.EventBus;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -42,6 +45,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 
 import static java.util.Collections.emptyList;
@@ -65,6 +70,8 @@ public class FafApiAccessorImplTest {
   public TemporaryFolder preferencesDirectory = new TemporaryFolder();
 
   private FafApiAccessorImpl instance;
+  private ClientProperties clientProperties;
+  private ExecutorService executorService;
 
   @Mock
   private EventBus eventBus;
@@ -76,6 +83,8 @@ public class FafApiAccessorImplTest {
   private JsonApiMessageConverter jsonApiMessageConverter;
   @Mock
   private JsonApiErrorHandler jsonApiErrorHandler;
+  @Mock
+  private ApiResponseCache apiResponseCache;
 
   @Before
   public void setUp() throws Exception {
@@ -83,15 +92,23 @@ public class FafApiAccessorImplTest {
 
     when(restTemplateBuilder.requestFactory(any(Supplier.class))).thenReturn(restTemplateBuilder);
     when(restTemplateBuilder.additionalMessageConverters(any(JsonApiMessageConverter.class))).thenReturn(restTemplateBuilder);
+    when(restTemplateBuilder.additionalInterceptors(any(ApiResponseCache.class))).thenReturn(restTemplateBuilder);
     when(restTemplateBuilder.rootUri(any())).thenReturn(restTemplateBuilder);
     when(restTemplateBuilder.errorHandler(any())).thenReturn(restTemplateBuilder);
     when(restTemplateBuilder.configure(any(OAuth2RestTemplate.class))).thenReturn(restOperations);
 
-    instance = new FafApiAccessorImpl(eventBus, restTemplateBuilder, new ClientProperties(), jsonApiMessageConverter, jsonApiErrorHandler);
+    clientProperties = new ClientProperties();
+    executorService = Executors.newCachedThreadPool();
+    instance = new FafApiAccessorImpl(eventBus, restTemplateBuilder, clientProperties, jsonApiMessageConverter, jsonApiErrorHandler, executorService, apiResponseCache);
     instance.afterPropertiesSet();
     instance.authorize(123, "junit", "42");
   }
 
+  @After
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
   @Test
   @SuppressWarnings("unchecked")
   public void testGetPlayerAchievements() {
@@ -103,13 +120,12 @@ public class FafApiAccessorImplTest {
     playerAchievement2.setAchievement(new AchievementDefinition().setId("2-3-4"));
     List<PlayerAchievement> result = Arrays.asList(playerAchievement1, playerAchievement2);
 
-    when(restOperations.getForObject(anyString(), eq(List.class)))
-        .thenReturn(result)
-        .thenReturn(emptyList());
+    when(restOperations.getForObject(anyString(), eq(JSONAPIDocument.class)))
+        .thenReturn(page(result, 1));
 
     assertThat(instance.getPlayerAchievements(123), is(result));
 
-    verify(restOperations).getForObject("/data/playerAchievement?filter=player.id==\"123\"&page[size]=10000&page[number]=1", List.class);
+    verify(restOperations).getForObject("/data/playerAchievement?filter=player.id==\"123\"&page[size]=10000&page[number]=1&page[totals]", JSONAPIDocument.class);
   }
 
   @Test
@@ -120,9 +136,8 @@ public class FafApiAccessorImplTest {
     achievementDefinition2.setId("2-3-4");
     List<AchievementDefinition> result = Arrays.asList(achievementDefinition1, achievementDefinition2);
 
-    when(restOperations.getForObject(startsWith("/data/achievement"), eq(List.class)))
-        .thenReturn(result)
-        .thenReturn(emptyList());
+    when(restOperations.getForObject(startsWith("/data/achievement"), eq(JSONAPIDocument.class)))
+        .thenReturn(page(result, 1));
 
     assertThat(instance.getAchievementDefinitions(), is(result));
   }
@@ -151,16 +166,16 @@ public class FafApiAccessorImplTest {
     playerEvent2.setCurrentCount(22);
     List<PlayerEvent> result = Arrays.asList(playerEvent1, playerEvent2);
 
-    when(restOperations.getForObject(anyString(), eq(List.class)))
-        .thenReturn(result)
-        .thenReturn(emptyList());
+    when(restOperations.getForObject(anyString(), eq(JSONAPIDocument.class)))
+        .thenReturn(page(result, 1));
 
     assertThat(instance.getPlayerEvents(123), is(result));
 
     verify(restOperations).getForObject("/data/playerEvent" +
         "?filter=player.id==\"123\"" +
         "&page[size]=10000" +
-        "&page[number]=1", List.class);
+        "&page[number]=1" +
+        "&page[totals]", JSONAPIDocument.class);
   }
 
   @Test
@@ -170,9 +185,8 @@ public class FafApiAccessorImplTest {
         ModVersionBuilder.create().defaultValues().uid("2").get()
     );
 
-    when(restOperations.getForObject(startsWith("/data/mod"), eq(List.class)))
-        .thenReturn(modVersions)
-        .thenReturn(emptyList());
+    when(restOperations.getForObject(startsWith("/data/mod"), eq(JSONAPIDocument.class)))
+        .thenReturn(page(modVersions, 1));
 
     assertThat(instance.getMods(), equalTo(modVersions));
   }
@@ -181,30 +195,28 @@ public class FafApiAccessorImplTest {
   public void testGetRatingHistory() {
     List<GamePlayerStats> gamePlayerStats = Collections.singletonList(new GamePlayerStats());
 
-    when(restOperations.getForObject(anyString(), eq(List.class)))
-        .thenReturn(gamePlayerStats)
-        .thenReturn(emptyList());
+    when(restOperations.getForObject(anyString(), eq(JSONAPIDocument.class)))
+        .thenReturn(page(gamePlayerStats, 1));
 
     List<LeaderboardRatingJournal> result = instance.getRatingJournal(123, 1);
 
     assertThat(result, is(gamePlayerStats));
     verify(restOperations).getForObject("/data/leaderboardRatingJournal?filter=gamePlayerStats.player.id==\"123\";" +
-        "leaderboard.id==\"1\"&include=gamePlayerStats&page[size]=10000&page[number]=1", List.class);
+        "leaderboard.id==\"1\"&include=gamePlayerStats&page[size]=10000&page[number]=1&page[totals]", JSONAPIDocument.class);
   }
 
   @Test
   public void testQueryPlayerByName() {
     Player player = new Player();
 
-    when(restOperations.getForObject(anyString(), eq(List.class)))
-        .thenReturn(List.of(player))
-        .thenReturn(emptyList());
+    when(restOperations.getForObject(anyString(), eq(JSONAPIDocument.class)))
+        .thenReturn(page(List.of(player), 1));
 
     Optional<Player> result = instance.queryPlayerByName("junit");
 
     assertTrue(result.isPresent());
     assertThat(result.get(), is(player));
-    verify(restOperations).getForObject("/data/player?filter=login==\"junit\"&include=names&page[size]=10000&page[number]=1", List.class);
+    verify(restOperations).getForObject("/data/player?filter=login==\"junit\"&include=names&page[size]=10000&page[number]=1&page[totals]", JSONAPIDocument.class);
   }
 
   @Test
@@ -265,11 +277,11 @@ public class FafApiAccessorImplTest {
 
   @Test
   public void testGetCoopMissions() {
-    when(restOperations.getForObject(startsWith("/data/coopMission"), eq(List.class))).thenReturn(emptyList());
+    when(restOperations.getForObject(startsWith("/data/coopMission"), eq(JSONAPIDocument.class))).thenReturn(page(emptyList(), 0));
 
     instance.getCoopMissions();
 
-    verify(restOperations).getForObject(eq("/data/coopMission?page[size]=10000&page[number]=1"), eq(List.class));
+    verify(restOperations).getForObject(eq("/data/coopMission?page[size]=10000&page[number]=1&page[totals]"), eq(JSONAPIDocument.class));
   }
 
   @Test
@@ -376,4 +388,40 @@ public class FafApiAccessorImplTest {
     String parameters = String.format("filter=filename==\"maps/%s.zip\";map.latestVersion.hidden==\"false\"", localMap.getFolderName());
     verify(restOperations).getForObject(contains(parameters), eq(List.class));
   }
+
+  @Test
+  public void testGetAllFetchesRemainingPagesConcurrently() {
+    clientProperties.getApi().setMaxPageSize(2);
+    PlayerAchievement first = new PlayerAchievement();
+    PlayerAchievement second = new PlayerAchievement();
+    PlayerAchievement third = new PlayerAchievement();
+    PlayerAchievement fourth = new PlayerAchievement();
+    PlayerAchievement fifth = new PlayerAchievement();
+
+    when(restOperations.getForObject(anyString(), eq(JSONAPIDocument.class))).thenReturn(page(List.of(first, second), 3));
+    when(restOperations.getForObject(contains("page[number]=2"), eq(List.class))).thenReturn(List.of(third, fourth));
+    when(restOperations.getForObject(contains("page[number]=3"), eq(List.class))).thenReturn(List.of(fifth));
+
+    assertThat(instance.getPlayerAchievements(123), is(List.of(first, second, third, fourth, fifth)));
+
+    verify(restOperations).getForObject("/data/playerAchievement?filter=player.id==\"123\"&page[size]=2&page[number]=1&page[totals]", JSONAPIDocument.class);
+    verify(restOperations).getForObject("/data/playerAchievement?filter=player.id==\"123\"&page[size]=2&page[number]=2", List.class);
+    verify(restOperations).getForObject("/data/playerAchievement?filter=player.id==\"123\"&page[size]=2&page[number]=3", List.class);
+  }
+
+  @Test(expected = FakeTestException.class)
+  public void testGetAllFailsIfAPageFails() {
+    clientProperties.getApi().setMaxPageSize(1);
+
+    when(restOperations.getForObject(anyString(), eq(JSONAPIDocument.class))).thenReturn(page(List.of(new PlayerAchievement()), 3));
+    when(restOperations.getForObject(contains("page[number]=3"), eq(List.class))).thenThrow(new FakeTestException());
+
+    instance.getPlayerAchievements(123);
+  }
+
+  private static <T> JSONAPIDocument<List<T>> page(List<T> elements, int totalPages) {
+    JSONAPIDocument<List<T>> document = new JSONAPIDocument<>(elements);
+    document.setMeta(Map.of("page", Map.of("totalPages", totalPages)));
+    return document;
+  }
 }
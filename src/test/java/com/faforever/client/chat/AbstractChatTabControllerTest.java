@@ -19,6 +19,7 @@ import com.faforever.client.uploader.ImageUploadService;
 import com.faforever.client.user.UserService;
 import com.faforever.client.util.TimeService;
 import com.google.common.eventbus.EventBus;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.concurrent.Worker;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
@@ -44,6 +45,7 @@ import java.util.Collection;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static com.faforever.client.chat.AbstractChatTabController.CSS_CLASS_CHAT_ONLY;
 import static com.faforever.client.player.SocialStatus.FOE;
@@ -106,7 +108,9 @@ public class AbstractChatTabControllerTest extends AbstractPlainJavaFxTest {
 
     Preferences preferences = PreferencesBuilder.create().defaultValues().get();
 
-    when(uiService.getThemeFileUrl(any())).thenReturn(getClass().getResource("/" + UiService.CHAT_SECTION_EXTENDED));
+    when(uiService.getThemeFileUrl(any())).thenReturn(getClass().getResource("/" + UiService.CHAT_CONTAINER));
+    when(uiService.getThemeTemplate(any())).then(invocation -> getThemeTemplate(invocation.getArgument(0)));
+    when(uiService.currentThemeProperty()).thenReturn(new SimpleObjectProperty<>());
     when(timeService.asShortTime(any())).thenReturn("123");
     when(userService.getUsername()).thenReturn("junit");
     when(preferencesService.getPreferences()).thenReturn(preferences);
@@ -234,6 +238,41 @@ public class AbstractChatTabControllerTest extends AbstractPlainJavaFxTest {
     instance.onChatMessage(new ChatMessage("", Instant.now(), "junit", "Test action", true));
   }
 
+  @Test
+  public void testOnChatMessagesArrivingInSamePulseAreInsertedTogether() throws Exception {
+    chatReadyLatch.await(TIMEOUT, TimeUnit.MILLISECONDS);
+    WaitForAsyncUtils.waitForFxEvents();
+
+    WaitForAsyncUtils.asyncFx(() -> {
+      instance.onChatMessage(new ChatMessage("", Instant.now(), "junit", "First message"));
+      instance.onChatMessage(new ChatMessage("", Instant.now(), "junit", "Second message"));
+      instance.onChatMessage(new ChatMessage("", Instant.now(), "other", "Third message"));
+    }).get();
+    WaitForAsyncUtils.waitForFxEvents();
+
+    assertThat(countElements("chat-section"), is(2));
+    assertThat(countElements("text"), is(3));
+  }
+
+  @Test
+  public void testOnChatMessageRemovesTopmostMessages() throws Exception {
+    preferencesService.getPreferences().getChat().setMaxMessages(2);
+    chatReadyLatch.await(TIMEOUT, TimeUnit.MILLISECONDS);
+    WaitForAsyncUtils.waitForFxEvents();
+
+    for (int i = 0; i < 5; i++) {
+      instance.onChatMessage(new ChatMessage("", Instant.now(), "user" + i, "Message " + i));
+    }
+    WaitForAsyncUtils.waitForFxEvents();
+
+    assertThat(countElements("chat-section"), is(2));
+  }
+
+  private int countElements(String cssClass) throws Exception {
+    return WaitForAsyncUtils.asyncFx(() -> (int) instance.engine.executeScript(
+        "document.getElementsByClassName('" + cssClass + "').length")).get();
+  }
+
   @Test
   public void testHasFocus() {
     assertThat(instance.hasFocus(), is(true));
@@ -19,6 +19,7 @@ import com.faforever.client.uploader.ImageUploadService;
 import com.faforever.client.user.UserService;
 import com.faforever.client.util.TimeService;
 import com.google.common.eventbus.EventBus;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.MapChangeListener;
 import javafx.collections.MapChangeListener.Change;
@@ -122,6 +123,7 @@ public class ChatChannelTabControllerTest extends AbstractPlainJavaFxTest {
     when(uiService.loadFxml("theme/chat/user_filter.fxml")).thenReturn(userFilterController);
     when(uiService.loadFxml("theme/chat/chat_user_category.fxml")).thenReturn(chatCategoryItemController);
     when(uiService.getThemeFileUrl(CHAT_CONTAINER)).thenReturn(getClass().getResource("/theme/chat/chat_container.html"));
+    when(uiService.currentThemeProperty()).thenReturn(new SimpleObjectProperty<>());
 
     loadFxml("theme/chat/user_filter.fxml", clazz -> userFilterController);
     loadFxml("theme/chat/channel_tab.fxml", clazz -> instance);
@@ -0,0 +1,92 @@
+package com.faforever.client.chat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ChatHistoryTest {
+
+  private ChatHistory instance;
+
+  @Before
+  public void setUp() {
+    instance = new ChatHistory(3);
+  }
+
+  @Test
+  public void testEmpty() {
+    assertThat(instance.size(), is(0));
+    assertThat(instance.getFirstSectionId(), is(-1));
+    assertThat(instance.getLastSectionId(), is(-1));
+    assertThat(instance.getSections(), is(empty()));
+  }
+
+  @Test
+  public void testAppendGoesToNewestSection() {
+    instance.startSection(1, message("a"));
+    instance.startSection(2, message("b"));
+    instance.append(message("c"));
+
+    List<ChatHistory.Section> sections = instance.getSections();
+    assertThat(texts(sections.get(0)), contains("a"));
+    assertThat(texts(sections.get(1)), contains("b", "c"));
+  }
+
+  @Test
+  public void testStartSectionEvictsOldest() {
+    for (int id = 1; id <= 5; id++) {
+      instance.startSection(id, message(String.valueOf(id)));
+    }
+
+    assertThat(instance.size(), is(3));
+    assertThat(instance.getFirstSectionId(), is(3));
+    assertThat(instance.getLastSectionId(), is(5));
+    assertThat(ids(instance.getSections()), contains(3, 4, 5));
+  }
+
+  @Test
+  public void testSetMaxSectionsKeepsNewest() {
+    for (int id = 1; id <= 5; id++) {
+      instance.startSection(id, message(String.valueOf(id)));
+    }
+
+    instance.setMaxSections(2);
+    assertThat(ids(instance.getSections()), contains(4, 5));
+
+    instance.setMaxSections(4);
+    instance.startSection(6, message("6"));
+    instance.startSection(7, message("7"));
+    assertThat(ids(instance.getSections()), contains(4, 5, 6, 7));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAppendWithoutSection() {
+    instance.append(message("a"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStartSectionRejectsGap() {
+    instance.startSection(1, message("a"));
+    instance.startSection(3, message("b"));
+  }
+
+  private static ChatMessage message(String text) {
+    return new ChatMessage("#channel", Instant.now(), "junit", text);
+  }
+
+  private static List<Integer> ids(List<ChatHistory.Section> sections) {
+    return sections.stream().map(ChatHistory.Section::getId).collect(Collectors.toList());
+  }
+
+  private static List<String> texts(ChatHistory.Section section) {
+    return section.getMessages().stream().map(ChatMessage::getMessage).collect(Collectors.toList());
+  }
+}
@@ -17,6 +17,7 @@ import com.faforever.client.uploader.ImageUploadService;
 import com.faforever.client.user.UserService;
 import com.faforever.client.util.TimeService;
 import com.google.common.eventbus.EventBus;
+import javafx.beans.property.SimpleObjectProperty;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -80,8 +81,9 @@ public class MatchmakingChatControllerTest extends AbstractPlainJavaFxTest {
     when(chatService.getOrCreateChannel("partyName")).thenReturn(new ChatChannel("partyName"));
     when(userService.getUsername()).thenReturn("junit");
     when(uiService.getThemeFileUrl(CHAT_CONTAINER)).thenReturn(getClass().getResource("/theme/chat/chat_container.html"));
-    when(uiService.getThemeFileUrl(CHAT_SECTION_COMPACT)).thenReturn(getClass().getResource("/theme/chat/compact/chat_section.html"));
-    when(uiService.getThemeFileUrl(CHAT_TEXT_COMPACT)).thenReturn(getClass().getResource("/theme/chat/compact/chat_text.html"));
+    when(uiService.getThemeTemplate(CHAT_SECTION_COMPACT)).thenReturn(getThemeTemplate(CHAT_SECTION_COMPACT));
+    when(uiService.getThemeTemplate(CHAT_TEXT_COMPACT)).thenReturn(getThemeTemplate(CHAT_TEXT_COMPACT));
+    when(uiService.currentThemeProperty()).thenReturn(new SimpleObjectProperty<>());
     when(timeService.asShortTime(any())).thenReturn("");
 
     instance = new MatchmakingChatController(userService, preferencesService,
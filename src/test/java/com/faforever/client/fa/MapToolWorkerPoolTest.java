@@ -0,0 +1,128 @@
+package com.faforever.client.fa;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs the pool against shell scripts standing in for maptool, so only where there is a shell.
+ */
+public class MapToolWorkerPoolTest {
+
+  /** Answers one-shot requests with their arguments and {@code --help} with the given command. */
+  private static final String ONE_SHOT = """
+      if [ "$1" = "--help" ]; then %s; fi
+      if [ "$1" = "--stdin" ]; then %s; fi
+      echo "one-shot $*"
+      """;
+  private static final String WORKER = """
+      while IFS= read -r line; do
+        if [ -n "$line" ]; then echo "worker $line"; fi
+        printf '\\004%s\\n' 0
+      done
+      """;
+  private static final String USAGE_WITH_WORKER_MODE = "  --stdin  Read requests from stdin";
+  private static final String USAGE_WITHOUT_WORKER_MODE = "  --hash  Compute map CRCs";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path invocationLog;
+  private MapToolWorkerPool instance;
+
+  @Before
+  public void setUp() {
+    assumeTrue(Files.isExecutable(Path.of("/bin/sh")));
+    invocationLog = temporaryFolder.getRoot().toPath().resolve("invocations.log");
+  }
+
+  @After
+  public void tearDown() {
+    if (instance != null) {
+      instance.shutdown();
+    }
+  }
+
+  @Test
+  public void testWorkerModeIsNotTriedIfMapToolDoesNotListIt() throws Exception {
+    instance = createPool(USAGE_WITHOUT_WORKER_MODE, WORKER);
+
+    assertThat(instance.execute(List.of("--hash")), contains("one-shot --hash"));
+    assertThat(instance.execute(List.of("--hash")), contains("one-shot --hash"));
+
+    assertThat(Files.readAllLines(invocationLog), contains("--help", "--hash", "--hash"));
+  }
+
+  @Test
+  public void testWorkerIsReused() throws Exception {
+    instance = createPool(USAGE_WITH_WORKER_MODE, WORKER);
+
+    assertThat(instance.execute(List.of("--hash")), contains("worker --hash"));
+    assertThat(instance.execute(List.of("--hash")), contains("worker --hash"));
+
+    assertThat(Files.readAllLines(invocationLog), contains("--help", "--stdin"));
+  }
+
+  @Test
+  public void testSlowHandshakeDoesNotDisableWorkerMode() throws Exception {
+    instance = createPool(USAGE_WITH_WORKER_MODE, "exec sleep 5");
+
+    assertThat(instance.execute(List.of("--hash")), contains("one-shot --hash"));
+    assertThat(instance.execute(List.of("--hash")), contains("one-shot --hash"));
+
+    assertThat(Files.readAllLines(invocationLog), contains("--help", "--stdin", "--hash", "--stdin", "--hash"));
+  }
+
+  @Test
+  public void testRejectedWorkerModeIsNotTriedAgain() throws Exception {
+    instance = createPool(USAGE_WITH_WORKER_MODE, "echo \"Unknown option 'stdin'.\" >&2; exit 1");
+
+    assertThat(instance.execute(List.of("--hash")), contains("one-shot --hash"));
+    assertThat(instance.execute(List.of("--hash")), contains("one-shot --hash"));
+
+    assertThat(Files.readAllLines(invocationLog), contains("--help", "--stdin", "--hash", "--hash"));
+  }
+
+  @Test
+  public void testUsageOnStandardErrorIsRead() throws Exception {
+    instance = createPool("echo \"" + USAGE_WITH_WORKER_MODE + "\" >&2; exit 1", WORKER, Duration.ofSeconds(10));
+
+    assertThat(instance.execute(List.of("--hash")), contains("worker --hash"));
+
+    assertThat(Files.readAllLines(invocationLog), contains("--help", "--stdin"));
+  }
+
+  @Test
+  public void testFailedProbeIsNotRepeatedForEveryRequest() throws Exception {
+    instance = createPool("exec sleep 5", WORKER, Duration.ofMillis(500));
+
+    assertThat(instance.execute(List.of("--hash")), contains("one-shot --hash"));
+    assertThat(instance.execute(List.of("--hash")), contains("one-shot --hash"));
+
+    assertThat(Files.readAllLines(invocationLog), contains("--help", "--hash", "--hash"));
+  }
+
+  private MapToolWorkerPool createPool(String usage, String workerMode) throws Exception {
+    return createPool("echo \"" + usage + "\"; exit 0", workerMode, Duration.ofSeconds(10));
+  }
+
+  private MapToolWorkerPool createPool(String help, String workerMode, Duration requestTimeout) throws Exception {
+    Path executable = temporaryFolder.getRoot().toPath().resolve("maptool");
+    Files.writeString(executable, "#!/bin/sh\necho \"$*\" >> '" + invocationLog + "'\n"
+        + String.format(ONE_SHOT, help, "{\n" + workerMode + "\n}; exit $?"));
+    assumeTrue(executable.toFile().setExecutable(true));
+    return new MapToolWorkerPool(executable, 1, requestTimeout, Duration.ofMillis(500));
+  }
+}
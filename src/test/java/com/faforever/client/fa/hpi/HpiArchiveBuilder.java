@@ -0,0 +1,136 @@
+package com.faforever.client.fa.hpi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Writes minimal TA HPI archives with a single {@code maps} directory, for tests.
+ */
+public class HpiArchiveBuilder {
+
+  private final Map<String, byte[]> mapFiles = new LinkedHashMap<>();
+  private int headerKey = 0;
+  private boolean compress = false;
+
+  public static HpiArchiveBuilder create() {
+    return new HpiArchiveBuilder();
+  }
+
+  public HpiArchiveBuilder mapFile(String name, String content) {
+    mapFiles.put(name, content.getBytes(StandardCharsets.ISO_8859_1));
+    return this;
+  }
+
+  public HpiArchiveBuilder mapFile(String name, byte[] content) {
+    mapFiles.put(name, content);
+    return this;
+  }
+
+  public HpiArchiveBuilder encrypted(int headerKey) {
+    this.headerKey = headerKey;
+    return this;
+  }
+
+  public HpiArchiveBuilder zlibCompressed() {
+    this.compress = true;
+    return this;
+  }
+
+  public Path write(Path path) throws IOException {
+    final int root = 20;
+    int rootEntries = root + 8;
+    int mapsName = rootEntries + 9;
+    int mapsDirectory = mapsName + "maps".length() + 1;
+    int mapsEntries = mapsDirectory + 8;
+    int position = mapsEntries + 9 * mapFiles.size();
+
+    int[] nameOffsets = new int[mapFiles.size()];
+    int i = 0;
+    for (String name : mapFiles.keySet()) {
+      nameOffsets[i++] = position;
+      position += name.length() + 1;
+    }
+    int[] fileDataOffsets = new int[mapFiles.size()];
+    for (i = 0; i < mapFiles.size(); ++i) {
+      fileDataOffsets[i] = position;
+      position += 9;
+    }
+    int directorySize = position;
+
+    ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(0x49504148).putInt(0x00010000).putInt(directorySize).putInt(headerKey).putInt(root);
+    buffer.putInt(root, 1).putInt(root + 4, rootEntries);
+    buffer.putInt(rootEntries, mapsName).putInt(rootEntries + 4, mapsDirectory).put(rootEntries + 8, (byte) 1);
+    buffer.put(mapsName, "maps\0".getBytes(StandardCharsets.ISO_8859_1));
+    buffer.putInt(mapsDirectory, mapFiles.size()).putInt(mapsDirectory + 4, mapsEntries);
+
+    int dataPosition = directorySize;
+    i = 0;
+    for (Map.Entry<String, byte[]> file : mapFiles.entrySet()) {
+      int entry = mapsEntries + 9 * i;
+      buffer.putInt(entry, nameOffsets[i]).putInt(entry + 4, fileDataOffsets[i]).put(entry + 8, (byte) 0);
+      buffer.put(nameOffsets[i], (file.getKey() + "\0").getBytes(StandardCharsets.ISO_8859_1));
+
+      byte[] data = compress ? toZlibChunks(file.getValue()) : file.getValue();
+      buffer.putInt(fileDataOffsets[i], dataPosition)
+          .putInt(fileDataOffsets[i] + 4, file.getValue().length)
+          .put(fileDataOffsets[i] + 8, (byte) (compress ? 2 : 0));
+      buffer.put(dataPosition, data);
+      dataPosition += data.length;
+      ++i;
+    }
+
+    byte[] bytes = new byte[dataPosition];
+    buffer.get(0, bytes);
+    if (headerKey != 0) {
+      int key = ~((headerKey * 4) | (headerKey >> 6));
+      for (int offset = root; offset < bytes.length; ++offset) {
+        int tkey = offset ^ key;
+        bytes[offset] = (byte) ~(tkey ^ bytes[offset]);
+      }
+    }
+    return Files.write(path, bytes);
+  }
+
+  private static byte[] toZlibChunks(byte[] content) {
+    int chunkCount = Math.max(1, (content.length + 65535) / 65536);
+    ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+    ByteBuffer chunkSizes = ByteBuffer.allocate(chunkCount * 4).order(ByteOrder.LITTLE_ENDIAN);
+    for (int chunk = 0; chunk < chunkCount; ++chunk) {
+      int from = chunk * 65536;
+      int length = Math.min(65536, content.length - from);
+
+      Deflater deflater = new Deflater();
+      deflater.setInput(content, from, length);
+      deflater.finish();
+      byte[] compressed = new byte[length + 64];
+      int compressedSize = deflater.deflate(compressed);
+      deflater.end();
+
+      // chunk-level encryption, undone by the reader as (data[x] - x) ^ x
+      for (int x = 0; x < compressedSize; ++x) {
+        compressed[x] = (byte) ((compressed[x] ^ x) + x);
+      }
+
+      ByteBuffer header = ByteBuffer.allocate(19 + compressedSize).order(ByteOrder.LITTLE_ENDIAN);
+      header.putInt(0x48535153).put((byte) 2).put((byte) 2).put((byte) 1)
+          .putInt(compressedSize).putInt(length).putInt(0)
+          .put(compressed, 0, compressedSize);
+      chunks.writeBytes(header.array());
+      chunkSizes.putInt(header.capacity());
+    }
+
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    result.writeBytes(chunkSizes.array());
+    result.writeBytes(chunks.toByteArray());
+    return result.toByteArray();
+  }
+}
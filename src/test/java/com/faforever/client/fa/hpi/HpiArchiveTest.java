@@ -0,0 +1,77 @@
+package com.faforever.client.fa.hpi;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+
+public class HpiArchiveTest {
+
+  private static final String OTA = """
+      [GlobalHeader]
+      \t{
+      \tmissionname=Test Map;
+      \tmissiondescription=8x8 test map  for two players;
+      \tsize=8 x 8;
+      \tnumplayers=2;
+      \tminwindspeed=0;
+      \tmaxwindspeed=3000;
+      \ttidalstrength=20;
+      \tgravity=112;
+      \t// a comment
+      \t[Schema 0]
+      \t\t{
+      \t\tType=Network 1;
+      \t\t}
+      \t}
+      """;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testReadUncompressed() throws Exception {
+    Path archivePath = HpiArchiveBuilder.create()
+        .mapFile("Test Map.ota", OTA)
+        .write(temporaryFolder.getRoot().toPath().resolve("test.ufo"));
+
+    try (HpiArchive archive = HpiArchive.open(archivePath)) {
+      List<HpiArchive.Entry> entries = archive.list("MAPS");
+      assertThat(entries.stream().map(HpiArchive.Entry::getPath).toList(), contains("maps/Test Map.ota"));
+      assertThat(new String(archive.read(entries.get(0)), StandardCharsets.ISO_8859_1), is(OTA));
+    }
+  }
+
+  @Test
+  public void testReadEncryptedZlibChunks() throws Exception {
+    byte[] tnt = new byte[150_000];
+    new Random(42).nextBytes(tnt);
+    Path archivePath = HpiArchiveBuilder.create()
+        .mapFile("Test Map.ota", OTA)
+        .mapFile("Test Map.tnt", tnt)
+        .encrypted(0x7d)
+        .zlibCompressed()
+        .write(temporaryFolder.getRoot().toPath().resolve("test.ufo"));
+
+    try (HpiArchive archive = HpiArchive.open(archivePath)) {
+      List<HpiArchive.Entry> entries = archive.list("maps");
+      assertThat(new String(archive.read(entries.get(0)), StandardCharsets.ISO_8859_1), is(OTA));
+      assertArrayEquals(tnt, archive.read(entries.get(1)));
+    }
+  }
+
+  @Test
+  public void testDecompressLz77() throws Exception {
+    byte[] compressed = {0x18, 'a', 'b', 'c', 0x14, 0x00, 0x00, 0x00};
+    assertThat(new String(HpiArchive.decompressLz77(compressed, 9), StandardCharsets.ISO_8859_1), is("abcabcabc"));
+  }
+}
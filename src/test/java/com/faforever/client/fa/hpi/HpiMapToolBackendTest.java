@@ -0,0 +1,136 @@
+package com.faforever.client.fa.hpi;
+
+import com.faforever.client.fa.MapTool;
+import com.faforever.client.fa.MapToolBackend;
+import com.faforever.client.fa.NativeMapToolBackend;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static com.faforever.client.fa.MapTool.MAP_DETAIL_COLUMN_CRC;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class HpiMapToolBackendTest {
+
+  /** A real map archive to compare the backends on; a generated one is used if not set. */
+  private static final String PARITY_ARCHIVE_PROPERTY = "mapToolParityArchive";
+
+  private static final String OTA = """
+      [GlobalHeader]
+      \t{
+      \tmissionname=Test Map;
+      \tmissiondescription=8x8 test map  for two players;
+      \tsize=8 x 8;
+      \tnumplayers=2;
+      \tminwindspeed=0;
+      \tmaxwindspeed=3000;
+      \ttidalstrength=20;
+      \tgravity=112;
+      \t}
+      """;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Mock
+  private MapToolBackend crcBackend;
+
+  private HpiMapToolBackend instance;
+  private Path archivePath;
+
+  @Before
+  public void setUp() throws Exception {
+    instance = new HpiMapToolBackend(crcBackend);
+    byte[] tnt = new byte[4096];
+    new Random(42).nextBytes(tnt);
+    archivePath = HpiArchiveBuilder.create()
+        .mapFile("Test Map.ota", OTA)
+        .mapFile("Test Map.tnt", tnt)
+        .encrypted(0x21)
+        .write(temporaryFolder.getRoot().toPath().resolve("test.ufo"));
+  }
+
+  @After
+  public void tearDown() {
+    instance.shutdown();
+  }
+
+  @Test
+  public void testListMapsInArchive() throws Exception {
+    List<String[]> maps = instance.listMapsInArchive(archivePath, null, false);
+
+    assertThat(maps.size(), is(1));
+    assertThat(maps.get(0)[0], is("Test Map"));
+    assertThat(maps.get(0)[1], is("test.ufo"));
+    assertThat(maps.get(0)[2], is(HpiMapToolBackend.UNKNOWN_CRC));
+    assertThat(maps.get(0)[3], is("8x8 test map  for two players"));
+    assertThat(maps.get(0)[4], is("8 x 8"));
+    assertThat(maps.get(0)[5], is("2"));
+    assertThat(maps.get(0)[6], is("0-3000"));
+    assertThat(maps.get(0)[7], is("20"));
+    assertThat(maps.get(0)[8], is("112"));
+  }
+
+  @Test
+  public void testCrcIsLeftToCrcBackend() throws Exception {
+    List<String[]> nativeMaps = List.<String[]>of(new String[]{"Test Map", "test.ufo", "1a2b3c4d"});
+    when(crcBackend.listMapsInArchive(archivePath, null, true)).thenReturn(nativeMaps);
+
+    assertThat(instance.listMapsInArchive(archivePath, null, true), is(nativeMaps));
+  }
+
+  @Test
+  public void testShutdownShutsDownCrcBackend() {
+    instance.shutdown();
+
+    verify(crcBackend).shutdown();
+  }
+
+  /** Needs the native maptool, i.e. {@code -DnativeDir} pointing to the native resources. */
+  @Test
+  public void testAgreesWithNativeMapTool() throws Exception {
+    Path mapTool = Path.of(System.getProperty("nativeDir", "lib")).resolve("bin")
+        .resolve(org.bridj.Platform.isLinux() ? "maptool" : "maptool.exe");
+    assumeTrue("maptool is not available", Files.isExecutable(mapTool));
+    Path archive = System.getProperty(PARITY_ARCHIVE_PROPERTY) != null
+        ? Path.of(System.getProperty(PARITY_ARCHIVE_PROPERTY)) : archivePath;
+    NativeMapToolBackend nativeBackend = new NativeMapToolBackend();
+    HpiMapToolBackend hpiBackend = new HpiMapToolBackend(nativeBackend);
+
+    try {
+      List<String[]> expected = sorted(nativeBackend.listMapsInArchive(archive, null, true));
+      List<String[]> withoutCrc = sorted(hpiBackend.listMapsInArchive(archive, null, false));
+      List<String[]> withCrc = sorted(hpiBackend.listMapsInArchive(archive, null, true));
+
+      assertThat(withoutCrc.size(), is(expected.size()));
+      for (int i = 0; i < expected.size(); i++) {
+        String[] nativeDetails = expected.get(i).clone();
+        nativeDetails[MAP_DETAIL_COLUMN_CRC] = HpiMapToolBackend.UNKNOWN_CRC;
+        assertThat(withoutCrc.get(i), is(nativeDetails));
+        assertThat(withCrc.get(i), is(expected.get(i)));
+      }
+    } finally {
+      hpiBackend.shutdown();
+      MapTool.shutdownWorkers();
+    }
+  }
+
+  private static List<String[]> sorted(List<String[]> maps) {
+    return maps.stream().sorted(Comparator.comparing(details -> details[0])).toList();
+  }
+}
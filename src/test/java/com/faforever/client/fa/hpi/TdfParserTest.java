@@ -0,0 +1,42 @@
+package com.faforever.client.fa.hpi;
+
+import com.faforever.client.fa.hpi.TdfParser.Section;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class TdfParserTest {
+
+  @Test
+  public void testParseNestedSections() {
+    Section root = TdfParser.parse("""
+        [GlobalHeader]
+        {
+          MissionName=Lava Run; // trailing comment
+          /* block
+             comment */
+          Size = 10 x 10 ;
+          [Schema 0]
+          {
+            Type=Network 1;
+          }
+        }
+        """);
+
+    Section globalHeader = root.getSection("globalheader");
+    assertThat(globalHeader.getValue("missionname"), is("Lava Run"));
+    assertThat(globalHeader.getValue("SIZE"), is("10 x 10"));
+    assertThat(globalHeader.getSection("Schema 0").getValue("type"), is("Network 1"));
+    assertThat(globalHeader.getValue("gravity"), is(nullValue()));
+    assertThat(globalHeader.getValue("gravity", "112"), is("112"));
+  }
+
+  @Test
+  public void testParseMalformed() {
+    Section root = TdfParser.parse("[GlobalHeader]\n{\nname=X;\ngarbage\n[Other");
+
+    assertThat(root.getSection("globalheader").getValue("name"), is("X"));
+  }
+}
@@ -0,0 +1,121 @@
+package com.faforever.client.fx;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class FxUpdatePumpTest {
+
+  private Queue<Runnable> scheduled;
+  private List<String> applied;
+
+  @Before
+  public void setUp() throws Exception {
+    scheduled = new ArrayDeque<>();
+    applied = new ArrayList<>();
+  }
+
+  private FxUpdatePump<Integer, String> createPump(int maxBatchSize, Duration pulseBudget) {
+    return new FxUpdatePump<>("test", maxBatchSize, pulseBudget, FxUpdatePump.lastWriteWins(), applied::add, scheduled::add);
+  }
+
+  @Test
+  public void testCoalescesUpdatesForSameKey() {
+    FxUpdatePump<Integer, String> instance = createPump(100, Duration.ofSeconds(1));
+
+    instance.submit(1, "1a");
+    instance.submit(2, "2a");
+    instance.submit(1, "1b");
+
+    assertThat(scheduled.size(), is(1));
+    scheduled.poll().run();
+
+    assertThat(applied, contains("2a", "1b"));
+    assertThat(scheduled, empty());
+  }
+
+  @Test
+  public void testSplitsIntoBatches() {
+    FxUpdatePump<Integer, String> instance = createPump(2, Duration.ofSeconds(1));
+    for (int i = 0; i < 5; i++) {
+      instance.submit(i, "v" + i);
+    }
+
+    scheduled.poll().run();
+    assertThat(applied, contains("v0", "v1"));
+
+    instance.submit(0, "v0b");
+    scheduled.poll().run();
+    scheduled.poll().run();
+    assertThat(applied, contains("v0", "v1", "v2", "v3", "v4", "v0b"));
+    assertThat(scheduled, empty());
+  }
+
+  @Test
+  public void testYieldsWhenPulseBudgetIsUsedUp() {
+    AtomicReference<FxUpdatePump<Integer, String>> instance = new AtomicReference<>();
+    instance.set(new FxUpdatePump<>("test", 100, Duration.ZERO, FxUpdatePump.lastWriteWins(), value -> {
+      applied.add(value);
+      if (value.equals("v0")) {
+        // a newer update for a key that is still part of the interrupted batch
+        instance.get().submit(2, "v2b");
+      }
+    }, scheduled::add));
+    instance.get().submit(0, "v0");
+    instance.get().submit(1, "v1");
+    instance.get().submit(2, "v2");
+
+    scheduled.poll().run();
+    assertThat(applied, contains("v0"));
+
+    while (!scheduled.isEmpty()) {
+      scheduled.poll().run();
+    }
+    assertThat(applied, contains("v0", "v1", "v2b"));
+  }
+
+  @Test
+  public void testClearDiscardsPendingUpdates() {
+    FxUpdatePump<Integer, String> instance = createPump(100, Duration.ofSeconds(1));
+    instance.submit(1, "1a");
+    instance.submit(2, "2a");
+
+    instance.clear();
+    scheduled.poll().run();
+    assertThat(applied, empty());
+
+    instance.submit(1, "1b");
+    while (!scheduled.isEmpty()) {
+      scheduled.poll().run();
+    }
+    assertThat(applied, contains("1b"));
+  }
+
+  @Test
+  public void testClearDiscardsRestOfCurrentBatch() {
+    AtomicReference<FxUpdatePump<Integer, String>> instance = new AtomicReference<>();
+    instance.set(new FxUpdatePump<>("test", 100, Duration.ZERO, FxUpdatePump.lastWriteWins(), value -> {
+      applied.add(value);
+      instance.get().clear();
+    }, scheduled::add));
+    instance.get().submit(0, "v0");
+    instance.get().submit(1, "v1");
+    instance.get().submit(2, "v2");
+
+    scheduled.poll().run();
+
+    assertThat(applied, contains("v0"));
+    assertThat(scheduled, empty());
+  }
+}
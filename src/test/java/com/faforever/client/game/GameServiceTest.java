@@ -13,6 +13,7 @@ import com.faforever.client.leaderboard.LeaderboardService;
 import com.faforever.client.map.MapService;
 import com.faforever.client.mod.FeaturedMod;
 import com.faforever.client.mod.ModService;
+import com.faforever.client.net.ConnectionState;
 import com.faforever.client.notification.NotificationService;
 import com.faforever.client.notification.PersistentNotification;
 import com.faforever.client.patch.GameUpdater;
@@ -145,6 +146,7 @@ public class GameServiceTest extends AbstractPlainJavaFxTest {
 
   private Player junitPlayer;
   private Preferences preferences;
+  private SimpleObjectProperty<ConnectionState> connectionState;
 
   @Before
   public void setUp() throws Exception {
@@ -155,7 +157,8 @@ public class GameServiceTest extends AbstractPlainJavaFxTest {
 
     when(preferencesService.getPreferences()).thenReturn(preferences);
     when(preferencesService.isGameExeValid(KnownFeaturedMod.DEFAULT.getTechnicalName())).thenReturn(true);
-    when(fafService.connectionStateProperty()).thenReturn(new SimpleObjectProperty<>());
+    connectionState = new SimpleObjectProperty<>();
+    when(fafService.connectionStateProperty()).thenReturn(connectionState);
     when(replayService.start(anyInt(), any())).thenReturn(completedFuture(LOCAL_REPLAY_PORT));
     when(iceAdapter.start("BILY_IDOL", 667)).thenReturn(completedFuture(GPG_PORT));
     when(playerService.getCurrentPlayer()).thenReturn(Optional.of(junitPlayer));
@@ -390,6 +393,18 @@ public class GameServiceTest extends AbstractPlainJavaFxTest {
     assertThat(instance.getGames(), hasSize(2));
   }
 
+  @Test
+  public void testGameInfoQueuedBeforeDisconnectIsDiscarded() {
+    WaitForAsyncUtils.asyncFx(() -> {
+      // The update is still queued when the connection goes down
+      gameInfoMessageListenerCaptor.getValue().accept(GameInfoMessageBuilder.create(1).defaultValues().get());
+      connectionState.set(ConnectionState.DISCONNECTED);
+    });
+    WaitForAsyncUtils.waitForFxEvents();
+
+    assertThat(instance.getGames(), empty());
+  }
+
   @Test
   public void testOnGameInfoAdd() {
     assertThat(instance.getGames(), empty());
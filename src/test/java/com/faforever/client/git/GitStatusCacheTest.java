@@ -0,0 +1,124 @@
+package com.faforever.client.git;
+
+import com.faforever.client.preferences.PreferencesService;
+import org.eclipse.jgit.api.Git;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GitStatusCacheTest {
+
+  @Rule
+  public TemporaryFolder workTree = new TemporaryFolder();
+  @Rule
+  public TemporaryFolder cacheDirectory = new TemporaryFolder();
+  @Mock
+  private PreferencesService preferencesService;
+
+  private GitStatusCache instance;
+  private Git git;
+  private Path trackedFile;
+
+  @Before
+  public void setUp() throws Exception {
+    when(preferencesService.getCacheDirectory()).thenReturn(cacheDirectory.getRoot().toPath());
+    instance = new GitStatusCache(preferencesService);
+
+    git = Git.init().setDirectory(workTree.getRoot()).call();
+    trackedFile = workTree.getRoot().toPath().resolve("totala1.hpi");
+    Files.writeString(trackedFile, "original");
+    Path iniFile = workTree.newFolder("config").toPath().resolve("TA.ini");
+    Files.writeString(iniFile, "[TA]");
+    git.add().addFilepattern(".").call();
+    git.commit().setMessage("Initial commit").setAuthor("test", "test@example.com")
+        .setCommitter("test", "test@example.com").setSign(false).call();
+    setBackInTime(trackedFile);
+    setBackInTime(iniFile);
+  }
+
+  @After
+  public void tearDown() {
+    git.close();
+  }
+
+  @Test
+  public void testCleanTree() throws Exception {
+    assertThat(instance.hasUncommittedChanges(git), is(false));
+  }
+
+  @Test
+  public void testUnchangedTreeIsNotScannedAgain() throws Exception {
+    Git spiedGit = spy(git);
+
+    instance.hasUncommittedChanges(spiedGit);
+    instance.hasUncommittedChanges(spiedGit);
+
+    verify(spiedGit, times(1)).status();
+  }
+
+  @Test
+  public void testModifiedFileIsDetected() throws Exception {
+    instance.hasUncommittedChanges(git);
+
+    Files.writeString(trackedFile, "modified content");
+
+    assertThat(instance.hasUncommittedChanges(git), is(true));
+  }
+
+  @Test
+  public void testCleanStateIsPersisted() throws Exception {
+    instance.hasUncommittedChanges(git);
+    Git spiedGit = spy(git);
+
+    GitStatusCache reloaded = new GitStatusCache(preferencesService);
+
+    assertThat(reloaded.hasUncommittedChanges(spiedGit), is(false));
+    verify(spiedGit, never()).status();
+  }
+
+  @Test
+  public void testNewCommitTriggersFullStatus() throws Exception {
+    instance.hasUncommittedChanges(git);
+    Git spiedGit = spy(git);
+
+    git.commit().setMessage("Empty commit").setAuthor("test", "test@example.com")
+        .setCommitter("test", "test@example.com").setSign(false).setAllowEmpty(true).call();
+
+    assertThat(instance.hasUncommittedChanges(spiedGit), is(false));
+    verify(spiedGit).status();
+  }
+
+  @Test
+  public void testUntrackedIniFileIsIgnored() throws Exception {
+    Files.writeString(workTree.getRoot().toPath().resolve("untracked.ini"), "[TA]");
+
+    assertThat(instance.hasUncommittedChanges(git), is(false));
+    assertThat(instance.getTrackedIniFiles(git), contains(Path.of("config", "TA.ini")));
+  }
+
+  private static void setBackInTime(Path file) throws IOException {
+    Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(1, ChronoUnit.MINUTES)));
+  }
+}
@@ -0,0 +1,262 @@
+package com.faforever.client.git;
+
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.io.DownloadService;
+import com.faforever.client.preferences.PreferencesService;
+import com.faforever.client.task.TransferScheduler;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lfs.Lfs;
+import org.eclipse.jgit.lfs.lib.LongObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LfsObjectStoreTest {
+
+  private static final String CONTENT = "total annihilation game data";
+  private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-(\\d+)");
+  private static final String OID = Hashing.sha256().hashString(CONTENT, StandardCharsets.UTF_8).toString();
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Mock
+  private PreferencesService preferencesService;
+
+  private HttpServer server;
+  private ExecutorService executorService;
+  private LfsObjectStore instance;
+  private ClientProperties clientProperties;
+  private final AtomicInteger objectDownloads = new AtomicInteger();
+  private final AtomicInteger batchRequests = new AtomicInteger();
+  /** Number of object responses that are cut off after half of their body. */
+  private final AtomicInteger truncatedObjectResponses = new AtomicInteger();
+  private final List<String> objectRanges = new CopyOnWriteArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/lfs/objects/batch", this::handleBatch);
+    server.createContext("/objects/" + OID, this::handleObject);
+    server.start();
+
+    when(preferencesService.getPatchReposDirectory()).thenReturn(temporaryFolder.newFolder("repos").toPath());
+    executorService = Executors.newCachedThreadPool();
+    clientProperties = new ClientProperties();
+    DownloadService downloadService = new DownloadService(clientProperties, executorService,
+        new TransferScheduler(clientProperties));
+    instance = new LfsObjectStore(preferencesService, downloadService, executorService, clientProperties);
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testMissingObjectIsDownloaded() throws Exception {
+    try (Git git = createRepository("taesc")) {
+      AtomicLong bytesDownloaded = new AtomicLong();
+
+      instance.prefetch(git.getRepository(), "HEAD", (written, total) -> bytesDownloaded.set(written));
+
+      Path mediaFile = new Lfs(git.getRepository()).getMediaFile(LongObjectId.fromString(OID));
+      assertThat(Files.readString(mediaFile), is(CONTENT));
+      assertThat(Files.readString(instance.getStoredFile(OID)), is(CONTENT));
+      assertThat(bytesDownloaded.get(), is((long) CONTENT.length()));
+    }
+  }
+
+  @Test
+  public void testStoredObjectIsSharedBetweenRepositories() throws Exception {
+    try (Git git = createRepository("taesc");
+         Git otherGit = createRepository("tavmod")) {
+      instance.prefetch(git.getRepository(), "HEAD", (written, total) -> {
+      });
+
+      instance.prefetch(otherGit.getRepository(), "HEAD", (written, total) -> {
+      });
+
+      Path mediaFile = new Lfs(otherGit.getRepository()).getMediaFile(LongObjectId.fromString(OID));
+      assertThat(Files.isSameFile(mediaFile, instance.getStoredFile(OID)), is(true));
+      assertThat(objectDownloads.get(), is(1));
+    }
+  }
+
+  @Test
+  public void testDownloadIsResumedWithNewlySignedHref() throws Exception {
+    clientProperties.getDownload().setMaxRetries(0);
+    truncatedObjectResponses.set(1);
+    try (Git git = createRepository("taesc")) {
+      instance.prefetch(git.getRepository(), "HEAD", (written, total) -> {
+      });
+      assertThat(Files.exists(instance.getStoredFile(OID)), is(false));
+
+      instance.prefetch(git.getRepository(), "HEAD", (written, total) -> {
+      });
+
+      assertThat(Files.readString(instance.getStoredFile(OID)), is(CONTENT));
+      assertThat(batchRequests.get(), is(2));
+      assertThat(objectRanges.get(1), startsWith("bytes=" + CONTENT.length() / 2 + "-"));
+    }
+  }
+
+  @Test
+  public void testUpToDateUpstreamIsNotPrefetched() throws Exception {
+    try (Git origin = createRepository("origin");
+         Git git = cloneRepository(origin)) {
+      Ref upstream = instance.fetchAndPrefetchUpstream(git, git.getRepository().getBranch(),
+          NullProgressMonitor.INSTANCE, (written, total) -> {
+          });
+
+      assertThat(upstream.getObjectId(), is(git.getRepository().resolve(Constants.HEAD)));
+      assertThat(batchRequests.get(), is(0));
+      assertThat(Files.exists(instance.getStoredFile(OID)), is(false));
+    }
+  }
+
+  @Test
+  public void testFetchedUpstreamIsPrefetched() throws Exception {
+    try (Git origin = createRepository("origin");
+         Git git = cloneRepository(origin)) {
+      ObjectId head = git.getRepository().resolve(Constants.HEAD);
+      Files.writeString(origin.getRepository().getWorkTree().toPath().resolve("readme.txt"), "readme");
+      origin.add().addFilepattern(".").call();
+      RevCommit upstreamCommit = origin.commit().setMessage("Add readme").setAuthor("test", "test@example.com")
+          .setCommitter("test", "test@example.com").setSign(false).call();
+
+      Ref upstream = instance.fetchAndPrefetchUpstream(git, git.getRepository().getBranch(),
+          NullProgressMonitor.INSTANCE, (written, total) -> {
+          });
+
+      assertThat(upstream.getObjectId(), is(upstreamCommit.getId()));
+      assertThat(git.getRepository().resolve(Constants.HEAD), is(head));
+      Path mediaFile = new Lfs(git.getRepository()).getMediaFile(LongObjectId.fromString(OID));
+      assertThat(Files.readString(mediaFile), is(CONTENT));
+    }
+  }
+
+  /** Creates a repository with a commit that has a pointer to {@link #CONTENT}, as the LFS clean filter would. */
+  private Git createRepository(String name) throws Exception {
+    File directory = temporaryFolder.newFolder(name);
+    Git git = Git.init().setDirectory(directory).call();
+    StoredConfig config = git.getRepository().getConfig();
+    config.setString("lfs", null, "url", "http://localhost:" + server.getAddress().getPort() + "/lfs");
+    config.save();
+
+    Path pointerFile = directory.toPath().resolve("totala1.hpi");
+    Files.writeString(pointerFile, "version https://git-lfs.github.com/spec/v1\n"
+        + "oid sha256:" + OID + "\n"
+        + "size " + CONTENT.length() + "\n");
+    git.add().addFilepattern(".").call();
+    git.commit().setMessage("Add game data").setAuthor("test", "test@example.com")
+        .setCommitter("test", "test@example.com").setSign(false).call();
+    return git;
+  }
+
+  private Git cloneRepository(Git origin) throws Exception {
+    Git git = Git.cloneRepository()
+        .setURI(origin.getRepository().getDirectory().toURI().toString())
+        .setDirectory(temporaryFolder.newFolder("clone"))
+        .call();
+    StoredConfig config = git.getRepository().getConfig();
+    config.setString("lfs", null, "url", "http://localhost:" + server.getAddress().getPort() + "/lfs");
+    config.save();
+    return git;
+  }
+
+  private void handleBatch(HttpExchange exchange) throws IOException {
+    JsonObject request = JsonParser.parseReader(
+        new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)).getAsJsonObject();
+    JsonArray objects = new JsonArray();
+    request.getAsJsonArray("objects").forEach(requested -> {
+      JsonObject download = new JsonObject();
+      // Like signed URLs, every batch response has a different href
+      download.addProperty("href", "http://localhost:" + server.getAddress().getPort() + "/objects/"
+          + requested.getAsJsonObject().get("oid").getAsString() + "?signature=" + batchRequests.incrementAndGet());
+      JsonObject actions = new JsonObject();
+      actions.add("download", download);
+      JsonObject object = requested.getAsJsonObject().deepCopy();
+      object.add("actions", actions);
+      objects.add(object);
+    });
+    JsonObject response = new JsonObject();
+    response.add("objects", objects);
+    respond(exchange, response.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void handleObject(HttpExchange exchange) throws IOException {
+    objectDownloads.incrementAndGet();
+    byte[] body = CONTENT.getBytes(StandardCharsets.UTF_8);
+    String range = exchange.getRequestHeaders().getFirst("Range");
+    objectRanges.add(String.valueOf(range));
+    Matcher matcher = range != null ? RANGE_PATTERN.matcher(range) : null;
+    if (matcher == null || !matcher.matches()) {
+      respond(exchange, body);
+      return;
+    }
+
+    int start = Integer.parseInt(matcher.group(1));
+    int end = Math.min(Integer.parseInt(matcher.group(2)), body.length - 1);
+    int length = end - start + 1;
+    exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + body.length);
+    exchange.sendResponseHeaders(206, length);
+    try (OutputStream outputStream = exchange.getResponseBody()) {
+      if (truncatedObjectResponses.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+        outputStream.write(body, start, length / 2);
+        outputStream.flush();
+        exchange.close();
+        return;
+      }
+      outputStream.write(body, start, length);
+    }
+  }
+
+  private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream outputStream = exchange.getResponseBody()) {
+      outputStream.write(body);
+    }
+  }
+}
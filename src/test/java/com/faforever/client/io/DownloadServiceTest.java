@@ -0,0 +1,281 @@
+package com.faforever.client.io;
+
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.task.TransferPriority;
+import com.faforever.client.task.TransferScheduler;
+import com.google.common.hash.Hashing;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DownloadServiceTest {
+
+  private static final int SEGMENT_SIZE = 16 * 1024;
+  private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private HttpServer server;
+  private ExecutorService executorService;
+  private ClientProperties clientProperties;
+  private DownloadService instance;
+  private Path targetFile;
+  private URL url;
+
+  private volatile byte[] content;
+  private volatile String etag = "\"1\"";
+  private volatile boolean supportsRanges = true;
+  /** Number of responses that are cut off after half of their body. */
+  private final AtomicInteger truncatedResponses = new AtomicInteger();
+  private final AtomicInteger requestCount = new AtomicInteger();
+  private final AtomicInteger authorizedRequestCount = new AtomicInteger();
+  private final AtomicLong bytesServed = new AtomicLong();
+
+  @Before
+  public void setUp() throws Exception {
+    content = new byte[100 * 1024];
+    new Random(1).nextBytes(content);
+
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/file", this::handle);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+    url = new URL("http://localhost:" + server.getAddress().getPort() + "/file");
+
+    executorService = Executors.newCachedThreadPool();
+    clientProperties = new ClientProperties();
+    clientProperties.getDownload().setSegmentSize(SEGMENT_SIZE);
+    clientProperties.getDownload().setRetryDelay(Duration.ZERO);
+    instance = new DownloadService(clientProperties, executorService, new TransferScheduler(clientProperties));
+    targetFile = temporaryFolder.getRoot().toPath().resolve("target.bin");
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testDownloadInSegments() throws Exception {
+    AtomicLong lastProgress = new AtomicLong();
+
+    instance.downloadFile(url, targetFile, (written, total) -> {
+      assertThat(total, is((long) content.length));
+      lastProgress.accumulateAndGet(written, Math::max);
+    });
+
+    assertArrayEquals(content, Files.readAllBytes(targetFile));
+    assertThat(requestCount.get(), is(7));
+    assertThat(lastProgress.get(), is((long) content.length));
+    assertThat(Files.exists(partFile()), is(false));
+    assertThat(Files.exists(stateFile()), is(false));
+  }
+
+  @Test
+  public void testSmallFileNeedsOneRequest() throws Exception {
+    content = new byte[]{1, 2, 3};
+
+    instance.downloadFile(url, targetFile, null);
+
+    assertArrayEquals(content, Files.readAllBytes(targetFile));
+    assertThat(requestCount.get(), is(1));
+  }
+
+  @Test
+  public void testFailedSegmentIsRetried() throws Exception {
+    truncatedResponses.set(2);
+
+    instance.downloadFile(url, targetFile, null);
+
+    assertArrayEquals(content, Files.readAllBytes(targetFile));
+  }
+
+  @Test
+  public void testFailedDownloadIsResumed() throws Exception {
+    clientProperties.getDownload().setMaxRetries(0);
+    clientProperties.getDownload().setMaxConnectionsPerFile(1);
+    truncatedResponses.set(2);
+    try {
+      instance.downloadFile(url, targetFile, null);
+      fail("Download should have failed");
+    } catch (IOException expected) {
+      // expected
+    }
+    assertThat(Files.exists(partFile()), is(true));
+    assertThat(Files.exists(stateFile()), is(true));
+
+    bytesServed.set(0);
+    instance.downloadFile(url, targetFile, null);
+
+    assertArrayEquals(content, Files.readAllBytes(targetFile));
+    assertThat(bytesServed.get(), lessThan((long) content.length));
+    assertThat(bytesServed.get(), greaterThan(0L));
+  }
+
+  @Test
+  public void testDownloadIsResumedFromAnotherUrlWithSameResumeKey() throws Exception {
+    clientProperties.getDownload().setMaxRetries(0);
+    clientProperties.getDownload().setMaxConnectionsPerFile(1);
+    truncatedResponses.set(2);
+    try {
+      instance.downloadFile(new URL(url + "?signature=1"), targetFile, null, null, Map.of(), "object",
+          content.length, TransferPriority.NORMAL);
+      fail("Download should have failed");
+    } catch (IOException expected) {
+      // expected
+    }
+
+    bytesServed.set(0);
+    instance.downloadFile(new URL(url + "?signature=2"), targetFile, null, null, Map.of(), "object",
+        content.length, TransferPriority.NORMAL);
+
+    assertArrayEquals(content, Files.readAllBytes(targetFile));
+    assertThat(bytesServed.get(), lessThan((long) content.length));
+  }
+
+  @Test
+  public void testChangedFileIsDownloadedAgain() throws Exception {
+    clientProperties.getDownload().setMaxRetries(0);
+    clientProperties.getDownload().setMaxConnectionsPerFile(1);
+    truncatedResponses.set(2);
+    try {
+      instance.downloadFile(url, targetFile, null);
+      fail("Download should have failed");
+    } catch (IOException expected) {
+      // expected
+    }
+
+    content = new byte[50 * 1024];
+    new Random(2).nextBytes(content);
+    etag = "\"2\"";
+    instance.downloadFile(url, targetFile, null);
+
+    assertArrayEquals(content, Files.readAllBytes(targetFile));
+  }
+
+  @Test
+  public void testLongerLeftoverPartFileIsTruncated() throws Exception {
+    byte[] leftover = new byte[content.length + SEGMENT_SIZE / 2];
+    new Random(3).nextBytes(leftover);
+    Files.write(partFile(), leftover);
+
+    instance.downloadFile(url, targetFile, null);
+
+    assertArrayEquals(content, Files.readAllBytes(targetFile));
+  }
+
+  @Test
+  public void testServerWithoutRangeSupport() throws Exception {
+    supportsRanges = false;
+
+    instance.downloadFile(url, targetFile, null);
+
+    assertArrayEquals(content, Files.readAllBytes(targetFile));
+    assertThat(requestCount.get(), is(1));
+  }
+
+  @Test
+  public void testChecksum() throws Exception {
+    String md5 = Hashing.md5().hashBytes(content).toString();
+
+    instance.downloadFile(url, targetFile, null, md5, TransferPriority.NORMAL);
+
+    assertArrayEquals(content, Files.readAllBytes(targetFile));
+  }
+
+  @Test
+  public void testChecksumMismatch() throws Exception {
+    try {
+      instance.downloadFile(url, targetFile, null, "d41d8cd98f00b204e9800998ecf8427e", TransferPriority.NORMAL);
+      fail("Download should have failed");
+    } catch (IOException expected) {
+      // expected
+    }
+
+    assertThat(Files.exists(targetFile), is(false));
+    assertThat(Files.exists(partFile()), is(false));
+  }
+
+  @Test
+  public void testRequestHeadersAreSentWithEveryRequest() throws Exception {
+    instance.downloadFile(url, targetFile, null, null, Map.of("Authorization", "RemoteAuth token"),
+        TransferPriority.NORMAL);
+
+    assertArrayEquals(content, Files.readAllBytes(targetFile));
+    assertThat(authorizedRequestCount.get(), is(requestCount.get()));
+  }
+
+  private Path partFile() {
+    return targetFile.resolveSibling(targetFile.getFileName() + SegmentedDownload.PART_SUFFIX);
+  }
+
+  private Path stateFile() {
+    return targetFile.resolveSibling(targetFile.getFileName() + SegmentedDownload.STATE_SUFFIX);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requestCount.incrementAndGet();
+    if ("RemoteAuth token".equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+      authorizedRequestCount.incrementAndGet();
+    }
+    byte[] body = content;
+    int start = 0;
+    int end = body.length - 1;
+    int status = 200;
+
+    String range = exchange.getRequestHeaders().getFirst("Range");
+    String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+    Matcher matcher = range != null ? RANGE_PATTERN.matcher(range) : null;
+    if (supportsRanges && matcher != null && matcher.matches() && (ifRange == null || ifRange.equals(etag))) {
+      start = Integer.parseInt(matcher.group(1));
+      end = Math.min(Integer.parseInt(matcher.group(2)), body.length - 1);
+      status = 206;
+      exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + body.length);
+    }
+    exchange.getResponseHeaders().set("ETag", etag);
+
+    int length = end - start + 1;
+    exchange.sendResponseHeaders(status, length);
+    try (OutputStream outputStream = exchange.getResponseBody()) {
+      if (truncatedResponses.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+        outputStream.write(body, start, length / 2);
+        bytesServed.addAndGet(length / 2);
+        outputStream.flush();
+        exchange.close();
+        return;
+      }
+      outputStream.write(body, start, length);
+      bytesServed.addAndGet(length);
+    }
+  }
+}
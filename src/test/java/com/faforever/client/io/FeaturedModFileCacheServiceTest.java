@@ -1,9 +1,11 @@
 package com.faforever.client.io;
 
 import com.faforever.client.api.dto.FeaturedModFile;
+import com.faforever.client.config.ClientProperties;
 import com.faforever.client.preferences.Preferences;
 import com.faforever.client.preferences.PreferencesBuilder;
 import com.faforever.client.preferences.PreferencesService;
+import com.faforever.client.task.TransferScheduler;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -29,6 +31,8 @@ public class FeaturedModFileCacheServiceTest {
   public TemporaryFolder cacheDirectory = new TemporaryFolder();
   @Rule
   public TemporaryFolder targetDirectory = new TemporaryFolder();
+  @Rule
+  public TemporaryFolder clientCacheDirectory = new TemporaryFolder();
   @Mock
   private PreferencesService preferenceService;
   private FeaturedModFileCacheService instance;
@@ -38,7 +42,10 @@ public class FeaturedModFileCacheServiceTest {
     Preferences preferences = PreferencesBuilder.create().defaultValues().gameDataCacheActivated(true).get();
     when(preferenceService.getPreferences()).thenReturn(preferences);
     when(preferenceService.getFeaturedModCachePath()).thenReturn(cacheDirectory.getRoot().toPath());
-    instance = new FeaturedModFileCacheService(preferenceService);
+    when(preferenceService.getCacheDirectory()).thenReturn(clientCacheDirectory.getRoot().toPath());
+    when(preferenceService.getFafDataDirectory()).thenReturn(targetDirectory.getRoot().toPath());
+    instance = new FeaturedModFileCacheService(preferenceService, new TransferScheduler(new ClientProperties()),
+        new FileHashIndex(preferenceService));
   }
 
   @Test
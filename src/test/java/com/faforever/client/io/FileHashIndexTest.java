@@ -0,0 +1,145 @@
+package com.faforever.client.io;
+
+import com.faforever.client.preferences.PreferencesService;
+import com.google.common.hash.Hashing;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FileHashIndexTest {
+
+  @Rule
+  public TemporaryFolder dataDirectory = new TemporaryFolder();
+  @Rule
+  public TemporaryFolder cacheDirectory = new TemporaryFolder();
+  @Mock
+  private PreferencesService preferencesService;
+
+  private FileHashIndex instance;
+  private Path file;
+
+  @Before
+  public void setUp() throws Exception {
+    when(preferencesService.getCacheDirectory()).thenReturn(cacheDirectory.getRoot().toPath());
+    when(preferencesService.getFafDataDirectory()).thenReturn(dataDirectory.getRoot().toPath());
+    instance = new FileHashIndex(preferencesService);
+    instance.afterPropertiesSet();
+
+    file = dataDirectory.getRoot().toPath().resolve("gamedata.hpi");
+    Files.writeString(file, "original");
+  }
+
+  @Test
+  public void testHash() throws Exception {
+    assertThat(instance.hash(file), is(md5("original")));
+  }
+
+  @Test
+  public void testUnchangedFileIsNotReadAgain() throws Exception {
+    instance.hash(file);
+
+    overwriteKeepingStat(file, "modified");
+
+    assertThat(instance.hash(file), is(md5("original")));
+  }
+
+  @Test
+  public void testChangedFileIsHashedAgain() throws Exception {
+    instance.hash(file);
+
+    Files.writeString(file, "modified");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+
+    assertThat(instance.hash(file), is(md5("modified")));
+  }
+
+  @Test
+  public void testIndexIsPersisted() throws Exception {
+    instance.hash(file);
+    overwriteKeepingStat(file, "modified");
+
+    FileHashIndex reloaded = new FileHashIndex(preferencesService);
+    reloaded.afterPropertiesSet();
+
+    assertThat(reloaded.hash(file), is(md5("original")));
+  }
+
+  @Test
+  public void testIndexOfOtherDataDirectoryIsDiscarded() throws Exception {
+    instance.hash(file);
+    overwriteKeepingStat(file, "modified");
+
+    when(preferencesService.getFafDataDirectory()).thenReturn(cacheDirectory.getRoot().toPath());
+    FileHashIndex reloaded = new FileHashIndex(preferencesService);
+    reloaded.afterPropertiesSet();
+
+    assertThat(reloaded.hash(file), is(md5("modified")));
+  }
+
+  @Test
+  public void testHashAll() throws Exception {
+    List<Path> files = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      Path otherFile = dataDirectory.getRoot().toPath().resolve("file" + i);
+      Files.writeString(otherFile, "content " + i);
+      files.add(otherFile);
+    }
+    files.add(dataDirectory.getRoot().toPath().resolve("missing"));
+
+    Map<Path, String> hashes = instance.hashAll(files);
+
+    assertThat(hashes.size(), is(20));
+    for (int i = 0; i < 20; i++) {
+      assertThat(hashes.get(files.get(i)), is(md5("content " + i)));
+    }
+    instance.destroy();
+  }
+
+  @Test
+  public void testMovedFileKeepsHash() throws Exception {
+    instance.hash(file);
+    Path target = dataDirectory.newFolder("cache").toPath().resolve("moved.hpi");
+    Files.move(file, target);
+    instance.moved(file, target);
+
+    overwriteKeepingStat(target, "modified");
+
+    assertThat(instance.hash(target), is(md5("original")));
+  }
+
+  @Test
+  public void testPut() throws Exception {
+    instance.put(file, "known");
+
+    assertThat(instance.hash(file), is("known"));
+  }
+
+  /** Changes the content of a file in a way that its size, modification time and file key don't show. */
+  private static void overwriteKeepingStat(Path file, String content) throws IOException {
+    FileTime lastModified = Files.getLastModifiedTime(file);
+    Files.writeString(file, content);
+    Files.setLastModifiedTime(file, lastModified);
+  }
+
+  private static String md5(String content) {
+    return Hashing.md5().hashString(content, StandardCharsets.UTF_8).toString();
+  }
+}
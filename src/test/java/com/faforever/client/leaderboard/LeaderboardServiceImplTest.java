@@ -8,16 +8,18 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
 
+import static com.faforever.client.leaderboard.LeaderboardSnapshotTest.dto;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,6 +33,8 @@ public class LeaderboardServiceImplTest {
   private LeaderboardServiceImpl instance;
 
   private Leaderboard leaderboard;
+  private final IntConsumer loadedEntriesListener = loadedEntries -> {
+  };
 
   @Before
   public void setUp() throws Exception {
@@ -40,38 +44,48 @@ public class LeaderboardServiceImplTest {
   }
 
   @Test
-  public void testGetLeaderboardEntries() {
-    List<LeaderboardEntry> ladder1V1Entries = Collections.emptyList();
-    when(fafService.getAllLeaderboardEntries(leaderboard.getTechnicalName())).thenReturn(CompletableFuture.completedFuture(ladder1V1Entries));
+  public void testGetSnapshot() {
+    LeaderboardSnapshot snapshot = LeaderboardSnapshot.empty();
+    when(fafService.getLeaderboardSnapshot(eq(leaderboard.getTechnicalName()), any())).thenReturn(CompletableFuture.completedFuture(snapshot));
 
-    List<LeaderboardEntry> result = instance.getEntries(leaderboard).toCompletableFuture().join();
+    LeaderboardSnapshot result = instance.getSnapshot(leaderboard, loadedEntriesListener).join();
 
-    verify(fafService).getAllLeaderboardEntries(leaderboard.getTechnicalName());
-    assertThat(result, is(ladder1V1Entries));
+    verify(fafService).getLeaderboardSnapshot(eq(leaderboard.getTechnicalName()), any());
+    assertThat(result, is(snapshot));
   }
 
   @Test
-  public void testGetLeaderboardStats() {
-    LeaderboardEntry leaderboardEntry1 = new LeaderboardEntry();
-    leaderboardEntry1.setRating(151);
-    leaderboardEntry1.setWonGames(LeaderboardService.MINIMUM_GAMES_PLAYED_TO_BE_SHOWN);
+  public void testSnapshotIsCached() {
+    when(fafService.getLeaderboardSnapshot(eq(leaderboard.getTechnicalName()), any())).thenReturn(CompletableFuture.completedFuture(LeaderboardSnapshot.empty()));
 
-    LeaderboardEntry leaderboardEntry2 = new LeaderboardEntry();
-    leaderboardEntry2.setRating(121);
-    leaderboardEntry2.setWonGames(LeaderboardService.MINIMUM_GAMES_PLAYED_TO_BE_SHOWN + 42);
+    instance.getSnapshot(leaderboard, loadedEntriesListener).join();
+    instance.getLeaderboardStats(leaderboard.getTechnicalName()).join();
 
-    LeaderboardEntry leaderboardEntry3 = new LeaderboardEntry();
-    leaderboardEntry3.setRating(221);
-    leaderboardEntry3.setWonGames(LeaderboardService.MINIMUM_GAMES_PLAYED_TO_BE_SHOWN);
+    verify(fafService, times(1)).getLeaderboardSnapshot(eq(leaderboard.getTechnicalName()), any());
+  }
 
-    when(fafService.getAllLeaderboardEntries(leaderboard.getTechnicalName())).thenReturn(CompletableFuture.completedFuture(Arrays.asList(
-        leaderboardEntry1, leaderboardEntry2, leaderboardEntry3
-    )));
+  @Test
+  public void testFailedSnapshotIsNotCached() {
+    when(fafService.getLeaderboardSnapshot(eq(leaderboard.getTechnicalName()), any()))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("junit")))
+        .thenReturn(CompletableFuture.completedFuture(LeaderboardSnapshot.empty()));
 
-    List<RatingStat> result = instance.getLeaderboardStats(leaderboard.getTechnicalName()).join();
-    verify(fafService).getAllLeaderboardEntries(leaderboard.getTechnicalName());
+    instance.getSnapshot(leaderboard, loadedEntriesListener).exceptionally(throwable -> null).join();
+    instance.getSnapshot(leaderboard, loadedEntriesListener).join();
 
-    result.sort(Comparator.comparingInt(RatingStat::getRating));
+    verify(fafService, times(2)).getLeaderboardSnapshot(eq(leaderboard.getTechnicalName()), any());
+  }
+
+  @Test
+  public void testGetLeaderboardStats() {
+    when(fafService.getLeaderboardSnapshot(eq(leaderboard.getTechnicalName()), any())).thenReturn(CompletableFuture.completedFuture(LeaderboardSnapshot.fromDtos(List.of(
+        dto(1, "junit1", 151, LeaderboardService.MINIMUM_GAMES_PLAYED_TO_BE_SHOWN),
+        dto(2, "junit2", 121, LeaderboardService.MINIMUM_GAMES_PLAYED_TO_BE_SHOWN + 42),
+        dto(3, "junit3", 221, LeaderboardService.MINIMUM_GAMES_PLAYED_TO_BE_SHOWN)
+    ))));
+
+    List<RatingStat> result = instance.getLeaderboardStats(leaderboard.getTechnicalName()).join();
+    verify(fafService).getLeaderboardSnapshot(eq(leaderboard.getTechnicalName()), any());
 
     assertEquals(2, result.size());
     assertEquals(2, result.get(0).getTotalCount());
@@ -85,24 +99,14 @@ public class LeaderboardServiceImplTest {
 
   @Test
   public void testStatsOnlyShowsPlayersWithEnoughGamesPlayed() throws Exception {
-    LeaderboardEntry leaderboardEntry1 = new LeaderboardEntry();
-    leaderboardEntry1.setRating(151);
-    leaderboardEntry1.setWonGames(LeaderboardService.MINIMUM_GAMES_PLAYED_TO_BE_SHOWN);
-
-    LeaderboardEntry leaderboardEntry2 = new LeaderboardEntry();
-    leaderboardEntry2.setRating(121);
-    leaderboardEntry2.setWonGames(LeaderboardService.MINIMUM_GAMES_PLAYED_TO_BE_SHOWN - 1);
-
-    LeaderboardEntry leaderboardEntry3 = new LeaderboardEntry();
-    leaderboardEntry3.setRating(221);
-    leaderboardEntry3.setWonGames(LeaderboardService.MINIMUM_GAMES_PLAYED_TO_BE_SHOWN - 1);
-
-    when(fafService.getAllLeaderboardEntries(leaderboard.getTechnicalName())).thenReturn(CompletableFuture.completedFuture(Arrays.asList(
-        leaderboardEntry1, leaderboardEntry2, leaderboardEntry3
-    )));
+    when(fafService.getLeaderboardSnapshot(eq(leaderboard.getTechnicalName()), any())).thenReturn(CompletableFuture.completedFuture(LeaderboardSnapshot.fromDtos(List.of(
+        dto(1, "junit1", 151, LeaderboardService.MINIMUM_GAMES_PLAYED_TO_BE_SHOWN),
+        dto(2, "junit2", 121, LeaderboardService.MINIMUM_GAMES_PLAYED_TO_BE_SHOWN - 1),
+        dto(3, "junit3", 221, LeaderboardService.MINIMUM_GAMES_PLAYED_TO_BE_SHOWN - 1)
+    ))));
 
     List<RatingStat> result = instance.getLeaderboardStats(leaderboard.getTechnicalName()).toCompletableFuture().get(2, TimeUnit.SECONDS);
-    verify(fafService).getAllLeaderboardEntries(leaderboard.getTechnicalName());
+    verify(fafService).getLeaderboardSnapshot(eq(leaderboard.getTechnicalName()), any());
 
     assertEquals(2, result.size());
     assertEquals(2, result.get(0).getTotalCount());
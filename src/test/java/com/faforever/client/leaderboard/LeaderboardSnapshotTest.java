@@ -0,0 +1,124 @@
+package com.faforever.client.leaderboard;
+
+import com.faforever.client.api.dto.Player;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class LeaderboardSnapshotTest {
+
+  private LeaderboardSnapshot instance;
+
+  static com.faforever.client.api.dto.LeaderboardEntry dto(int playerId, String username, double rating, int wonGames) {
+    Player player = new Player();
+    player.setId(String.valueOf(playerId));
+    player.setLogin(username);
+
+    com.faforever.client.api.dto.LeaderboardEntry entry = new com.faforever.client.api.dto.LeaderboardEntry();
+    entry.setPlayer(player);
+    entry.setLeaderboard(new com.faforever.client.api.dto.Leaderboard("1", null, null, "desc", "name", "global", false));
+    entry.setRating(rating);
+    entry.setWonGames(wonGames);
+    entry.setDrawnGames(1);
+    entry.setLostGames(2);
+    entry.setStreak(3);
+    entry.setBestStreak(4);
+    entry.setRecentScores("22100");
+    entry.setRecentMod("tacc");
+    entry.setUpdateTime(OffsetDateTime.now());
+    return entry;
+  }
+
+  @Before
+  public void setUp() {
+    instance = LeaderboardSnapshot.fromDtos(List.of(
+        dto(1, "Lenkin", 1210, 10),
+        dto(2, "Nexus", 1800, 20),
+        dto(3, "Tex", 151, 9),
+        dto(4, "ZLO", 1290, 15)
+    ));
+  }
+
+  @Test
+  public void testEntriesAreSortedByRating() {
+    assertThat(instance.entries().getUsernames(), contains("Nexus", "ZLO", "Lenkin", "Tex"));
+    assertThat(instance.getPlayerId(0), is(2));
+    assertThat(instance.getTotalGames(0), is(23));
+  }
+
+  @Test
+  public void testEntry() {
+    LeaderboardEntry entry = instance.entries().get(1);
+
+    assertThat(entry.getUsername(), is("ZLO"));
+    assertThat(entry.getUserId(), is(4));
+    assertThat(entry.getRating(), is(1290d));
+    assertThat(entry.getTotalGames(), is(18));
+    assertThat(entry.getAllResults(), is("15-1-2"));
+    assertThat(entry.getRecentResults(), is("2-1-2"));
+    assertThat(entry.getRecentMod(), is("tacc"));
+    assertThat(entry.getLeaderboard().getTechnicalName(), is("global"));
+  }
+
+  @Test
+  public void testEntriesAreCreatedOnce() {
+    LeaderboardSnapshot.EntryList entries = instance.entries();
+    LeaderboardEntry entry = entries.get(2);
+
+    assertThat(entries.get(2) == entry, is(true));
+    assertThat(entries.indexOf(entry), is(2));
+  }
+
+  @Test
+  public void testRankOf() {
+    assertThat(instance.rankOf(2000), is(1));
+    assertThat(instance.rankOf(1800), is(1));
+    assertThat(instance.rankOf(1250), is(3));
+    assertThat(instance.rankOf(0), is(5));
+  }
+
+  @Test
+  public void testFilteredEntries() {
+    Set<Integer> friends = Set.of(1, 3);
+
+    LeaderboardSnapshot.EntryList entries = instance.entries(friends::contains);
+
+    assertThat(entries.getUsernames(), contains("Lenkin", "Tex"));
+    assertThat(entries.get(1).getUserId(), is(3));
+  }
+
+  @Test
+  public void testSortEntries() {
+    LeaderboardSnapshot.EntryList entries = instance.entries();
+    entries.sort(Comparator.comparing(LeaderboardEntry::getUsername));
+
+    assertThat(entries.getUsernames(), contains("Lenkin", "Nexus", "Tex", "ZLO"));
+    assertThat(entries.indexOf(entries.get(3)), is(3));
+  }
+
+  @Test
+  public void testRatingStats() {
+    List<RatingStat> result = instance.getRatingStats();
+
+    assertEquals(3, result.size());
+    assertEquals(new RatingStat(100, 1, 0), result.get(0));
+    assertEquals(new RatingStat(1200, 2, 2), result.get(1));
+    assertEquals(new RatingStat(1800, 1, 1), result.get(2));
+  }
+
+  @Test
+  public void testEmpty() {
+    assertThat(LeaderboardSnapshot.empty().size(), is(0));
+    assertThat(LeaderboardSnapshot.empty().getRatingStats().isEmpty(), is(true));
+    assertThat(LeaderboardSnapshot.empty().rankOf(100), is(1));
+  }
+}
@@ -4,23 +4,28 @@ import com.faforever.client.i18n.I18n;
 import com.faforever.client.mod.ModService;
 import com.faforever.client.notification.NotificationService;
 import com.faforever.client.player.PlayerService;
+import com.faforever.client.preferences.PreferencesBuilder;
+import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.test.AbstractPlainJavaFxTest;
 import com.faforever.client.theme.UiService;
 import com.google.common.eventbus.EventBus;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.testfx.util.WaitForAsyncUtils;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
 
-import static com.faforever.client.leaderboard.LeaderboardEntryBuilder.create;
+import static com.faforever.client.leaderboard.LeaderboardSnapshotTest.dto;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -43,30 +48,34 @@ public class LeaderboardsControllerTest extends AbstractPlainJavaFxTest {
   private EventBus eventBus;
   @Mock
   private I18n i18n;
+  @Mock
+  private PreferencesService preferencesService;
 
   private final Leaderboard leaderboardGlobal = LeaderboardBuilder.create().defaultValues().id(1).technicalName("global").get();
-  private final List<LeaderboardEntry> entriesGlobal = List.of(
-      create().defaultValues().username("MarcSpector").get(),
-      create().defaultValues().username("Sheikah").get(),
-      create().defaultValues().username("ZLO").get()
-  );
+  private final LeaderboardSnapshot entriesGlobal = LeaderboardSnapshot.fromDtos(List.of(
+      dto(1, "MarcSpector", 1500, 10),
+      dto(2, "Sheikah", 1400, 10),
+      dto(3, "ZLO", 1300, 10)
+  ));
 
   private final Leaderboard leaderboard1v1 = LeaderboardBuilder.create().defaultValues().id(2).technicalName("1v1").get();
-  private final List<LeaderboardEntry> entries1v1 = List.of(
-      create().defaultValues().username("Lenkin").get(),
-      create().defaultValues().username("Nexus").get(),
-      create().defaultValues().username("FtXCommando").get(),
-      create().defaultValues().username("Tex").get()
-  );
+  private final LeaderboardSnapshot entries1v1 = LeaderboardSnapshot.fromDtos(List.of(
+      dto(4, "Lenkin", 2000, 10),
+      dto(5, "Nexus", 1900, 10),
+      dto(6, "FtXCommando", 1800, 10),
+      dto(7, "Tex", 1700, 10)
+  ));
 
   @Before
   public void setUp() throws Exception {
     when(leaderboardService.getLeaderboards())
         .thenReturn(CompletableFuture.completedFuture(List.of(leaderboardGlobal, leaderboard1v1)));
-    when(leaderboardService.getEntries(leaderboardGlobal)).thenReturn(CompletableFuture.completedFuture(entriesGlobal));
-    when(leaderboardService.getEntries(leaderboard1v1)).thenReturn(CompletableFuture.completedFuture(entries1v1));
+    when(leaderboardService.getSnapshot(eq(leaderboardGlobal), any())).thenReturn(CompletableFuture.completedFuture(entriesGlobal));
+    when(leaderboardService.getSnapshot(eq(leaderboard1v1), any())).thenReturn(CompletableFuture.completedFuture(entries1v1));
+
+    when(preferencesService.getPreferences()).thenReturn(PreferencesBuilder.create().defaultValues().get());
 
-    instance = new LeaderboardsController(leaderboardService, notificationService, modService, uiService, playerService, eventBus, i18n);
+    instance = new LeaderboardsController(leaderboardService, notificationService, modService, uiService, playerService, preferencesService, eventBus, i18n);
 
     loadFxml("theme/leaderboard/leaderboards.fxml", clazz -> instance);
   }
@@ -87,13 +96,28 @@ public class LeaderboardsControllerTest extends AbstractPlainJavaFxTest {
   @Test
   public void testOnDisplayWhenThrowException() {
     Exception exception = new RuntimeException("error of loading leaderboard entries");
-    when(leaderboardService.getEntries(leaderboard1v1))
+    when(leaderboardService.getSnapshot(eq(leaderboard1v1), any()))
         .thenReturn(CompletableFuture.failedFuture(exception));
     showLeaderboard(leaderboard1v1);
     assertFalse(instance.contentPane.isVisible());
     verify(notificationService).addImmediateErrorNotification(any(), any());
   }
 
+  @Test
+  public void testLoadedEntriesAreShownWhileLoading() {
+    when(i18n.get("leaderboard.loadingEntries", 100)).thenReturn("100 entries");
+    when(leaderboardService.getSnapshot(eq(leaderboard1v1), any())).thenAnswer(invocation -> {
+      invocation.<IntConsumer>getArgument(1).accept(100);
+      return new CompletableFuture<>();
+    });
+
+    showLeaderboard(leaderboard1v1);
+    WaitForAsyncUtils.waitForFxEvents();
+
+    assertFalse(instance.contentPane.isVisible());
+    assertEquals("100 entries", instance.loadingLabel.getText());
+  }
+
   @Test
   public void testFilterByNamePlayerExactMatch() {
     showLeaderboard(leaderboardGlobal);
@@ -112,6 +136,17 @@ public class LeaderboardsControllerTest extends AbstractPlainJavaFxTest {
     assertEquals("ZLO", instance.ratingTable.getSelectionModel().getSelectedItem().getUsername());
   }
 
+  @Test
+  public void testFriendsOnly() {
+    when(playerService.isFriend(2)).thenReturn(true);
+    runOnFxThreadAndWait(() -> instance.friendsOnlyCheckBox.setSelected(true));
+
+    showLeaderboard(leaderboardGlobal);
+
+    assertEquals(1, instance.ratingTable.getItems().size());
+    assertEquals("Sheikah", instance.ratingTable.getItems().get(0).getUsername());
+  }
+
   @Test
   public void testAutoCompletionSuggestionsForGlobal() {
     showLeaderboard(leaderboardGlobal);
@@ -6,6 +6,7 @@ import com.faforever.client.fx.PlatformService;
 import com.faforever.client.i18n.I18n;
 import com.faforever.client.preferences.Preferences;
 import com.faforever.client.preferences.PreferencesService;
+import com.faforever.client.task.TransferScheduler;
 import com.faforever.client.test.AbstractPlainJavaFxTest;
 import com.faforever.client.update.ClientConfiguration;
 import com.faforever.client.update.ClientConfiguration.Endpoints;
@@ -193,7 +194,8 @@ public class LoginControllerTest extends AbstractPlainJavaFxTest {
   @Test
   public void testOnDownloadUpdateButtonClicked() throws Exception {
     UpdateInfo updateInfo = new UpdateInfo(null, null, null, 5, null, false);
-    DownloadUpdateTask downloadUpdateTask = new DownloadUpdateTask(i18n, preferencesService);
+    DownloadUpdateTask downloadUpdateTask = new DownloadUpdateTask(i18n, preferencesService,
+        new TransferScheduler(new ClientProperties()));
     when(clientUpdateService.downloadAndInstallInBackground(updateInfo)).thenReturn(downloadUpdateTask);
 
     ReflectionTestUtils.setField(instance, "updateInfoFuture", CompletableFuture.completedFuture(updateInfo));
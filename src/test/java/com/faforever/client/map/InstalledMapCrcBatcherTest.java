@@ -0,0 +1,65 @@
+package com.faforever.client.map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public class InstalledMapCrcBatcherTest {
+
+  private final List<Runnable> scheduled = new ArrayList<>();
+  private final List<List<String>> batches = new ArrayList<>();
+  private InstalledMapCrcBatcher instance;
+
+  @Before
+  public void setUp() {
+    instance = new InstalledMapCrcBatcher(mapNames -> {
+      batches.add(mapNames);
+      if (mapNames.contains("Broken")) {
+        throw new IOException("maptool failed");
+      }
+      return Map.of("SHERWOOD", "ead82fc5", "Gods of War", "12345678");
+    }, scheduled::add);
+  }
+
+  private void runScheduled() {
+    while (!scheduled.isEmpty()) {
+      scheduled.remove(0).run();
+    }
+  }
+
+  @Test
+  public void testRequestsAreResolvedInOneBatch() {
+    CompletableFuture<String> sherwood = instance.requestCrc("SHERWOOD");
+    CompletableFuture<String> godsOfWar = instance.requestCrc("Gods of War");
+    CompletableFuture<String> sherwoodAgain = instance.requestCrc("SHERWOOD");
+    CompletableFuture<String> unknown = instance.requestCrc("Unknown");
+
+    assertThat(scheduled, hasSize(1));
+    runScheduled();
+
+    assertThat(batches, hasSize(1));
+    assertThat(batches.get(0), contains("SHERWOOD", "Gods of War", "Unknown"));
+    assertThat(sherwood.join(), is("ead82fc5"));
+    assertThat(sherwoodAgain.join(), is("ead82fc5"));
+    assertThat(godsOfWar.join(), is("12345678"));
+    assertThat(unknown.join(), is(InstalledMapCrcBatcher.UNKNOWN_CRC));
+  }
+
+  @Test
+  public void testFailedBatchCompletesWithUnknownCrc() {
+    CompletableFuture<String> broken = instance.requestCrc("Broken");
+    runScheduled();
+
+    assertThat(broken.join(), is(InstalledMapCrcBatcher.UNKNOWN_CRC));
+  }
+}
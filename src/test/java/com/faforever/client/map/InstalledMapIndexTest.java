@@ -0,0 +1,87 @@
+package com.faforever.client.map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public class InstalledMapIndexTest {
+
+  @Rule
+  public TemporaryFolder gameDirectory = new TemporaryFolder();
+  @Rule
+  public TemporaryFolder cacheDirectory = new TemporaryFolder();
+
+  private Path gamePath;
+  private Path indexFile;
+  private InstalledMapIndex instance;
+
+  @Before
+  public void setUp() throws Exception {
+    gamePath = gameDirectory.getRoot().toPath();
+    indexFile = cacheDirectory.getRoot().toPath().resolve("index").resolve("TACC.json");
+    instance = new InstalledMapIndex(indexFile);
+    instance.validateGamePath(gamePath);
+  }
+
+  private static String[] details(String mapName, String archive, String crc) {
+    return new String[]{mapName, archive, crc, "description", "8 x 8", "4", "0-3000", "20", "112"};
+  }
+
+  @Test
+  public void testFullEnumerationThenNoDelta() throws Exception {
+    Files.writeString(gamePath.resolve("one.ufo"), "one");
+    Files.writeString(gamePath.resolve("units.hpi"), "no maps in here");
+
+    Map<String, BasicFileAttributes> stats = instance.statArchives(gamePath);
+    assertThat(instance.diff(stats).getChangedArchives().keySet(), hasSize(2));
+
+    instance.putAll(stats, List.<String[]>of(details("Map One", "ONE.UFO", "00000000")));
+
+    assertThat(instance.diff(instance.statArchives(gamePath)).isEmpty(), is(true));
+    assertThat(instance.getAllMapDetails(), hasSize(1));
+  }
+
+  @Test
+  public void testDeltaAfterChangeAndDelete() throws Exception {
+    Files.writeString(gamePath.resolve("one.ufo"), "one");
+    Files.writeString(gamePath.resolve("two.ufo"), "two");
+    Map<String, BasicFileAttributes> stats = instance.statArchives(gamePath);
+    instance.putAll(stats, List.of(details("Map One", "one.ufo", "00000000"), details("Map Two", "two.ufo", "00000000")));
+
+    Files.delete(gamePath.resolve("one.ufo"));
+    Files.writeString(gamePath.resolve("two.ufo"), "two, but bigger");
+    Files.setLastModifiedTime(gamePath.resolve("two.ufo"), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+    InstalledMapIndex.Delta delta = instance.diff(instance.statArchives(gamePath));
+    assertThat(delta.getRemovedArchives(), contains("one.ufo"));
+    assertThat(delta.getChangedArchives().keySet(), contains("two.ufo"));
+  }
+
+  @Test
+  public void testCrcIsPersisted() throws Exception {
+    Files.writeString(gamePath.resolve("one.ufo"), "one");
+    instance.putAll(instance.statArchives(gamePath), List.<String[]>of(details("Map One", "one.ufo", "00000000")));
+    instance.updateCrc("one.ufo", "Map One", "deadbeef");
+    instance.save();
+
+    InstalledMapIndex reloaded = new InstalledMapIndex(indexFile);
+    reloaded.load();
+
+    assertThat(reloaded.validateGamePath(gamePath), is(true));
+    assertThat(reloaded.getAllMapDetails().get(0)[2], is("deadbeef"));
+    assertThat(reloaded.diff(reloaded.statArchives(gamePath)).isEmpty(), is(true));
+  }
+}
@@ -0,0 +1,61 @@
+package com.faforever.client.map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+
+public class InstalledMapsUpdateQueueTest {
+
+  private final List<Set<String>> processed = new ArrayList<>();
+  private final List<Runnable> pendingCallbacks = new ArrayList<>();
+  private InstalledMapsUpdateQueue<String> instance;
+
+  @Before
+  public void setUp() {
+    instance = new InstalledMapsUpdateQueue<>((installation, archiveNames, onDone) -> {
+      processed.add(archiveNames);
+      pendingCallbacks.add(onDone);
+    });
+  }
+
+  private void completeAll() {
+    while (!pendingCallbacks.isEmpty()) {
+      pendingCallbacks.remove(0).run();
+    }
+  }
+
+  @Test
+  public void testRequestsWhileRunningAreCoalesced() {
+    instance.requestArchives("TACC", List.of("a.ufo"));
+    instance.requestArchives("TACC", List.of("b.ufo"));
+    instance.requestArchives("TACC", List.of("c.ufo", "b.ufo"));
+
+    assertThat(processed, hasSize(1));
+    completeAll();
+
+    assertThat(processed, hasSize(2));
+    assertThat(processed.get(1), containsInAnyOrder("b.ufo", "c.ufo"));
+  }
+
+  @Test
+  public void testReconcileSupersedesArchives() {
+    instance.suspend();
+    instance.requestArchives("TACC", List.of("a.ufo"));
+    instance.requestReconcile("TACC");
+    instance.requestArchives("TACC", List.of("b.ufo"));
+    assertThat(processed, hasSize(0));
+
+    instance.resume();
+
+    assertThat(processed, hasSize(1));
+    assertThat(processed.get(0), nullValue());
+  }
+}
@@ -0,0 +1,98 @@
+package com.faforever.client.map;
+
+import com.faforever.client.map.MapPreviewGenerationQueue.Priority;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class MapPreviewGenerationQueueTest {
+
+  private final List<String> generated = Collections.synchronizedList(new ArrayList<>());
+  private final CountDownLatch blockerReleased = new CountDownLatch(1);
+  private MapPreviewGenerationQueue<String> instance;
+  private MapPreviewGenerationQueue<String>.Request blocker;
+
+  @Before
+  public void setUp() throws Exception {
+    instance = new MapPreviewGenerationQueue<>(1);
+    CountDownLatch blockerStarted = new CountDownLatch(1);
+    // Keeps the only worker busy so that the following requests queue up
+    blocker = instance.request("blocker", Priority.VISIBLE, () -> {
+      blockerStarted.countDown();
+      try {
+        blockerReleased.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    blockerStarted.await(5, TimeUnit.SECONDS);
+  }
+
+  @After
+  public void tearDown() {
+    instance.shutdown();
+  }
+
+  @Test
+  public void testRequestsForSameKeyAreCoalesced() throws Exception {
+    MapPreviewGenerationQueue<String>.Request first = instance.request("SHERWOOD", Priority.NORMAL, generate("first"));
+    MapPreviewGenerationQueue<String>.Request second = instance.request("SHERWOOD", Priority.NORMAL, generate("second"));
+
+    blockerReleased.countDown();
+    first.getFuture().get(5, TimeUnit.SECONDS);
+    second.getFuture().get(5, TimeUnit.SECONDS);
+
+    assertThat(generated, contains("first"));
+  }
+
+  @Test
+  public void testVisibleRequestsAreGeneratedFirst() throws Exception {
+    instance.request("A", Priority.NORMAL, generate("A"));
+    MapPreviewGenerationQueue<String>.Request b = instance.request("B", Priority.NORMAL, generate("B"));
+    instance.request("C", Priority.BACKGROUND, generate("C"));
+    b.setPriority(Priority.VISIBLE);
+    MapPreviewGenerationQueue<String>.Request last = instance.request("D", Priority.VISIBLE, generate("D"));
+    instance.request("C", Priority.NORMAL, generate("C"));
+    MapPreviewGenerationQueue<String>.Request lowered = instance.request("E", Priority.VISIBLE, generate("E"));
+    lowered.setPriority(Priority.BACKGROUND);
+
+    blockerReleased.countDown();
+    lowered.getFuture().get(5, TimeUnit.SECONDS);
+
+    assertThat(generated, contains("B", "D", "A", "C", "E"));
+    assertThat(last.getFuture().isDone(), is(true));
+  }
+
+  @Test
+  public void testGenerationIsDroppedWhenAllRequestsAreCancelled() throws Exception {
+    MapPreviewGenerationQueue<String>.Request first = instance.request("SHERWOOD", Priority.NORMAL, generate("SHERWOOD"));
+    MapPreviewGenerationQueue<String>.Request second = instance.request("SHERWOOD", Priority.VISIBLE, generate("SHERWOOD"));
+    first.cancel();
+    MapPreviewGenerationQueue<String>.Request other = instance.request("GREENHAVEN", Priority.NORMAL, generate("GREENHAVEN"));
+    assertThat(instance.size(), is(3));
+
+    second.cancel();
+    assertThat(instance.size(), is(2));
+
+    blockerReleased.countDown();
+    blocker.getFuture().get(5, TimeUnit.SECONDS);
+    other.getFuture().get(5, TimeUnit.SECONDS);
+
+    assertThat(generated, contains("GREENHAVEN"));
+    assertThat(second.getFuture().isCancelled(), is(true));
+  }
+
+  private Runnable generate(String name) {
+    return () -> generated.add(name);
+  }
+}
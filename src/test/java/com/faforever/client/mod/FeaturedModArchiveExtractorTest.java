@@ -0,0 +1,106 @@
+package com.faforever.client.mod;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class FeaturedModArchiveExtractorTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private ExecutorService executorService;
+  private FeaturedModArchiveExtractor instance;
+  private Path targetDirectory;
+
+  @Before
+  public void setUp() throws Exception {
+    executorService = Executors.newCachedThreadPool();
+    instance = new FeaturedModArchiveExtractor(executorService, 2);
+    targetDirectory = temporaryFolder.newFolder("target").toPath();
+  }
+
+  @After
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testExtractsMatchingFiles() throws Exception {
+    Path archive = createZip(Map.of(
+        "mod/totala1.hpi", "game data",
+        "mod/maps/map.ufo", "map",
+        "readme.txt", "read me"
+    ));
+    AtomicLong bytesExtracted = new AtomicLong();
+    AtomicLong totalBytes = new AtomicLong();
+
+    instance.extract(archive, path -> path.startsWith("mod/") ? targetDirectory.resolve(path.substring(4)) : null,
+        List.of(), (written, total) -> {
+          bytesExtracted.set(written);
+          totalBytes.set(total);
+        });
+
+    assertThat(Files.readString(targetDirectory.resolve("totala1.hpi")), is("game data"));
+    assertThat(Files.readString(targetDirectory.resolve("maps/map.ufo")), is("map"));
+    assertThat(Files.exists(targetDirectory.resolve("readme.txt")), is(false));
+    assertThat(bytesExtracted.get(), is(12L));
+    assertThat(totalBytes.get(), is(12L));
+  }
+
+  @Test
+  public void testLinkedBaseFileIsReplacedRatherThanOverwritten() throws Exception {
+    Path baseFile = Files.writeString(temporaryFolder.newFolder("ta").toPath().resolve("totala1.hpi"), "original");
+    Files.createLink(targetDirectory.resolve("totala1.hpi"), baseFile);
+    Path archive = createZip(Map.of("totala1.hpi", "modified"));
+
+    instance.extract(archive, targetDirectory::resolve, List.of(baseFile), (written, total) -> {
+    });
+
+    assertThat(Files.readString(targetDirectory.resolve("totala1.hpi")), is("modified"));
+    assertThat(Files.readString(baseFile), is("original"));
+  }
+
+  @Test
+  public void testIdenticalBaseFileIsLinked() throws Exception {
+    Path baseFile = Files.writeString(temporaryFolder.newFolder("ta").toPath().resolve("totala1.hpi"), "original");
+    Path archive = createZip(Map.of("data/totala1.hpi", "original"));
+
+    instance.extract(archive, path -> targetDirectory.resolve(Path.of(path).getFileName()), List.of(baseFile),
+        (written, total) -> {
+        });
+
+    assertThat(Files.isSameFile(targetDirectory.resolve("totala1.hpi"), baseFile), is(true));
+  }
+
+  private Path createZip(Map<String, String> files) throws IOException {
+    Path archive = temporaryFolder.getRoot().toPath().resolve("package.zip");
+    try (OutputStream outputStream = Files.newOutputStream(archive);
+         ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+      for (Map.Entry<String, String> file : files.entrySet()) {
+        zipOutputStream.putNextEntry(new ZipEntry(file.getKey()));
+        zipOutputStream.write(file.getValue().getBytes(StandardCharsets.UTF_8));
+        zipOutputStream.closeEntry();
+      }
+    }
+    return archive;
+  }
+}
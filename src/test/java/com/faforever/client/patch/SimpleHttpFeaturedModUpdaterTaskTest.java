@@ -0,0 +1,196 @@
+package com.faforever.client.patch;
+
+import com.faforever.client.api.dto.FeaturedModFile;
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.game.FeaturedModBeanBuilder;
+import com.faforever.client.i18n.I18n;
+import com.faforever.client.io.DownloadService;
+import com.faforever.client.io.FeaturedModFileCacheService;
+import com.faforever.client.preferences.PreferencesService;
+import com.faforever.client.remote.FafService;
+import com.faforever.client.task.TransferPriority;
+import com.faforever.client.test.AbstractPlainJavaFxTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SimpleHttpFeaturedModUpdaterTaskTest extends AbstractPlainJavaFxTest {
+
+  @Rule
+  public TemporaryFolder dataDirectory = new TemporaryFolder();
+  @Rule
+  public TemporaryFolder cacheDirectory = new TemporaryFolder();
+
+  @Mock
+  private FafService fafService;
+  @Mock
+  private PreferencesService preferencesService;
+  @Mock
+  private DownloadService downloadService;
+  @Mock
+  private I18n i18n;
+  @Mock
+  private FeaturedModFileCacheService featuredModFileCacheService;
+
+  private ExecutorService executorService;
+  private SimpleHttpFeaturedModUpdaterTask instance;
+  private FeaturedModFile initFile;
+  private FeaturedModFile gameDataFile;
+  private List<FeaturedModFile> featuredModFiles;
+
+  @Before
+  public void setUp() throws Exception {
+    executorService = Executors.newCachedThreadPool();
+    instance = new SimpleHttpFeaturedModUpdaterTask(fafService, preferencesService, downloadService, i18n,
+        featuredModFileCacheService, executorService, new ClientProperties());
+    instance.setFeaturedMod(FeaturedModBeanBuilder.create().defaultValues().technicalName("taesc").get());
+    instance.setVersion(3);
+
+    initFile = featuredModFile("1", "bin", "init_taesc.lua");
+    gameDataFile = featuredModFile("2", "gamedata", "taesc.gp3");
+    featuredModFiles = new ArrayList<>(List.of(initFile, gameDataFile));
+    when(fafService.getFeaturedModFiles(any(), eq(3))).thenAnswer(invocation -> CompletableFuture.completedFuture(featuredModFiles));
+    when(preferencesService.getFafDataDirectory()).thenReturn(dataDirectory.getRoot().toPath());
+  }
+
+  @After
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testUpToDateFilesAreKept() throws Exception {
+    Path initPath = install(initFile);
+    Path gameDataPath = install(gameDataFile);
+    when(featuredModFileCacheService.readHashesFromFiles(anyCollection(), any()))
+        .thenReturn(Map.of(initPath, initFile.getMd5(), gameDataPath, gameDataFile.getMd5()));
+
+    assertThat(instance.call(), is("3"));
+
+    verify(downloadService, never()).downloadFile(any(), any(), any(), any(), any());
+    verify(featuredModFileCacheService, never()).moveFeaturedModFileFromCache(any(), any());
+  }
+
+  @Test
+  public void testAllDownloadsFinishBeforeFilesAreMoved() throws Exception {
+    when(featuredModFileCacheService.readHashesFromFiles(anyCollection(), any())).thenReturn(Map.of());
+    prepareCache();
+    prepareInstallation();
+
+    instance.call();
+
+    InOrder inOrder = inOrder(downloadService, featuredModFileCacheService);
+    inOrder.verify(downloadService, times(2))
+        .downloadFile(any(), any(), any(), any(), eq(TransferPriority.CRITICAL));
+    inOrder.verify(featuredModFileCacheService).moveFeaturedModFileFromCache(eq(initFile), any());
+    inOrder.verify(featuredModFileCacheService).moveFeaturedModFileFromCache(eq(gameDataFile), any());
+  }
+
+  @Test
+  public void testCachedFileIsNotDownloaded() throws Exception {
+    Path initPath = install(initFile);
+    when(featuredModFileCacheService.readHashesFromFiles(anyCollection(), any())).thenReturn(Map.of(initPath, initFile.getMd5()));
+    when(featuredModFileCacheService.isCached(gameDataFile)).thenReturn(true);
+    prepareInstallation();
+
+    instance.call();
+
+    verify(downloadService, never()).downloadFile(any(), any(), any(), any(), any());
+    verify(featuredModFileCacheService).moveFeaturedModFileFromCache(eq(gameDataFile), any());
+  }
+
+  @Test
+  public void testFailedDownloadLeavesInstallationUntouched() throws Exception {
+    when(featuredModFileCacheService.readHashesFromFiles(anyCollection(), any())).thenReturn(Map.of());
+    prepareCache();
+    doThrow(new IOException("Connection reset")).when(downloadService)
+        .downloadFile(any(), eq(cacheDirectory.getRoot().toPath().resolve(gameDataFile.getMd5())), any(), any(), any());
+
+    try {
+      instance.call();
+      fail("Update should have failed");
+    } catch (IOException expected) {
+      // expected
+    }
+
+    verify(featuredModFileCacheService, never()).moveFeaturedModFileFromCache(any(), any());
+  }
+
+  @Test
+  public void testFilesWithSameContentAreDownloadedOnce() throws Exception {
+    FeaturedModFile otherGameDataFile = featuredModFile("3", "gamedata", "taesc_copy.gp3");
+    otherGameDataFile.setMd5(gameDataFile.getMd5());
+    featuredModFiles.add(otherGameDataFile);
+    when(featuredModFileCacheService.readHashesFromFiles(anyCollection(), any())).thenReturn(Map.of());
+    prepareCache();
+    prepareInstallation();
+
+    instance.call();
+
+    verify(downloadService).downloadFile(any(), eq(cacheDirectory.getRoot().toPath().resolve(gameDataFile.getMd5())),
+        any(), any(), any());
+    verify(featuredModFileCacheService).copyFeaturedModFileFromCache(eq(gameDataFile), any());
+    verify(featuredModFileCacheService).moveFeaturedModFileFromCache(eq(otherGameDataFile), any());
+    verify(featuredModFileCacheService, never()).moveFeaturedModFileFromCache(eq(gameDataFile), any());
+  }
+
+  private void prepareCache() throws IOException {
+    when(featuredModFileCacheService.getCachedFilePath(any())).thenAnswer(invocation ->
+        cacheDirectory.getRoot().toPath().resolve(invocation.<FeaturedModFile>getArgument(0).getMd5()));
+  }
+
+  private void prepareInstallation() throws IOException {
+    doAnswer(invocation -> {
+      Path targetPath = invocation.getArgument(1);
+      Files.createDirectories(targetPath.getParent());
+      Files.writeString(targetPath, "installed");
+      return null;
+    }).when(featuredModFileCacheService).moveFeaturedModFileFromCache(any(), any());
+  }
+
+  private Path install(FeaturedModFile featuredModFile) throws IOException {
+    Path path = dataDirectory.getRoot().toPath().resolve(featuredModFile.getGroup()).resolve(featuredModFile.getName());
+    Files.createDirectories(path.getParent());
+    Files.writeString(path, "installed");
+    return path;
+  }
+
+  private static FeaturedModFile featuredModFile(String id, String group, String name) {
+    FeaturedModFile featuredModFile = new FeaturedModFile();
+    featuredModFile.setId(id);
+    featuredModFile.setVersion("3");
+    featuredModFile.setGroup(group);
+    featuredModFile.setName(name);
+    featuredModFile.setMd5("md5-" + id);
+    featuredModFile.setUrl("http://localhost/" + name);
+    return featuredModFile;
+  }
+}
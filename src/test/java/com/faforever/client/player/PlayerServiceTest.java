@@ -1,5 +1,6 @@
 package com.faforever.client.player;
 
+import com.faforever.client.config.ClientProperties;
 import com.faforever.client.game.Game;
 import com.faforever.client.game.GameAddedEvent;
 import com.faforever.client.game.GameRemovedEvent;
@@ -59,7 +60,7 @@ public class PlayerServiceTest {
   public void setUp() throws Exception {
     MockitoAnnotations.initMocks(this);
 
-    instance = new PlayerService(fafService, userService, eventBus);
+    instance = new PlayerService(fafService, userService, eventBus, new ClientProperties());
 
     when(fafService.connectionStateProperty()).thenReturn(new SimpleObjectProperty<>());
 
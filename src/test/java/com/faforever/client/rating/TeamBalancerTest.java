@@ -0,0 +1,158 @@
+package com.faforever.client.rating;
+
+import com.faforever.client.rating.TeamBalancer.Assignment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class TeamBalancerTest {
+
+  private ForkJoinPool pool;
+
+  @Before
+  public void setUp() {
+    pool = new ForkJoinPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void testTwoTeams() {
+    double[] means = {1500, 1000, 1400, 1100};
+    double[] deviations = {100, 100, 100, 100};
+
+    Assignment best = new TeamBalancer(2).balance(means, deviations, null, 1).get(0);
+
+    assertThat(best.getTeam(0), is(best.getTeam(1)));
+    assertThat(best.getTeam(2), is(best.getTeam(3)));
+    assertThat(best.getScore(), closeTo(0, 1e-9));
+  }
+
+  @Test
+  public void testStartPositionsAlternateBetweenTeams() {
+    double[] means = {1500, 1000, 1400, 1100};
+    double[] deviations = {100, 100, 100, 100};
+    int[] lockedTeams = {0, TeamBalancer.UNLOCKED, TeamBalancer.UNLOCKED, TeamBalancer.UNLOCKED};
+
+    Assignment best = new TeamBalancer(2).balance(means, deviations, lockedTeams, 1).get(0);
+
+    assertArrayEquals(new int[]{0, 2, 1, 3}, best.getStartPositions());
+  }
+
+  @Test
+  public void testLockedPlayers() {
+    double[] means = {1500, 1400, 1100, 1000};
+    double[] deviations = {100, 100, 100, 100};
+    int[] lockedTeams = {0, 0, TeamBalancer.UNLOCKED, TeamBalancer.UNLOCKED};
+
+    Assignment best = new TeamBalancer(2).balance(means, deviations, lockedTeams, 1).get(0);
+
+    assertThat(best.getTeam(0), is(0));
+    assertThat(best.getTeam(1), is(0));
+    assertThat(best.getTeam(2), is(1));
+    assertThat(best.getTeam(3), is(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooManyLockedPlayers() {
+    new TeamBalancer(2).balance(new double[]{1, 2, 3}, new double[]{1, 1, 1}, new int[]{1, 1, TeamBalancer.UNLOCKED}, 1);
+  }
+
+  @Test
+  public void testBestAssignmentsAreOrdered() {
+    Random random = new Random(1);
+    double[] means = randomMeans(random, 8);
+    double[] deviations = randomDeviations(random, 8);
+
+    List<Assignment> result = new TeamBalancer(2).balance(means, deviations, null, 10);
+
+    assertThat(result.size(), is(10));
+    for (int i = 1; i < result.size(); i++) {
+      assertThat(result.get(i - 1).getScore(), lessThanOrEqualTo(result.get(i).getScore()));
+    }
+  }
+
+  @Test
+  public void testFindsOptimum() {
+    Random random = new Random(2);
+    for (int teamCount = 2; teamCount <= 3; teamCount++) {
+      for (int playerCount = teamCount; playerCount <= 9; playerCount++) {
+        double[] means = randomMeans(random, playerCount);
+        double[] deviations = randomDeviations(random, playerCount);
+
+        Assignment best = new TeamBalancer(teamCount).balance(means, deviations, null, 1).get(0);
+
+        assertThat(best.getScore(), closeTo(bruteForce(means, deviations, teamCount), 1e-9));
+      }
+    }
+  }
+
+  @Test
+  public void testParallelSearchFindsSameAssignments() {
+    Random random = new Random(3);
+    double[] means = randomMeans(random, 12);
+    double[] deviations = randomDeviations(random, 12);
+
+    List<Assignment> sequential = new TeamBalancer(3, Integer.MAX_VALUE, pool).balance(means, deviations, null, 5);
+    List<Assignment> parallel = new TeamBalancer(3, 4, pool).balance(means, deviations, null, 5);
+
+    for (int i = 0; i < 5; i++) {
+      assertThat(parallel.get(i).getScore(), closeTo(sequential.get(i).getScore(), 1e-9));
+    }
+  }
+
+  private static double[] randomMeans(Random random, int count) {
+    return random.doubles(count, 800, 2200).toArray();
+  }
+
+  private static double[] randomDeviations(Random random, int count) {
+    return random.doubles(count, 50, 300).toArray();
+  }
+
+  /**
+   * Tries every assignment in which the players take the start positions in turns.
+   */
+  private static double bruteForce(double[] means, double[] deviations, int teamCount) {
+    int playerCount = means.length;
+    int[] teams = new int[playerCount];
+    double best = Double.POSITIVE_INFINITY;
+    long combinations = (long) Math.pow(teamCount, playerCount);
+    for (long combination = 0; combination < combinations; combination++) {
+      long remainder = combination;
+      int[] sizes = new int[teamCount];
+      for (int player = 0; player < playerCount; player++) {
+        teams[player] = (int) (remainder % teamCount);
+        sizes[teams[player]]++;
+        remainder /= teamCount;
+      }
+      boolean valid = true;
+      for (int team = 0; team < teamCount; team++) {
+        valid &= sizes[team] == (playerCount - team + teamCount - 1) / teamCount;
+      }
+      if (!valid) {
+        continue;
+      }
+      double[] teamMeans = new double[teamCount];
+      double[] teamVariances = new double[teamCount];
+      for (int player = 0; player < playerCount; player++) {
+        teamMeans[teams[player]] += means[player];
+        teamVariances[teams[player]] += deviations[player] * deviations[player];
+      }
+      best = Math.min(best, TeamBalancer.score(teamMeans, teamVariances, teamCount));
+    }
+    return best;
+  }
+}
@@ -2,11 +2,15 @@ package com.faforever.client.remote;
 
 import com.faforever.client.api.FafApiAccessor;
 import com.faforever.client.api.dto.GameReview;
+import com.faforever.client.api.dto.LeaderboardEntry;
 import com.faforever.client.api.dto.MapVersionReview;
 import com.faforever.client.api.dto.ModVersionReview;
 import com.faforever.client.api.dto.Player;
 import com.faforever.client.chat.avatar.AvatarBean;
 import com.faforever.client.chat.avatar.event.AvatarChangedEvent;
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.preferences.PreferencesService;
+import com.faforever.client.task.TransferScheduler;
 import com.faforever.client.vault.review.Review;
 import com.google.common.eventbus.EventBus;
 import org.junit.Before;
@@ -16,13 +20,18 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -30,6 +39,8 @@ public class FafServiceTest {
 
   private FafService instance;
   @Mock
+  private PreferencesService preferencesService;
+  @Mock
   private FafServerAccessor fafServerAccessor;
   @Mock
   private EventBus eventBus;
@@ -39,7 +50,8 @@ public class FafServiceTest {
   @Before
   public void setUp() throws Exception {
     MockitoAnnotations.initMocks(this);
-    instance = new FafService(fafServerAccessor, fafApiAccessor, eventBus);
+    instance = new FafService(preferencesService, fafServerAccessor, fafApiAccessor, eventBus,
+        new TransferScheduler(new ClientProperties()));
   }
 
   @Test
@@ -91,6 +103,21 @@ public class FafServiceTest {
     verify(fafApiAccessor).createModVersionReview(any());
   }
 
+  @Test
+  public void testLeaderboardSnapshotReportsLoadedEntries() {
+    when(fafApiAccessor.getAllLeaderboardEntries(eq("global"), any())).thenAnswer(invocation -> {
+      Consumer<List<LeaderboardEntry>> pageConsumer = invocation.getArgument(1);
+      pageConsumer.accept(List.of(new LeaderboardEntry(), new LeaderboardEntry()));
+      pageConsumer.accept(List.of(new LeaderboardEntry()));
+      return List.of();
+    });
+    List<Integer> loadedEntries = new ArrayList<>();
+
+    instance.getLeaderboardSnapshot("global", loadedEntries::add).join();
+
+    assertThat(loadedEntries, contains(2, 3));
+  }
+
   private Review createReview(String id, String text, int rating, Integer playerId) {
     Review review = new Review();
     review.setId(id);
@@ -0,0 +1,103 @@
+package com.faforever.client.remote.gson;
+
+import com.faforever.client.fa.relay.ConnectToPeerMessage;
+import com.faforever.client.fa.relay.GpgServerMessageType;
+import com.faforever.client.remote.domain.FafServerMessageType;
+import com.faforever.client.remote.domain.GameInfoMessage;
+import com.faforever.client.remote.domain.GameStatus;
+import com.faforever.client.remote.domain.MessageTarget;
+import com.faforever.client.remote.domain.PlayerStatus;
+import com.faforever.client.remote.domain.PlayersMessage;
+import com.faforever.client.remote.domain.ServerMessage;
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ServerMessageDecoderTest {
+
+  private ServerMessageDecoder instance;
+
+  @Before
+  public void setUp() throws Exception {
+    Gson gson = new GsonBuilder()
+        .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+        .registerTypeAdapter(GameStatus.class, GameStateTypeAdapter.INSTANCE)
+        .registerTypeAdapter(PlayerStatus.class, PlayerStateTypeAdapter.INSTANCE)
+        .registerTypeAdapter(FafServerMessageType.class, ServerMessageTypeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(GpgServerMessageType.class, GpgServerMessageTypeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(MessageTarget.class, MessageTargetTypeAdapter.INSTANCE)
+        .registerTypeAdapter(ServerMessage.class, ServerMessageTypeAdapter.INSTANCE)
+        .create();
+    instance = new ServerMessageDecoder(gson);
+  }
+
+  @Test
+  public void testScanHeader() {
+    ServerMessageDecoder.Header header = ServerMessageDecoder.scanHeader(
+        "{\"args\": [{\"command\": \"nested\"}], \"command\" : \"ConnectToPeer\", \"target\": \"game\"}");
+
+    assertThat(header.command, is("ConnectToPeer"));
+    assertThat(header.target, is("game"));
+  }
+
+  @Test
+  public void testScanHeaderWithoutTarget() {
+    ServerMessageDecoder.Header header = ServerMessageDecoder.scanHeader(
+        "{\"title\": \"\\\"command\\\": \\\"x\\\"\", \"command\": \"game_info\", \"target\": null}");
+
+    assertThat(header.command, is("game_info"));
+    assertThat(header.target, is(nullValue()));
+  }
+
+  @Test
+  public void testScanHeaderGivesUpOnEscapes() {
+    assertThat(ServerMessageDecoder.scanHeader("{\"command\": \"game\\u005finfo\"}"), is(nullValue()));
+    assertThat(ServerMessageDecoder.scanHeader("{\"uid\": 1}"), is(nullValue()));
+  }
+
+  @Test
+  public void testDecodeGameInfo() {
+    ServerMessage message = instance.decode("{\"command\": \"game_info\", \"uid\": 42, \"title\": \"Test\", \"state\": \"live\"}");
+
+    assertThat(message, instanceOf(GameInfoMessage.class));
+    GameInfoMessage gameInfoMessage = (GameInfoMessage) message;
+    assertThat(gameInfoMessage.getUid(), is(42));
+    assertThat(gameInfoMessage.getTitle(), is("Test"));
+    assertThat(gameInfoMessage.getState(), is(GameStatus.LIVE));
+  }
+
+  @Test
+  public void testDecodePlayerInfo() {
+    ServerMessage message = instance.decode("{\"command\": \"player_info\", \"players\": [{\"id\": 1, \"login\": \"junit\", \"state\": \"idle\"}]}");
+
+    assertThat(message, instanceOf(PlayersMessage.class));
+    assertThat(((PlayersMessage) message).getPlayers().get(0).getLogin(), is("junit"));
+  }
+
+  @Test
+  public void testDecodeGpgMessage() {
+    ServerMessage message = instance.decode("{\"command\": \"ConnectToPeer\", \"target\": \"game\", \"args\": [\"junit\", 2, true]}");
+
+    assertThat(message, instanceOf(ConnectToPeerMessage.class));
+  }
+
+  @Test
+  public void testDecodeFallsBackForEscapedCommand() {
+    ServerMessage message = instance.decode("{\"command\": \"game\\u005finfo\", \"uid\": 7}");
+
+    assertThat(((GameInfoMessage) message).getUid(), is(7));
+  }
+
+  @Test
+  public void testDecodeUnknownCommand() {
+    assertThat(instance.decode("{\"command\": \"does_not_exist\"}"), is(nullValue()));
+    assertThat(instance.decode("{\"command\": \"welcome\", \"target\": \"elsewhere\"}"), is(nullValue()));
+  }
+}
@@ -0,0 +1,122 @@
+package com.faforever.client.remote.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ServerConnectionTest {
+
+  private ServerSocket serverSocket;
+  private ServerConnection instance;
+  private Socket serverSide;
+
+  @Before
+  public void setUp() throws Exception {
+    serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    instance = ServerConnection.connect(InetAddress.getLoopbackAddress().getHostAddress(), serverSocket.getLocalPort(),
+        Duration.ofSeconds(5), Duration.ofSeconds(5));
+    serverSide = serverSocket.accept();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    instance.close();
+    serverSide.close();
+    serverSocket.close();
+  }
+
+  @Test
+  public void testReadFramesSentByteByByte() throws Exception {
+    byte[] frame = frame("Hello \u00fcn\u00efc\u00f6d\u00e9 \ud83d\udc31");
+    OutputStream outputStream = serverSide.getOutputStream();
+    Thread writer = new Thread(() -> {
+      try {
+        for (byte b : frame) {
+          outputStream.write(b);
+          outputStream.flush();
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    writer.start();
+
+    assertThat(instance.readFrame(), is("Hello \u00fcn\u00efc\u00f6d\u00e9 \ud83d\udc31"));
+    writer.join();
+  }
+
+  @Test
+  public void testReadSeveralFramesSentAtOnce() throws Exception {
+    ByteArrayOutputStream frames = new ByteArrayOutputStream();
+    frames.writeBytes(frame("PING"));
+    frames.writeBytes(new byte[]{0, 0, 0, 4, -1, -1, -1, -1});
+    frames.writeBytes(frame("{\"command\": \"welcome\"}"));
+    serverSide.getOutputStream().write(frames.toByteArray());
+
+    assertThat(instance.readFrame(), is("PING"));
+    assertThat(instance.readFrame(), is(nullValue()));
+    assertThat(instance.readFrame(), is("{\"command\": \"welcome\"}"));
+  }
+
+  @Test
+  public void testReadFrameLargerThanBuffer() throws Exception {
+    String message = "x".repeat(300_000);
+    serverSide.getOutputStream().write(frame("first"));
+    serverSide.getOutputStream().write(frame(message));
+    serverSide.getOutputStream().write(frame("last"));
+
+    assertThat(instance.readFrame(), is("first"));
+    assertThat(instance.readFrame(), is(message));
+    assertThat(instance.readFrame(), is("last"));
+  }
+
+  @Test(expected = EOFException.class)
+  public void testReadAfterServerClosed() throws Exception {
+    serverSide.close();
+    instance.readFrame();
+  }
+
+  @Test(expected = SocketTimeoutException.class)
+  public void testReadTimeout() throws Exception {
+    instance.close();
+    instance = ServerConnection.connect(InetAddress.getLoopbackAddress().getHostAddress(), serverSocket.getLocalPort(),
+        Duration.ofSeconds(5), Duration.ofMillis(100));
+    instance.readFrame();
+  }
+
+  @Test
+  public void testWriteFrame() throws Exception {
+    byte[] payload = "payload".getBytes(StandardCharsets.UTF_8);
+    instance.writeFrame(payload);
+
+    DataInputStream inputStream = new DataInputStream(serverSide.getInputStream());
+    assertThat(inputStream.readInt(), is(payload.length));
+    byte[] received = new byte[payload.length];
+    inputStream.readFully(received);
+    assertThat(new String(received, StandardCharsets.UTF_8), is("payload"));
+  }
+
+  private static byte[] frame(String message) throws IOException {
+    ByteArrayOutputStream qString = new ByteArrayOutputStream();
+    new QDataWriter(qString).append(message);
+    ByteArrayOutputStream frame = new ByteArrayOutputStream();
+    new QDataWriter(frame).appendWithSize(qString.toByteArray());
+    return frame.toByteArray();
+  }
+}
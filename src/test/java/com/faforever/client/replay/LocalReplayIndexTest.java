@@ -0,0 +1,146 @@
+package com.faforever.client.replay;
+
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.preferences.PreferencesService;
+import com.faforever.client.test.FakeTestException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LocalReplayIndexTest {
+
+  @Rule
+  public TemporaryFolder replayDirectory = new TemporaryFolder();
+  @Rule
+  public TemporaryFolder cacheDirectory = new TemporaryFolder();
+
+  @Mock
+  private PreferencesService preferencesService;
+  @Mock
+  private ReplayFileReader replayFileReader;
+
+  private ClientProperties clientProperties;
+  private LocalReplayIndex instance;
+
+  @Before
+  public void setUp() throws Exception {
+    MockitoAnnotations.initMocks(this);
+
+    clientProperties = new ClientProperties();
+    when(preferencesService.getReplaysDirectory()).thenReturn(replayDirectory.getRoot().toPath());
+    when(preferencesService.getCacheDirectory()).thenReturn(cacheDirectory.getRoot().toPath());
+    when(replayFileReader.parseMetaData(any())).then(invocation -> header(invocation.<Path>getArgument(0).getFileName().toString()));
+
+    instance = new LocalReplayIndex(clientProperties, preferencesService, replayFileReader);
+  }
+
+  @Test
+  public void testRefreshEmptyDirectory() throws Exception {
+    assertThat(instance.refresh(), is(empty()));
+  }
+
+  @Test
+  public void testRefreshSortsNewestFirst() throws Exception {
+    createReplay("old.tad", 1000);
+    createReplay("new.tad", 3000);
+    createReplay("middle.tad", 2000);
+    replayDirectory.newFile("ignored.txt");
+
+    assertThat(fileNames(instance.refresh()), contains("new.tad", "middle.tad", "old.tad"));
+  }
+
+  @Test
+  public void testRefreshOnlyReadsNewAndChangedReplays() throws Exception {
+    createReplay("first.tad", 1000);
+    Path second = createReplay("second.tad", 2000);
+    instance.refresh();
+
+    Files.setLastModifiedTime(second, FileTime.fromMillis(5000));
+    createReplay("third.tad", 3000);
+    List<LocalReplayIndex.Entry> entries = instance.refresh();
+
+    assertThat(fileNames(entries), contains("second.tad", "third.tad", "first.tad"));
+    verify(replayFileReader, times(1)).parseMetaData(replayDirectory.getRoot().toPath().resolve("first.tad"));
+    verify(replayFileReader, times(2)).parseMetaData(second);
+    assertThat(entries.get(0).getHeader().getTitle(), is("second.tad"));
+  }
+
+  @Test
+  public void testRefreshDropsDeletedReplays() throws Exception {
+    Path replay = createReplay("replay.tad", 1000);
+    instance.refresh();
+
+    Files.delete(replay);
+
+    assertThat(instance.refresh(), is(empty()));
+  }
+
+  @Test
+  public void testIndexIsPersisted() throws Exception {
+    createReplay("replay.tad", 1000);
+    instance.refresh();
+
+    List<LocalReplayIndex.Entry> entries = new LocalReplayIndex(clientProperties, preferencesService, replayFileReader).refresh();
+
+    assertThat(fileNames(entries), contains("replay.tad"));
+    assertThat(entries.get(0).getHeader().getTitle(), is("replay.tad"));
+    verify(replayFileReader, times(1)).parseMetaData(any());
+  }
+
+  @Test
+  public void testUnreadableHeaderIsIndexedWithoutHeader() throws Exception {
+    Path replay = createReplay("corrupt.tad", 1000);
+    when(replayFileReader.parseMetaData(replay)).thenThrow(new FakeTestException());
+
+    List<LocalReplayIndex.Entry> entries = instance.refresh();
+
+    assertThat(fileNames(entries), contains("corrupt.tad"));
+    assertThat(entries.get(0).getHeader(), is(nullValue()));
+  }
+
+  @Test
+  public void testRemove() throws Exception {
+    Path replay = createReplay("replay.tad", 1000);
+    instance.refresh();
+
+    instance.remove(replay);
+    Files.delete(replay);
+
+    assertThat(new LocalReplayIndex(clientProperties, preferencesService, replayFileReader).refresh(), is(empty()));
+  }
+
+  private Path createReplay(String fileName, long lastModified) throws Exception {
+    Path file = Files.writeString(replayDirectory.getRoot().toPath().resolve(fileName), "{}\nbody");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+    return file;
+  }
+
+  private static LocalReplayInfo header(String title) {
+    LocalReplayInfo localReplayInfo = new LocalReplayInfo();
+    localReplayInfo.setTitle(title);
+    return localReplayInfo;
+  }
+
+  private static List<String> fileNames(List<LocalReplayIndex.Entry> entries) {
+    return entries.stream().map(LocalReplayIndex.Entry::getFileName).collect(Collectors.toList());
+  }
+}
@@ -33,4 +33,45 @@ public class ReplayFileReaderImplTest {
     }
     assertThat(instance.readRawReplayData(tempFile).length, is(197007));
   }
+
+  @Test
+  public void openReplayDataStreamsDecompressedBody() throws Exception {
+    Path tempFile = temporaryFolder.getRoot().toPath().resolve("replay.fafreplay");
+    try (InputStream inputStream = getClass().getResourceAsStream("/replay/test.fafreplay")) {
+      Files.copy(inputStream, tempFile);
+    }
+
+    try (InputStream replayData = instance.openReplayData(tempFile)) {
+      assertThat(replayData.readAllBytes().length, is(197007));
+    }
+  }
+
+  @Test
+  public void readRawReplayDataWithKnownMetadata() throws Exception {
+    Path tempFile = temporaryFolder.getRoot().toPath().resolve("replay.fafreplay");
+    try (InputStream inputStream = getClass().getResourceAsStream("/replay/test.fafreplay")) {
+      Files.copy(inputStream, tempFile);
+    }
+
+    assertThat(instance.readRawReplayData(tempFile, instance.parseMetaData(tempFile)).length, is(197007));
+  }
+
+  @Test
+  public void parseMetaDataReadsOnlyHeader() throws Exception {
+    Path tempFile = temporaryFolder.getRoot().toPath().resolve("replay.tmp");
+    Files.writeString(tempFile, "{\"title\":\"Test game\",\"uid\":123}\nnot a JSON body");
+
+    LocalReplayInfo localReplayInfo = instance.parseMetaData(tempFile);
+
+    assertThat(localReplayInfo.getTitle(), is("Test game"));
+    assertThat(localReplayInfo.getUid(), is(123));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parseMetaDataWithoutSeparator() throws Exception {
+    Path tempFile = temporaryFolder.getRoot().toPath().resolve("replay.tmp");
+    Files.writeString(tempFile, "{\"title\":\"Test game\"}");
+
+    instance.parseMetaData(tempFile);
+  }
 }
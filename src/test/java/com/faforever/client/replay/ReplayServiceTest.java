@@ -177,7 +177,9 @@ public class ReplayServiceTest {
   public void setUp() throws Exception {
     MockitoAnnotations.initMocks(this);
 
-    instance = new ReplayService(new ClientProperties(), preferencesService, userService, replayFileReader, notificationService, gameService, playerService,
+    ClientProperties clientProperties = new ClientProperties();
+    instance = new ReplayService(clientProperties, preferencesService, userService, replayFileReader,
+        new LocalReplayIndex(clientProperties, preferencesService, replayFileReader), notificationService, gameService, playerService,
         taskService, i18n, reportingService, applicationContext, platformService, fafService, modService, mapService, publisher);
 
     when(preferencesService.getReplaysDirectory()).thenReturn(replayDirectory.getRoot().toPath());
@@ -0,0 +1,82 @@
+package com.faforever.client.replay;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class SegmentedReplayFileTest {
+
+  private static final byte[] DATA = "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.US_ASCII);
+
+  @Rule
+  public TemporaryFolder replayDirectory = new TemporaryFolder();
+
+  private Path replayFile;
+  private ReplayFileReaderImpl replayFileReader;
+
+  @Before
+  public void setUp() {
+    replayFile = replayDirectory.getRoot().toPath().resolve("1-junit.tad");
+    replayFileReader = new ReplayFileReaderImpl();
+  }
+
+  @Test
+  public void testWriteCommitsFullSegments() throws Exception {
+    try (SegmentedReplayFile instance = SegmentedReplayFile.create(replayFile, new LocalReplayInfo(), 16)) {
+      instance.write(ByteBuffer.wrap(DATA));
+
+      assertThat(instance.getSegments().size(), is(2));
+      assertThat(instance.getCommittedRawLength(), is(32L));
+
+      instance.commit();
+
+      assertThat(instance.getSegments().size(), is(3));
+      assertArrayEquals(instance.readSegment(instance.getSegments().get(2)), "lazy dog".getBytes(StandardCharsets.US_ASCII));
+    }
+  }
+
+  @Test
+  public void testFinish() throws Exception {
+    SegmentedReplayFile instance = SegmentedReplayFile.create(replayFile, new LocalReplayInfo(), 16);
+    instance.write(ByteBuffer.wrap(DATA));
+    LocalReplayInfo header = new LocalReplayInfo();
+    header.setTitle("Finished");
+    header.setComplete(true);
+
+    assertThat(instance.finish(header), is(replayFile));
+
+    assertThat(Files.exists(instance.getPartFile()), is(false));
+    LocalReplayInfo metadata = replayFileReader.parseMetaData(replayFile);
+    assertThat(metadata.getTitle(), is("Finished"));
+    assertThat(metadata.getCompression(), is(CompressionType.ZSTD));
+    assertThat(metadata.isComplete(), is(true));
+    assertArrayEquals(replayFileReader.readRawReplayData(replayFile), DATA);
+  }
+
+  @Test
+  public void testUnfinishedReplayIsRecovered() throws Exception {
+    LocalReplayInfo header = new LocalReplayInfo();
+    header.setTitle("Crashed");
+    SegmentedReplayFile instance = SegmentedReplayFile.create(replayFile, header, 16);
+    instance.write(ByteBuffer.wrap(DATA));
+    instance.close();
+
+    SegmentedReplayFile.recoverPartFiles(replayDirectory.getRoot().toPath(), "*.tad");
+
+    assertThat(Files.exists(instance.getPartFile()), is(false));
+    LocalReplayInfo metadata = replayFileReader.parseMetaData(replayFile);
+    assertThat(metadata.getTitle(), is("Crashed"));
+    assertThat(metadata.isComplete(), is(false));
+    assertArrayEquals(replayFileReader.readRawReplayData(replayFile), DATA);
+  }
+}
@@ -0,0 +1,250 @@
+package com.faforever.client.task;
+
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.task.TransferScheduler.DirectoryLock;
+import com.faforever.client.task.TransferScheduler.Direction;
+import com.faforever.client.task.TransferScheduler.ScheduledTransfer;
+import com.faforever.commons.io.ByteCountListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TransferSchedulerTest {
+
+  private static final long TIMEOUT_SECONDS = 5;
+
+  private ClientProperties clientProperties;
+  private ExecutorService executorService;
+  private TransferScheduler instance;
+
+  @Before
+  public void setUp() {
+    clientProperties = new ClientProperties();
+    clientProperties.getTransfer().setDownloadSlots(1);
+    clientProperties.getTransfer().setUploadSlots(1);
+    clientProperties.getTransfer().setReservedCriticalSlots(0);
+    clientProperties.getTransfer().setBackgroundSlots(1);
+    executorService = Executors.newCachedThreadPool();
+    instance = new TransferScheduler(clientProperties);
+  }
+
+  @After
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testDownloadWaitsForFreeSlot() throws Exception {
+    ScheduledTransfer first = instance.startDownload(TransferPriority.NORMAL);
+    CompletableFuture<ScheduledTransfer> second = startDownloadAsync(TransferPriority.NORMAL);
+    awaitQueueDepth(Direction.DOWNLOAD, 1);
+
+    assertThat(second.isDone(), is(false));
+    assertThat(instance.getActiveTransfers(Direction.DOWNLOAD), is(1));
+
+    first.close();
+
+    second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).close();
+    assertThat(instance.getQueueDepth(Direction.DOWNLOAD), is(0));
+    assertThat(instance.getActiveTransfers(Direction.DOWNLOAD), is(0));
+    assertThat(instance.getMaxWaitTime(Direction.DOWNLOAD, TransferPriority.NORMAL), greaterThan(Duration.ZERO));
+  }
+
+  @Test
+  public void testHigherPriorityGoesFirst() throws Exception {
+    List<TransferPriority> started = new CopyOnWriteArrayList<>();
+    ScheduledTransfer first = instance.startDownload(TransferPriority.NORMAL);
+    CompletableFuture<ScheduledTransfer> background = startDownloadAsync(TransferPriority.BACKGROUND, started);
+    awaitQueueDepth(Direction.DOWNLOAD, 1);
+    CompletableFuture<ScheduledTransfer> normal = startDownloadAsync(TransferPriority.NORMAL, started);
+    awaitQueueDepth(Direction.DOWNLOAD, 2);
+    CompletableFuture<ScheduledTransfer> critical = startDownloadAsync(TransferPriority.CRITICAL, started);
+    awaitQueueDepth(Direction.DOWNLOAD, 3);
+
+    first.close();
+    critical.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).close();
+    normal.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).close();
+    background.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).close();
+
+    assertThat(started, contains(TransferPriority.CRITICAL, TransferPriority.NORMAL, TransferPriority.BACKGROUND));
+  }
+
+  @Test
+  public void testCriticalDownloadUsesReservedSlot() throws Exception {
+    clientProperties.getTransfer().setReservedCriticalSlots(1);
+    ScheduledTransfer normal = instance.startDownload(TransferPriority.NORMAL);
+
+    ScheduledTransfer critical = startDownloadAsync(TransferPriority.CRITICAL).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+    assertThat(instance.getActiveTransfers(Direction.DOWNLOAD), is(2));
+    critical.close();
+    normal.close();
+  }
+
+  @Test
+  public void testBackgroundDownloadsLeaveSlotsFree() throws Exception {
+    clientProperties.getTransfer().setDownloadSlots(2);
+    ScheduledTransfer firstBackground = instance.startDownload(TransferPriority.BACKGROUND);
+    CompletableFuture<ScheduledTransfer> secondBackground = startDownloadAsync(TransferPriority.BACKGROUND);
+    awaitQueueDepth(Direction.DOWNLOAD, 1);
+
+    assertThat(secondBackground.isDone(), is(false));
+
+    firstBackground.close();
+    secondBackground.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).close();
+  }
+
+  @Test
+  public void testUploadDoesNotBlockDownloads() throws Exception {
+    ScheduledTransfer upload = instance.startUpload(TransferPriority.NORMAL);
+
+    ScheduledTransfer download = startDownloadAsync(TransferPriority.NORMAL).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+    assertThat(instance.getActiveTransfers(Direction.UPLOAD), is(1));
+    assertThat(instance.getActiveTransfers(Direction.DOWNLOAD), is(1));
+    download.close();
+    upload.close();
+  }
+
+  @Test
+  public void testClosingTwiceFreesOneSlot() throws Exception {
+    clientProperties.getTransfer().setDownloadSlots(2);
+    ScheduledTransfer first = instance.startDownload(TransferPriority.NORMAL);
+    ScheduledTransfer second = instance.startDownload(TransferPriority.NORMAL);
+
+    first.close();
+    first.close();
+
+    assertThat(instance.getActiveTransfers(Direction.DOWNLOAD), is(1));
+    second.close();
+  }
+
+  @Test
+  public void testInterruptedWaitLeavesQueue() throws Exception {
+    ScheduledTransfer first = instance.startDownload(TransferPriority.NORMAL);
+    CompletableFuture<ScheduledTransfer> second = startDownloadAsync(TransferPriority.NORMAL);
+    awaitQueueDepth(Direction.DOWNLOAD, 1);
+
+    executorService.shutdownNow();
+
+    try {
+      second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      fail("Waiting should have been interrupted");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(InterruptedIOException.class));
+    }
+    assertThat(instance.getQueueDepth(Direction.DOWNLOAD), is(0));
+    first.close();
+    assertThat(instance.getActiveTransfers(Direction.DOWNLOAD), is(0));
+  }
+
+  @Test
+  public void testBandwidthBudget() throws Exception {
+    clientProperties.getTransfer().setBandwidthBudget(100_000);
+
+    try (ScheduledTransfer transfer = instance.startDownload(TransferPriority.NORMAL)) {
+      long start = System.nanoTime();
+      transfer.throttle(100_000);
+      assertThat(System.nanoTime() - start, lessThan(TimeUnit.MILLISECONDS.toNanos(100)));
+
+      transfer.throttle(20_000);
+      assertThat(System.nanoTime() - start, greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(150)));
+    }
+  }
+
+  @Test
+  public void testBandwidthBudgetIsSharedWithUploads() throws Exception {
+    clientProperties.getTransfer().setBandwidthBudget(100_000);
+
+    try (ScheduledTransfer upload = instance.startUpload(TransferPriority.NORMAL);
+         ScheduledTransfer download = instance.startDownload(TransferPriority.NORMAL)) {
+      long start = System.nanoTime();
+      download.throttle(50_000);
+      download.throttle(10_000);
+      assertThat(System.nanoTime() - start, greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(150)));
+    }
+  }
+
+  @Test
+  public void testReportedProgressIsThrottled() throws Exception {
+    clientProperties.getTransfer().setBandwidthBudget(100_000);
+    List<Long> reported = new CopyOnWriteArrayList<>();
+
+    try (ScheduledTransfer upload = instance.startUpload(TransferPriority.NORMAL)) {
+      ByteCountListener listener = upload.throttle((written, total) -> reported.add(written));
+      long start = System.nanoTime();
+      listener.updateBytesWritten(100_000, 120_000);
+      assertThat(System.nanoTime() - start, lessThan(TimeUnit.MILLISECONDS.toNanos(100)));
+
+      listener.updateBytesWritten(120_000, 120_000);
+      assertThat(System.nanoTime() - start, greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(150)));
+    }
+    assertThat(reported, contains(100_000L, 120_000L));
+  }
+
+  @Test
+  public void testDirectoriesAreLockedSeparately() throws Exception {
+    Path directory = Path.of("maps");
+    Path otherDirectory = Path.of("mods");
+
+    try (DirectoryLock lock = instance.lockDirectories(directory)) {
+      executorService.submit(() -> instance.lockDirectories(otherDirectory).close()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+      try {
+        executorService.submit(() -> instance.lockDirectories(otherDirectory, directory).close()).get(200, TimeUnit.MILLISECONDS);
+        fail("Directory should have been locked");
+      } catch (TimeoutException expected) {
+        // expected
+      }
+    }
+  }
+
+  private CompletableFuture<ScheduledTransfer> startDownloadAsync(TransferPriority priority) {
+    return startDownloadAsync(priority, new CopyOnWriteArrayList<>());
+  }
+
+  private CompletableFuture<ScheduledTransfer> startDownloadAsync(TransferPriority priority, List<TransferPriority> started) {
+    CompletableFuture<ScheduledTransfer> future = new CompletableFuture<>();
+    executorService.execute(() -> {
+      try {
+        ScheduledTransfer transfer = instance.startDownload(priority);
+        started.add(priority);
+        future.complete(transfer);
+      } catch (Exception e) {
+        future.completeExceptionally(e);
+      }
+    });
+    return future;
+  }
+
+  private void awaitQueueDepth(Direction direction, int depth) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+    while (instance.getQueueDepth(direction) != depth) {
+      if (System.nanoTime() > deadline) {
+        fail("Queue depth is " + instance.getQueueDepth(direction) + " instead of " + depth);
+      }
+      Thread.sleep(10);
+    }
+  }
+}
@@ -21,6 +21,7 @@ import org.testfx.util.WaitForAsyncUtils;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -123,6 +124,10 @@ public abstract class AbstractPlainJavaFxTest extends ApplicationTest {
     return noCatch(() -> new ClassPathResource(getThemeFile(file)).getURL());
   }
 
+  protected String getThemeTemplate(String file) {
+    return noCatch(() -> new String(new ClassPathResource(getThemeFile(file)).getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+  }
+
   protected void runOnFxThreadAndWait(Runnable runnable) {
     JavaFxUtil.runLater(runnable);
     WaitForAsyncUtils.waitForFxEvents();